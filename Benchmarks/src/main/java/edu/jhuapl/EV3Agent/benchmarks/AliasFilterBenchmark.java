@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.jhuapl.EV3Agent.AliasFilter;
+import edu.jhuapl.dorset.Request;
+import edu.jhuapl.dorset.filters.AliasRequestFilter;
+import edu.jhuapl.dorset.filters.RequestFilter;
+
+/**
+ * Cost of rewriting a spoken command with the bundled aliases, padded to 
+ * thousands of aliases, by the agent's AliasFilter and by Dorset's 
+ * AliasRequestFilter
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AliasFilterBenchmark {
+
+	@Param({"30", "3000"})
+	public int aliases;
+	private RequestFilter automaton;
+	private RequestFilter dorset;
+	private int next;
+
+	@Setup
+	public void setUp(){
+		Map<String, String> aliasMap = Commands.aliases(aliases);
+		automaton = new AliasFilter(aliasMap);
+		dorset = new AliasRequestFilter(aliasMap);
+	}
+	/**
+	 * @return Text of the next spoken command filtered by AliasFilter
+	 */
+	@Benchmark
+	public String automaton(){
+		return automaton.filter(new Request(Commands.SPOKEN[next++ % Commands.SPOKEN.length])).getText();
+	}
+	/**
+	 * @return Text of the next spoken command filtered by AliasRequestFilter
+	 */
+	@Benchmark
+	public String dorset(){
+		return dorset.filter(new Request(Commands.SPOKEN[next++ % Commands.SPOKEN.length])).getText();
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.jhuapl.dorset.Application;
+import edu.jhuapl.dorset.Request;
+import edu.jhuapl.dorset.Response;
+
+/**
+ * Full Application.process round trips, alias filter and agent included, 
+ * over the mock platform and the simulated robot. One thread sends commands 
+ * that move the robot; four threads share one application the way the web 
+ * demo's request threads do and send commands that do not move it, since 
+ * concurrent motions would fight over the wheels.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ApplicationBenchmark {
+
+	@Param({"mock", "simulated"})
+	public String platform;
+	private Application app;
+	private final AtomicInteger next = new AtomicInteger();
+
+	@Setup
+	public void setUp(){
+		app = Commands.application(platform);
+	}
+	@TearDown
+	public void tearDown(){
+		app.process(new Request("quit"));
+	}
+	/**
+	 * @return Response to the next motion command
+	 */
+	@Benchmark
+	@Threads(1)
+	public Response motion(){
+		return app.process(new Request(Commands.MOTIONS[next(Commands.MOTIONS.length)]));
+	}
+	/**
+	 * @return Response to the next query from one of four threads
+	 */
+	@Benchmark
+	@Threads(4)
+	public Response sharedQuery(){
+		return app.process(new Request(Commands.QUERIES[next(Commands.QUERIES.length)]));
+	}
+	private int next(int length){
+		return (next.getAndIncrement() & Integer.MAX_VALUE) % length;
+	}
+}
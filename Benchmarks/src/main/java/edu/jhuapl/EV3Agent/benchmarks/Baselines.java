@@ -0,0 +1,197 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent.benchmarks;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.RunResult;
+
+/**
+ * Score and allocation of each benchmark from an earlier run on the same 
+ * machine, kept in a baseline file as &lt;benchmark&gt;.score, in ops/ms for 
+ * throughput benchmarks and ms/op for the others, and &lt;benchmark&gt;.alloc 
+ * in bytes per operation. Benchmarks without a baseline are reported but 
+ * never fail a check.
+ */
+public class Baselines {
+
+	/**
+	 * Allocation differences below this many bytes per operation are noise
+	 */
+	private static final double ALLOC_SLACK = 16;
+	private final Properties values;
+
+	/**
+	 * Constructor
+	 * @param values Baseline values
+	 */
+	public Baselines(Properties values){
+		this.values = values;
+	}
+	/**
+	 * @param file Baseline file recorded on this machine
+	 * @return Baselines from the file, empty if there is none
+	 * @throws IOException
+	 */
+	public static Baselines load(File file) throws IOException {
+		Properties values = new Properties();
+		if(file.isFile()){
+			InputStream in = new FileInputStream(file);
+			try{
+				values.load(in);
+			} finally{
+				in.close();
+			}
+		}
+		return new Baselines(values);
+	}
+	/**
+	 * @return boolean value representing whether there are no baselines at all
+	 */
+	public boolean isEmpty(){
+		return values.isEmpty();
+	}
+	/**
+	 * @param params
+	 * @return Name of the benchmark without its package, followed by its parameter 
+	 * values with whitespace replaced by underscores
+	 */
+	public static String key(BenchmarkParams params){
+		String name = params.getBenchmark();
+		name = name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1);
+		for(String param : params.getParamsKeys()){
+			name += "." + params.getParam(param).replaceAll("\\s+", "_");
+		}
+		return name;
+	}
+	/**
+	 * @param result
+	 * @return Bytes allocated per operation or NaN if the GC profiler was not used
+	 */
+	public static double allocation(RunResult result){
+		for(String name : result.getSecondaryResults().keySet()){
+			if(name.endsWith("gc.alloc.rate.norm")){
+				return result.getSecondaryResults().get(name).getScore();
+			}
+		}
+		return Double.NaN;
+	}
+	/**
+	 * Compares each result with its baseline and prints a table of both
+	 * @param results
+	 * @param tolerance Fraction throughput may drop, or time or allocation grow, before it is a regression
+	 * @param out
+	 * @return Description of each regression, empty if there are none
+	 */
+	public List<String> check(Collection<RunResult> results, double tolerance, PrintWriter out){
+		List<String> regressions = new ArrayList<String>();
+		out.println(String.format("%-40s %12s %12s %8s %10s %10s", 
+				"Benchmark", "score", "baseline", "change", "B/op", "baseline"));
+		for(RunResult result : results){
+			String key = key(result.getParams());
+			double score = result.getPrimaryResult().getScore();
+			double alloc = allocation(result);
+			double baseScore = baseline(key + ".score");
+			double baseAlloc = baseline(key + ".alloc");
+			if(Double.isNaN(baseScore)){
+				out.println(String.format("%-40s %12.1f %12s %8s %10.1f %10s", 
+						key, score, "none", "", alloc, "none"));
+				continue;
+			}
+			out.println(String.format("%-40s %12.1f %12.1f %7.1f%% %10.1f %10.1f", 
+					key, score, baseScore, 100 * (score - baseScore) / baseScore, alloc, baseAlloc));
+			if(result.getParams().getMode() == Mode.Throughput){
+				if(score < baseScore * (1 - tolerance)){
+					regressions.add(String.format("%s throughput fell from %.1f to %.1f ops/ms", 
+							key, baseScore, score));
+				}
+			}
+			else if(score > baseScore * (1 + tolerance)){
+				regressions.add(String.format("%s time grew from %.1f to %.1f ms/op", 
+						key, baseScore, score));
+			}
+			if(alloc > baseAlloc * (1 + tolerance) + ALLOC_SLACK){
+				regressions.add(String.format("%s allocation grew from %.1f to %.1f B/op", 
+						key, baseAlloc, alloc));
+			}
+		}
+		out.flush();
+		return regressions;
+	}
+	/**
+	 * @param name
+	 * @return Baseline value or NaN if the benchmark has none, which never fails a check
+	 */
+	private double baseline(String name){
+		String value = values.getProperty(name);
+		if(value == null){
+			return Double.NaN;
+		}
+		return Double.parseDouble(value);
+	}
+	/**
+	 * Writes the results as new baselines, keeping the baselines of benchmarks that were not run
+	 * @param results
+	 * @param file
+	 * @throws IOException
+	 */
+	public void record(Collection<RunResult> results, File file) throws IOException {
+		Map<String, String> sorted = new TreeMap<String, String>();
+		for(String name : values.stringPropertyNames()){
+			sorted.put(name, values.getProperty(name));
+		}
+		for(RunResult result : results){
+			String key = key(result.getParams());
+			sorted.put(key + ".score", String.format(Locale.ROOT, "%.1f", result.getPrimaryResult().getScore()));
+			double alloc = allocation(result);
+			if(!Double.isNaN(alloc)){
+				sorted.put(key + ".alloc", String.format(Locale.ROOT, "%.1f", alloc));
+			}
+		}
+		PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), 
+				Charset.forName("ISO-8859-1")));
+		try{
+			writer.println("# Recorded " + new Date() + " on " + System.getProperty("java.vm.name") 
+					+ " " + System.getProperty("java.version") + ", " 
+					+ Runtime.getRuntime().availableProcessors() + " processors");
+			writer.println("# <benchmark>.score is ops/ms, or ms/op for time benchmarks, "
+					+ "<benchmark>.alloc is bytes per operation");
+			for(Map.Entry<String, String> entry : sorted.entrySet()){
+				writer.println(entry.getKey() + "=" + entry.getValue());
+			}
+		} finally{
+			writer.close();
+		}
+	}
+}
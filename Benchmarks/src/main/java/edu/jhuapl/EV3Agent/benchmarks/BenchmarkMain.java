@@ -0,0 +1,91 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent.benchmarks;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler and checks them against the 
+ * baselines recorded on this machine, exiting with status 1 if any of them 
+ * regressed. Baselines are machine specific, so they are not shipped with 
+ * the module.
+ * Arguments: [--tolerance fraction] [--baselines file] [--record file] [regex...]
+ */
+public class BenchmarkMain {
+
+	private static final String BASELINES = "baselines.properties";
+	private static final double DEFAULT_TOLERANCE = 0.3;
+
+	public static void main(String[] args) throws Exception {
+		double tolerance = DEFAULT_TOLERANCE;
+		File baselineFile = new File(BASELINES);
+		File record = null;
+		List<String> includes = new ArrayList<String>();
+		for(int i = 0; i < args.length; i++){
+			if(args[i].equals("--tolerance") && i + 1 < args.length){
+				tolerance = Double.parseDouble(args[++i]);
+			}
+			else if(args[i].equals("--baselines") && i + 1 < args.length){
+				baselineFile = new File(args[++i]);
+			}
+			else if(args[i].equals("--record") && i + 1 < args.length){
+				record = new File(args[++i]);
+			}
+			else{
+				includes.add(args[i]);
+			}
+		}
+		if(includes.isEmpty()){
+			includes.add(BenchmarkMain.class.getPackage().getName() + ".*Benchmark");
+		}
+		ChainedOptionsBuilder options = new OptionsBuilder().addProfiler(GCProfiler.class);
+		for(String include : includes){
+			options.include(include);
+		}
+		Collection<RunResult> results = new Runner(options.build()).run();
+		
+		Baselines baselines = Baselines.load(baselineFile);
+		PrintWriter out = new PrintWriter(System.out);
+		out.println();
+		if(baselines.isEmpty() && record == null){
+			out.println("No baselines in " + baselineFile + ", record them on this machine with --record " 
+					+ baselineFile);
+		}
+		List<String> regressions = baselines.check(results, tolerance, out);
+		if(record != null){
+			baselines.record(results, record);
+			System.out.println("Recorded baselines in " + record);
+			return;
+		}
+		for(String regression : regressions){
+			System.out.println("REGRESSION: " + regression);
+		}
+		if(!regressions.isEmpty()){
+			System.exit(1);
+		}
+	}
+}
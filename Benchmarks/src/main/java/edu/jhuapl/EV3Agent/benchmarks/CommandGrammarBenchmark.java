@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.jhuapl.EV3Agent.CommandGrammar;
+import edu.jhuapl.EV3Agent.EV3Agent;
+import edu.jhuapl.EV3Agent.ParsedCommand;
+
+/**
+ * Cost of parsing each shape of command with the agent's command grammar
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CommandGrammarBenchmark {
+
+	@Param({"fire", "turn 90", "move -10 cm", "help turn", "turn ninety", "jump 3"})
+	public String command;
+	private CommandGrammar<EV3Agent.CommandHandler> grammar;
+	private final ParsedCommand<EV3Agent.CommandHandler> parsed = new ParsedCommand<EV3Agent.CommandHandler>();
+
+	@Setup
+	public void setUp(){
+		grammar = new EV3Agent(Commands.properties("mock")).getGrammar();
+	}
+	/**
+	 * @return Status of parsing the command
+	 */
+	@Benchmark
+	public CommandGrammar.Status parse(){
+		return grammar.parse(command, parsed);
+	}
+}
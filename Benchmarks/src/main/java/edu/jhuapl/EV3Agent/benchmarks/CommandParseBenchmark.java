@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.jhuapl.dorset.nlp.Tokenizer;
+import edu.jhuapl.dorset.nlp.WhiteSpaceTokenizer;
+
+/**
+ * Cost of turning the text of a request into a command word and number,
+ * done the way EV3Agent.process did before CommandGrammar: a new tokenizer 
+ * per request, lower casing, and Integer.parseInt with an exception for 
+ * bad numbers. Kept as the reference for CommandGrammarBenchmark.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CommandParseBenchmark {
+
+	private int next;
+
+	/**
+	 * Parses the next typed command
+	 * @param blackhole
+	 */
+	@Benchmark
+	public void parse(Blackhole blackhole){
+		String input = Commands.TYPED[next++ % Commands.TYPED.length];
+		Tokenizer tokenizer = new WhiteSpaceTokenizer();
+		String[] tokens = tokenizer.tokenize(input.toLowerCase());
+		blackhole.consume(tokens[0]);
+		if(tokens.length == 2){
+			try{
+				blackhole.consume(Integer.parseInt(tokens[1]));
+			} catch(NumberFormatException e){
+				blackhole.consume(e);
+			}
+		}
+	}
+	/**
+	 * Parses a command whose number is not a number, which costs an exception
+	 * @param blackhole
+	 */
+	@Benchmark
+	public void parseInvalidNumber(Blackhole blackhole){
+		Tokenizer tokenizer = new WhiteSpaceTokenizer();
+		String[] tokens = tokenizer.tokenize("turn ninety".toLowerCase());
+		blackhole.consume(tokens[0]);
+		try{
+			blackhole.consume(Integer.parseInt(tokens[1]));
+		} catch(NumberFormatException e){
+			blackhole.consume(e);
+		}
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent.benchmarks;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Properties;
+
+import edu.jhuapl.EV3Agent.AliasFilter;
+import edu.jhuapl.EV3Agent.EV3Agent;
+import edu.jhuapl.EV3Agent.SpokenNumberFilter;
+import edu.jhuapl.EV3Agent.TracingApplication;
+import edu.jhuapl.dorset.Application;
+import edu.jhuapl.dorset.routing.SingleAgentRouter;
+
+/**
+ * Command texts and agent set ups shared by the benchmarks
+ */
+public final class Commands {
+
+	/**
+	 * Typed commands, a mix of one word, two word, help and invalid commands
+	 */
+	public static final String[] TYPED = new String[] {
+		"turn 90", "move 10", "angle 5", "angle -5", "fire", "battery", "stop",
+		"help turn", "Turn -90", "move -10", "commands", "jump 3", "turn ninety"
+	};
+	/**
+	 * Commands as the speech recognizer delivers them, before alias filtering
+	 */
+	public static final String[] SPOKEN = new String[] {
+		"turn ninety", "move ten", "single five", "ternate", "for word", "back words",
+		"turn negative four", "move to", "fire", "mingle minus five", "battery"
+	};
+	/**
+	 * Commands answered without moving the robot
+	 */
+	public static final String[] QUERIES = new String[] {
+		"battery", "help turn", "commands", "sensors", "jump 3", "turn ninety meters"
+	};
+	/**
+	 * Commands that move the robot and come back to where it started
+	 */
+	public static final String[] MOTIONS = new String[] {
+		"turn 90", "turn -90", "move 10", "move -10", "angle 5", "angle -5", "battery", "help move"
+	};
+
+	private Commands(){
+	}
+	/**
+	 * @param count Number of aliases, at least the number bundled with the agent
+	 * @return Aliases bundled with the agent, padded with made up phrases
+	 */
+	public static Map<String, String> aliases(int count){
+		Map<String, String> aliases;
+		try{
+			aliases = AliasFilter.read(AliasFilter.class.getResourceAsStream(AliasFilter.DEFAULT_ALIASES));
+		} catch(IOException e){
+			throw new IllegalStateException("Could not read the bundled aliases", e);
+		}
+		for(int i = 0; aliases.size() < count; i++){
+			aliases.put("phrase" + i + " word", "command" + i);
+		}
+		return aliases;
+	}
+	/**
+	 * @param platform "mock" or "simulated"
+	 * @return Properties of an agent on the given platform that does not wait on motion
+	 */
+	public static Properties properties(String platform){
+		Properties prop = new Properties();
+		if(platform.equals("mock")){
+			prop.setProperty("mockEV3", "true");
+			prop.setProperty("mockMotionMillis", "0");
+		}
+		else if(platform.equals("simulated")){
+			prop.setProperty("simulatedEV3", "true");
+			prop.setProperty("simLatencyMillis", "1");
+			prop.setProperty("simSpeedup", "0");
+			prop.setProperty("moveMode", "tacho");
+		}
+		else{
+			throw new IllegalArgumentException("Unknown platform " + platform);
+		}
+		return prop;
+	}
+	/**
+	 * @param platform "mock" or "simulated"
+	 * @return Application set up like the web demo
+	 */
+	public static Application application(String platform){
+		EV3Agent agent = new EV3Agent(properties(platform));
+		Application app = new TracingApplication(new SingleAgentRouter(agent), agent.getTracer());
+		try{
+			app.addRequestFilter(AliasFilter.loadDefault());
+			app.addRequestFilter(new SpokenNumberFilter());
+		} catch(IOException e){
+			throw new IllegalStateException("Could not read the bundled aliases", e);
+		}
+		return app;
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent.benchmarks;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.jhuapl.EV3Agent.EV3Agent;
+import edu.jhuapl.EV3Agent.Hypothesis;
+import edu.jhuapl.EV3Agent.HypothesisScorer;
+
+/**
+ * N-best lists per millisecond scored by the agent's hypothesis scorer,
+ * with the cache of parsed hypotheses and without it
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HypothesisScorerBenchmark {
+
+	private static final List<List<Hypothesis>> N_BEST = Arrays.<List<Hypothesis>>asList(
+		Arrays.asList(new Hypothesis("turn 90", 0.8), new Hypothesis("tern 90", 0.6), 
+				new Hypothesis("turn 19", 0.3)),
+		Arrays.asList(new Hypothesis("angle 50", 0.7), new Hypothesis("angle 15", 0.6), 
+				new Hypothesis("single 15", 0.4), new Hypothesis("angle fifteen", 0.2)),
+		Arrays.asList(new Hypothesis("bat tree", 0.7), new Hypothesis("battery", 0.5)),
+		Arrays.asList(new Hypothesis("move to", 0.6), new Hypothesis("move 2", 0.5), 
+				new Hypothesis("moo 2", 0.3), new Hypothesis("move two", 0.3), new Hypothesis("mood", 0.1))
+	);
+	@Param({"256", "0"})
+	public String cacheSize;
+	private HypothesisScorer<EV3Agent.CommandHandler> scorer;
+	private int next;
+
+	@Setup
+	public void setUp(){
+		Properties prop = Commands.properties("mock");
+		prop.setProperty("hypothesisCacheSize", cacheSize);
+		scorer = new EV3Agent(prop).getHypothesisScorer();
+	}
+	/**
+	 * @return Choice of the next N-best list
+	 */
+	@Benchmark
+	public HypothesisScorer.Choice choose(){
+		return scorer.choose(N_BEST.get(next++ % N_BEST.size()));
+	}
+}
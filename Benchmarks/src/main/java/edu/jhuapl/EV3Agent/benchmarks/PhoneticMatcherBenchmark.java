@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent.benchmarks;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.jhuapl.EV3Agent.EV3Agent;
+import edu.jhuapl.EV3Agent.PhoneticMatcher;
+
+/**
+ * Lookups per millisecond of misheard command words in the agent's fuzzy 
+ * matcher, with the cache of resolved words and without it
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PhoneticMatcherBenchmark {
+
+	private static final String[] MISHEARD = new String[] {
+		"ingle", "mingle", "tern", "batery", "stap", "forword", "moove", "fyre", "bad", "jump"
+	};
+	@Param({"1024", "0"})
+	public String cacheSize;
+	private PhoneticMatcher matcher;
+	private int next;
+
+	@Setup
+	public void setUp(){
+		Properties prop = Commands.properties("mock");
+		prop.setProperty("fuzzyCacheSize", cacheSize);
+		matcher = new EV3Agent(prop).getCommandMatcher();
+	}
+	/**
+	 * @return Match of the next misheard word, null if there is none
+	 */
+	@Benchmark
+	public PhoneticMatcher.Match resolve(){
+		return matcher.resolve(MISHEARD[next++ % MISHEARD.length]);
+	}
+}
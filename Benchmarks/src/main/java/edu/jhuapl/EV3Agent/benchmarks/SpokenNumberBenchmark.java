@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.jhuapl.EV3Agent.AliasFilter;
+import edu.jhuapl.EV3Agent.SpokenNumberFilter;
+import edu.jhuapl.dorset.Request;
+
+/**
+ * Transcripts per millisecond normalized by the spoken number filter, on
+ * its own and after the bundled aliases as in the web demo
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SpokenNumberBenchmark {
+
+	private static final String TRANSCRIPTS = "/transcripts.txt";
+	private String[] transcripts;
+	private SpokenNumberFilter numbers;
+	private AliasFilter aliases;
+	private int next;
+
+	@Setup
+	public void setUp() throws IOException {
+		List<String> lines = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				SpokenNumberBenchmark.class.getResourceAsStream(TRANSCRIPTS), "UTF-8"));
+		try{
+			String line;
+			while((line = reader.readLine()) != null){
+				if(!line.isEmpty() && !line.startsWith("#")){
+					lines.add(line);
+				}
+			}
+		} finally{
+			reader.close();
+		}
+		transcripts = lines.toArray(new String[lines.size()]);
+		numbers = new SpokenNumberFilter();
+		aliases = AliasFilter.loadDefault();
+	}
+	/**
+	 * @return Next transcript with its numbers written as numerals
+	 */
+	@Benchmark
+	public String normalize(){
+		return numbers.normalize(transcripts[next++ % transcripts.length]);
+	}
+	/**
+	 * @return Text of the next transcript after the aliases and the number filter
+	 */
+	@Benchmark
+	public String spoken(){
+		Request request = new Request(transcripts[next++ % transcripts.length]);
+		return numbers.filter(aliases.filter(request)).getText();
+	}
+}
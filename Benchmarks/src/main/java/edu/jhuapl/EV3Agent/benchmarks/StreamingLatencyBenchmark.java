@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.jhuapl.EV3Agent.AliasFilter;
+import edu.jhuapl.EV3Agent.EV3Agent;
+import edu.jhuapl.EV3Agent.SpokenNumberFilter;
+import edu.jhuapl.EV3Agent.StreamingRecognizer;
+import edu.jhuapl.dorset.Application;
+import edu.jhuapl.dorset.Request;
+import edu.jhuapl.dorset.agents.AgentResponse;
+import edu.jhuapl.dorset.routing.SingleAgentRouter;
+
+/**
+ * Milliseconds from the first word of an utterance to the mock robot acting 
+ * on it. Partial transcripts arrive as speech recognizers deliver them, one 
+ * every PARTIAL_MILLIS, and the end of the utterance is only known 
+ * ENDPOINT_MILLIS after the last one. Compares the streaming recognizer, 
+ * which runs early commands on the partial that names them, with 
+ * Application.process on the final transcript.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StreamingLatencyBenchmark {
+
+	private static final long PARTIAL_MILLIS = 150;
+	private static final long ENDPOINT_MILLIS = 500;
+	private static final Map<String, String[]> PARTIALS = new HashMap<String, String[]>();
+
+	static {
+		PARTIALS.put("stop", new String[] {"stop"});
+		PARTIALS.put("fire", new String[] {"fire"});
+		PARTIALS.put("turn ninety", new String[] {"turn", "turn nine", "turn ninety"});
+	}
+	@Param({"stop", "fire", "turn ninety"})
+	public String utterance;
+	private Application app;
+	private StreamingRecognizer recognizer;
+
+	@Setup
+	public void setUp() throws Exception {
+		EV3Agent agent = new EV3Agent(Commands.properties("mock"));
+		AliasFilter aliases = AliasFilter.loadDefault();
+		SpokenNumberFilter numbers = new SpokenNumberFilter();
+		app = new Application(new SingleAgentRouter(agent));
+		app.addRequestFilter(aliases);
+		app.addRequestFilter(numbers);
+		recognizer = new StreamingRecognizer(agent, aliases, numbers);
+	}
+	@TearDown
+	public void tearDown(){
+		recognizer.close();
+		app.process(new Request("quit"));
+	}
+	/**
+	 * @return Text of the response once the robot acted on the utterance
+	 * @throws InterruptedException
+	 */
+	@Benchmark
+	public String wholeUtterance() throws InterruptedException {
+		String[] partials = PARTIALS.get(utterance);
+		Thread.sleep(PARTIAL_MILLIS * partials.length + ENDPOINT_MILLIS);
+		return app.process(new Request(partials[partials.length - 1])).getText();
+	}
+	/**
+	 * @return Text of the response once the robot acted on the utterance
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 */
+	@Benchmark
+	public String streaming() throws InterruptedException, ExecutionException {
+		String[] partials = PARTIALS.get(utterance);
+		for(String partial : partials){
+			Thread.sleep(PARTIAL_MILLIS);
+			recognizer.accept(partial);
+			Future<AgentResponse> committed = recognizer.getCommitted();
+			if(committed != null){
+				String text = committed.get().getText();
+				recognizer.finish(partials[partials.length - 1]);
+				return text;
+			}
+		}
+		Thread.sleep(ENDPOINT_MILLIS);
+		return recognizer.finish(partials[partials.length - 1]).get().getText();
+	}
+}
@@ -20,14 +20,16 @@ package edu.jhuapl.EV3Agent.app;
  * Runs EV3 Command Line `Demo
  */
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.Scanner;
 
+import edu.jhuapl.EV3Agent.BatchResult;
 import edu.jhuapl.EV3Agent.EV3Agent;
-import edu.jhuapl.dorset.Application;
+import edu.jhuapl.EV3Agent.TracingApplication;
 import edu.jhuapl.dorset.Request;
 import edu.jhuapl.dorset.Response;
-import edu.jhuapl.dorset.agents.Agent;
 import edu.jhuapl.dorset.routing.Router;
 import edu.jhuapl.dorset.routing.SingleAgentRouter;
 
@@ -36,9 +38,9 @@ public class EV3 {
     public static void main(String[] args) {
 
     	Properties prop = new Properties();
-        Agent agent = new EV3Agent(prop);
+        EV3Agent agent = new EV3Agent(prop);
         Router router = new SingleAgentRouter(agent);
-        Application app = new Application(router);
+        TracingApplication app = new TracingApplication(router, agent.getTracer());
 
         System.out.println("Welcome to the Dorset EV3 Demo. "
         		+ "Enter command for robot or type \"quit\" to end this session.");
@@ -52,6 +54,8 @@ public class EV3 {
     	System.out.println("\t\t Unit of Measure: (angle, turn: degrees)(move: centimeters)");
     	System.out.println("Format(option 2): \"<command>");
      	System.out.println("\tCommands: fire, stop, quit, battery, manual, forward, backward");
+     	System.out.println("Format(option 3): \"<command>, <command>, ...\"");
+     	System.out.println("\tRuns the commands in order as one batch, checking them all first");
 
         while (true) {
             System.out.print("\nCommand > ");
@@ -59,6 +63,10 @@ public class EV3 {
             if (input.equalsIgnoreCase("quit")){ //q quits program 
                 break;
             }
+            if (input.indexOf(',') >= 0) {
+                System.out.println(processBatch(app, agent, input));
+                continue;
+            }
             Request request = new Request(input);
             Response response = app.process(request);		//sends to Agent
             System.out.println(response.getText());		//print Agent response
@@ -74,4 +82,23 @@ public class EV3 {
         
         in.close();
     }
+
+    /**
+     * Splits the line at commas and runs the commands as one batch, each filtered 
+     * like a single request
+     * @param app
+     * @param agent
+     * @param input
+     * @return Result and time of each command
+     */
+    private static String processBatch(TracingApplication app, EV3Agent agent, String input) {
+        List<String> commands = new ArrayList<String>();
+        for (String command : input.split(",")) {
+            if (!command.trim().isEmpty()) {
+                commands.add(app.filter(new Request(command.trim())).getText());
+            }
+        }
+        BatchResult result = agent.processBatch(commands);
+        return result.describe();
+    }
 }
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * Alias phrases compiled into an Aho-Corasick automaton. A transcript is
+ * rewritten in one pass over its text, whatever the number of aliases: the
+ * automaton reports every phrase ending at each character, the longest 
+ * phrase starting at each character is kept, and the text is then copied 
+ * left to right replacing the longest phrase found at each point. Phrases
+ * match ignoring case and only as whole words, so "to" does not match 
+ * inside "tomato". A phrase that starts or ends with a space, such as 
+ * "negative ", only needs a word boundary on its other end.
+ */
+public class AliasAutomaton {
+
+	private static final int ROOT = 0;
+	private static final int NONE = -1;
+	private final char[][] keys;
+	private final int[][] targets;
+	private final int[] failure;
+	/** state reached by following failure links to the nearest accepting state */
+	private final int[] output;
+	/** index of the phrase accepted by each state, NONE if none */
+	private final int[] accepts;
+	private final char[][] phrases;
+	private final String[] replacements;
+	private final ThreadLocal<int[]> longest = new ThreadLocal<int[]>();
+	private final ThreadLocal<StringBuilder> builder = new ThreadLocal<StringBuilder>(){
+		@Override
+		protected StringBuilder initialValue(){
+			return new StringBuilder();
+		}
+	};
+
+	/**
+	 * Compiles the aliases
+	 * @param aliases Replacement of each phrase
+	 */
+	public AliasAutomaton(Map<String, String> aliases){
+		List<Map<Character, Integer>> transitions = new ArrayList<Map<Character, Integer>>();
+		List<Integer> accepted = new ArrayList<Integer>();
+		transitions.add(new TreeMap<Character, Integer>());
+		accepted.add(NONE);
+		phrases = new char[aliases.size()][];
+		replacements = new String[aliases.size()];
+		int index = 0;
+		for(Map.Entry<String, String> alias : aliases.entrySet()){
+			char[] phrase = alias.getKey().toCharArray();
+			for(int i = 0; i < phrase.length; i++){
+				phrase[i] = Character.toLowerCase(phrase[i]);
+			}
+			if(phrase.length == 0){
+				throw new IllegalArgumentException("Alias for " + alias.getValue() + " is empty");
+			}
+			int state = ROOT;
+			for(char c : phrase){
+				Integer next = transitions.get(state).get(c);
+				if(next == null){
+					next = transitions.size();
+					transitions.get(state).put(c, next);
+					transitions.add(new TreeMap<Character, Integer>());
+					accepted.add(NONE);
+				}
+				state = next;
+			}
+			if(accepted.get(state) != NONE){
+				throw new IllegalArgumentException("Alias " + alias.getKey() + " is defined twice");
+			}
+			accepted.set(state, index);
+			phrases[index] = phrase;
+			replacements[index] = alias.getValue();
+			index++;
+		}
+		int states = transitions.size();
+		keys = new char[states][];
+		targets = new int[states][];
+		accepts = new int[states];
+		for(int state = 0; state < states; state++){
+			Map<Character, Integer> map = transitions.get(state);
+			keys[state] = new char[map.size()];
+			targets[state] = new int[map.size()];
+			int i = 0;
+			for(Map.Entry<Character, Integer> entry : map.entrySet()){
+				keys[state][i] = entry.getKey();
+				targets[state][i] = entry.getValue();
+				i++;
+			}
+			accepts[state] = accepted.get(state);
+		}
+		failure = new int[states];
+		output = new int[states];
+		linkStates();
+	}
+	/**
+	 * Sets the failure and output link of every state, breadth first so 
+	 * that a state's links are set before those of its children
+	 */
+	private void linkStates(){
+		Queue<Integer> queue = new ArrayDeque<Integer>();
+		failure[ROOT] = ROOT;
+		output[ROOT] = NONE;
+		for(int child : targets[ROOT]){
+			failure[child] = ROOT;
+			output[child] = NONE;
+			queue.add(child);
+		}
+		while(!queue.isEmpty()){
+			int state = queue.remove();
+			for(int i = 0; i < keys[state].length; i++){
+				int child = targets[state][i];
+				failure[child] = next(failure[state], keys[state][i]);
+				int fail = failure[child];
+				output[child] = accepts[fail] != NONE ? fail : output[fail];
+				queue.add(child);
+			}
+		}
+	}
+	/**
+	 * @param state
+	 * @param c
+	 * @return State after reading c, following failure links as needed
+	 */
+	private int next(int state, char c){
+		while(true){
+			int index = Arrays.binarySearch(keys[state], c);
+			if(index >= 0){
+				return targets[state][index];
+			}
+			if(state == ROOT){
+				return ROOT;
+			}
+			state = failure[state];
+		}
+	}
+	/**
+	 * @return number of aliases
+	 */
+	public int size(){
+		return phrases.length;
+	}
+	/**
+	 * @param text
+	 * @return text with every alias replaced, the same instance if nothing was replaced
+	 */
+	public String rewrite(String text){
+		int length = text.length();
+		int[] best = longest.get();
+		if(best == null || best.length < length){
+			best = new int[Math.max(length, 64)];
+			longest.set(best);
+		}
+		Arrays.fill(best, 0, length, NONE);
+		boolean found = false;
+		int state = ROOT;
+		for(int i = 0; i < length; i++){
+			state = next(state, Character.toLowerCase(text.charAt(i)));
+			int match = accepts[state] != NONE ? state : output[state];
+			while(match != NONE){
+				int phrase = accepts[match];
+				int start = i + 1 - phrases[phrase].length;
+				if(isWhole(text, start, i + 1, phrases[phrase]) 
+						&& (best[start] == NONE || phrases[best[start]].length < phrases[phrase].length)){
+					best[start] = phrase;
+					found = true;
+				}
+				match = output[match];
+			}
+		}
+		if(!found){
+			return text;
+		}
+		StringBuilder rewritten = builder.get();
+		rewritten.setLength(0);
+		int i = 0;
+		while(i < length){
+			int phrase = best[i];
+			if(phrase == NONE){
+				rewritten.append(text.charAt(i));
+				i++;
+			}
+			else{
+				rewritten.append(replacements[phrase]);
+				i += phrases[phrase].length;
+			}
+		}
+		return rewritten.toString();
+	}
+	/**
+	 * @param text
+	 * @param start
+	 * @param end
+	 * @param phrase
+	 * @return boolean value representing whether the phrase is not part of a longer word
+	 */
+	private static boolean isWhole(String text, int start, int end, char[] phrase){
+		if(isWordChar(phrase[0]) && start > 0 && isWordChar(text.charAt(start - 1))){
+			return false;
+		}
+		if(isWordChar(phrase[phrase.length - 1]) && end < text.length() && isWordChar(text.charAt(end))){
+			return false;
+		}
+		return true;
+	}
+	private static boolean isWordChar(char c){
+		return Character.isLetterOrDigit(c);
+	}
+}
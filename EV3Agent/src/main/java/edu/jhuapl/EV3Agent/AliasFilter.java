@@ -0,0 +1,185 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.LoggerFactory;
+
+import edu.jhuapl.dorset.Request;
+import edu.jhuapl.dorset.filters.RequestFilter;
+
+/**
+ * Request filter that rewrites misrecognized phrases of a voice transcript,
+ * such as "for word" to "forward", with an AliasAutomaton. The aliases come
+ * from a properties file of phrase=replacement lines and can be swapped 
+ * while requests are being filtered: a request uses either the old or the
+ * new aliases, never a mix.
+ */
+public class AliasFilter implements RequestFilter {
+
+	private static final org.slf4j.Logger logger = LoggerFactory.getLogger(AliasFilter.class);
+	/**
+	 * Aliases bundled with the agent
+	 */
+	public static final String DEFAULT_ALIASES = "/aliases.properties";
+	private final AtomicReference<AliasAutomaton> automaton;
+	private final File file;
+	private volatile long loadedModified;
+	private ScheduledExecutorService watcher;
+
+	/**
+	 * Constructor
+	 * @param aliases Replacement of each phrase
+	 */
+	public AliasFilter(Map<String, String> aliases){
+		this(new AliasAutomaton(aliases), null);
+	}
+	private AliasFilter(AliasAutomaton automaton, File file){
+		this.automaton = new AtomicReference<AliasAutomaton>(automaton);
+		this.file = file;
+	}
+	/**
+	 * @return Filter with the aliases bundled with the agent
+	 * @throws IOException
+	 */
+	public static AliasFilter loadDefault() throws IOException {
+		InputStream in = AliasFilter.class.getResourceAsStream(DEFAULT_ALIASES);
+		if(in == null){
+			throw new IOException("Could not find " + DEFAULT_ALIASES);
+		}
+		return new AliasFilter(read(in));
+	}
+	/**
+	 * @param file Properties file of phrase=replacement lines, in UTF-8
+	 * @return Filter with the aliases of the file, which reload() reads again
+	 * @throws IOException
+	 */
+	public static AliasFilter load(File file) throws IOException {
+		long modified = file.lastModified();
+		AliasFilter filter = new AliasFilter(new AliasAutomaton(read(new FileInputStream(file))), file);
+		filter.loadedModified = modified;
+		logger.info("Loaded " + filter.size() + " aliases from " + file);
+		return filter;
+	}
+	/**
+	 * Reads aliases and closes the stream. A phrase that ends with a space 
+	 * is written with an escaped space, for example "negative\ =-"
+	 * @param in
+	 * @return Replacement of each phrase in the order they were read
+	 * @throws IOException
+	 */
+	public static Map<String, String> read(InputStream in) throws IOException {
+		Properties prop = new Properties();
+		try{
+			prop.load(new InputStreamReader(in, Charset.forName("UTF-8")));
+		} finally{
+			in.close();
+		}
+		Map<String, String> aliases = new LinkedHashMap<String, String>();
+		for(String phrase : prop.stringPropertyNames()){
+			aliases.put(phrase, prop.getProperty(phrase));
+		}
+		return aliases;
+	}
+	public Request filter(Request request){
+		String text = request.getText();
+		String rewritten = automaton.get().rewrite(text);
+		if(rewritten != text){
+			request.setText(rewritten);
+		}
+		return request;
+	}
+	/**
+	 * Compiles new aliases and swaps them in, requests already being 
+	 * filtered finish with the old ones
+	 * @param aliases
+	 */
+	public void setAliases(Map<String, String> aliases){
+		automaton.set(new AliasAutomaton(aliases));
+	}
+	/**
+	 * @return number of aliases in use
+	 */
+	public int size(){
+		return automaton.get().size();
+	}
+	/**
+	 * Reads the aliases file again, keeping the current aliases if it cannot be read
+	 * @return boolean value representing whether new aliases were swapped in
+	 */
+	public boolean reload(){
+		if(file == null){
+			return false;
+		}
+		long modified = file.lastModified();
+		try{
+			setAliases(read(new FileInputStream(file)));
+			loadedModified = modified;
+			logger.info("Reloaded " + size() + " aliases from " + file);
+			return true;
+		} catch(IOException | IllegalArgumentException e){
+			logger.error("Could not reload aliases from " + file + " " + e.getMessage());
+			return false;
+		}
+	}
+	/**
+	 * Checks the aliases file for changes in the background and reloads it when it changes
+	 * @param periodMillis
+	 */
+	public synchronized void watch(long periodMillis){
+		if(file == null || watcher != null){
+			return;
+		}
+		watcher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory(){
+			public Thread newThread(Runnable r){
+				Thread thread = new Thread(r, "ev3-alias-watcher");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		watcher.scheduleWithFixedDelay(new Runnable(){
+			public void run(){
+				if(file.lastModified() != loadedModified){
+					reload();
+				}
+			}
+		}, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+	}
+	/**
+	 * Stops watching the aliases file
+	 */
+	public synchronized void close(){
+		if(watcher != null){
+			watcher.shutdownNow();
+			watcher = null;
+		}
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of EV3Agent.processBatch: the result and timing of each step, in
+ * the order the steps were given. When any step fails validation none of 
+ * them run, and the invalid ones say why.
+ */
+public class BatchResult {
+
+	public enum Status { DONE, INVALID, NOT_RUN, FAILED, STOPPED }
+
+	private final List<Step> steps = new ArrayList<Step>();
+	private boolean valid = true;
+	private long validateNanos;
+	private long totalNanos;
+
+	/**
+	 * Result of one command of the batch
+	 */
+	public static class Step {
+		private final String text;
+		private Status status = Status.NOT_RUN;
+		private String response;
+		private long nanos;
+
+		Step(String text){
+			this.text = text;
+		}
+		void finish(Status status, String response, long nanos){
+			this.status = status;
+			this.response = response;
+			this.nanos = nanos;
+		}
+		/**
+		 * @return Text of the command after the request filters
+		 */
+		public String getText(){
+			return text;
+		}
+		public Status getStatus(){
+			return status;
+		}
+		/**
+		 * @return Text of the agent's response, null if the step did not run
+		 */
+		public String getResponse(){
+			return response;
+		}
+		/**
+		 * @return milliseconds the step took to run, 0 if it did not run
+		 */
+		public double getMillis(){
+			return nanos / 1e6;
+		}
+	}
+
+	Step add(String text){
+		Step step = new Step(text);
+		steps.add(step);
+		return step;
+	}
+	void invalid(Step step, String reason){
+		step.finish(Status.INVALID, reason, 0);
+		valid = false;
+	}
+	void validated(long nanos){
+		validateNanos = nanos;
+	}
+	void finished(long nanos){
+		totalNanos = nanos;
+	}
+	public List<Step> getSteps(){
+		return Collections.unmodifiableList(steps);
+	}
+	/**
+	 * @return boolean value representing whether every step passed validation
+	 */
+	public boolean isValid(){
+		return valid;
+	}
+	/**
+	 * @return boolean value representing whether every step ran to completion
+	 */
+	public boolean isDone(){
+		for(Step step : steps){
+			if(step.status != Status.DONE){
+				return false;
+			}
+		}
+		return !steps.isEmpty();
+	}
+	/**
+	 * @return milliseconds spent parsing and checking all the steps
+	 */
+	public double getValidateMillis(){
+		return validateNanos / 1e6;
+	}
+	/**
+	 * @return milliseconds from receiving the batch to the last step finishing
+	 */
+	public double getTotalMillis(){
+		return totalNanos / 1e6;
+	}
+	/**
+	 * @return One line per step with its status, response and time
+	 */
+	public String describe(){
+		StringBuilder text = new StringBuilder();
+		for(int i = 0; i < steps.size(); i++){
+			Step step = steps.get(i);
+			text.append(i + 1).append(". ").append(step.text).append(": ").append(step.status);
+			if(step.response != null){
+				text.append(" - ").append(step.response);
+			}
+			if(step.nanos > 0){
+				text.append(" (").append(TimeUnit.NANOSECONDS.toMillis(step.nanos)).append(" ms)");
+			}
+			text.append('\n');
+		}
+		text.append(valid ? "Batch took " + TimeUnit.NANOSECONDS.toMillis(totalNanos) + " ms" 
+				: "Nothing was run because of the invalid steps");
+		return text.toString();
+	}
+	/**
+	 * @return Batch as a JSON object with one entry per step
+	 */
+	public String toJson(){
+		StringBuilder out = new StringBuilder(64 + 96 * steps.size());
+		out.append("{\"valid\":").append(valid)
+			.append(",\"done\":").append(isDone())
+			.append(",\"validateMillis\":").append(round(validateNanos))
+			.append(",\"totalMillis\":").append(round(totalNanos))
+			.append(",\"steps\":[");
+		for(int i = 0; i < steps.size(); i++){
+			Step step = steps.get(i);
+			if(i > 0){
+				out.append(',');
+			}
+			out.append("{\"text\":");
+			string(out, step.text);
+			out.append(",\"status\":\"").append(step.status).append("\",\"response\":");
+			string(out, step.response);
+			out.append(",\"millis\":").append(round(step.nanos)).append('}');
+		}
+		out.append("]}");
+		return out.toString();
+	}
+	private static void string(StringBuilder out, String value){
+		if(value == null){
+			out.append("null");
+			return;
+		}
+		out.append('"');
+		for(int i = 0; i < value.length(); i++){
+			char c = value.charAt(i);
+			if(c == '"' || c == '\\'){
+				out.append('\\').append(c);
+			}
+			else if(c == '\n'){
+				out.append("\\n");
+			}
+			else{
+				out.append(c < 0x20 ? ' ' : c);
+			}
+		}
+		out.append('"');
+	}
+	private static double round(long nanos){
+		return Math.round(nanos / 1e3) / 1000.0;
+	}
+}
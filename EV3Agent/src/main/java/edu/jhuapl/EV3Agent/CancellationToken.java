@@ -0,0 +1,68 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cooperative cancellation flag handed to every platform control loop.
+ * A "stop" command cancels the token and the loop exits on its next check.
+ */
+public class CancellationToken {
+
+	private final CountDownLatch cancelled = new CountDownLatch(1);
+	private volatile long cancelledNanos;
+
+	/**
+	 * @return token that is never cancelled
+	 */
+	public static CancellationToken none(){
+		return new CancellationToken();
+	}
+	/**
+	 * Requests that the motion using this token ends
+	 */
+	public void cancel(){
+		if(cancelledNanos == 0){
+			cancelledNanos = System.nanoTime();
+		}
+		cancelled.countDown();
+	}
+	public boolean isCancelled(){
+		return cancelled.getCount() == 0;
+	}
+	/**
+	 * @return System.nanoTime() when cancel was first called, 0 if never cancelled
+	 */
+	public long getCancelledNanos(){
+		return cancelledNanos;
+	}
+	/**
+	 * Sleeps for the given time, waking up early if the token is cancelled
+	 * @param millis
+	 * @return boolean value representing whether the token was cancelled
+	 */
+	public boolean sleep(long millis){
+		try{
+			return cancelled.await(millis, TimeUnit.MILLISECONDS);
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			return isCancelled();
+		}
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+/**
+ * Counts consecutive failed calls to the EV3. Once failureThreshold calls 
+ * in a row have failed the breaker opens and calls are refused without 
+ * waiting on the link until it is reset by a successful reconnect.
+ */
+public class CircuitBreaker {
+	
+	public enum State { CLOSED, OPEN }
+	
+	private final int failureThreshold;
+	private int consecutiveFailures;
+	private State state = State.CLOSED;
+	private long openedNanos;
+	private int trips;
+	
+	/**
+	 * Constructor
+	 * @param failureThreshold Consecutive failures that open the breaker
+	 */
+	public CircuitBreaker(int failureThreshold){
+		this.failureThreshold = failureThreshold;
+	}
+	public synchronized State getState(){
+		return state;
+	}
+	public synchronized boolean isOpen(){
+		return state == State.OPEN;
+	}
+	public synchronized void recordSuccess(){
+		if(state == State.CLOSED){
+			consecutiveFailures = 0;
+		}
+	}
+	/**
+	 * @return boolean value representing whether this failure opened the breaker
+	 */
+	public synchronized boolean recordFailure(){
+		if(state == State.OPEN){
+			return false;
+		}
+		consecutiveFailures++;
+		if(consecutiveFailures < failureThreshold){
+			return false;
+		}
+		state = State.OPEN;
+		openedNanos = System.nanoTime();
+		trips++;
+		return true;
+	}
+	/**
+	 * Closes the breaker after the connection was re-established
+	 */
+	public synchronized void reset(){
+		state = State.CLOSED;
+		consecutiveFailures = 0;
+	}
+	/**
+	 * @return System.nanoTime() when the breaker last opened
+	 */
+	public synchronized long getOpenedNanos(){
+		return openedNanos;
+	}
+	/**
+	 * @return number of times the breaker has opened
+	 */
+	public synchronized int getTrips(){
+		return trips;
+	}
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+/**
+ * Source of time for control loops, so they can run against a simulated clock
+ */
+public interface Clock {
+	
+	/**
+	 * Clock backed by System.nanoTime() and Thread.sleep()
+	 */
+	public static final Clock SYSTEM = new Clock(){
+		public long nanoTime(){
+			return System.nanoTime();
+		}
+		public void sleep(long millis) throws InterruptedException {
+			Thread.sleep(millis);
+		}
+	};
+	
+	public abstract long nanoTime();
+	public abstract void sleep(long millis) throws InterruptedException;
+}
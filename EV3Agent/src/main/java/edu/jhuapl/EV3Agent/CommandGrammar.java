@@ -0,0 +1,318 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Table of commands compiled into a trie at start up. A request is parsed 
+ * straight from its text, one character at a time and ignoring case, into 
+ * a caller supplied ParsedCommand, so parsing allocates nothing and a bad 
+ * number is a status instead of an exception. A command is one word, 
+ * optionally followed by a signed number with an optional unit, or by the 
+ * name of another command.
+ * @param <H> Type of the handler registered with each command
+ */
+public class CommandGrammar<H> {
+
+	/**
+	 * What may follow the command word
+	 */
+	public enum Argument { NONE, NUMBER, COMMAND }
+
+	/**
+	 * Outcome of parsing a request
+	 */
+	public enum Status { OK, EMPTY, UNKNOWN_COMMAND, MISSING_ARGUMENT, UNEXPECTED_ARGUMENT, 
+		INVALID_NUMBER, TOO_MANY_WORDS }
+
+	/**
+	 * Entry of the command table
+	 * @param <H>
+	 */
+	public static class Command<H> {
+		private final String name;
+		private final Argument argument;
+		private final String help;
+		private final H handler;
+		private final char[][] units;
+
+		Command(String name, Argument argument, String help, H handler, String[] units){
+			this.name = name;
+			this.argument = argument;
+			this.help = help;
+			this.handler = handler;
+			this.units = new char[units.length][];
+			for(int i = 0; i < units.length; i++){
+				this.units[i] = units[i].toLowerCase().toCharArray();
+			}
+		}
+		public String getName(){
+			return name;
+		}
+		public Argument getArgument(){
+			return argument;
+		}
+		/**
+		 * @return Description returned by "help", null if the command has none
+		 */
+		public String getHelp(){
+			return help;
+		}
+		public H getHandler(){
+			return handler;
+		}
+	}
+
+	/**
+	 * Collects the command table
+	 * @param <H>
+	 */
+	public static class Builder<H> {
+		private final List<Command<H>> commands = new ArrayList<Command<H>>();
+
+		/**
+		 * Registers a command
+		 * @param name Command word, matched ignoring case
+		 * @param argument What may follow the word
+		 * @param help Description returned by "help", null for none
+		 * @param handler
+		 * @param units Words that may follow a number, such as "cm", matched ignoring case
+		 * @return this builder
+		 */
+		public Builder<H> add(String name, Argument argument, String help, H handler, String... units){
+			if(name.isEmpty()){
+				throw new IllegalArgumentException("Command name is empty");
+			}
+			for(int i = 0; i < name.length(); i++){
+				if(Character.isWhitespace(name.charAt(i))){
+					throw new IllegalArgumentException("Command name " + name + " is not one word");
+				}
+			}
+			if(units.length > 0 && argument != Argument.NUMBER){
+				throw new IllegalArgumentException("Command " + name + " has units but no number");
+			}
+			commands.add(new Command<H>(name.toLowerCase(), argument, help, handler, units));
+			return this;
+		}
+		public CommandGrammar<H> build(){
+			return new CommandGrammar<H>(commands);
+		}
+	}
+
+	private static final int ROOT = 0;
+	private static final int NONE = -1;
+	private final char[][] keys;
+	private final int[][] targets;
+	private final List<Command<H>> accepting;
+	private final List<Command<H>> commands;
+
+	/**
+	 * Compiles the commands into a trie whose states are numbered, each 
+	 * with its sorted transition characters and the command it accepts
+	 * @param commands
+	 */
+	private CommandGrammar(List<Command<H>> commands){
+		List<Map<Character, Integer>> transitions = new ArrayList<Map<Character, Integer>>();
+		List<Command<H>> accepts = new ArrayList<Command<H>>();
+		transitions.add(new TreeMap<Character, Integer>());
+		accepts.add(null);
+		for(Command<H> command : commands){
+			int state = ROOT;
+			for(char c : command.getName().toCharArray()){
+				Integer next = transitions.get(state).get(c);
+				if(next == null){
+					next = transitions.size();
+					transitions.get(state).put(c, next);
+					transitions.add(new TreeMap<Character, Integer>());
+					accepts.add(null);
+				}
+				state = next;
+			}
+			if(accepts.get(state) != null){
+				throw new IllegalArgumentException("Command " + command.getName() + " is registered twice");
+			}
+			accepts.set(state, command);
+		}
+		keys = new char[transitions.size()][];
+		targets = new int[transitions.size()][];
+		for(int state = 0; state < transitions.size(); state++){
+			Map<Character, Integer> map = transitions.get(state);
+			keys[state] = new char[map.size()];
+			targets[state] = new int[map.size()];
+			int i = 0;
+			for(Map.Entry<Character, Integer> entry : map.entrySet()){
+				keys[state][i] = entry.getKey();
+				targets[state][i] = entry.getValue();
+				i++;
+			}
+		}
+		this.accepting = accepts;
+		this.commands = Collections.unmodifiableList(new ArrayList<Command<H>>(commands));
+	}
+	/**
+	 * @return Every command in the order it was registered
+	 */
+	public List<Command<H>> getCommands(){
+		return commands;
+	}
+	/**
+	 * @param name
+	 * @return Command with the given name or null if there is none
+	 */
+	public Command<H> get(CharSequence name){
+		return lookup(name, 0, name.length());
+	}
+	/**
+	 * Parses a request
+	 * @param text Text of the request
+	 * @param parsed Filled in with the command, number and argument found
+	 * @return Status of the parse, also stored in parsed
+	 */
+	public Status parse(CharSequence text, ParsedCommand<H> parsed){
+		parsed.reset();
+		int length = text.length();
+		int start = skipSpace(text, 0);
+		if(start == length){
+			return parsed.status(Status.EMPTY);
+		}
+		int end = skipWord(text, start);
+		Command<H> command = lookup(text, start, end);
+		if(command == null){
+			return parsed.status(Status.UNKNOWN_COMMAND);
+		}
+		parsed.command = command;
+		start = skipSpace(text, end);
+		if(start == length){
+			return parsed.status(command.getArgument() == Argument.NONE ? Status.OK : Status.MISSING_ARGUMENT);
+		}
+		switch(command.getArgument()){
+			case NONE:
+				return parsed.status(Status.UNEXPECTED_ARGUMENT);
+			case COMMAND:
+				end = skipWord(text, start);
+				parsed.argument = lookup(text, start, end);
+				parsed.hasArgument = true;
+				break;
+			default:
+				end = parseNumber(text, start, command, parsed);
+				if(end == NONE){
+					return parsed.status(Status.INVALID_NUMBER);
+				}
+				break;
+		}
+		if(skipSpace(text, end) != length){
+			return parsed.status(Status.TOO_MANY_WORDS);
+		}
+		return parsed.status(Status.OK);
+	}
+	/**
+	 * Walks the trie over one word
+	 * @param text
+	 * @param start
+	 * @param end
+	 * @return Command spelled by the word or null
+	 */
+	private Command<H> lookup(CharSequence text, int start, int end){
+		int state = ROOT;
+		for(int i = start; i < end && state != NONE; i++){
+			state = next(state, Character.toLowerCase(text.charAt(i)));
+		}
+		return state == NONE ? null : accepting.get(state);
+	}
+	private int next(int state, char c){
+		int index = Arrays.binarySearch(keys[state], c);
+		return index < 0 ? NONE : targets[state][index];
+	}
+	/**
+	 * Parses a signed decimal number followed by nothing, by whitespace or 
+	 * by one of the command's units, with or without a space before the unit
+	 * @param text
+	 * @param start Index of the sign or first digit
+	 * @param command
+	 * @param parsed
+	 * @return Index after the number and unit, NONE if they are not valid
+	 */
+	private int parseNumber(CharSequence text, int start, Command<H> command, ParsedCommand<H> parsed){
+		int length = text.length();
+		int i = start;
+		boolean negative = false;
+		if(text.charAt(i) == '-' || text.charAt(i) == '+'){
+			negative = text.charAt(i) == '-';
+			i++;
+		}
+		int digits = i;
+		long value = 0;
+		while(i < length && text.charAt(i) >= '0' && text.charAt(i) <= '9'){
+			value = value * 10 + (text.charAt(i) - '0');
+			if(value > (long)Integer.MAX_VALUE + 1){
+				return NONE;
+			}
+			i++;
+		}
+		if(i == digits){
+			return NONE;
+		}
+		value = negative ? -value : value;
+		if(value > Integer.MAX_VALUE){
+			return NONE;
+		}
+		parsed.number = (int)value;
+		parsed.hasArgument = true;
+		int unitStart = skipSpace(text, i);
+		if(unitStart == length){
+			return unitStart;
+		}
+		int unitEnd = skipWord(text, unitStart);
+		if(matchesUnit(text, unitStart, unitEnd, command)){
+			return unitEnd;
+		}
+		return unitStart == i ? NONE : i;
+	}
+	private boolean matchesUnit(CharSequence text, int start, int end, Command<H> command){
+		for(char[] unit : command.units){
+			if(unit.length != end - start){
+				continue;
+			}
+			int i = 0;
+			while(i < unit.length && Character.toLowerCase(text.charAt(start + i)) == unit[i]){
+				i++;
+			}
+			if(i == unit.length){
+				return true;
+			}
+		}
+		return false;
+	}
+	private static int skipSpace(CharSequence text, int i){
+		while(i < text.length() && Character.isWhitespace(text.charAt(i))){
+			i++;
+		}
+		return i;
+	}
+	private static int skipWord(CharSequence text, int i){
+		while(i < text.length() && !Character.isWhitespace(text.charAt(i))){
+			i++;
+		}
+		return i;
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import edu.jhuapl.dorset.agents.AgentResponse;
+
+/**
+ * Completion handle for a command queued on the actuator thread.
+ * Callers poll the status by id or wait for the command to finish.
+ */
+public class CommandHandle {
+
+	public enum Status { QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED }
+
+	private final long id;
+	private final String command;
+	private final long submittedNanos;
+	private final CountDownLatch done = new CountDownLatch(1);
+	private volatile Status status = Status.QUEUED;
+	private volatile AgentResponse response;
+	private volatile long startedNanos;
+	private volatile long finishedNanos;
+
+	/**
+	 * Constructor
+	 * @param id Status id reported back to the caller
+	 * @param command Text of the command being executed
+	 */
+	public CommandHandle(long id, String command){
+		this.id = id;
+		this.command = command;
+		this.submittedNanos = System.nanoTime();
+	}
+	public long getId(){
+		return id;
+	}
+	public String getCommand(){
+		return command;
+	}
+	public Status getStatus(){
+		return status;
+	}
+	/**
+	 * @return Response of the command, null until the command is done
+	 */
+	public AgentResponse getResponse(){
+		return response;
+	}
+	public boolean isDone(){
+		return done.getCount() == 0;
+	}
+	/**
+	 * Waits for the command to finish
+	 * @param timeout
+	 * @param unit
+	 * @return boolean value representing whether the command finished in time
+	 * @throws InterruptedException
+	 */
+	public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+		return done.await(timeout, unit);
+	}
+	/**
+	 * @return milliseconds spent waiting in the queue
+	 */
+	public long getQueuedMillis(){
+		long start = startedNanos == 0 ? System.nanoTime() : startedNanos;
+		return TimeUnit.NANOSECONDS.toMillis(start - submittedNanos);
+	}
+	/**
+	 * @return milliseconds spent executing, 0 until the command starts
+	 */
+	public long getRunMillis(){
+		if(startedNanos == 0){
+			return 0;
+		}
+		long end = finishedNanos == 0 ? System.nanoTime() : finishedNanos;
+		return TimeUnit.NANOSECONDS.toMillis(end - startedNanos);
+	}
+	void started(){
+		startedNanos = System.nanoTime();
+		status = Status.RUNNING;
+	}
+	void completed(AgentResponse response){
+		finish(Status.COMPLETED, response);
+	}
+	void failed(AgentResponse response){
+		finish(Status.FAILED, response);
+	}
+	void cancelled(){
+		finish(Status.CANCELLED, new AgentResponse("Cancelled"));
+	}
+	private synchronized void finish(Status finalStatus, AgentResponse finalResponse){
+		if(isDone()){
+			return;
+		}
+		finishedNanos = System.nanoTime();
+		response = finalResponse;
+		status = finalStatus;
+		done.countDown();
+	}
+	/**
+	 * @return String describing the command's current status
+	 */
+	public String describe(){
+		String text = "Command " + id + " (" + command + "): " + status;
+		if(response != null){
+			text += " - " + response.getText();
+		}
+		return text;
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.LoggerFactory;
+
+import edu.jhuapl.dorset.agents.AgentResponse;
+
+/**
+ * Runs robot commands one at a time on a dedicated actuator thread so that
+ * the thread calling EV3Agent.process is released as soon as the command
+ * has been validated.
+ */
+public class CommandQueue {
+
+	private static final org.slf4j.Logger logger = LoggerFactory.getLogger(CommandQueue.class);
+	private static final int HISTORY_SIZE = 256;
+	private final ExecutorService actuator;
+	private final AtomicLong nextId = new AtomicLong(1);
+	private final Map<Long, CommandHandle> history;
+	private final Map<Long, Future<?>> pending = new LinkedHashMap<Long, Future<?>>();
+
+	/**
+	 * Callback for commands whose action throws
+	 */
+	public interface FailureHandler {
+		public AgentResponse handleFailure(Exception e);
+	}
+
+	private final FailureHandler failureHandler;
+
+	/**
+	 * Constructor
+	 * @param failureHandler Converts a failed command into its response
+	 */
+	public CommandQueue(FailureHandler failureHandler){
+		this.failureHandler = failureHandler;
+		this.history = new LinkedHashMap<Long, CommandHandle>(){
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, CommandHandle> eldest){
+				return size() > HISTORY_SIZE;
+			}
+		};
+		this.actuator = Executors.newSingleThreadExecutor(new ThreadFactory(){
+			public Thread newThread(Runnable r){
+				Thread thread = new Thread(r, "ev3-actuator");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+	/**
+	 * Queues a command to be run on the actuator thread
+	 * @param command Text of the command
+	 * @param action Action that executes the command
+	 * @return CommandHandle the caller can poll
+	 */
+	public CommandHandle submit(String command, final Callable<AgentResponse> action){
+		final CommandHandle handle = new CommandHandle(nextId.getAndIncrement(), command);
+		synchronized(this){
+			history.put(handle.getId(), handle);
+			Future<?> future = actuator.submit(new Runnable(){
+				public void run(){
+					execute(handle, action);
+				}
+			});
+			if(!handle.isDone()){
+				pending.put(handle.getId(), future);
+			}
+		}
+		return handle;
+	}
+	private void execute(CommandHandle handle, Callable<AgentResponse> action){
+		handle.started();
+		try{
+			handle.completed(action.call());
+		} catch(Exception e){
+			logger.error("Could not process command " + handle.getCommand() + " " + e.getMessage());
+			handle.failed(failureHandler.handleFailure(e));
+		} finally{
+			synchronized(this){
+				pending.remove(handle.getId());
+			}
+		}
+	}
+	/**
+	 * @param id
+	 * @return CommandHandle with the given id or null if it is unknown
+	 */
+	public synchronized CommandHandle get(long id){
+		return history.get(id);
+	}
+	/**
+	 * Cancels every command that has not started yet
+	 * @return number of commands cancelled
+	 */
+	public int cancelPending(){
+		List<CommandHandle> cancelled = new ArrayList<CommandHandle>();
+		synchronized(this){
+			for(Map.Entry<Long, Future<?>> entry : pending.entrySet()){
+				CommandHandle handle = history.get(entry.getKey());
+				if(handle != null && handle.getStatus() == CommandHandle.Status.QUEUED
+						&& entry.getValue().cancel(false)){
+					cancelled.add(handle);
+				}
+			}
+			for(CommandHandle handle : cancelled){
+				pending.remove(handle.getId());
+			}
+		}
+		for(CommandHandle handle : cancelled){
+			handle.cancelled();
+		}
+		return cancelled.size();
+	}
+	/**
+	 * @return number of commands queued or running
+	 */
+	public synchronized int size(){
+		return pending.size();
+	}
+	/**
+	 * Stops the actuator thread
+	 */
+	public void shutdown(){
+		cancelPending();
+		actuator.shutdown();
+	}
+}
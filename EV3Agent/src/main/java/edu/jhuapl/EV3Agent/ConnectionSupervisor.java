@@ -0,0 +1,461 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.LoggerFactory;
+
+import lejos.remote.ev3.RMIRegulatedMotor;
+import lejos.remote.ev3.RMISampleProvider;
+
+/**
+ * Watches the link to the EV3. RMI calls made through a supervised port are 
+ * given a timeout, except waitComplete and a blocking rotate or rotateTo, 
+ * which last as long as the motion. A heartbeat is sent at a fixed delay 
+ * whether or not the robot is moving, and consecutive failures open a 
+ * circuit breaker. While the breaker is open 
+ * calls fail at once with ConnectionLostException, except stop and flt on a 
+ * motor which are still attempted with the timeout, and the link is rebuilt 
+ * in the background with exponential backoff. A reconnect first stops every 
+ * motor, re-opening only the ports whose handles no longer answer. Ports 
+ * handed out before the failure keep working afterwards because they are 
+ * proxies over the re-opened port.
+ */
+public class ConnectionSupervisor {
+	
+	private static final org.slf4j.Logger logger = LoggerFactory.getLogger(ConnectionSupervisor.class);
+	private static final int MAX_BACKOFF_DOUBLINGS = 20;
+	private final Link link;
+	private final PortInfo portInfo;
+	private final CircuitBreaker breaker;
+	private final ScheduledExecutorService scheduler;
+	private final ExecutorService callers;
+	private final Map<Device, SupervisedPort> ports = new EnumMap<Device, SupervisedPort>(Device.class);
+	private final AtomicLong heartbeats = new AtomicLong();
+	private final AtomicLong missedHeartbeats = new AtomicLong();
+	private final AtomicLong timeouts = new AtomicLong();
+	private final AtomicLong reconnects = new AtomicLong();
+	private final AtomicLong reconnectAttempts = new AtomicLong();
+	private final AtomicLong reopenedPorts = new AtomicLong();
+	private volatile long lastFailoverNanos;
+	private volatile long maxFailoverNanos;
+	private volatile boolean running;
+	private int backoffAttempt;
+	
+	/**
+	 * Connection operations the supervisor needs from the platform
+	 */
+	public interface Link {
+		/**
+		 * Makes one lightweight call to the EV3
+		 * @throws RemoteException
+		 */
+		public void heartbeat() throws RemoteException;
+		/**
+		 * Looks the EV3 up again and retries ports that never opened
+		 * @throws Exception
+		 */
+		public void reconnect() throws Exception;
+		/**
+		 * Opens a port again on the reconnected EV3
+		 * @param device
+		 * @return Object the new RMIRegulatedMotor or RMISampleProvider
+		 * @throws RemoteException
+		 */
+		public Object reopen(Device device) throws RemoteException;
+	}
+	
+	/**
+	 * Sends calls on a port through the supervisor to the port's current handle
+	 */
+	private class SupervisedPort implements InvocationHandler {
+		private final Device device;
+		private volatile Object target;
+		
+		SupervisedPort(Device device, Object target){
+			this.device = device;
+			this.target = target;
+		}
+		public Object invoke(Object proxy, final Method method, final Object[] args) throws Throwable {
+			if(method.getDeclaringClass() == Object.class){
+				if(method.getName().equals("equals")){
+					return proxy == args[0];
+				}
+				if(method.getName().equals("hashCode")){
+					return System.identityHashCode(proxy);
+				}
+				return "Supervised " + device.getLabel();
+			}
+			final Object port = target;
+			boolean halt = isHalt(method);
+			return call(device.getLabel() + " " + method.getName(), new Callable<Object>(){
+				public Object call() throws Exception {
+					return invokeOn(port, method, args);
+				}
+			}, halt || !isBlocking(method, args), halt);
+		}
+	}
+	
+	/**
+	 * Constructor
+	 * @param link
+	 * @param portInfo Heartbeat, timeout, breaker and backoff settings
+	 */
+	public ConnectionSupervisor(Link link, PortInfo portInfo){
+		this.link = link;
+		this.portInfo = portInfo;
+		this.breaker = new CircuitBreaker(portInfo.getBreakerFailures());
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(daemon("ev3-supervisor"));
+		this.callers = Executors.newCachedThreadPool(daemon("ev3-rmi-call"));
+	}
+	private static ThreadFactory daemon(final String name){
+		return new ThreadFactory(){
+			public Thread newThread(Runnable r){
+				Thread thread = new Thread(r, name);
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+	/**
+	 * Starts sending heartbeats
+	 */
+	public void start(){
+		running = true;
+		long period = portInfo.getHeartbeatMillis();
+		scheduler.scheduleWithFixedDelay(new Runnable(){
+			public void run(){
+				heartbeat();
+			}
+		}, period, period, TimeUnit.MILLISECONDS);
+	}
+	/**
+	 * Stops the heartbeat and any reconnect in progress
+	 */
+	public void shutdown(){
+		running = false;
+		scheduler.shutdownNow();
+		callers.shutdown();
+		synchronized(ports){
+			ports.clear();
+		}
+	}
+	/**
+	 * Wraps a port so every call on it is timed and counted by the breaker
+	 * @param device
+	 * @param port RMIRegulatedMotor or RMISampleProvider
+	 * @return Object proxy implementing the same interface as port
+	 */
+	public Object guard(Device device, Object port){
+		Class<?> type = port instanceof RMIRegulatedMotor ? RMIRegulatedMotor.class : RMISampleProvider.class;
+		SupervisedPort handler = new SupervisedPort(device, port);
+		synchronized(ports){
+			ports.put(device, handler);
+		}
+		return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, handler);
+	}
+	/**
+	 * Runs an RMI call with the rmiTimeoutMillis timeout
+	 * @param what Name of the call for messages
+	 * @param call
+	 * @return Result of the call
+	 * @throws RemoteException if the call failed, timed out or the connection is down
+	 */
+	public <T> T call(String what, Callable<T> call) throws RemoteException {
+		return call(what, call, true, false);
+	}
+	/**
+	 * @param what
+	 * @param call
+	 * @param timed Whether the call is given the rmiTimeoutMillis timeout
+	 * @param halt Whether the call stops a motor, which is attempted even while the breaker is open
+	 * @return Result of the call
+	 * @throws RemoteException
+	 */
+	private <T> T call(String what, Callable<T> call, boolean timed, boolean halt) throws RemoteException {
+		if(!halt && breaker.isOpen()){
+			throw new ConnectionLostException("The connection to the EV3 is down, reconnecting");
+		}
+		try{
+			T result = timed ? callWithTimeout(what, call) : call.call();
+			breaker.recordSuccess();
+			return result;
+		} catch(RemoteException e){
+			failed(what, e);
+			throw e;
+		} catch(RuntimeException e){
+			//leJOS reports some RMI failures wrapped in a PortException
+			if(e.getCause() instanceof RemoteException){
+				failed(what, e);
+			}
+			throw e;
+		} catch(Exception e){
+			throw new RemoteException(what + " failed", e);
+		}
+	}
+	private <T> T callWithTimeout(String what, Callable<T> call) throws Exception {
+		Future<T> future;
+		try{
+			future = callers.submit(Tracer.propagate(Metrics.propagate(call)));
+		} catch(RejectedExecutionException e){
+			throw new RemoteException("The connection to the EV3 was closed");
+		}
+		try{
+			return future.get(portInfo.getRmiTimeoutMillis(), TimeUnit.MILLISECONDS);
+		} catch(TimeoutException e){
+			future.cancel(true);
+			timeouts.incrementAndGet();
+			throw new ConnectionLostException(what + " timed out after " + portInfo.getRmiTimeoutMillis() + " ms");
+		} catch(InterruptedException e){
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw e;
+		} catch(ExecutionException e){
+			if(e.getCause() instanceof Exception){
+				throw (Exception)e.getCause();
+			}
+			throw new RemoteException(what + " failed", e.getCause());
+		}
+	}
+	private static Object invokeOn(Object port, Method method, Object[] args) throws Exception {
+		try{
+			return method.invoke(port, args);
+		} catch(InvocationTargetException e){
+			if(e.getCause() instanceof Exception){
+				throw (Exception)e.getCause();
+			}
+			throw (Error)e.getCause();
+		}
+	}
+	/**
+	 * @param method
+	 * @return boolean value representing whether the call stops or floats a motor
+	 */
+	private static boolean isHalt(Method method){
+		return method.getDeclaringClass() == RMIRegulatedMotor.class 
+				&& (method.getName().equals("stop") || method.getName().equals("flt"));
+	}
+	/**
+	 * @param method
+	 * @param args
+	 * @return boolean value representing whether the call waits for the motor to finish moving
+	 */
+	private static boolean isBlocking(Method method, Object[] args){
+		String name = method.getName();
+		if(name.equals("waitComplete")){
+			return true;
+		}
+		if(name.equals("rotate") || name.equals("rotateTo")){
+			return args.length == 1 || Boolean.FALSE.equals(args[1]);
+		}
+		return false;
+	}
+	private void failed(String what, Exception e){
+		if(breaker.recordFailure()){
+			logger.warn("Lost the connection to the EV3 after " + what + " failed: " + e.getMessage());
+			scheduleReconnect(0);
+		}
+	}
+	private void heartbeat(){
+		if(breaker.isOpen()){
+			return;
+		}
+		heartbeats.incrementAndGet();
+		try{
+			call("Heartbeat", new Callable<Void>(){
+				public Void call() throws RemoteException {
+					link.heartbeat();
+					return null;
+				}
+			});
+		} catch(RemoteException | RuntimeException e){
+			missedHeartbeats.incrementAndGet();
+			logger.debug("Missed heartbeat " + e.getMessage());
+		}
+	}
+	private void scheduleReconnect(long delayMillis){
+		if(!running){
+			return;
+		}
+		try{
+			scheduler.schedule(new Runnable(){
+				public void run(){
+					reconnect();
+				}
+			}, delayMillis, TimeUnit.MILLISECONDS);
+		} catch(RejectedExecutionException e){
+			logger.debug("Supervisor stopped before reconnecting");
+		}
+	}
+	/**
+	 * Runs on the scheduler thread until the EV3 answers again
+	 */
+	private void reconnect(){
+		if(!running){
+			return;
+		}
+		reconnectAttempts.incrementAndGet();
+		try{
+			callWithTimeout("Reconnect", new Callable<Void>(){
+				public Void call() throws Exception {
+					link.reconnect();
+					return null;
+				}
+			});
+			int reopened = reopenFailedPorts();
+			long failover = System.nanoTime() - breaker.getOpenedNanos();
+			lastFailoverNanos = failover;
+			maxFailoverNanos = Math.max(maxFailoverNanos, failover);
+			reconnects.incrementAndGet();
+			backoffAttempt = 0;
+			breaker.reset();
+			logger.info("Reconnected to the EV3 in " + TimeUnit.NANOSECONDS.toMillis(failover) 
+					+ " ms, re-opened " + reopened + " ports");
+		} catch(Exception e){
+			long delay = backoffMillis(backoffAttempt++);
+			logger.warn("Could not reconnect to the EV3 " + e.getMessage() + ", retrying in " + delay + " ms");
+			scheduleReconnect(delay);
+		}
+	}
+	/**
+	 * @param attempt Number of failed attempts so far
+	 * @return Delay before the next attempt, doubling up to reconnectMaxMillis
+	 */
+	long backoffMillis(int attempt){
+		long delay = portInfo.getReconnectMinMillis() << Math.min(attempt, MAX_BACKOFF_DOUBLINGS);
+		return Math.min(delay, portInfo.getReconnectMaxMillis());
+	}
+	/**
+	 * Stops every motor and checks every sensor, re-opening the ports that 
+	 * do not answer and stopping the re-opened motors, so the robot does not 
+	 * carry on with whatever it was last told before the link dropped
+	 * @return number of ports re-opened
+	 * @throws Exception if a port could not be re-opened
+	 */
+	private int reopenFailedPorts() throws Exception {
+		List<SupervisedPort> supervised;
+		synchronized(ports){
+			supervised = new ArrayList<SupervisedPort>(ports.values());
+		}
+		int reopened = 0;
+		for(final SupervisedPort port : supervised){
+			try{
+				callWithTimeout("Probe " + port.device.getLabel(), new Callable<Void>(){
+					public Void call() throws RemoteException {
+						probe(port.target);
+						return null;
+					}
+				});
+			} catch(Exception e){
+				final Object target = callWithTimeout("Re-open " + port.device.getLabel(), new Callable<Object>(){
+					public Object call() throws RemoteException {
+						return link.reopen(port.device);
+					}
+				});
+				callWithTimeout("Probe " + port.device.getLabel(), new Callable<Void>(){
+					public Void call() throws RemoteException {
+						probe(target);
+						return null;
+					}
+				});
+				port.target = target;
+				reopenedPorts.incrementAndGet();
+				reopened++;
+			}
+		}
+		return reopened;
+	}
+	/**
+	 * Stops a motor or reads a sensor
+	 * @param port
+	 * @throws RemoteException if the port does not answer
+	 */
+	private static void probe(Object port) throws RemoteException {
+		if(port instanceof RMIRegulatedMotor){
+			((RMIRegulatedMotor)port).stop(true);
+		}
+		else{
+			((RMISampleProvider)port).fetchSample();
+		}
+	}
+	public boolean isConnected(){
+		return !breaker.isOpen();
+	}
+	public long getHeartbeatCount(){
+		return heartbeats.get();
+	}
+	public long getMissedHeartbeatCount(){
+		return missedHeartbeats.get();
+	}
+	public long getTimeoutCount(){
+		return timeouts.get();
+	}
+	public long getReconnectCount(){
+		return reconnects.get();
+	}
+	public long getReconnectAttemptCount(){
+		return reconnectAttempts.get();
+	}
+	public long getReopenedPortCount(){
+		return reopenedPorts.get();
+	}
+	public int getBreakerTrips(){
+		return breaker.getTrips();
+	}
+	/**
+	 * @return milliseconds from losing the connection to reconnecting, for the most recent failover
+	 */
+	public long getLastFailoverMillis(){
+		return TimeUnit.NANOSECONDS.toMillis(lastFailoverNanos);
+	}
+	public long getMaxFailoverMillis(){
+		return TimeUnit.NANOSECONDS.toMillis(maxFailoverNanos);
+	}
+	/**
+	 * @return String with the connection state and its metrics
+	 */
+	public String describe(){
+		return "Connection: " + (isConnected() ? "connected" : "reconnecting")
+			+ "\nHeartbeats: " + getHeartbeatCount() + " (" + getMissedHeartbeatCount() + " missed)"
+			+ "\nCall timeouts: " + getTimeoutCount()
+			+ "\nConnection lost: " + getBreakerTrips() + " times"
+			+ "\nReconnects: " + getReconnectCount() + " (" + getReconnectAttemptCount() + " attempts, "
+			+ getReopenedPortCount() + " ports re-opened)"
+			+ "\nLast failover: " + getLastFailoverMillis() + " ms"
+			+ "\nLongest failover: " + getMaxFailoverMillis() + " ms";
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+/**
+ * Motor and sensor ports opened on the EV3
+ */
+public enum Device {
+	RIGHT_WHEEL("Right Wheel"),
+	SHOOTER_ANGLE("Shooter Angle"),
+	SHOOTER("Shooter"),
+	LEFT_WHEEL("Left Wheel"),
+	GYRO("Gyro Sensor"),
+	ULTRASONIC("Ultrasonic Sensor"),
+	TOUCH("Touch Sensor");
+	
+	private final String label;
+	
+	private Device(String label){
+		this.label = label;
+	}
+	public String getLabel(){
+		return label;
+	}
+	/**
+	 * @param sensor
+	 * @return Device the sensor is read from
+	 */
+	public static Device of(Sensor sensor){
+		switch(sensor){
+			case GYRO:
+				return GYRO;
+			case ULTRASONIC:
+				return ULTRASONIC;
+			default:
+				return TOUCH;
+		}
+	}
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.rmi.RemoteException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+import lejos.remote.ev3.RMIRegulatedMotor;
+
+/**
+ * Drives the two wheel motors as a pair. The RMI motor interface has no 
+ * synchronization or batching, so each command is sent to the left wheel on 
+ * a helper thread while the calling thread sends it to the right wheel: both 
+ * wheels start, change speed and stop within one round trip of each other 
+ * instead of one round trip apart. Speed and acceleration are only sent when 
+ * they change.
+ */
+public class DifferentialDrive {
+	
+	/**
+	 * Runs the left wheel's call on the calling thread, so the wheels are 
+	 * commanded one after the other
+	 */
+	public static final Executor SAME_THREAD = new Executor(){
+		public void execute(Runnable command){
+			command.run();
+		}
+	};
+	private static final int UNKNOWN = Integer.MIN_VALUE;
+	private final RMIRegulatedMotor leftWheel;
+	private final RMIRegulatedMotor rightWheel;
+	private final Executor executor;
+	private final ExecutorService ownedExecutor;
+	private volatile int leftSpeed = UNKNOWN;
+	private volatile int rightSpeed = UNKNOWN;
+	private volatile int acceleration = UNKNOWN;
+	
+	/**
+	 * Call made on one wheel
+	 */
+	private interface MotorCall {
+		public void call(RMIRegulatedMotor motor) throws RemoteException;
+	}
+	
+	private static final MotorCall FORWARD = new MotorCall(){
+		public void call(RMIRegulatedMotor motor) throws RemoteException {
+			motor.forward();
+		}
+	};
+	private static final MotorCall BACKWARD = new MotorCall(){
+		public void call(RMIRegulatedMotor motor) throws RemoteException {
+			motor.backward();
+		}
+	};
+	private static final MotorCall STOP = new MotorCall(){
+		public void call(RMIRegulatedMotor motor) throws RemoteException {
+			motor.stop(true);
+		}
+	};
+	private static final MotorCall WAIT_COMPLETE = new MotorCall(){
+		public void call(RMIRegulatedMotor motor) throws RemoteException {
+			motor.waitComplete();
+		}
+	};
+	
+	/**
+	 * Constructor, commands the wheels in parallel on its own helper threads
+	 * @param leftWheel
+	 * @param rightWheel
+	 */
+	public DifferentialDrive(RMIRegulatedMotor leftWheel, RMIRegulatedMotor rightWheel){
+		this.leftWheel = leftWheel;
+		this.rightWheel = rightWheel;
+		//a stop must not queue behind a waitComplete, so helpers are not limited to one thread
+		this.ownedExecutor = Executors.newCachedThreadPool(new ThreadFactory(){
+			public Thread newThread(Runnable r){
+				Thread thread = new Thread(r, "ev3-drive");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.executor = ownedExecutor;
+	}
+	/**
+	 * Constructor
+	 * @param leftWheel
+	 * @param rightWheel
+	 * @param executor Runs the left wheel's calls, SAME_THREAD to command the wheels in turn
+	 */
+	public DifferentialDrive(RMIRegulatedMotor leftWheel, RMIRegulatedMotor rightWheel, 
+			Executor executor){
+		this.leftWheel = leftWheel;
+		this.rightWheel = rightWheel;
+		this.ownedExecutor = null;
+		this.executor = executor;
+	}
+	public RMIRegulatedMotor getLeftWheel(){
+		return leftWheel;
+	}
+	public RMIRegulatedMotor getRightWheel(){
+		return rightWheel;
+	}
+	public void forward() throws RemoteException {
+		both(FORWARD, FORWARD);
+	}
+	public void backward() throws RemoteException {
+		both(BACKWARD, BACKWARD);
+	}
+	/**
+	 * Stops both wheels without waiting for them to come to rest
+	 * @throws RemoteException
+	 */
+	public void stop() throws RemoteException {
+		both(STOP, STOP);
+	}
+	/**
+	 * Spins the wheels in opposite directions
+	 * @param direction Positive drives the right wheel forward, turning toward increasing heading
+	 * @throws RemoteException
+	 */
+	public void spin(int direction) throws RemoteException {
+		if(direction > 0){
+			both(BACKWARD, FORWARD);
+		}
+		else{
+			both(FORWARD, BACKWARD);
+		}
+	}
+	/**
+	 * Sets the speed of both wheels
+	 * @param speed degrees per second
+	 * @throws RemoteException
+	 */
+	public void setSpeed(int speed) throws RemoteException {
+		setSpeeds(speed, speed);
+	}
+	/**
+	 * Sets the speed of each wheel, skipping wheels already at that speed
+	 * @param left degrees per second
+	 * @param right degrees per second
+	 * @throws RemoteException
+	 */
+	public void setSpeeds(final int left, final int right) throws RemoteException {
+		MotorCall leftCall = left == leftSpeed ? null : new MotorCall(){
+			public void call(RMIRegulatedMotor motor) throws RemoteException {
+				motor.setSpeed(left);
+			}
+		};
+		MotorCall rightCall = right == rightSpeed ? null : new MotorCall(){
+			public void call(RMIRegulatedMotor motor) throws RemoteException {
+				motor.setSpeed(right);
+			}
+		};
+		both(leftCall, rightCall);
+		leftSpeed = left;
+		rightSpeed = right;
+	}
+	/**
+	 * Sets the acceleration the motor regulators use on both wheels
+	 * @param acceleration degrees per second squared
+	 * @throws RemoteException
+	 */
+	public void setAcceleration(final int acceleration) throws RemoteException {
+		if(acceleration == this.acceleration){
+			return;
+		}
+		MotorCall call = new MotorCall(){
+			public void call(RMIRegulatedMotor motor) throws RemoteException {
+				motor.setAcceleration(acceleration);
+			}
+		};
+		both(call, call);
+		this.acceleration = acceleration;
+	}
+	/**
+	 * Starts rotating both wheels by the given angle and returns immediately
+	 * @param degrees
+	 * @throws RemoteException
+	 */
+	public void rotate(final int degrees) throws RemoteException {
+		MotorCall call = new MotorCall(){
+			public void call(RMIRegulatedMotor motor) throws RemoteException {
+				motor.rotate(degrees, true);
+			}
+		};
+		both(call, call);
+	}
+	/**
+	 * Waits for a rotate to finish on both wheels
+	 * @throws RemoteException
+	 */
+	public void waitComplete() throws RemoteException {
+		both(WAIT_COMPLETE, WAIT_COMPLETE);
+	}
+	/**
+	 * Forgets the cached speed and acceleration, for when the motors were 
+	 * commanded directly or reopened
+	 */
+	public void reset(){
+		leftSpeed = UNKNOWN;
+		rightSpeed = UNKNOWN;
+		acceleration = UNKNOWN;
+	}
+	/**
+	 * Stops the helper threads
+	 */
+	public void close(){
+		if(ownedExecutor != null){
+			ownedExecutor.shutdown();
+		}
+	}
+	/**
+	 * Sends the left call on the executor and the right call on this thread
+	 * @param left Call for the left wheel, null to skip it
+	 * @param right Call for the right wheel, null to skip it
+	 * @throws RemoteException
+	 */
+	private void both(final MotorCall left, MotorCall right) throws RemoteException {
+		if(left == null){
+			if(right != null){
+				right.call(rightWheel);
+			}
+			return;
+		}
+		if(right == null){
+			left.call(leftWheel);
+			return;
+		}
+		FutureTask<Void> leftTask = new FutureTask<Void>(new Callable<Void>(){
+			public Void call() throws RemoteException {
+				left.call(leftWheel);
+				return null;
+			}
+		});
+		executor.execute(Tracer.propagate(Metrics.propagate(leftTask)));
+		RemoteException failure = null;
+		try{
+			right.call(rightWheel);
+		} catch(RemoteException e){
+			failure = e;
+		}
+		try{
+			leftTask.get();
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new RemoteException("Interrupted while commanding the left wheel", e);
+		} catch(ExecutionException e){
+			if(failure == null){
+				failure = toRemoteException(e.getCause());
+			}
+		}
+		if(failure != null){
+			throw failure;
+		}
+	}
+	private static RemoteException toRemoteException(Throwable cause){
+		if(cause instanceof RemoteException){
+			return (RemoteException)cause;
+		}
+		if(cause instanceof RuntimeException){
+			throw (RuntimeException)cause;
+		}
+		return new RemoteException(cause.getMessage(), cause);
+	}
+}
@@ -20,39 +20,132 @@ package edu.jhuapl.EV3Agent;
  * command it determines which command it is being instructed to execute and sends a 
  * message to the robot via bluetooth.
  */
+import java.io.File;
 import java.net.MalformedURLException;
 import java.rmi.NotBoundException;
 import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.LoggerFactory;
 
+import edu.jhuapl.EV3Agent.CommandGrammar.Argument;
 import edu.jhuapl.dorset.agents.AbstractAgent;
 import edu.jhuapl.dorset.agents.AgentRequest;
 import edu.jhuapl.dorset.agents.AgentResponse;
 import edu.jhuapl.dorset.agents.Description;
-import edu.jhuapl.dorset.nlp.Tokenizer;
-import edu.jhuapl.dorset.nlp.WhiteSpaceTokenizer;
 
 public class EV3Agent extends AbstractAgent{
 	           
 	private static final org.slf4j.Logger logger = LoggerFactory.getLogger(EV3Agent.class);
 	private PortInfo portInfo;
-	private int currentShooterAngle = 0;
+	private volatile int currentShooterAngle = 0;
 	private String name = "EV3";
 	private static final String SUMMARY = "Takes in commands to control LEGO Mindstorms EV3 Robot";
 	private static final String[] EXAMPLE = new String[] {"fire", "angle 10", "turn 90"};
 	private Description description;
 	private EV3AgentPlatform agent;
+	private CommandQueue commandQueue;
+	private final Set<CancellationToken> activeTokens = 
+			Collections.newSetFromMap(new ConcurrentHashMap<CancellationToken, Boolean>());
+	private final ThreadLocal<CancellationToken> currentToken = new ThreadLocal<CancellationToken>();
+	/** set while a batch runs on the actuator thread, so its steps run in place instead of being queued */
+	private final ThreadLocal<Boolean> inBatch = new ThreadLocal<Boolean>();
+	private volatile long lastStopLatencyNanos = -1;
+	private volatile String runningCommand;
+	private volatile long maxStopLatencyNanos = -1;
+	private static final String[] DEGREES = new String[] {"degrees", "degree", "deg"};
+	private static final String[] CENTIMETERS = new String[] {"centimeters", "centimeter", "cm"};
+	private static final Device[] NO_DEVICES = new Device[0];
+	private static final Device[] WHEELS = new Device[] {Device.LEFT_WHEEL, Device.RIGHT_WHEEL};
+	private static final Device[] TURN_DEVICES = new Device[] {Device.LEFT_WHEEL, Device.RIGHT_WHEEL, Device.GYRO};
+	private static final Device[] MOVE_DEVICES = new Device[] {Device.SHOOTER_ANGLE, Device.LEFT_WHEEL, 
+			Device.RIGHT_WHEEL, Device.ULTRASONIC};
+	private static final String INVALID = "invalid";
+	private final CommandGrammar<CommandHandler> grammar = buildGrammar();
+	private static final int MIN_FUZZY_LENGTH = 2;
+	/**
+	 * Commands that move the robot or fire, which a misheard word of four 
+	 * letters or fewer ("far", "more") is never corrected to
+	 */
+	private static final Set<String> GUARDED_COMMANDS = new HashSet<String>(
+			Arrays.asList("fire", "move", "forward", "backward"));
+	private static final int MIN_GUARDED_LENGTH = 5;
+	/**
+	 * Commands answered from the agent's own state without calling the platform. 
+	 * They are counted but not timed, since reading the clock would cost as much 
+	 * as answering them.
+	 */
+	private static final Set<String> UNTIMED_COMMANDS = new HashSet<String>(
+			Arrays.asList("help", "commands", "status", "sensors", "ports", "connection"));
+	private static final String[] NUMBER_WORDS = new String[] {"zero", "one", "two", "three", "four", 
+		"five", "six", "seven", "eight", "nine", "ten", "eleven", "twelve", "thirteen", "fourteen", 
+		"fifteen", "sixteen", "seventeen", "eighteen", "nineteen", "twenty"};
+	private static final String[] TENS_WORDS = new String[] {"", "", "twenty", "thirty", "forty", 
+		"fifty", "sixty", "seventy", "eighty", "ninety"};
+	private final PhoneticMatcher commandMatcher;
+	private final PhoneticMatcher argumentMatcher;
+	private final HypothesisScorer<CommandHandler> hypothesisScorer;
+	private final Metrics metrics = new Metrics();
+	private final Tracer tracer;
+	private TraceExporter traceExporter;
+	private final TelemetryHub telemetry;
+	private final MetricsFeed metricsFeed;
+	private final ThreadLocal<ParsedCommand<CommandHandler>> parsedCommand = 
+			new ThreadLocal<ParsedCommand<CommandHandler>>(){
+		@Override
+		protected ParsedCommand<CommandHandler> initialValue(){
+			return new ParsedCommand<CommandHandler>();
+		}
+	};
+	
+	/**
+	 * Runs a command matched by the grammar
+	 */
+	public interface CommandHandler {
+		public AgentResponse handle(ParsedCommand<CommandHandler> parsed) throws Exception;
+	}
 	
 	public EV3Agent(Properties prop){
 		this.setDescription(new Description(name, SUMMARY, EXAMPLE));
 		this.portInfo = new PortInfo(prop);
+		this.commandMatcher = newMatcher();
+		this.argumentMatcher = newMatcher();
+		buildVocabulary();
+		this.hypothesisScorer = newHypothesisScorer();
+		this.tracer = new Tracer(portInfo.getTraceSampleRate(), portInfo.getTraceBufferSize());
+		if(portInfo.getTraceSampleRate() > 0){
+			traceExporter = new TraceExporter(tracer, new File(portInfo.getTraceFile()), 
+					portInfo.getTraceFlushMillis());
+			traceExporter.start();
+		}
 		if(portInfo.getMockEV3()){
-			agent = new MockEV3Platform();
+			agent = new TimedEV3Platform(new MockEV3Platform(portInfo.getMockMotionMillis()), metrics);
 		}
 		else{
-			agent = new RemoteEV3Platform(portInfo);
+			RemoteEV3Platform remote = portInfo.getSimulatedEV3() ? new SimulatedEV3Platform(portInfo) 
+					: new RemoteEV3Platform(portInfo);
+			remote.setMetrics(metrics);
+			agent = new TimedEV3Platform(remote, metrics);
+		}
+		this.telemetry = new TelemetryHub(this, portInfo.getTelemetryRate(), 
+				portInfo.getTelemetryBatteryMillis());
+		this.metricsFeed = new MetricsFeed(this, portInfo.getMetricsFeedMillis(), 
+				portInfo.getMetricsFeedHistory());
+		if(portInfo.getAsyncCommands()){
+			commandQueue = new CommandQueue(new CommandQueue.FailureHandler(){
+				public AgentResponse handleFailure(Exception e){
+					return commandFailed(e);
+				}
+			});
 		}
 	}
 	public String getName(){
@@ -68,7 +161,20 @@ public class EV3Agent extends AbstractAgent{
 		this.description = description;
 	}
 	public AgentResponse process(AgentRequest request){  
-		logger.info("Handling the request: " + request.getText());
+		Span span = tracer.start("EV3Agent.process").setAttribute("request", request.getText());
+		try{
+			return respond(request);
+		} finally{
+			span.end();
+		}
+	}
+	/**
+	 * Connects to the EV3 if needed, then parses and runs the request
+	 * @param request
+	 * @return AgentResponse of the command
+	 */
+	private AgentResponse respond(AgentRequest request){
+		logger.info("Handling the request: {}", request.getText());
 		if(!ev3On()){
 			if(!setUp()){
 				return cannotConnect();
@@ -76,43 +182,702 @@ public class EV3Agent extends AbstractAgent{
 		}
 		if(ev3On()){
 			try{
-				Tokenizer tokenizer = new WhiteSpaceTokenizer();
-				String input = request.getText();
-				input = input.toLowerCase();
-				String[] inputTokenized = tokenizer.tokenize(input);
-				String wordCommand = inputTokenized[0];
-				int numberCommand;
-				
-				if(checkHelp(wordCommand)){
-					return returnHelp(inputTokenized[1]);
+				ParsedCommand<CommandHandler> parsed = parsedCommand.get();
+				switch(parse(request.getText(), parsed)){
+					case OK:
+						return handle(parsed);
+					case INVALID_NUMBER:
+						logger.error("Invalid number in {}", request.getText());
+						metrics.countUntimed(INVALID);
+						return invalidNum();
+					default:
+						metrics.countUntimed(INVALID);
+						return invalidCommand();
 				}
-				else if(inputTokenized.length == 1){
-					return(oneWordCommandHandler(wordCommand));
+			} catch(Exception ex){
+				logger.error("Could not process command " + ex.getMessage());
+				return commandFailed(ex);
+			}
+		}
+		return cannotConnect();
+	}
+	/**
+	 * Parses the text, correcting misheard words when it does not parse as heard
+	 * @param text
+	 * @param parsed Filled in with the command and its argument
+	 * @return CommandGrammar.Status of the parse
+	 */
+	private CommandGrammar.Status parse(String text, ParsedCommand<CommandHandler> parsed){
+		Span span = Tracer.child("parse");
+		try{
+			CommandGrammar.Status status = grammar.parse(text, parsed);
+			if(status == CommandGrammar.Status.UNKNOWN_COMMAND 
+					|| status == CommandGrammar.Status.INVALID_NUMBER){
+				String corrected = correct(text);
+				if(corrected != null){
+					logger.info("Heard \"{}\" as \"{}\"", text, corrected);
+					span.setAttribute("corrected", corrected);
+					status = grammar.parse(corrected, parsed);
 				}
-				else if(inputTokenized.length == 2){
-					try{
-						numberCommand = Integer.parseInt(inputTokenized[1]);
-						return(twoWordCommandHandler(wordCommand, numberCommand));
-					} catch(Exception e1){
-						logger.error("Invalid number " + e1.getMessage());
-						return invalidNum();
-					}
+			}
+			span.setAttribute("status", status);
+			return status;
+		} finally{
+			span.end();
+		}
+	}
+	/**
+	 * Runs the handler of a parsed command in its own span, charging its time and 
+	 * RMI calls to the command unless it is answered without the platform
+	 * @param parsed
+	 * @return AgentResponse of the handler
+	 * @throws Exception
+	 */
+	private AgentResponse handle(ParsedCommand<CommandHandler> parsed) throws Exception {
+		String name = parsed.getCommand().getName();
+		Span span = Tracer.child(name);
+		try{
+			if(UNTIMED_COMMANDS.contains(name)){
+				metrics.countUntimed(name);
+				return parsed.getCommand().getHandler().handle(parsed);
+			}
+			long start = System.nanoTime();
+			String previous = Metrics.enter(name);
+			try{
+				return parsed.getCommand().getHandler().handle(parsed);
+			} finally{
+				metrics.recordCommand(name, System.nanoTime() - start);
+				Metrics.exit(previous);
+			}
+		} finally{
+			span.end();
+		}
+	}
+	/**
+	 * Runs the best hypothesis of a speech recognizer's N-best list, scored by
+	 * confidence, how well it parses and whether it can run in the current state.
+	 * If none can run, the most likely one is processed to report why.
+	 * Hypotheses are expected to have passed the same request filters as single requests.
+	 * @param hypotheses N-best list, most likely first
+	 * @return AgentResponse of the hypothesis run
+	 */
+	public AgentResponse process(List<Hypothesis> hypotheses){
+		if(hypotheses.isEmpty()){
+			return invalidCommand();
+		}
+		HypothesisScorer.Choice choice = hypothesisScorer.choose(hypotheses);
+		if(choice == null){
+			logger.info("No hypothesis of {} can run", hypotheses.size());
+			return process(new AgentRequest(hypotheses.get(0).getText()));
+		}
+		logger.info("Chose \"{}\" of {} hypotheses with score {}", choice.getText(), hypotheses.size(), 
+				choice.getScore());
+		return process(new AgentRequest(choice.getText()));
+	}
+	/**
+	 * Runs an ordered list of commands as one request. Every step is parsed and 
+	 * checked against the robot's limits before any of them runs, following the 
+	 * shooter angle through the batch, so an invalid step leaves the robot as it was.
+	 * While a step runs, the ports the next one uses are opened in the background.
+	 * The batch ends early when a step fails or "stop" is called from outside it; 
+	 * a "stop" step halts the robot and the batch carries on with the next step.
+	 * Texts are expected to have passed the same request filters as single requests.
+	 * @param texts Commands in the order they run
+	 * @return BatchResult with the response and time of each step
+	 */
+	public BatchResult processBatch(List<String> texts){
+		long start = System.nanoTime();
+		Span span = tracer.start("EV3Agent.batch").setAttribute("steps", texts.size());
+		try{
+			BatchResult result = new BatchResult();
+			List<ParsedCommand<CommandHandler>> parsed = validate(texts, result);
+			result.validated(System.nanoTime() - start);
+			if(result.isValid()){
+				runBatch(parsed, result);
+			}
+			result.finished(System.nanoTime() - start);
+			return result;
+		} finally{
+			span.end();
+		}
+	}
+	/**
+	 * Parses each step and checks it against the state the earlier steps leave
+	 * @param texts
+	 * @param result Filled in with a step per text, the invalid ones with the reason
+	 * @return ParsedCommand of each step
+	 */
+	private List<ParsedCommand<CommandHandler>> validate(List<String> texts, BatchResult result){
+		List<ParsedCommand<CommandHandler>> steps = new ArrayList<ParsedCommand<CommandHandler>>(texts.size());
+		int angle = currentShooterAngle;
+		for(int i = 0; i < texts.size(); i++){
+			BatchResult.Step step = result.add(texts.get(i));
+			ParsedCommand<CommandHandler> parsed = new ParsedCommand<CommandHandler>();
+			steps.add(parsed);
+			CommandGrammar.Status status = parse(texts.get(i), parsed);
+			if(status == CommandGrammar.Status.INVALID_NUMBER){
+				result.invalid(step, invalidNum().getText());
+				continue;
+			}
+			if(status != CommandGrammar.Status.OK){
+				result.invalid(step, invalidCommand().getText());
+				continue;
+			}
+			String name = parsed.getCommand().getName();
+			if(name.equals("angle")){
+				if(checkShooterAngle(parsed.getNumber(), angle)){
+					angle += parsed.getNumber();
 				}
 				else{
-					return invalidCommand();
+					result.invalid(step, invalidAngle(angle).getText());
 				}
-			} catch(Exception ex){
-				logger.error("Could not process command " + ex.getMessage());
+			}
+			else if(name.equals("turn") && !checkTurnAngle(parsed.getNumber())){
+				result.invalid(step, invalidNum().getText());
+			}
+			else if(name.equals("quit") && i < texts.size() - 1){
+				result.invalid(step, "\"quit\" can only be the last command of a batch");
+			}
+			else if(name.equals("move")){
+				angle = 0;
+			}
+		}
+		return steps;
+	}
+	/**
+	 * Runs the validated steps, as one command on the actuator thread when 
+	 * asyncCommands is set, and waits for them to finish
+	 * @param steps
+	 * @param result
+	 */
+	private void runBatch(final List<ParsedCommand<CommandHandler>> steps, final BatchResult result){
+		if(commandQueue == null){
+			runSteps(steps, result);
+			return;
+		}
+		CommandHandle handle = commandQueue.submit("batch of " + steps.size() + " commands", 
+				Tracer.propagate(Metrics.propagate(new Callable<AgentResponse>(){
+			public AgentResponse call(){
+				inBatch.set(Boolean.TRUE);
 				try{
-					closePorts();
-				} catch(RemoteException e){
-					logger.error("Error closing ports " + e.getMessage());
+					runSteps(steps, result);
+				} finally{
+					inBatch.remove();
 				}
-				ev3Null();
-				return reportError(ex);
+				return new AgentResponse(result.describe());
+			}
+		})));
+		try{
+			while(!handle.await(1, TimeUnit.SECONDS)){
+				logger.debug("Waiting for the batch, command {} is {}", handle.getId(), handle.getStatus());
 			}
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			logger.warn("Interrupted while waiting for the batch, command " + handle.getId());
 		}
-		return cannotConnect();
+	}
+	/**
+	 * Runs the validated steps in order, opening the ports of the next step 
+	 * while each one runs
+	 * @param steps
+	 * @param result
+	 */
+	private void runSteps(List<ParsedCommand<CommandHandler>> steps, BatchResult result){
+		List<BatchResult.Step> results = result.getSteps();
+		if(steps.isEmpty()){
+			return;
+		}
+		if(!ev3On() && !setUp()){
+			results.get(0).finish(BatchResult.Status.FAILED, cannotConnect().getText(), 0);
+			return;
+		}
+		CancellationToken batch = new CancellationToken();
+		activeTokens.add(batch);
+		try{
+			for(int i = 0; i < steps.size() && !batch.isCancelled(); i++){
+				if(i + 1 < steps.size()){
+					agent.prepare(devices(steps.get(i + 1).getCommand().getName()));
+				}
+				String name = steps.get(i).getCommand().getName();
+				//a stop step halts the robot and anything else running, not its own batch
+				boolean ownStop = name.equals("stop");
+				if(ownStop){
+					activeTokens.remove(batch);
+				}
+				long start = System.nanoTime();
+				try{
+					AgentResponse response = handle(steps.get(i));
+					BatchResult.Status status = batch.isCancelled() && !ownStop 
+							? BatchResult.Status.STOPPED : BatchResult.Status.DONE;
+					results.get(i).finish(status, response.getText(), System.nanoTime() - start);
+				} catch(Exception ex){
+					logger.error("Could not process command " + ex.getMessage());
+					results.get(i).finish(BatchResult.Status.FAILED, commandFailed(ex).getText(), 
+							System.nanoTime() - start);
+					return;
+				} finally{
+					if(ownStop){
+						activeTokens.add(batch);
+					}
+				}
+			}
+		} finally{
+			activeTokens.remove(batch);
+		}
+	}
+	/**
+	 * @param command Name of a command
+	 * @return Ports the command uses
+	 */
+	private static Device[] devices(String command){
+		switch(command){
+			case "turn":
+				return TURN_DEVICES;
+			case "move":
+				return MOVE_DEVICES;
+			case "forward":
+			case "backward":
+				return WHEELS;
+			case "angle":
+				return new Device[] {Device.SHOOTER_ANGLE};
+			case "fire":
+				return new Device[] {Device.SHOOTER};
+			case "manual":
+				return new Device[] {Device.TOUCH, Device.SHOOTER};
+			default:
+				return NO_DEVICES;
+		}
+	}
+	/**
+	 * Replaces each word that is not a command, unit or number with the 
+	 * vocabulary word it most likely was: a command for the first word and
+	 * the word after "help", a number or unit for the others
+	 * @param text
+	 * @return Corrected text or null if no word was replaced
+	 */
+	private String correct(String text){
+		if(commandMatcher == null){
+			return null;
+		}
+		StringBuilder builder = new StringBuilder(text.length());
+		boolean corrected = false;
+		boolean help = false;
+		int i = 0;
+		while(i < text.length()){
+			if(Character.isWhitespace(text.charAt(i))){
+				i++;
+				continue;
+			}
+			int end = i;
+			boolean letters = true;
+			while(end < text.length() && !Character.isWhitespace(text.charAt(end))){
+				letters &= Character.isLetter(text.charAt(end));
+				end++;
+			}
+			String word = text.substring(i, end);
+			boolean first = builder.length() == 0;
+			if(!first){
+				builder.append(' ');
+			}
+			PhoneticMatcher.Match match = null;
+			if(letters){
+				match = (first || help ? commandMatcher : argumentMatcher).resolve(word);
+			}
+			if(match != null && !match.getReplacement().equalsIgnoreCase(word)){
+				word = match.getReplacement();
+				corrected = true;
+			}
+			help |= first && word.equalsIgnoreCase("help");
+			builder.append(word);
+			i = end;
+		}
+		return corrected ? builder.toString() : null;
+	}
+	/**
+	 * @return HypothesisScorer that corrects words with the fuzzy matchers and
+	 * checks angles and turns against the robot's limits
+	 */
+	private HypothesisScorer<CommandHandler> newHypothesisScorer(){
+		HypothesisScorer.Corrector corrector = new HypothesisScorer.Corrector(){
+			public String correct(String text){
+				return EV3Agent.this.correct(text);
+			}
+		};
+		return new HypothesisScorer<CommandHandler>(grammar, corrector, 
+				new HypothesisScorer.StateCheck<CommandHandler>(){
+			public boolean isRunnable(CommandGrammar.Command<CommandHandler> command, 
+					CommandGrammar.Command<CommandHandler> argument, int number) throws Exception {
+				if(command.getName().equals("angle")){
+					return checkShooterAngle(number);
+				}
+				if(command.getName().equals("turn")){
+					return checkTurnAngle(number);
+				}
+				if(command.getName().equals("help")){
+					return argument != null && argument.getHelp() != null;
+				}
+				return true;
+			}
+		}, portInfo.getHypothesisCacheSize());
+	}
+	/**
+	 * @return PhoneticMatcher with the thresholds of the properties, null if fuzzy matching is off
+	 */
+	private PhoneticMatcher newMatcher(){
+		if(!portInfo.getFuzzyMatching()){
+			return null;
+		}
+		return new PhoneticMatcher(portInfo.getFuzzyMinConfidence(), portInfo.getFuzzyMaxEdits(), 
+				MIN_FUZZY_LENGTH, portInfo.getFuzzyCacheSize());
+	}
+	/**
+	 * Adds the command table to the command vocabulary, and the units and 
+	 * number words to the argument vocabulary
+	 */
+	private void buildVocabulary(){
+		if(commandMatcher == null){
+			return;
+		}
+		for(CommandGrammar.Command<CommandHandler> command : grammar.getCommands()){
+			String name = command.getName();
+			commandMatcher.add(name, name, GUARDED_COMMANDS.contains(name) ? MIN_GUARDED_LENGTH : 0);
+		}
+		for(String unit : DEGREES){
+			argumentMatcher.add(unit, unit);
+		}
+		for(String unit : CENTIMETERS){
+			argumentMatcher.add(unit, unit);
+		}
+		for(int i = 0; i < NUMBER_WORDS.length; i++){
+			argumentMatcher.add(NUMBER_WORDS[i], Integer.toString(i));
+		}
+		for(int i = 3; i < TENS_WORDS.length; i++){
+			argumentMatcher.add(TENS_WORDS[i], Integer.toString(i * 10));
+		}
+	}
+	/**
+	 * @return Fuzzy matcher of misheard command words, null if fuzzy matching is off
+	 */
+	public PhoneticMatcher getCommandMatcher(){
+		return commandMatcher;
+	}
+	/**
+	 * @return Fuzzy matcher of misheard numbers and units, null if fuzzy matching is off
+	 */
+	public PhoneticMatcher getArgumentMatcher(){
+		return argumentMatcher;
+	}
+	/**
+	 * @return Settings the agent was created with
+	 */
+	public PortInfo getPortInfo(){
+		return portInfo;
+	}
+	/**
+	 * @return Metrics of the commands, platform calls and control loops
+	 */
+	public Metrics getMetrics(){
+		return metrics;
+	}
+	/**
+	 * @return Tracer of the sampled requests
+	 */
+	public Tracer getTracer(){
+		return tracer;
+	}
+	/**
+	 * @return Feed of the changes in the metrics, interval by interval
+	 */
+	public MetricsFeed getMetricsFeed(){
+		return metricsFeed;
+	}
+	/**
+	 * @return Hub streaming the robot's state to its subscribers
+	 */
+	public TelemetryHub getTelemetry(){
+		return telemetry;
+	}
+	/**
+	 * @return angle of the shooter in degrees
+	 */
+	public int getShooterAngle(){
+		return currentShooterAngle;
+	}
+	/**
+	 * @return Text of the motion command running, null when the robot is idle
+	 */
+	public String getRunningCommand(){
+		return runningCommand;
+	}
+	/**
+	 * @return number of commands queued or running on the actuator thread, 0 without asyncCommands
+	 */
+	public int getQueuedCommands(){
+		return commandQueue == null ? 0 : commandQueue.size();
+	}
+	/**
+	 * Reads the battery without connecting, so telemetry never opens the ports
+	 * @return double Battery Voltage, NaN when the EV3 is not connected
+	 */
+	double readBattery(){
+		return ev3On() ? agent.getBattery() : Double.NaN;
+	}
+	/**
+	 * @return ConnectionSupervisor of the platform, null without one
+	 */
+	ConnectionSupervisor getConnectionSupervisor(){
+		return agent.getConnectionSupervisor();
+	}
+	/**
+	 * @return SensorSampler of the platform, null when sensor sampling is off
+	 */
+	SensorSampler getSensorSampler(){
+		return agent.getSensorSampler();
+	}
+	/**
+	 * @return Scorer of N-best hypotheses
+	 */
+	public HypothesisScorer<CommandHandler> getHypothesisScorer(){
+		return hypothesisScorer;
+	}
+	/**
+	 * @return Grammar of the commands this agent understands
+	 */
+	public CommandGrammar<CommandHandler> getGrammar(){
+		return grammar;
+	}
+	/**
+	 * Builds the command table
+	 * @return Grammar compiled from the table
+	 */
+	private CommandGrammar<CommandHandler> buildGrammar(){
+		return new CommandGrammar.Builder<CommandHandler>()
+			.add("fire", Argument.NONE, "\"fire\" \nTells EV3 to fire once", new CommandHandler(){
+				public AgentResponse handle(ParsedCommand<CommandHandler> parsed) throws Exception {
+					return execute("fire", new Callable<AgentResponse>(){
+						public AgentResponse call() throws RemoteException {
+							return returnFire();
+						}
+					});
+				}
+			})
+			.add("stop", Argument.NONE, "\"stop\" \nTells EV3 to stop all motion", new CommandHandler(){
+				public AgentResponse handle(ParsedCommand<CommandHandler> parsed) throws Exception {
+					return returnStop();
+				}
+			})
+			.add("quit", Argument.NONE, "\"quit\" \nEnds program", new CommandHandler(){
+				public AgentResponse handle(ParsedCommand<CommandHandler> parsed) throws Exception {
+					return endAll();
+				}
+			})
+			.add("battery", Argument.NONE, "\"battery\" \nReturns EV3 battery level", new CommandHandler(){
+				public AgentResponse handle(ParsedCommand<CommandHandler> parsed){
+					return returnBattery();
+				}
+			})
+			.add("commands", Argument.NONE, null, new CommandHandler(){
+				public AgentResponse handle(ParsedCommand<CommandHandler> parsed){
+					return returnCommandList();
+				}
+			})
+			.add("sensors", Argument.NONE, "\"sensors\" \nReturns the latest reading of each sensor", 
+					new CommandHandler(){
+				public AgentResponse handle(ParsedCommand<CommandHandler> parsed){
+					return returnSensors();
+				}
+			})
+			.add("ports", Argument.NONE, "\"ports\" \nReturns how long each port took to open", 
+					new CommandHandler(){
+				public AgentResponse handle(ParsedCommand<CommandHandler> parsed){
+					return returnStartupReport();
+				}
+			})
+			.add("connection", Argument.NONE, "\"connection\" \nReturns the state of the connection to the EV3"
+					+ " and how often it has been re-established", new CommandHandler(){
+				public AgentResponse handle(ParsedCommand<CommandHandler> parsed){
+					return returnConnection();
+				}
+			})
+			.add("manual", Argument.NONE, "\"button\" \nWaits for button on robot to be pressed "
+					+ "and fires once", new CommandHandler(){
+				public AgentResponse handle(ParsedCommand<CommandHandler> parsed) throws Exception {
+					return execute("manual", new Callable<AgentResponse>(){
+						public AgentResponse call() throws RemoteException {
+							return returnTouchSensor();
+						}
+					});
+				}
+			})
+			.add("forward", Argument.NONE, "\"forward\" \nMoves EV3 forward until \"stop\" command "
+					+ "is called", new CommandHandler(){
+				public AgentResponse handle(ParsedCommand<CommandHandler> parsed) throws Exception {
+					return execute("forward", new Callable<AgentResponse>(){
+						public AgentResponse call() throws RemoteException {
+							return returnMovingForward();
+						}
+					});
+				}
+			})
+			.add("backward", Argument.NONE, "\"backward\" \nMoves EV3 backward until \"stop\" command "
+					+ "is called", new CommandHandler(){
+				public AgentResponse handle(ParsedCommand<CommandHandler> parsed) throws Exception {
+					return execute("backward", new Callable<AgentResponse>(){
+						public AgentResponse call() throws RemoteException {
+							return returnMovingBackward();
+						}
+					});
+				}
+			})
+			.add("angle", Argument.NUMBER, "\"angle <number>\" \nChanges the angle of the shooter"
+					+ "\nNumber should be from 1-25", new CommandHandler(){
+				public AgentResponse handle(ParsedCommand<CommandHandler> parsed) throws Exception {
+					return angleCommand(parsed.getNumber());
+				}
+			}, DEGREES)
+			.add("turn", Argument.NUMBER, "\"turn <number>\" \nChanges the angle the EV3 is facing"
+					+ "\nNumber should be from 1-360", new CommandHandler(){
+				public AgentResponse handle(ParsedCommand<CommandHandler> parsed) throws Exception {
+					return turnCommand(parsed.getNumber());
+				}
+			}, DEGREES)
+			.add("move", Argument.NUMBER, "\"move <number>\" \nMoves EV3 \nNumber should be in centimeters", 
+					new CommandHandler(){
+				public AgentResponse handle(ParsedCommand<CommandHandler> parsed) throws Exception {
+					return moveCommand(parsed.getNumber());
+				}
+			}, CENTIMETERS)
+			.add("status", Argument.NUMBER, "\"status <number>\" \nReturns the status of a queued command"
+					+ "\nNumber is the id returned when the command was queued", new CommandHandler(){
+				public AgentResponse handle(ParsedCommand<CommandHandler> parsed){
+					return returnStatus(parsed.getNumber());
+				}
+			})
+			.add("help", Argument.COMMAND, null, new CommandHandler(){
+				public AgentResponse handle(ParsedCommand<CommandHandler> parsed){
+					return returnHelp(parsed.getArgument());
+				}
+			})
+			.build();
+	}
+	/**
+	 * Closes the ports after a command failed so the next request reconnects,
+	 * unless the connection supervisor is already reconnecting
+	 * @param ex
+	 * @return Error message ex
+	 */
+	private AgentResponse commandFailed(Exception ex){
+		if(ex instanceof ConnectionLostException && agent.getConnectionSupervisor() != null){
+			return connectionLost(ex);
+		}
+		try{
+			closePorts();
+		} catch(RemoteException e){
+			logger.error("Error closing ports " + e.getMessage());
+		}
+		ev3Null();
+		return reportError(ex);
+	}
+	/**
+	 * Runs a robot action now, or queues it on the actuator thread when
+	 * asyncCommands is set and it is not a step of a batch
+	 * @param command Text of the command
+	 * @param action
+	 * @return Action's response or acknowledgement of the queued command
+	 * @throws Exception
+	 */
+	private AgentResponse execute(String command, Callable<AgentResponse> action) throws Exception {
+		Callable<AgentResponse> cancellable = cancellable(command, action);
+		if(commandQueue == null || inBatch.get() != null){
+			return cancellable.call();
+		}
+		CommandHandle handle = commandQueue.submit(command, cancellable);
+		return new AgentResponse("Queued \"" + command + "\" as command " + handle.getId());
+	}
+	/**
+	 * Gives the action a cancellation token that "stop" can cancel while it runs,
+	 * and charges its work to the command and trace that queued it
+	 * @param command Text of the command
+	 * @param action
+	 * @return Action that registers its token for the duration of the call
+	 */
+	private Callable<AgentResponse> cancellable(final String command, 
+			final Callable<AgentResponse> action){
+		final String charged = Metrics.current();
+		final Span span = Tracer.current();
+		return new Callable<AgentResponse>(){
+			public AgentResponse call() throws Exception {
+				CancellationToken token = new CancellationToken();
+				activeTokens.add(token);
+				currentToken.set(token);
+				runningCommand = command;
+				String previous = Metrics.enter(charged);
+				Span previousSpan = Tracer.enter(span);
+				try{
+					AgentResponse response = action.call();
+					if(token.isCancelled()){
+						return new AgentResponse("Stopped before completing " + command);
+					}
+					return response;
+				} finally{
+					Tracer.exit(previousSpan);
+					Metrics.exit(previous);
+					runningCommand = null;
+					currentToken.remove();
+					activeTokens.remove(token);
+					if(token.isCancelled()){
+						recordStopLatency(System.nanoTime() - token.getCancelledNanos());
+					}
+				}
+			}
+		};
+	}
+	/**
+	 * @return Token of the action running on this thread
+	 */
+	private CancellationToken token(){
+		CancellationToken token = currentToken.get();
+		if(token == null){
+			return CancellationToken.none();
+		}
+		return token;
+	}
+	/**
+	 * Records the time between "stop" and the cancelled motion giving up
+	 * @param latencyNanos
+	 */
+	private void recordStopLatency(long latencyNanos){
+		lastStopLatencyNanos = latencyNanos;
+		if(latencyNanos > maxStopLatencyNanos){
+			maxStopLatencyNanos = latencyNanos;
+		}
+		long latencyMillis = TimeUnit.NANOSECONDS.toMillis(latencyNanos);
+		if(latencyMillis > portInfo.getMaxStopLatency()){
+			logger.warn("Stop took " + latencyMillis + " ms to end the motion, budget is " 
+					+ portInfo.getMaxStopLatency() + " ms");
+		}
+	}
+	/**
+	 * @return milliseconds between the last "stop" and the motion ending, -1 if never stopped
+	 */
+	public double getLastStopLatencyMillis(){
+		return lastStopLatencyNanos < 0 ? -1 : lastStopLatencyNanos / 1e6;
+	}
+	/**
+	 * @return largest stop latency seen in milliseconds, -1 if never stopped
+	 */
+	public double getMaxStopLatencyMillis(){
+		return maxStopLatencyNanos < 0 ? -1 : maxStopLatencyNanos / 1e6;
+	}
+	/**
+	 * @param id Status id returned when the command was queued
+	 * @return CommandHandle of the command or null if it is unknown
+	 */
+	public CommandHandle getCommandStatus(long id){
+		if(commandQueue == null){
+			return null;
+		}
+		return commandQueue.get(id);
 	}
 	/**
 	 * Connects with the EV3 and ports
@@ -172,124 +937,56 @@ public class EV3Agent extends AbstractAgent{
 		agent.closePorts();
 	}
 	/**
-	 * Determines command being called
-	 * @param command
+	 * @param command Command named after "help", null if it is not a command
 	 * @return Instructions for what command does
 	 */
-	private AgentResponse returnHelp(String command){
-		AgentResponse name = new AgentResponse("");
-		if(command.equalsIgnoreCase("fire")){
-			name = new AgentResponse("\"fire\" \nTells EV3 to fire once");
-		}
-		else if(command.equalsIgnoreCase("stop")){
-			name = new AgentResponse("\"stop\" \nTells EV3 to stop all motion");
-		}
-		else if(command.equalsIgnoreCase("quit")){
-			name = new AgentResponse("\"quit\" \nEnds program");
-		}
-		else if(command.equalsIgnoreCase("battery")){
-			name = new AgentResponse("\"battery\" \nReturns EV3 battery level");
+	private AgentResponse returnHelp(CommandGrammar.Command<CommandHandler> command){
+		if(command == null || command.getHelp() == null){
+			return new AgentResponse("Invalid command");
 		}
-		else if(command.equalsIgnoreCase("angle")){
-			name = new AgentResponse("\"angle <number>\" \nChanges the angle of the shooter"
-				+ "\nNumber should be from 1-25");
-		}
-		else if(command.equalsIgnoreCase("turn")){
-			name = new AgentResponse("\"turn <number>\" \nChanges the angle the EV3 is facing"
-				+ "\nNumber should be from 1-360");
-		}
-		else if(command.equalsIgnoreCase("manual")){
-			name = new AgentResponse("\"button\" \nWaits for button on robot to be pressed "
-				+ "and fires once");
-		}
-		else if(command.equalsIgnoreCase("forward")){
-			name = new AgentResponse("\"forward\" \nMoves EV3 forward until \"stop\" command "
-					+ "is called");
-		}
-		else if(command.equalsIgnoreCase("backward")){
-			name = new AgentResponse("\"backward\" \nMoves EV3 backward until \"stop\" command "
-					+ "is called");
-		}
-		else if(command.equalsIgnoreCase("move")){
-			name = new AgentResponse("\"move <number>\" \nMoves EV3 \nNumber should be in centimeters");
-		}
-		else{
-			name = new AgentResponse("Invalid command");
-		}
-		return name;
+		return new AgentResponse(command.getHelp());
 	}
 	/**
-	 * Determines if command is help
-	 * @param wordCommand
-	 * @return boolean value
+	 * @param numberCommand
+	 * @return Changing angle or invalid angle response
+	 * @throws Exception
 	 */
-	private boolean checkHelp(String wordCommand){
-		switch(wordCommand){
-			case "help":
-				return true;
-			default:
-				return false;
+	private AgentResponse angleCommand(final int numberCommand) throws Exception {
+		if(checkShooterAngle(numberCommand)){ //new angle must be 0-25
+			return execute("angle " + numberCommand, new Callable<AgentResponse>(){
+				public AgentResponse call() throws RemoteException {
+					return returnShooterAngle(numberCommand);
+				}
+			});
 		}
+		return invalidAngle(currentShooterAngle);
 	}
 	/**
-	 * Determines command being called
-	 * @param wordCommand
-	 * @return Appropriate command method's response
-	 * @throws RemoteException
+	 * @param numberCommand
+	 * @return Turning or invalid number response
+	 * @throws Exception
 	 */
-	private AgentResponse oneWordCommandHandler(String wordCommand) 
-			throws RemoteException {
-		switch(wordCommand){
-			case "fire":
-				return returnFire();
-			case "stop":
-				return returnStop();
-			case "quit":
-				return endAll();
-			case "battery":
-				return returnBattery();
-			case "commands":
-				return returnCommandList();
-			case "manual":
-				return returnTouchSensor();
-			case "forward":
-				return returnMovingForward();
-			case "backward":
-				return returnMovingBackward();
-			default:
-				return invalidCommand();	
+	private AgentResponse turnCommand(final int numberCommand) throws Exception {
+		if(checkTurnAngle(numberCommand)){	//turns 0-360
+			return execute("turn " + numberCommand, new Callable<AgentResponse>(){
+				public AgentResponse call() throws RemoteException {
+					return returnTurn(numberCommand);
+				}
+			});
 		}
+		return invalidNum();
 	}
 	/**
-	 * Determines command being called
-	 * @param wordCommand
 	 * @param numberCommand
-	 * @return Appropriate command method's response
-	 * @throws RemoteException
+	 * @return Moving response
+	 * @throws Exception
 	 */
-	private AgentResponse twoWordCommandHandler(String wordCommand, int numberCommand) 
-			throws RemoteException {
-		switch(wordCommand){
-			case "angle":
-				if(checkShooterAngle(numberCommand)){ //new angle must be 0-25
-					currentShooterAngle = changeShooterAngle(numberCommand, currentShooterAngle);
-					return returnShooterAngleChange(numberCommand, currentShooterAngle);
-				}
-				else{
-					return invalidAngle(currentShooterAngle);
-				}
-			case "turn":
-				if(checkTurnAngle(numberCommand)){	//turns 0-360
-					return returnTurn(numberCommand);
-				}
-				else{
-					return invalidNum();
-				}
-			case "move":
+	private AgentResponse moveCommand(final int numberCommand) throws Exception {
+		return execute("move " + numberCommand, new Callable<AgentResponse>(){
+			public AgentResponse call() throws RemoteException {
 				return returnMoving(numberCommand);
-			default:
-				return invalidCommand();
-		}
+			}
+		});
 	}
 	/**
 	 * Calls shoot command
@@ -318,10 +1015,16 @@ public class EV3Agent extends AbstractAgent{
 		return name;
 	}
 	/**
-	 * Stops all motors
+	 * Cancels queued commands and any motion in progress, then stops all motors
 	 * @throws RemoteException
 	 */
 	public void stop() throws RemoteException { 
+		if(commandQueue != null){
+			commandQueue.cancelPending();
+		}
+		for(CancellationToken token : activeTokens){
+			token.cancel();
+		}
 		agent.stop();
 	}
 	/**
@@ -330,9 +1033,15 @@ public class EV3Agent extends AbstractAgent{
 	 * @throws RemoteException
 	 */
 	private AgentResponse endAll() throws RemoteException {
+		if(commandQueue != null){
+			commandQueue.cancelPending();
+		}
 		AgentResponse name = new AgentResponse("\nThank you for using the EV3 demo."
 			+ "\nClosing motors");
 		resetMotorsSensors();
+		if(traceExporter != null){
+			traceExporter.flush();
+		}
 		return name;
 	}
 	/**
@@ -357,6 +1066,36 @@ public class EV3Agent extends AbstractAgent{
 	private double getBattery(){
 		return agent.getBattery();
 	}
+	/**
+	 * @return AgentResponse Latest sample, sample rate and staleness of each sensor
+	 */
+	private AgentResponse returnSensors(){
+		SensorSampler sampler = agent.getSensorSampler();
+		if(sampler == null){
+			return new AgentResponse("Sensor sampling is not enabled");
+		}
+		return new AgentResponse(sampler.describe());
+	}
+	/**
+	 * @return AgentResponse Time each port took to open
+	 */
+	private AgentResponse returnStartupReport(){
+		String report = agent.getStartupReport();
+		if(report == null){
+			return new AgentResponse("Ports have not been opened");
+		}
+		return new AgentResponse(report);
+	}
+	/**
+	 * @return AgentResponse Connection state, heartbeat, reconnect and failover metrics
+	 */
+	private AgentResponse returnConnection(){
+		ConnectionSupervisor supervisor = agent.getConnectionSupervisor();
+		if(supervisor == null){
+			return new AgentResponse("Connection supervision is not enabled");
+		}
+		return new AgentResponse(supervisor.describe());
+	}
 	/**
 	 * @return AgentResponse List of commands
 	 */
@@ -374,8 +1113,16 @@ public class EV3Agent extends AbstractAgent{
 	 * @throws RemoteException
 	 */
 	public boolean checkShooterAngle(int inputAngle) throws RemoteException {
+		return checkShooterAngle(inputAngle, currentShooterAngle);
+	}
+	/**
+	 * @param inputAngle
+	 * @param fromAngle Angle of the shooter before the change
+	 * @return boolean value representing whether the shooter can move by inputAngle from fromAngle
+	 */
+	private boolean checkShooterAngle(int inputAngle, int fromAngle){
 		if(inputAngle > 0 && inputAngle <= portInfo.getMaxShooterAngle()){
-			if(currentShooterAngle + inputAngle <= portInfo.getMaxShooterAngle()){
+			if(fromAngle + inputAngle <= portInfo.getMaxShooterAngle()){
 				return true;
 			}
 			else{
@@ -383,7 +1130,7 @@ public class EV3Agent extends AbstractAgent{
 			}
 		}
 		else if(inputAngle < 0 && inputAngle >= -portInfo.getMaxShooterAngle()){
-			if(currentShooterAngle + inputAngle >= 0){
+			if(fromAngle + inputAngle >= 0){
 				return true;
 			}
 			else{
@@ -404,6 +1151,20 @@ public class EV3Agent extends AbstractAgent{
 	public int changeShooterAngle(int inputAngle, int bAngleCurrent) throws RemoteException {
 		return agent.changeShooterAngle(inputAngle, bAngleCurrent);
 	}
+	/**
+	 * Checks the angle again in case queued commands changed it, then
+	 * changes the angle of the shooter
+	 * @param inputAngle
+	 * @return Changing angle or invalid angle response
+	 * @throws RemoteException
+	 */
+	private AgentResponse returnShooterAngle(int inputAngle) throws RemoteException {
+		if(!checkShooterAngle(inputAngle)){
+			return invalidAngle(currentShooterAngle);
+		}
+		currentShooterAngle = changeShooterAngle(inputAngle, currentShooterAngle);
+		return returnShooterAngleChange(inputAngle, currentShooterAngle);
+	}
 	/**
 	 * @param inputAngle
 	 * @param newAngle
@@ -433,22 +1194,27 @@ public class EV3Agent extends AbstractAgent{
 	 * Determines and rotates appropriate motor until Gyro Sensor 
 	 * reports that the robot has reached desired angle of rotation.
 	 * @param endAngle
-	 * @return AgentResponse Turning
+	 * @return AgentResponse Turning, or how far from the target the turn gave up
 	 * @throws RemoteException
 	 */
 	private AgentResponse returnTurn(int endAngle) throws RemoteException{
+		TurnResult result = turn(endAngle);
+		if(result != null && result.isTimedOut()){
+			return new AgentResponse(String.format("Turn timed out after %d ms, %.0f degrees from the target", 
+					result.getElapsedMillis(), Math.abs(result.getError())));
+		}
 		AgentResponse name = new AgentResponse("Turning");
-		turn(endAngle);
 		return name;
 	}
 	/**
 	 * Determines which wheel to rotate
 	 * Rotates wheel until sample provider indicates robot has turned desired amount
 	 * @param endAngle
+	 * @return TurnResult how the turn went
 	 * @throws RemoteException
 	 */
-	public void turn(int endAngle) throws RemoteException {
-		agent.turn(endAngle);
+	public TurnResult turn(int endAngle) throws RemoteException {
+		return agent.turn(endAngle, token());
 	}
 	private AgentResponse returnTouchSensor() throws RemoteException {
 		AgentResponse name = new AgentResponse("Firing in response to button");
@@ -461,7 +1227,7 @@ public class EV3Agent extends AbstractAgent{
 	 * @throws RemoteException
 	 */
 	public void touchSensor() throws RemoteException{
-		agent.touchSensor();
+		agent.touchSensor(token());
 	}
 	/**
 	 * @return AgentResponse Moving Forward
@@ -506,7 +1272,7 @@ public class EV3Agent extends AbstractAgent{
 			name = new AgentResponse("Moving " + numberCommand);
 		}
 		else{
-			name = new AgentResponse("Moving could not be completed. \nStarting distance was not determinable");
+			name = new AgentResponse("Stopped moving because of an object in front of the robot");
 		}
 		return name;
 	}
@@ -514,13 +1280,25 @@ public class EV3Agent extends AbstractAgent{
 	 * Determines and rotates appropriate motor until Ultrasonic Sensor 
 	 * reports that the robot has moved desired amount.
 	 * @param distanceToMove
+	 * @return boolean value representing whether the move went the whole distance
 	 * @throws RemoteException
 	 */
 	public boolean move(int distanceToMove) throws RemoteException {
-		boolean moved = agent.move(distanceToMove, currentShooterAngle);
+		boolean moved = agent.move(distanceToMove, currentShooterAngle, token());
 		currentShooterAngle = 0;
 		return moved;
 	}
+	/**
+	 * @param id Status id returned when the command was queued
+	 * @return AgentResponse Status of the command
+	 */
+	private AgentResponse returnStatus(int id){
+		CommandHandle handle = getCommandStatus(id);
+		if(handle == null){
+			return new AgentResponse("Unknown command " + id);
+		}
+		return new AgentResponse(handle.describe());
+	}
 	/**
 	 * @return Invalid command response
 	 */
@@ -553,6 +1331,15 @@ public class EV3Agent extends AbstractAgent{
 			+ e.getMessage());
 		return name;
 	}
+	/**
+	 * @param e
+	 * @return AgentResponse connection lost, reconnecting in the background
+	 */
+	private AgentResponse connectionLost(Exception e){
+		AgentResponse name = new AgentResponse("Lost the connection to the EV3 (" + e.getMessage() 
+			+ "). \nReconnecting in the background, try the command again shortly.");
+		return name;
+	}
 	/**
 	 * @return AgentResponse cannot connect 
 	 */
@@ -33,9 +33,14 @@ public interface EV3AgentPlatform {
 	public abstract void resetMotorsSensors(int bAngleCurrent) throws RemoteException;
 	public abstract double getBattery();
 	public abstract int changeShooterAngle(int inputAngle, int bAngleCurrent) throws RemoteException;
-	public abstract void turn(int endAngle) throws RemoteException;
-	public abstract void touchSensor() throws RemoteException;
+	public abstract TurnResult turn(int endAngle, CancellationToken token) throws RemoteException;
+	public abstract void touchSensor(CancellationToken token) throws RemoteException;
 	public abstract void moveForward() throws RemoteException;
 	public abstract void moveBackward() throws RemoteException;
-	public abstract boolean move(int distanceToMove, int bAngleCurrent) throws RemoteException;
+	public abstract boolean move(int distanceToMove, int bAngleCurrent, CancellationToken token) throws RemoteException;
+	public abstract SensorSampler getSensorSampler();
+	public abstract TurnResult getLastTurnResult();
+	public abstract String getStartupReport();
+	public abstract ConnectionSupervisor getConnectionSupervisor();
+	public abstract void prepare(Device... devices);
 }
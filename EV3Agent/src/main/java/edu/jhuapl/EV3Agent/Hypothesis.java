@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+/**
+ * One candidate transcript of a spoken command, as returned in the N-best
+ * list of a speech recognizer
+ */
+public class Hypothesis {
+
+	private final String text;
+	private final double confidence;
+
+	/**
+	 * Constructor
+	 * @param text Transcript of the spoken command
+	 * @param confidence Recognizer confidence, 0 to 1
+	 */
+	public Hypothesis(String text, double confidence){
+		this.text = text;
+		this.confidence = confidence;
+	}
+	public String getText(){
+		return text;
+	}
+	public double getConfidence(){
+		return confidence;
+	}
+	@Override
+	public String toString(){
+		return text + " (" + confidence + ")";
+	}
+}
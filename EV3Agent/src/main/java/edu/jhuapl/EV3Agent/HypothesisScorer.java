@@ -0,0 +1,211 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Picks the hypothesis of an N-best list to run. Each hypothesis scores
+ * its recognizer confidence, discounted when words had to be corrected to
+ * parse, and nothing if it does not parse or cannot run in the robot's
+ * current state. How a text parses never changes, so it is remembered for
+ * repeated hypotheses; the state is checked every time.
+ * @param <H> Type of the handler registered with each command
+ */
+public class HypothesisScorer<H> {
+
+	/** weight of a hypothesis that only parses after correcting misheard words */
+	public static final double CORRECTED_WEIGHT = 0.8;
+
+	/**
+	 * Rewrites misheard words of a text that does not parse
+	 */
+	public interface Corrector {
+		/**
+		 * @param text
+		 * @return Corrected text or null if no word was replaced
+		 */
+		public String correct(String text);
+	}
+
+	/**
+	 * Checks a parsed command against the current state of the robot
+	 */
+	public interface StateCheck<H> {
+		/**
+		 * @param command Command matched by the first word
+		 * @param argument Command named by the argument, null if the argument is not a command
+		 * @param number Number following the command, 0 if there was none
+		 * @return boolean value representing whether the command can run now
+		 * @throws Exception
+		 */
+		public boolean isRunnable(CommandGrammar.Command<H> command, CommandGrammar.Command<H> argument, 
+				int number) throws Exception;
+	}
+
+	/**
+	 * Hypothesis chosen to run
+	 */
+	public static class Choice {
+		private final Hypothesis hypothesis;
+		private final String text;
+		private final double score;
+
+		Choice(Hypothesis hypothesis, String text, double score){
+			this.hypothesis = hypothesis;
+			this.text = text;
+			this.score = score;
+		}
+		public Hypothesis getHypothesis(){
+			return hypothesis;
+		}
+		/**
+		 * @return Text to run, with misheard words corrected
+		 */
+		public String getText(){
+			return text;
+		}
+		public double getScore(){
+			return score;
+		}
+	}
+
+	/**
+	 * How a text parses
+	 */
+	private static class Reading<H> {
+		final String text;
+		final CommandGrammar.Command<H> command;
+		final CommandGrammar.Command<H> argument;
+		final int number;
+		final double weight;
+
+		Reading(String text, CommandGrammar.Command<H> command, CommandGrammar.Command<H> argument, 
+				int number, double weight){
+			this.text = text;
+			this.command = command;
+			this.argument = argument;
+			this.number = number;
+			this.weight = weight;
+		}
+	}
+
+	private final CommandGrammar<H> grammar;
+	private final Corrector corrector;
+	private final StateCheck<H> stateCheck;
+	private final Map<String, Reading<H>> cache;
+	private final Reading<H> unparsed = new Reading<H>(null, null, null, 0, 0);
+	private long lookups;
+	private long hits;
+
+	/**
+	 * Constructor
+	 * @param grammar Grammar the hypotheses are parsed with
+	 * @param corrector Corrects misheard words, null for none
+	 * @param stateCheck Checks commands against the robot's state
+	 * @param cacheSize Number of parsed texts remembered, 0 for none
+	 */
+	public HypothesisScorer(CommandGrammar<H> grammar, Corrector corrector, StateCheck<H> stateCheck, 
+			final int cacheSize){
+		this.grammar = grammar;
+		this.corrector = corrector;
+		this.stateCheck = stateCheck;
+		this.cache = new LinkedHashMap<String, Reading<H>>(16, 0.75f, true){
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Reading<H>> eldest){
+				return size() > cacheSize;
+			}
+		};
+	}
+	/**
+	 * @param hypotheses N-best list, most likely first
+	 * @return Choice with the highest score, a tie going to the earlier hypothesis, 
+	 * null if no hypothesis can run
+	 */
+	public Choice choose(List<Hypothesis> hypotheses){
+		Choice best = null;
+		for(Hypothesis hypothesis : hypotheses){
+			Reading<H> reading = read(hypothesis.getText());
+			double score = hypothesis.getConfidence() * reading.weight;
+			if(score > 0 && (best == null || score > best.getScore()) && isRunnable(reading)){
+				best = new Choice(hypothesis, reading.text, score);
+			}
+		}
+		return best;
+	}
+	/**
+	 * @param hypothesis
+	 * @return Score of the hypothesis, 0 if it cannot run
+	 */
+	public double score(Hypothesis hypothesis){
+		Reading<H> reading = read(hypothesis.getText());
+		return isRunnable(reading) ? hypothesis.getConfidence() * reading.weight : 0;
+	}
+	private boolean isRunnable(Reading<H> reading){
+		if(reading.command == null){
+			return false;
+		}
+		try{
+			return stateCheck.isRunnable(reading.command, reading.argument, reading.number);
+		} catch(Exception e){
+			return false;
+		}
+	}
+	private Reading<H> read(String text){
+		synchronized(this){
+			lookups++;
+			Reading<H> reading = cache.get(text);
+			if(reading != null){
+				hits++;
+				return reading;
+			}
+		}
+		ParsedCommand<H> parsed = new ParsedCommand<H>();
+		Reading<H> reading = unparsed;
+		CommandGrammar.Status status = grammar.parse(text, parsed);
+		if(status == CommandGrammar.Status.OK){
+			reading = new Reading<H>(text, parsed.getCommand(), parsed.getArgument(), parsed.getNumber(), 1);
+		}
+		else if(corrector != null && (status == CommandGrammar.Status.UNKNOWN_COMMAND 
+				|| status == CommandGrammar.Status.INVALID_NUMBER)){
+			String corrected = corrector.correct(text);
+			if(corrected != null && grammar.parse(corrected, parsed) == CommandGrammar.Status.OK){
+				reading = new Reading<H>(corrected, parsed.getCommand(), parsed.getArgument(), 
+						parsed.getNumber(), CORRECTED_WEIGHT);
+			}
+		}
+		synchronized(this){
+			cache.put(text, reading);
+		}
+		return reading;
+	}
+	/**
+	 * @return number of hypotheses scored
+	 */
+	public synchronized long getLookups(){
+		return lookups;
+	}
+	/**
+	 * @return number of hypotheses whose parse was remembered
+	 */
+	public synchronized long getCacheHits(){
+		return hits;
+	}
+}
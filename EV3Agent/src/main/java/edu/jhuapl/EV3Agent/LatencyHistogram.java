@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Distribution of latencies in the style of HdrHistogram: microsecond values
+ * are counted in buckets that are exact below 128 and then split each power
+ * of two into 64 steps, so any value is reported within 1.6% of what was
+ * recorded. Recording takes no lock and allocates nothing.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 6;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	/** largest value recorded, about 71 minutes, larger values are counted here */
+	private static final long MAX_MICROS = (1L << 32) - 1;
+	private static final int BUCKETS = index(MAX_MICROS) + 1;
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong sumMicros = new AtomicLong();
+	private final AtomicLong maxMicros = new AtomicLong();
+
+	/**
+	 * @param micros
+	 * @return index of the bucket counting the value
+	 */
+	static int index(long micros){
+		int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS - 1);
+		return shift * SUB_BUCKETS + (int)(micros >>> shift);
+	}
+	/**
+	 * @param index
+	 * @return largest value counted by the bucket
+	 */
+	static long highestValue(int index){
+		int shift = index < 2 * SUB_BUCKETS ? 0 : index / SUB_BUCKETS - 1;
+		long subBucket = index - shift * SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+	/**
+	 * @param nanos Latency in nanoseconds
+	 */
+	public void record(long nanos){
+		long micros = Math.min(MAX_MICROS, Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos)));
+		counts.incrementAndGet(index(micros));
+		sumMicros.addAndGet(micros);
+		long max = maxMicros.get();
+		while(micros > max && !maxMicros.compareAndSet(max, micros)){
+			max = maxMicros.get();
+		}
+	}
+	/**
+	 * @return Copy of the distribution that later records do not change
+	 */
+	public Snapshot snapshot(){
+		long[] copy = new long[BUCKETS];
+		long total = 0;
+		for(int i = 0; i < BUCKETS; i++){
+			copy[i] = counts.get(i);
+			total += copy[i];
+		}
+		return new Snapshot(copy, total, sumMicros.get(), maxMicros.get());
+	}
+
+	/**
+	 * Distribution at one point in time
+	 */
+	public static class Snapshot {
+		private final long[] counts;
+		private final long count;
+		private final long sumMicros;
+		private final long maxMicros;
+
+		Snapshot(long[] counts, long count, long sumMicros, long maxMicros){
+			this.counts = counts;
+			this.count = count;
+			this.sumMicros = sumMicros;
+			this.maxMicros = maxMicros;
+		}
+		public long getCount(){
+			return count;
+		}
+		/**
+		 * @return sum of the latencies in milliseconds
+		 */
+		public double getSumMillis(){
+			return sumMicros / 1e3;
+		}
+		/**
+		 * @return largest latency in milliseconds, 0 if nothing was recorded
+		 */
+		public double getMaxMillis(){
+			return maxMicros / 1e3;
+		}
+		/**
+		 * @return mean latency in milliseconds, 0 if nothing was recorded
+		 */
+		public double getMeanMillis(){
+			return count == 0 ? 0 : sumMicros / 1e3 / count;
+		}
+		/**
+		 * @param earlier Snapshot of the same histogram taken before this one
+		 * @return Snapshot of the latencies recorded between the two, with the 
+		 * largest rounded up to the top of its bucket
+		 */
+		public Snapshot minus(Snapshot earlier){
+			long[] delta = new long[counts.length];
+			long total = 0;
+			int highest = -1;
+			for(int i = 0; i < counts.length; i++){
+				delta[i] = counts[i] - earlier.counts[i];
+				total += delta[i];
+				if(delta[i] > 0){
+					highest = i;
+				}
+			}
+			long max = highest < 0 ? 0 : Math.min(highestValue(highest), maxMicros);
+			return new Snapshot(delta, total, sumMicros - earlier.sumMicros, max);
+		}
+		/**
+		 * @param percentile 0 to 100
+		 * @return latency in milliseconds that the given percent of the 
+		 * latencies do not exceed, 0 if nothing was recorded
+		 */
+		public double getPercentileMillis(double percentile){
+			long rank = Math.max(1, (long)Math.ceil(percentile / 100 * count));
+			long seen = 0;
+			for(int i = 0; i < counts.length; i++){
+				seen += counts[i];
+				if(seen >= rank){
+					return Math.min(highestValue(i), maxMicros) / 1e3;
+				}
+			}
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.rmi.RemoteException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lejos.remote.ev3.RMIRegulatedMotor;
+import lejos.remote.ev3.RMISampleProvider;
+
+/**
+ * Wraps motor and sensor ports so every call is delayed by a round trip 
+ * drawn from a latency distribution, and some calls are made slow or fail 
+ * like a lost packet. Delays are taken on the platform's clock, so on the 
+ * SimulatedEV3Platform they pass in simulated time. Half of the delay is 
+ * taken before the call reaches the port and half after.
+ */
+public class LatencyInjector {
+	
+	private final Clock clock;
+	private final String distribution;
+	private final double latencyMillis;
+	private final double jitterMillis;
+	private final double lossRate;
+	private final double slowRate;
+	private final long slowMillis;
+	private final Random random;
+	private final AtomicLong calls = new AtomicLong();
+	private final AtomicLong losses = new AtomicLong();
+	private final AtomicLong slowCalls = new AtomicLong();
+	private final AtomicLong injectedMillis = new AtomicLong();
+	
+	/**
+	 * Constructor
+	 * @param portInfo Latency, jitter, loss and slow call settings
+	 * @param clock Clock the delays are taken on
+	 */
+	public LatencyInjector(PortInfo portInfo, Clock clock){
+		this.clock = clock;
+		this.distribution = portInfo.getInjectDistribution();
+		this.latencyMillis = portInfo.getInjectLatencyMillis();
+		this.jitterMillis = portInfo.getInjectJitterMillis();
+		this.lossRate = portInfo.getInjectLossRate();
+		this.slowRate = portInfo.getInjectSlowRate();
+		this.slowMillis = portInfo.getInjectSlowMillis();
+		this.random = new Random(portInfo.getInjectSeed());
+	}
+	/**
+	 * @param portInfo
+	 * @return boolean value representing whether any injection is configured
+	 */
+	public static boolean isEnabled(PortInfo portInfo){
+		return portInfo.getInjectLatencyMillis() > 0 || portInfo.getInjectJitterMillis() > 0 
+				|| portInfo.getInjectLossRate() > 0 || portInfo.getInjectSlowRate() > 0;
+	}
+	/**
+	 * @param device
+	 * @param port RMIRegulatedMotor or RMISampleProvider
+	 * @return Object proxy implementing the same interface as port
+	 */
+	public Object wrap(final Device device, final Object port){
+		Class<?> type = port instanceof RMIRegulatedMotor ? RMIRegulatedMotor.class : RMISampleProvider.class;
+		return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, new InvocationHandler(){
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if(method.getDeclaringClass() == Object.class){
+					return method.invoke(port, args);
+				}
+				return call(device, port, method, args);
+			}
+		});
+	}
+	private Object call(Device device, Object port, Method method, Object[] args) throws Throwable {
+		calls.incrementAndGet();
+		long delay = nextDelayMillis();
+		boolean lost;
+		synchronized(random){
+			lost = random.nextDouble() < lossRate;
+			if(random.nextDouble() < slowRate){
+				slowCalls.incrementAndGet();
+				delay += slowMillis;
+			}
+		}
+		injectedMillis.addAndGet(delay);
+		pause(delay / 2);
+		if(lost){
+			losses.incrementAndGet();
+			pause(delay - delay / 2);
+			throw new RemoteException("Injected loss of " + device.getLabel() + " " + method.getName());
+		}
+		try{
+			return method.invoke(port, args);
+		} catch(InvocationTargetException e){
+			throw e.getCause();
+		} finally{
+			pause(delay - delay / 2);
+		}
+	}
+	/**
+	 * @return round trip in milliseconds drawn from the configured distribution
+	 */
+	long nextDelayMillis(){
+		double sample;
+		synchronized(random){
+			switch(distribution){
+				case "uniform":
+					sample = latencyMillis + (random.nextDouble() * 2 - 1) * jitterMillis;
+					break;
+				case "lognormal":
+					//mean latencyMillis and standard deviation jitterMillis, with the long right tail of a congested link
+					double variance = Math.log(1 + (jitterMillis * jitterMillis) / Math.max(1e-9, latencyMillis * latencyMillis));
+					double mu = Math.log(Math.max(1e-9, latencyMillis)) - variance / 2;
+					sample = Math.exp(mu + Math.sqrt(variance) * random.nextGaussian());
+					break;
+				default:
+					sample = latencyMillis + random.nextGaussian() * jitterMillis;
+					break;
+			}
+		}
+		return Math.max(0, Math.round(sample));
+	}
+	private void pause(long millis){
+		if(millis <= 0){
+			return;
+		}
+		try{
+			clock.sleep(millis);
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+	}
+	public long getCallCount(){
+		return calls.get();
+	}
+	public long getLossCount(){
+		return losses.get();
+	}
+	public long getSlowCallCount(){
+		return slowCalls.get();
+	}
+	/**
+	 * @return total milliseconds of delay added across all calls
+	 */
+	public long getInjectedMillis(){
+		return injectedMillis.get();
+	}
+	/**
+	 * @return String with the injected calls, losses, slow calls and delay
+	 */
+	public String describe(){
+		long count = getCallCount();
+		return "Injected " + distribution + " latency " + latencyMillis + " +/- " + jitterMillis + " ms"
+			+ "\nCalls: " + count
+			+ "\nLost: " + getLossCount()
+			+ "\nSlow: " + getSlowCallCount()
+			+ "\nMean delay: " + (count == 0 ? 0 : getInjectedMillis() / count) + " ms";
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+/**
+ * Metaphone encoding of a word: consonant sounds written with one letter 
+ * each, so words that sound alike get the same code ("four" and "for" are
+ * FR, "eight" and "ate" are AT). Follows Lawrence Philips' original rules,
+ * with a leading vowel written as A the way Double Metaphone does.
+ */
+public final class Metaphone {
+
+	private Metaphone(){
+	}
+	/**
+	 * @param word
+	 * @return Metaphone code of the letters of word, empty if it has none
+	 */
+	public static String encode(CharSequence word){
+		StringBuilder letters = new StringBuilder(word.length());
+		for(int i = 0; i < word.length(); i++){
+			char c = Character.toUpperCase(word.charAt(i));
+			if(c >= 'A' && c <= 'Z'){
+				letters.append(c);
+			}
+		}
+		String w = letters.toString();
+		StringBuilder code = new StringBuilder(w.length());
+		int start = 0;
+		if(w.startsWith("AE") || w.startsWith("GN") || w.startsWith("KN") 
+				|| w.startsWith("PN") || w.startsWith("WR")){
+			start = 1;
+		}
+		else if(w.startsWith("X")){
+			code.append('S');
+			start = 1;
+		}
+		else if(w.startsWith("WH")){
+			code.append('W');
+			start = 2;
+		}
+		for(int i = start; i < w.length(); i++){
+			char c = w.charAt(i);
+			if(c != 'C' && i > start && c == w.charAt(i - 1)){
+				continue;
+			}
+			switch(c){
+				case 'A': case 'E': case 'I': case 'O': case 'U':
+					if(i == start && code.length() == 0){
+						code.append('A');
+					}
+					break;
+				case 'B':
+					if(!(i == w.length() - 1 && at(w, i - 1) == 'M')){
+						code.append('B');
+					}
+					break;
+				case 'C':
+					if(at(w, i + 1) == 'I' && at(w, i + 2) == 'A' || at(w, i + 1) == 'H'){
+						code.append(at(w, i - 1) == 'S' && at(w, i + 1) == 'H' ? 'K' : 'X');
+					}
+					else if(isFront(at(w, i + 1))){
+						if(at(w, i - 1) != 'S'){
+							code.append('S');
+						}
+					}
+					else{
+						code.append('K');
+					}
+					break;
+				case 'D':
+					code.append(at(w, i + 1) == 'G' && isFront(at(w, i + 2)) ? 'J' : 'T');
+					break;
+				case 'G':
+					if(at(w, i + 1) == 'H' && i + 2 < w.length() && !isVowel(at(w, i + 2))){
+						break;
+					}
+					if(at(w, i + 1) == 'N' && (i + 2 == w.length() 
+							|| w.startsWith("ED", i + 2) && i + 4 == w.length())){
+						break;
+					}
+					if(at(w, i - 1) == 'D' && isFront(at(w, i + 1))){
+						break;
+					}
+					code.append(isFront(at(w, i + 1)) && at(w, i - 1) != 'G' ? 'J' : 'K');
+					break;
+				case 'H':
+					if(isVowel(at(w, i + 1)) && "CSPTG".indexOf(at(w, i - 1)) < 0){
+						code.append('H');
+					}
+					break;
+				case 'K':
+					if(at(w, i - 1) != 'C'){
+						code.append('K');
+					}
+					break;
+				case 'P':
+					code.append(at(w, i + 1) == 'H' ? 'F' : 'P');
+					break;
+				case 'Q':
+					code.append('K');
+					break;
+				case 'S':
+					if(at(w, i + 1) == 'H' || at(w, i + 1) == 'I' && (at(w, i + 2) == 'O' || at(w, i + 2) == 'A')){
+						code.append('X');
+					}
+					else{
+						code.append('S');
+					}
+					break;
+				case 'T':
+					if(at(w, i + 1) == 'I' && (at(w, i + 2) == 'O' || at(w, i + 2) == 'A')){
+						code.append('X');
+					}
+					else if(at(w, i + 1) == 'H'){
+						code.append('0');
+					}
+					else if(!(at(w, i + 1) == 'C' && at(w, i + 2) == 'H')){
+						code.append('T');
+					}
+					break;
+				case 'V':
+					code.append('F');
+					break;
+				case 'W': case 'Y':
+					if(isVowel(at(w, i + 1))){
+						code.append(c);
+					}
+					break;
+				case 'X':
+					code.append("KS");
+					break;
+				case 'Z':
+					code.append('S');
+					break;
+				default:
+					code.append(c);
+					break;
+			}
+		}
+		return code.toString();
+	}
+	/**
+	 * @param w
+	 * @param i
+	 * @return Letter at i, or a space outside the word
+	 */
+	private static char at(String w, int i){
+		return i >= 0 && i < w.length() ? w.charAt(i) : ' ';
+	}
+	private static boolean isVowel(char c){
+		return c == 'A' || c == 'E' || c == 'I' || c == 'O' || c == 'U';
+	}
+	/**
+	 * @param c
+	 * @return boolean value representing whether c softens a preceding C or G
+	 */
+	private static boolean isFront(char c){
+		return c == 'E' || c == 'I' || c == 'Y';
+	}
+}
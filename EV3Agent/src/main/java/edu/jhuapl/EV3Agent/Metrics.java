@@ -0,0 +1,320 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lejos.remote.ev3.RMIRegulatedMotor;
+import lejos.remote.ev3.RMISampleProvider;
+
+/**
+ * Latency distributions of each command and each platform method, and 
+ * counts of RMI calls, sensor fetches and control loop iterations charged
+ * to the command running on the calling thread. Work done outside a 
+ * command, like the sensor sampler's polling, is charged to "background".
+ * Commands answered without the platform, and requests that do not parse, 
+ * are only counted.
+ */
+public class Metrics {
+
+	public static final String BACKGROUND = "background";
+	private static final ThreadLocal<String> COMMAND = new ThreadLocal<String>();
+	private static final double[] QUANTILES = new double[] {0.5, 0.9, 0.99, 0.999};
+	private final ConcurrentMap<String, LatencyHistogram> commands = 
+			new ConcurrentHashMap<String, LatencyHistogram>();
+	private final ConcurrentMap<String, LatencyHistogram> platformMethods = 
+			new ConcurrentHashMap<String, LatencyHistogram>();
+	private final ConcurrentMap<String, AtomicLong> untimedCommands = new ConcurrentHashMap<String, AtomicLong>();
+	private final ConcurrentMap<String, AtomicLong> rmiCalls = new ConcurrentHashMap<String, AtomicLong>();
+	private final ConcurrentMap<String, AtomicLong> sensorFetches = new ConcurrentHashMap<String, AtomicLong>();
+	private final ConcurrentMap<String, AtomicLong> loopIterations = new ConcurrentHashMap<String, AtomicLong>();
+
+	/**
+	 * Charges the work of the calling thread to a command until exit is called
+	 * @param command Name of the command
+	 * @return Command charged before, to pass to exit
+	 */
+	public static String enter(String command){
+		String previous = COMMAND.get();
+		COMMAND.set(command);
+		return previous;
+	}
+	/**
+	 * @param previous Command returned by enter
+	 */
+	public static void exit(String previous){
+		COMMAND.set(previous);
+	}
+	/**
+	 * @return Command the calling thread's work is charged to
+	 */
+	public static String current(){
+		String command = COMMAND.get();
+		return command == null ? BACKGROUND : command;
+	}
+	/**
+	 * @param task
+	 * @return Task that charges its work to the command of the calling thread 
+	 * when it runs on another thread
+	 */
+	public static Runnable propagate(final Runnable task){
+		final String command = COMMAND.get();
+		if(command == null){
+			return task;
+		}
+		return new Runnable(){
+			public void run(){
+				String previous = enter(command);
+				try{
+					task.run();
+				} finally{
+					exit(previous);
+				}
+			}
+		};
+	}
+	/**
+	 * @param task
+	 * @return Task that charges its work to the command of the calling thread 
+	 * when it runs on another thread
+	 */
+	public static <T> Callable<T> propagate(final Callable<T> task){
+		final String command = COMMAND.get();
+		if(command == null){
+			return task;
+		}
+		return new Callable<T>(){
+			public T call() throws Exception {
+				String previous = enter(command);
+				try{
+					return task.call();
+				} finally{
+					exit(previous);
+				}
+			}
+		};
+	}
+	/**
+	 * @param command Name of the command
+	 * @param nanos Time taken to handle it
+	 */
+	public void recordCommand(String command, long nanos){
+		histogram(commands, command).record(nanos);
+	}
+	/**
+	 * Counts a command that is not timed
+	 * @param command Name of the command, "invalid" for requests that did not parse
+	 */
+	public void countUntimed(String command){
+		counter(untimedCommands, command).incrementAndGet();
+	}
+	/**
+	 * @param method Name of the platform method
+	 * @param nanos Time the call took
+	 */
+	public void recordPlatformCall(String method, long nanos){
+		histogram(platformMethods, method).record(nanos);
+	}
+	/**
+	 * Counts iterations of a turn or move control loop for the current command
+	 * @param iterations
+	 */
+	public void countLoopIterations(long iterations){
+		counter(loopIterations, current()).addAndGet(iterations);
+	}
+	private static LatencyHistogram histogram(ConcurrentMap<String, LatencyHistogram> map, String name){
+		LatencyHistogram histogram = map.get(name);
+		if(histogram == null){
+			LatencyHistogram created = new LatencyHistogram();
+			histogram = map.putIfAbsent(name, created);
+			if(histogram == null){
+				histogram = created;
+			}
+		}
+		return histogram;
+	}
+	private static AtomicLong counter(ConcurrentMap<String, AtomicLong> map, String name){
+		AtomicLong counter = map.get(name);
+		if(counter == null){
+			AtomicLong created = new AtomicLong();
+			counter = map.putIfAbsent(name, created);
+			if(counter == null){
+				counter = created;
+			}
+		}
+		return counter;
+	}
+	/**
+	 * @param port RMIRegulatedMotor or RMISampleProvider
+	 * @return Object proxy implementing the same interface as port that counts 
+	 * every call as an RMI call, and fetchSample as a sensor fetch too
+	 */
+	public Object count(final Object port){
+		Class<?> type = port instanceof RMIRegulatedMotor ? RMIRegulatedMotor.class : RMISampleProvider.class;
+		return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, new InvocationHandler(){
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if(method.getDeclaringClass() == Object.class){
+					return method.invoke(port, args);
+				}
+				String command = current();
+				counter(rmiCalls, command).incrementAndGet();
+				if(method.getName().equals("fetchSample")){
+					counter(sensorFetches, command).incrementAndGet();
+				}
+				try{
+					return method.invoke(port, args);
+				} catch(InvocationTargetException e){
+					throw e.getCause();
+				}
+			}
+		});
+	}
+	/**
+	 * @return Snapshot of every distribution and counter
+	 */
+	public Snapshot snapshot(){
+		return new Snapshot(snapshots(commands), values(untimedCommands), snapshots(platformMethods), 
+				values(rmiCalls), values(sensorFetches), values(loopIterations));
+	}
+	private static Map<String, LatencyHistogram.Snapshot> snapshots(Map<String, LatencyHistogram> map){
+		Map<String, LatencyHistogram.Snapshot> copy = new TreeMap<String, LatencyHistogram.Snapshot>();
+		for(Map.Entry<String, LatencyHistogram> entry : map.entrySet()){
+			copy.put(entry.getKey(), entry.getValue().snapshot());
+		}
+		return Collections.unmodifiableMap(copy);
+	}
+	private static Map<String, Long> values(Map<String, AtomicLong> map){
+		Map<String, Long> copy = new TreeMap<String, Long>();
+		for(Map.Entry<String, AtomicLong> entry : map.entrySet()){
+			copy.put(entry.getKey(), entry.getValue().get());
+		}
+		return Collections.unmodifiableMap(copy);
+	}
+
+	/**
+	 * Metrics at one point in time, keyed by command or platform method name
+	 */
+	public static class Snapshot {
+		private final Map<String, LatencyHistogram.Snapshot> commands;
+		private final Map<String, Long> untimedCommands;
+		private final Map<String, LatencyHistogram.Snapshot> platformMethods;
+		private final Map<String, Long> rmiCalls;
+		private final Map<String, Long> sensorFetches;
+		private final Map<String, Long> loopIterations;
+
+		Snapshot(Map<String, LatencyHistogram.Snapshot> commands, Map<String, Long> untimedCommands, 
+				Map<String, LatencyHistogram.Snapshot> platformMethods, Map<String, Long> rmiCalls, 
+				Map<String, Long> sensorFetches, Map<String, Long> loopIterations){
+			this.commands = commands;
+			this.untimedCommands = untimedCommands;
+			this.platformMethods = platformMethods;
+			this.rmiCalls = rmiCalls;
+			this.sensorFetches = sensorFetches;
+			this.loopIterations = loopIterations;
+		}
+		public Map<String, LatencyHistogram.Snapshot> getCommands(){
+			return commands;
+		}
+		/**
+		 * @return Number of each command answered without the platform, and of 
+		 * requests that did not parse as "invalid"
+		 */
+		public Map<String, Long> getUntimedCommands(){
+			return untimedCommands;
+		}
+		public Map<String, LatencyHistogram.Snapshot> getPlatformMethods(){
+			return platformMethods;
+		}
+		public Map<String, Long> getRmiCalls(){
+			return rmiCalls;
+		}
+		public Map<String, Long> getSensorFetches(){
+			return sensorFetches;
+		}
+		public Map<String, Long> getLoopIterations(){
+			return loopIterations;
+		}
+		/**
+		 * @return String in the Prometheus text exposition format, latencies 
+		 * as summaries in seconds and the counts as counters
+		 */
+		public String toPrometheus(){
+			StringBuilder out = new StringBuilder();
+			summary(out, "ev3_command_seconds", "Time to handle each command", "command", commands);
+			counter(out, "ev3_untimed_commands_total", "Commands answered without the robot and requests "
+					+ "that did not parse", untimedCommands);
+			summary(out, "ev3_platform_call_seconds", "Time of each platform method call", "method", 
+					platformMethods);
+			counter(out, "ev3_rmi_calls_total", "RMI calls on the motor and sensor ports", rmiCalls);
+			counter(out, "ev3_sensor_fetches_total", "Samples fetched from the sensors", sensorFetches);
+			counter(out, "ev3_loop_iterations_total", "Iterations of the turn and move control loops", 
+					loopIterations);
+			return out.toString();
+		}
+		private static void summary(StringBuilder out, String name, String help, String label, 
+				Map<String, LatencyHistogram.Snapshot> histograms){
+			out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+			out.append("# TYPE ").append(name).append(" summary\n");
+			for(Map.Entry<String, LatencyHistogram.Snapshot> entry : histograms.entrySet()){
+				LatencyHistogram.Snapshot histogram = entry.getValue();
+				String labels = label + "=\"" + escape(entry.getKey()) + "\"";
+				for(double quantile : QUANTILES){
+					sample(out, name, labels + ",quantile=\"" + quantile + "\"", 
+							histogram.getPercentileMillis(quantile * 100) / 1e3);
+				}
+				sample(out, name + "_sum", labels, histogram.getSumMillis() / 1e3);
+				sample(out, name + "_count", labels, histogram.getCount());
+			}
+			out.append("# HELP ").append(name).append("_max Largest ").append(name).append(" recorded\n");
+			out.append("# TYPE ").append(name).append("_max gauge\n");
+			for(Map.Entry<String, LatencyHistogram.Snapshot> entry : histograms.entrySet()){
+				sample(out, name + "_max", label + "=\"" + escape(entry.getKey()) + "\"", 
+						entry.getValue().getMaxMillis() / 1e3);
+			}
+		}
+		private static void counter(StringBuilder out, String name, String help, Map<String, Long> counts){
+			out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+			out.append("# TYPE ").append(name).append(" counter\n");
+			for(Map.Entry<String, Long> entry : counts.entrySet()){
+				sample(out, name, "command=\"" + escape(entry.getKey()) + "\"", entry.getValue());
+			}
+		}
+		private static void sample(StringBuilder out, String name, String labels, double value){
+			out.append(name).append('{').append(labels).append("} ");
+			if(value == Math.rint(value) && Math.abs(value) < 1e15){
+				out.append((long)value);
+			}
+			else{
+				out.append(value);
+			}
+			out.append('\n');
+		}
+		private static String escape(String value){
+			return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+		}
+	}
+}
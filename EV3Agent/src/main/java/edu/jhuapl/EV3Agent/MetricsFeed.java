@@ -0,0 +1,240 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * Turns the cumulative Metrics into a feed of what changed in each interval:
+ * latency percentiles of the commands that ran, RMI calls, sensor fetches 
+ * and control loop rates per command, reconnects and the battery voltage.
+ * Each delta is serialized once and kept in a ring, so every reader walks 
+ * the same deltas at its own pace and a reader that falls behind the ring 
+ * skips to the oldest one kept, seeing the gap in the sequence numbers.
+ */
+public class MetricsFeed {
+
+	private static final org.slf4j.Logger logger = LoggerFactory.getLogger(MetricsFeed.class);
+	private static final double[] PERCENTILES = new double[] {50, 90, 99};
+	private final EV3Agent agent;
+	private final long intervalMillis;
+	private final Delta[] history;
+	private long sequence;
+	private ScheduledExecutorService sampler;
+	private Metrics.Snapshot previous;
+	private long previousNanos;
+	private long previousReconnects;
+	private long previousTimeouts;
+
+	/**
+	 * Changes of one interval
+	 */
+	public static class Delta {
+		private final long sequence;
+		private final String json;
+
+		Delta(long sequence, String json){
+			this.sequence = sequence;
+			this.json = json;
+		}
+		public long getSequence(){
+			return sequence;
+		}
+		/**
+		 * @return Delta as a JSON object
+		 */
+		public String toJson(){
+			return json;
+		}
+	}
+
+	/**
+	 * Constructor
+	 * @param agent Agent whose metrics are followed
+	 * @param intervalMillis Length of each interval
+	 * @param history Number of deltas kept for readers that fall behind
+	 */
+	public MetricsFeed(EV3Agent agent, long intervalMillis, int history){
+		this.agent = agent;
+		this.intervalMillis = intervalMillis;
+		this.history = new Delta[history];
+	}
+	/**
+	 * Waits for the first delta after the given one, starting the feed on first use
+	 * @param after Sequence number of the last delta read, 0 for the newest one. 
+	 * Numbers from before a restart of the agent are treated as 0.
+	 * @param timeout
+	 * @param unit
+	 * @return Delta following after, the oldest one kept if after fell out of 
+	 * the history, null if none arrived in time
+	 * @throws InterruptedException
+	 */
+	public synchronized Delta poll(long after, long timeout, TimeUnit unit) throws InterruptedException {
+		start();
+		if(after <= 0 || after > sequence){
+			after = Math.max(0, sequence - 1);
+		}
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while(sequence <= after){
+			long remaining = deadline - System.nanoTime();
+			if(remaining <= 0){
+				return null;
+			}
+			TimeUnit.NANOSECONDS.timedWait(this, remaining);
+		}
+		long next = Math.max(after + 1, sequence - history.length + 1);
+		return history[(int)(next % history.length)];
+	}
+	private void start(){
+		if(sampler != null){
+			return;
+		}
+		previous = agent.getMetrics().snapshot();
+		previousNanos = System.nanoTime();
+		ConnectionSupervisor supervisor = agent.getConnectionSupervisor();
+		if(supervisor != null){
+			previousReconnects = supervisor.getReconnectCount();
+			previousTimeouts = supervisor.getTimeoutCount();
+		}
+		sampler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory(){
+			public Thread newThread(Runnable r){
+				Thread thread = new Thread(r, "ev3-metrics-feed");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		sampler.scheduleAtFixedRate(new Runnable(){
+			public void run(){
+				try{
+					publish();
+				} catch(RuntimeException e){
+					logger.error("Could not compute the metrics delta " + e.getMessage());
+				}
+			}
+		}, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+	/**
+	 * Computes the delta of the interval that just ended
+	 */
+	private void publish(){
+		Metrics.Snapshot current = agent.getMetrics().snapshot();
+		long now = System.nanoTime();
+		double battery = agent.getTelemetry().getBattery();
+		ConnectionSupervisor supervisor = agent.getConnectionSupervisor();
+		long reconnects = supervisor == null ? 0 : supervisor.getReconnectCount();
+		long timeouts = supervisor == null ? 0 : supervisor.getTimeoutCount();
+		double seconds = (now - previousNanos) / 1e9;
+		StringBuilder json = new StringBuilder(256);
+		synchronized(this){
+			json.append("{\"seq\":").append(sequence + 1)
+				.append(",\"time\":").append(System.currentTimeMillis())
+				.append(",\"seconds\":").append(round(seconds))
+				.append(",\"commands\":{");
+			boolean first = true;
+			for(Map.Entry<String, LatencyHistogram.Snapshot> entry : current.getCommands().entrySet()){
+				LatencyHistogram.Snapshot before = previous.getCommands().get(entry.getKey());
+				LatencyHistogram.Snapshot interval = before == null ? entry.getValue() 
+						: entry.getValue().minus(before);
+				if(interval.getCount() == 0){
+					continue;
+				}
+				first = key(json, entry.getKey(), first);
+				json.append("{\"count\":").append(interval.getCount());
+				for(double percentile : PERCENTILES){
+					json.append(",\"p").append((int)percentile).append("\":")
+						.append(round(interval.getPercentileMillis(percentile)));
+				}
+				json.append(",\"max\":").append(round(interval.getMaxMillis())).append('}');
+			}
+			json.append("},\"rmiCalls\":");
+			counts(json, current.getRmiCalls(), previous.getRmiCalls(), 0);
+			json.append(",\"sensorFetches\":");
+			counts(json, current.getSensorFetches(), previous.getSensorFetches(), 0);
+			json.append(",\"loopRates\":");
+			counts(json, current.getLoopIterations(), previous.getLoopIterations(), seconds);
+			json.append(",\"reconnects\":").append(reconnects - previousReconnects)
+				.append(",\"timeouts\":").append(timeouts - previousTimeouts)
+				.append(",\"connected\":").append(agent.ev3On())
+				.append(",\"battery\":").append(Double.isNaN(battery) ? "null" : Double.toString(round(battery)))
+				.append('}');
+			sequence++;
+			history[(int)(sequence % history.length)] = new Delta(sequence, json.toString());
+			previous = current;
+			previousNanos = now;
+			previousReconnects = reconnects;
+			previousTimeouts = timeouts;
+			notifyAll();
+		}
+	}
+	/**
+	 * Appends the counters that changed
+	 * @param json
+	 * @param current
+	 * @param before
+	 * @param seconds Length of the interval to report rates per second, 0 to report the change
+	 */
+	private static void counts(StringBuilder json, Map<String, Long> current, Map<String, Long> before, 
+			double seconds){
+		json.append('{');
+		boolean first = true;
+		for(Map.Entry<String, Long> entry : current.entrySet()){
+			Long earlier = before.get(entry.getKey());
+			long change = entry.getValue() - (earlier == null ? 0 : earlier);
+			if(change == 0){
+				continue;
+			}
+			first = key(json, entry.getKey(), first);
+			if(seconds > 0){
+				json.append(round(change / seconds));
+			}
+			else{
+				json.append(change);
+			}
+		}
+		json.append('}');
+	}
+	private static boolean key(StringBuilder json, String key, boolean first){
+		if(!first){
+			json.append(',');
+		}
+		json.append('"');
+		for(int i = 0; i < key.length(); i++){
+			char c = key.charAt(i);
+			if(c == '"' || c == '\\'){
+				json.append('\\');
+			}
+			json.append(c < 0x20 ? ' ' : c);
+		}
+		json.append("\":");
+		return false;
+	}
+	private static double round(double value){
+		return Math.round(value * 1000) / 1000.0;
+	}
+	/**
+	 * @return Sequence number of the newest delta, 0 before the first one
+	 */
+	public synchronized long getSequence(){
+		return sequence;
+	}
+}
@@ -18,7 +18,17 @@ package edu.jhuapl.EV3Agent;
 
 public class MockEV3Platform implements EV3AgentPlatform {
 	
+	private long motionMillis;
+	
 	public MockEV3Platform(){
+		this(0);
+	}
+	/**
+	 * Constructor
+	 * @param motionMillis How long turn, move and manual take to complete
+	 */
+	public MockEV3Platform(long motionMillis){
+		this.motionMillis = motionMillis;
 	}
 	public void ev3Null(){
 	}
@@ -46,15 +56,34 @@ public class MockEV3Platform implements EV3AgentPlatform {
 		bAngleCurrent += inputAngle;
 		return bAngleCurrent;
 	}
-	public void turn(int endAngle){
+	public TurnResult turn(int endAngle, CancellationToken token){
+		long start = System.nanoTime();
+		token.sleep(motionMillis);
+		return new TurnResult(endAngle, 0, endAngle, System.nanoTime() - start, 0, token.isCancelled());
 	}
-	public void touchSensor(){
+	public void touchSensor(CancellationToken token){
+		token.sleep(motionMillis);
 	}
 	public void moveForward(){
 	}
 	public void moveBackward(){
 	}
-	public boolean move(int distanceToMove, int bAngleCurrent){
+	public boolean move(int distanceToMove, int bAngleCurrent, CancellationToken token){
+		token.sleep(motionMillis);
 		return true;
 	}
+	public SensorSampler getSensorSampler(){
+		return null;
+	}
+	public TurnResult getLastTurnResult(){
+		return null;
+	}
+	public String getStartupReport(){
+		return null;
+	}
+	public ConnectionSupervisor getConnectionSupervisor(){
+		return null;
+	}
+	public void prepare(Device... devices){
+	}
 }
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+/**
+ * Result of CommandGrammar.parse. One instance is reused for every request
+ * parsed on a thread, so it must not be kept once the command has run.
+ * @param <H> Type of the handler registered with each command
+ */
+public class ParsedCommand<H> {
+
+	private CommandGrammar.Status status = CommandGrammar.Status.EMPTY;
+	CommandGrammar.Command<H> command;
+	CommandGrammar.Command<H> argument;
+	int number;
+	boolean hasArgument;
+
+	void reset(){
+		status = CommandGrammar.Status.EMPTY;
+		command = null;
+		argument = null;
+		number = 0;
+		hasArgument = false;
+	}
+	CommandGrammar.Status status(CommandGrammar.Status status){
+		this.status = status;
+		return status;
+	}
+	public CommandGrammar.Status getStatus(){
+		return status;
+	}
+	/**
+	 * @return Command matched by the first word, null if there was none
+	 */
+	public CommandGrammar.Command<H> getCommand(){
+		return command;
+	}
+	/**
+	 * @return Command named by the argument of a command taking a command, 
+	 * null if the argument is not a command
+	 */
+	public CommandGrammar.Command<H> getArgument(){
+		return argument;
+	}
+	/**
+	 * @return Number following the command, 0 if there was none
+	 */
+	public int getNumber(){
+		return number;
+	}
+	/**
+	 * @return boolean value representing whether an argument followed the command
+	 */
+	public boolean hasArgument(){
+		return hasArgument;
+	}
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps a word the speech recognizer got slightly wrong to the vocabulary
+ * word it most likely was, by spelling and by sound. Every vocabulary word
+ * is indexed by its length and by its Metaphone code. A word is scored 
+ * against the words that sound alike or can be spelled within a few edits,
+ * and resolved words are remembered so that a repeated word costs one map 
+ * lookup.
+ */
+public class PhoneticMatcher {
+
+	/**
+	 * Weight of a match by sound relative to a match by spelling
+	 */
+	private static final double SOUND_WEIGHT = 0.9;
+	private static final Match NO_MATCH = new Match(null, null, 0);
+	private final Map<Integer, List<Word>> byLength = new HashMap<Integer, List<Word>>();
+	private final Map<String, List<Word>> bySound = new HashMap<String, List<Word>>();
+	private final Map<String, String> exact = new HashMap<String, String>();
+	private final double minConfidence;
+	private final int maxEdits;
+	private final int minLength;
+	private final Map<String, Match> cache;
+	private long lookups;
+	private long hits;
+
+	/**
+	 * Vocabulary word with its replacement and its code
+	 */
+	private static class Word {
+		final String text;
+		final String replacement;
+		final String code;
+		final int minHeardLength;
+
+		Word(String text, String replacement, int minHeardLength){
+			this.text = text;
+			this.replacement = replacement;
+			this.code = Metaphone.encode(text);
+			this.minHeardLength = minHeardLength;
+		}
+	}
+
+	/**
+	 * Vocabulary word a word was resolved to
+	 */
+	public static class Match {
+		private final String word;
+		private final String replacement;
+		private final double confidence;
+
+		Match(String word, String replacement, double confidence){
+			this.word = word;
+			this.replacement = replacement;
+			this.confidence = confidence;
+		}
+		public String getWord(){
+			return word;
+		}
+		/**
+		 * @return Text that replaces the resolved word
+		 */
+		public String getReplacement(){
+			return replacement;
+		}
+		/**
+		 * @return 0 to 1, 1 for a word spelled exactly like the vocabulary word
+		 */
+		public double getConfidence(){
+			return confidence;
+		}
+	}
+
+	/**
+	 * Constructor
+	 * @param minConfidence Confidence, 0 to 1, below which a word is left alone
+	 * @param maxEdits Most letters inserted, deleted or changed for a match by spelling
+	 * @param minLength Words shorter than this are left alone
+	 * @param cacheSize Number of resolved words remembered, 0 for none
+	 */
+	public PhoneticMatcher(double minConfidence, int maxEdits, int minLength, final int cacheSize){
+		this.minConfidence = minConfidence;
+		this.maxEdits = maxEdits;
+		this.minLength = minLength;
+		this.cache = new LinkedHashMap<String, Match>(16, 0.75f, true){
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Match> eldest){
+				return size() > cacheSize;
+			}
+		};
+	}
+	/**
+	 * Adds a word to the vocabulary
+	 * @param word Word as it should be heard
+	 * @param replacement Text that replaces a word resolved to it
+	 */
+	public void add(String word, String replacement){
+		add(word, replacement, 0);
+	}
+	/**
+	 * Adds a word to the vocabulary that only words at least minHeardLength 
+	 * long can be resolved to, other than by exact spelling, so that short 
+	 * unrelated words do not turn into it
+	 * @param word Word as it should be heard
+	 * @param replacement Text that replaces a word resolved to it
+	 * @param minHeardLength Shortest misheard word resolved to it
+	 */
+	public synchronized void add(String word, String replacement, int minHeardLength){
+		Word entry = new Word(word.toLowerCase(), replacement, minHeardLength);
+		exact.put(entry.text, replacement);
+		index(byLength, entry.text.length(), entry);
+		index(bySound, entry.code, entry);
+		cache.clear();
+	}
+	private static <K> void index(Map<K, List<Word>> index, K key, Word word){
+		List<Word> words = index.get(key);
+		if(words == null){
+			words = new ArrayList<Word>();
+			index.put(key, words);
+		}
+		words.add(word);
+	}
+	/**
+	 * Resolves a word to the closest vocabulary word
+	 * @param word
+	 * @return Match or null if no vocabulary word is close enough
+	 */
+	public synchronized Match resolve(String word){
+		String key = word.toLowerCase();
+		lookups++;
+		Match match = cache.get(key);
+		if(match != null){
+			hits++;
+			return match == NO_MATCH ? null : match;
+		}
+		match = search(key);
+		cache.put(key, match == null ? NO_MATCH : match);
+		return match;
+	}
+	/**
+	 * Scores the words whose length is within maxEdits and the words whose 
+	 * code is within one edit, a tie going to the word spelled more alike
+	 * @param word Lower case word
+	 * @return Match with the highest confidence or null if it is below minConfidence
+	 */
+	private Match search(String word){
+		String replacement = exact.get(word);
+		if(replacement != null){
+			return new Match(word, replacement, 1);
+		}
+		if(word.length() < minLength){
+			return null;
+		}
+		String code = Metaphone.encode(word);
+		Word best = null;
+		double bestConfidence = 0;
+		double bestSpelling = 0;
+		for(Word candidate : candidates(word, code)){
+			if(word.length() < candidate.minHeardLength){
+				continue;
+			}
+			int edits = editDistance(word, candidate.text, maxEdits);
+			double spelling = edits > maxEdits ? 0 
+					: 1 - (double)edits / Math.max(word.length(), candidate.text.length());
+			double sound = 0;
+			if(!code.isEmpty() && editDistance(code, candidate.code, 1) <= 1){
+				sound = SOUND_WEIGHT * (1 - (double)editDistance(code, candidate.code, 1) 
+						/ Math.max(code.length(), candidate.code.length()));
+			}
+			double confidence = Math.max(spelling, sound);
+			if(confidence > bestConfidence || confidence == bestConfidence && spelling > bestSpelling){
+				best = candidate;
+				bestConfidence = confidence;
+				bestSpelling = spelling;
+			}
+		}
+		if(best == null || bestConfidence < minConfidence){
+			return null;
+		}
+		return new Match(best.text, best.replacement, bestConfidence);
+	}
+	/**
+	 * @param word
+	 * @param code
+	 * @return Words from the length index that can be within maxEdits, and 
+	 * words from the sound index whose code is within one edit
+	 */
+	private Set<Word> candidates(String word, String code){
+		Set<Word> candidates = new LinkedHashSet<Word>();
+		for(int length = word.length() - maxEdits; length <= word.length() + maxEdits; length++){
+			List<Word> sameLength = byLength.get(length);
+			if(sameLength != null){
+				candidates.addAll(sameLength);
+			}
+		}
+		if(!code.isEmpty()){
+			for(Map.Entry<String, List<Word>> entry : bySound.entrySet()){
+				if(editDistance(code, entry.getKey(), 1) <= 1){
+					candidates.addAll(entry.getValue());
+				}
+			}
+		}
+		return candidates;
+	}
+	/**
+	 * Levenshtein distance, giving up once it exceeds limit
+	 * @param a
+	 * @param b
+	 * @param limit
+	 * @return edits between a and b, or limit + 1 if there are more than limit
+	 */
+	static int editDistance(String a, String b, int limit){
+		if(Math.abs(a.length() - b.length()) > limit){
+			return limit + 1;
+		}
+		int[] previous = new int[b.length() + 1];
+		int[] current = new int[b.length() + 1];
+		for(int j = 0; j <= b.length(); j++){
+			previous[j] = j;
+		}
+		for(int i = 1; i <= a.length(); i++){
+			current[0] = i;
+			int rowMin = current[0];
+			for(int j = 1; j <= b.length(); j++){
+				int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+				current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+				rowMin = Math.min(rowMin, current[j]);
+			}
+			if(rowMin > limit){
+				return limit + 1;
+			}
+			int[] swap = previous;
+			previous = current;
+			current = swap;
+		}
+		return Math.min(previous[b.length()], limit + 1);
+	}
+	/**
+	 * @return number of words resolved
+	 */
+	public synchronized long getLookups(){
+		return lookups;
+	}
+	/**
+	 * @return number of words resolved from the cache
+	 */
+	public synchronized long getCacheHits(){
+		return hits;
+	}
+}
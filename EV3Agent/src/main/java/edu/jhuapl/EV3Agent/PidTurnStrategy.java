@@ -0,0 +1,162 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.rmi.RemoteException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closed-loop heading controller. Runs a PID loop at a fixed control rate 
+ * that sets the speed of both wheels, spinning in opposite directions, from 
+ * the gyro error. The integral is clamped and frozen while the output is 
+ * saturated so it cannot wind up during the long cruise of a big turn. 
+ * The turn ends once the heading has stayed within tolerance for the settle 
+ * time, or when the timeout runs out.
+ */
+public class PidTurnStrategy implements TurnStrategy {
+	
+	private final Clock clock;
+	private final double kp;
+	private final double ki;
+	private final double kd;
+	private final double integralLimit;
+	private final double tolerance;
+	private final int maxSpeed;
+	private final int minSpeed;
+	private final long periodNanos;
+	private final long settleNanos;
+	private final long timeoutNanos;
+	
+	/**
+	 * Constructor
+	 * @param clock
+	 * @param portInfo Source of the gains, tolerances, control rate and speed limits
+	 */
+	public PidTurnStrategy(Clock clock, PortInfo portInfo){
+		this.clock = clock;
+		this.kp = portInfo.getPidKp();
+		this.ki = portInfo.getPidKi();
+		this.kd = portInfo.getPidKd();
+		this.integralLimit = portInfo.getPidIntegralLimit();
+		this.tolerance = portInfo.getTurnTolerance();
+		this.maxSpeed = portInfo.getTurnMaxSpeed();
+		this.minSpeed = Math.min(portInfo.getTurnMinSpeed(), maxSpeed);
+		this.periodNanos = TimeUnit.SECONDS.toNanos(1) / portInfo.getPidControlRate();
+		this.settleNanos = TimeUnit.MILLISECONDS.toNanos(portInfo.getPidSettleMillis());
+		this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(portInfo.getPidTimeoutMillis());
+	}
+	public TurnResult turn(DifferentialDrive drive, SampleSource gyro, int angle, 
+			CancellationToken token) throws RemoteException {
+		long startNanos = clock.nanoTime();
+		float start = gyro.fetch();
+		float target = start + angle;
+		int direction = angle >= 0 ? 1 : -1;
+		float heading = start;
+		float overshoot = 0;
+		double integral = 0;
+		double lastError = angle;
+		int iterations = 0;
+		int appliedSpeed = 0;
+		long withinToleranceSince = -1;
+		long settledAt = -1;
+		long lastNanos = startNanos;
+		long nextTick = startNanos;
+		while(!token.isCancelled() && clock.nanoTime() - startNanos < timeoutNanos){
+			heading = gyro.fetch();
+			long now = clock.nanoTime();
+			iterations++;
+			double error = target - heading;
+			overshoot = Math.max(overshoot, (float)(-error * direction));
+			if(Math.abs(error) <= tolerance){
+				if(withinToleranceSince < 0){
+					withinToleranceSince = now;
+				}
+				if(now - withinToleranceSince >= settleNanos){
+					settledAt = withinToleranceSince;
+					break;
+				}
+			}
+			else{
+				withinToleranceSince = -1;
+			}
+			double seconds = Math.max(now - lastNanos, 1) / 1e9;
+			lastNanos = now;
+			double derivative = (error - lastError) / seconds;
+			lastError = error;
+			double output = kp * error + ki * integral + kd * derivative;
+			int speed = clampSpeed(output, error);
+			//anti-windup: only integrate while the output is not pinned at the speed limit
+			if(Math.abs(output) < maxSpeed || Math.signum(error) != Math.signum(output)){
+				integral = Math.max(-integralLimit, Math.min(integralLimit, integral + error * seconds));
+			}
+			if(speed != appliedSpeed){
+				drive(drive, speed, appliedSpeed);
+				appliedSpeed = speed;
+			}
+			nextTick = Math.max(nextTick + periodNanos, now);
+			waitForTick(nextTick, token);
+		}
+		drive.stop();
+		long elapsed = clock.nanoTime() - startNanos;
+		TurnResult.Outcome outcome = settledAt >= 0 ? TurnResult.Outcome.COMPLETED 
+				: token.isCancelled() ? TurnResult.Outcome.CANCELLED : TurnResult.Outcome.TIMED_OUT;
+		return new TurnResult(angle, start, heading, elapsed, iterations, outcome, 
+				overshoot, settledAt < 0 ? elapsed : settledAt - startNanos);
+	}
+	/**
+	 * @param output Controller output in wheel degrees per second
+	 * @param error Degrees from the target heading
+	 * @return signed wheel speed, 0 inside the tolerance and at least the 
+	 * minimum speed outside it so friction cannot stall the turn
+	 */
+	private int clampSpeed(double output, double error){
+		if(Math.abs(error) <= tolerance){
+			return 0;
+		}
+		double magnitude = Math.max(minSpeed, Math.min(maxSpeed, Math.abs(output)));
+		return (int)(Math.signum(output) * magnitude);
+	}
+	/**
+	 * Spins the wheels in opposite directions, positive speed turns toward 
+	 * increasing heading. Only changes the direction when the sign changes.
+	 */
+	private void drive(DifferentialDrive drive, int speed, int previousSpeed) throws RemoteException {
+		if(speed == 0){
+			drive.stop();
+			return;
+		}
+		drive.setSpeed(Math.abs(speed));
+		if(Math.signum(speed) != Math.signum(previousSpeed)){
+			drive.spin(speed);
+		}
+	}
+	/**
+	 * Sleeps until the next control tick, skipping ticks if the loop fell behind
+	 */
+	private void waitForTick(long tick, CancellationToken token){
+		long remaining = tick - clock.nanoTime();
+		if(remaining <= 0 || token.isCancelled()){
+			return;
+		}
+		try{
+			clock.sleep(TimeUnit.NANOSECONDS.toMillis(remaining));
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			token.cancel();
+		}
+	}
+}
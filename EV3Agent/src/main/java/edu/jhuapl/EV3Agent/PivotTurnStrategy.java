@@ -0,0 +1,66 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.rmi.RemoteException;
+
+import lejos.remote.ev3.RMIRegulatedMotor;
+
+/**
+ * Original turn algorithm: pivots on one wheel at a fixed speed while the 
+ * other wheel is stopped, until the gyro passes the target heading
+ */
+public class PivotTurnStrategy implements TurnStrategy {
+	
+	private static final int SPEED = 110;
+	private static final double ERROR_MARGIN = 0.1;
+	private final Clock clock;
+	
+	public PivotTurnStrategy(Clock clock){
+		this.clock = clock;
+	}
+	/**
+	 * Determines which wheel to rotate
+	 * Rotates wheel until sample provider indicates robot has turned desired amount
+	 * or the token is cancelled
+	 */
+	public TurnResult turn(DifferentialDrive drive, SampleSource gyro, int angle, 
+			CancellationToken token) throws RemoteException {
+		long startNanos = clock.nanoTime();
+		boolean complete = false;
+		int iterations = 0;
+		float sample = gyro.fetch();
+		float start = sample;
+		int end = (int)start + angle;
+		RMIRegulatedMotor pivotWheel = angle > 0 ? drive.getRightWheel() : drive.getLeftWheel();
+		RMIRegulatedMotor stoppedWheel = angle > 0 ? drive.getLeftWheel() : drive.getRightWheel();
+		stoppedWheel.stop(true);
+		pivotWheel.setSpeed(SPEED);
+		while(!complete && !token.isCancelled()){
+			pivotWheel.forward();
+			sample = gyro.fetch();
+			iterations++;
+			if(Math.abs(sample - end) <= ERROR_MARGIN || (angle > 0 ? sample > end : sample < end)){
+				complete = true;
+			}
+		}
+		pivotWheel.stop(true);
+		drive.reset();
+		return new TurnResult(angle, (int)start, sample, clock.nanoTime() - startNanos, 
+				iterations, !complete);
+	}
+}
@@ -38,6 +38,65 @@ public class PortInfo {
 	private String touchSensorPort;
 	private String ultrasonicSensorPort;
 	private int minDistToUltrasonic;
+	private boolean asyncCommands;
+	private int mockMotionMillis;
+	private int maxStopLatency;
+	private int sensorSampleRate;
+	private String turnMode;
+	private int turnMaxSpeed;
+	private int turnMinSpeed;
+	private int turnAcceleration;
+	private double turnTolerance;
+	private double wheelDiameter;
+	private double trackWidth;
+	private double pidKp;
+	private double pidKi;
+	private double pidKd;
+	private double pidIntegralLimit;
+	private int pidControlRate;
+	private int pidSettleMillis;
+	private int pidTimeoutMillis;
+	private String moveMode;
+	private int moveSpeed;
+	private int obstacleCheckMillis;
+	private int obstacleStopDist;
+	private boolean lazyPorts;
+	private int portOpenThreads;
+	private boolean supervisor;
+	private int heartbeatMillis;
+	private int rmiTimeoutMillis;
+	private int breakerFailures;
+	private int reconnectMinMillis;
+	private int reconnectMaxMillis;
+	private boolean simulatedEV3;
+	private int simLatencyMillis;
+	private double simSpeedup;
+	private int simSeed;
+	private double simGyroNoise;
+	private double simUltrasonicNoise;
+	private double simArenaSize;
+	private int simTouchDelayMillis;
+	private String injectDistribution;
+	private double injectLatencyMillis;
+	private double injectJitterMillis;
+	private double injectLossRate;
+	private double injectSlowRate;
+	private int injectSlowMillis;
+	private int injectSeed;
+	private boolean fuzzyMatching;
+	private double fuzzyMinConfidence;
+	private int fuzzyMaxEdits;
+	private int fuzzyCacheSize;
+	private int hypothesisCacheSize;
+	private String earlyCommands;
+	private double traceSampleRate;
+	private int traceBufferSize;
+	private String traceFile;
+	private int traceFlushMillis;
+	private int telemetryRate;
+	private int telemetryBatteryMillis;
+	private int metricsFeedMillis;
+	private int metricsFeedHistory;
 	private static final char MEDIUM = 'M';
 	private static final char LARGE = 'L';
 	private static final org.slf4j.Logger logger = LoggerFactory.getLogger(PortInfo.class);
@@ -48,7 +107,9 @@ public class PortInfo {
 	 * If no properties file, sets up default values
 	 */
     public PortInfo(Properties prop) throws IllegalArgumentException {
-    	prop = new Properties();
+    	if(prop == null){
+    		prop = new Properties();
+    	}
     	//true for mock, false for ev3
     	String bool = prop.getProperty("mockEV3", "false"); 
     	mockEV3 = validateBool(bool);
@@ -85,6 +146,159 @@ public class PortInfo {
     	validateSensorPort(ultrasonicSensorPort);
     	String dist = prop.getProperty("minDistToUltrasonic", "4");
     	minDistToUltrasonic = validateInt(dist);
+    	//true to queue robot actions on the actuator thread and return immediately
+    	bool = prop.getProperty("asyncCommands", "false");
+    	asyncCommands = validateBool(bool);
+    	//how long the mock EV3 takes to turn, move or wait for the button
+    	String millis = prop.getProperty("mockMotionMillis", "0");
+    	mockMotionMillis = validateInt(millis);
+    	//a warning is logged when "stop" takes longer to end a motion
+    	millis = prop.getProperty("maxStopLatency", "50");
+    	maxStopLatency = validateInt(millis);
+    	//samples per second taken from each sensor in the background, 0 to fetch on demand
+    	String rate = prop.getProperty("sensorSampleRate", "0");
+    	sensorSampleRate = validateInt(rate);
+    	//pivot turns on one wheel, spin counter-rotates both wheels with a speed profile
+    	turnMode = prop.getProperty("turnMode", "pivot");
+    	validateTurnMode(turnMode);
+    	String speed = prop.getProperty("turnMaxSpeed", "360");
+    	turnMaxSpeed = validateInt(speed);
+    	speed = prop.getProperty("turnMinSpeed", "40");
+    	turnMinSpeed = validateInt(speed);
+    	speed = prop.getProperty("turnAcceleration", "720");
+    	turnAcceleration = validateInt(speed);
+    	angle = prop.getProperty("turnTolerance", "1");
+    	turnTolerance = validateDouble(angle);
+    	dist = prop.getProperty("wheelDiameter", "5.6");
+    	wheelDiameter = validateDouble(dist);
+    	dist = prop.getProperty("trackWidth", "12");
+    	trackWidth = validateDouble(dist);
+    	//gains of the pid turn controller, output is wheel degrees per second per degree of error
+    	String gain = prop.getProperty("pidKp", "8");
+    	pidKp = validateDouble(gain);
+    	gain = prop.getProperty("pidKi", "2");
+    	pidKi = validateDouble(gain);
+    	gain = prop.getProperty("pidKd", "0.6");
+    	pidKd = validateDouble(gain);
+    	gain = prop.getProperty("pidIntegralLimit", "20");
+    	pidIntegralLimit = validateDouble(gain);
+    	rate = prop.getProperty("pidControlRate", "50");
+    	pidControlRate = validateInt(rate);
+    	if(pidControlRate <= 0){
+    		logger.error("Invalid pid control rate set to " + rate);
+    		throw new IllegalArgumentException("Invalid pid control rate set to " + rate);
+    	}
+    	millis = prop.getProperty("pidSettleMillis", "100");
+    	pidSettleMillis = validateInt(millis);
+    	millis = prop.getProperty("pidTimeoutMillis", "8000");
+    	pidTimeoutMillis = validateInt(millis);
+    	//ultrasonic moves relative to the object in front, tacho counts wheel rotations
+    	moveMode = prop.getProperty("moveMode", "ultrasonic");
+    	validateMoveMode(moveMode);
+    	speed = prop.getProperty("moveSpeed", "360");
+    	moveSpeed = validateInt(speed);
+    	millis = prop.getProperty("obstacleCheckMillis", "50");
+    	obstacleCheckMillis = validateInt(millis);
+    	if(obstacleCheckMillis <= 0){
+    		logger.error("Invalid obstacle check period set to " + millis);
+    		throw new IllegalArgumentException("Invalid obstacle check period set to " + millis);
+    	}
+    	dist = prop.getProperty("obstacleStopDist", "15");
+    	obstacleStopDist = validateInt(dist);
+    	if(obstacleStopDist <= 0){
+    		logger.error("Invalid obstacle stop distance set to " + dist);
+    		throw new IllegalArgumentException("Invalid obstacle stop distance set to " + dist);
+    	}
+    	//lazy ports open on first use instead of all at once in the background
+    	bool = prop.getProperty("lazyPorts", "false");
+    	lazyPorts = validateBool(bool);
+    	String threads = prop.getProperty("portOpenThreads", "4");
+    	portOpenThreads = validateInt(threads);
+    	if(portOpenThreads <= 0){
+    		logger.error("Invalid number of port opening threads set to " + threads);
+    		throw new IllegalArgumentException("Invalid number of port opening threads set to " + threads);
+    	}
+    	//the supervisor times out RMI calls and reconnects in the background when the link drops
+    	bool = prop.getProperty("supervisor", "true");
+    	supervisor = validateBool(bool);
+    	millis = prop.getProperty("heartbeatMillis", "1000");
+    	heartbeatMillis = validatePositive(millis, "heartbeat period");
+    	millis = prop.getProperty("rmiTimeoutMillis", "3000");
+    	rmiTimeoutMillis = validatePositive(millis, "RMI call timeout");
+    	String failures = prop.getProperty("breakerFailures", "2");
+    	breakerFailures = validatePositive(failures, "number of failures before reconnecting");
+    	millis = prop.getProperty("reconnectMinMillis", "250");
+    	reconnectMinMillis = validatePositive(millis, "minimum reconnect delay");
+    	millis = prop.getProperty("reconnectMaxMillis", "10000");
+    	reconnectMaxMillis = validatePositive(millis, "maximum reconnect delay");
+    	//the simulated EV3 runs the real control code against a physics model on a virtual clock
+    	bool = prop.getProperty("simulatedEV3", "false");
+    	simulatedEV3 = validateBool(bool);
+    	millis = prop.getProperty("simLatencyMillis", "10");
+    	simLatencyMillis = validatePositive(millis, "simulated latency");
+    	rate = prop.getProperty("simSpeedup", "0");
+    	simSpeedup = validateDouble(rate);
+    	String seed = prop.getProperty("simSeed", "1");
+    	simSeed = validateInt(seed);
+    	gain = prop.getProperty("simGyroNoise", "0.5");
+    	simGyroNoise = validateDouble(gain);
+    	gain = prop.getProperty("simUltrasonicNoise", "0.5");
+    	simUltrasonicNoise = validateDouble(gain);
+    	dist = prop.getProperty("simArenaSize", "300");
+    	simArenaSize = validateDouble(dist);
+    	millis = prop.getProperty("simTouchDelayMillis", "1000");
+    	simTouchDelayMillis = validateInt(millis);
+    	//injected latency delays every call on the ports to reproduce a slow or lossy link
+    	injectDistribution = prop.getProperty("injectDistribution", "normal");
+    	validateDistribution(injectDistribution);
+    	millis = prop.getProperty("injectLatencyMillis", "0");
+    	injectLatencyMillis = validateDouble(millis);
+    	millis = prop.getProperty("injectJitterMillis", "0");
+    	injectJitterMillis = validateDouble(millis);
+    	rate = prop.getProperty("injectLossRate", "0");
+    	injectLossRate = validateDouble(rate);
+    	rate = prop.getProperty("injectSlowRate", "0");
+    	injectSlowRate = validateDouble(rate);
+    	millis = prop.getProperty("injectSlowMillis", "1000");
+    	injectSlowMillis = validateInt(millis);
+    	seed = prop.getProperty("injectSeed", "1");
+    	injectSeed = validateInt(seed);
+    	//fuzzy matching maps misheard words to the nearest command or number word
+    	bool = prop.getProperty("fuzzyMatching", "true");
+    	fuzzyMatching = validateBool(bool);
+    	rate = prop.getProperty("fuzzyMinConfidence", "0.8");
+    	fuzzyMinConfidence = validateDouble(rate);
+    	String edits = prop.getProperty("fuzzyMaxEdits", "2");
+    	fuzzyMaxEdits = validateInt(edits);
+    	size = prop.getProperty("fuzzyCacheSize", "1024");
+    	fuzzyCacheSize = validateInt(size);
+    	//hypotheses of an N-best list are parsed once and remembered
+    	size = prop.getProperty("hypothesisCacheSize", "256");
+    	hypothesisCacheSize = validateInt(size);
+    	//commands a streaming recognizer runs before the end of the utterance
+    	earlyCommands = prop.getProperty("earlyCommands", "stop,fire,forward,backward");
+    	//a sampled fraction of requests is traced down to each RMI call and exported to a file
+    	rate = prop.getProperty("traceSampleRate", "0");
+    	traceSampleRate = validateDouble(rate);
+    	if(traceSampleRate < 0 || traceSampleRate > 1){
+    		logger.error("Invalid trace sample rate set to " + rate);
+    		throw new IllegalArgumentException("Invalid trace sample rate set to " + rate);
+    	}
+    	size = prop.getProperty("traceBufferSize", "4096");
+    	traceBufferSize = validatePositive(size, "trace buffer size");
+    	traceFile = prop.getProperty("traceFile", "ev3-trace.json");
+    	millis = prop.getProperty("traceFlushMillis", "1000");
+    	traceFlushMillis = validatePositive(millis, "trace flush period");
+    	//telemetry frames are sampled once and streamed to every viewer
+    	rate = prop.getProperty("telemetryRate", "10");
+    	telemetryRate = validatePositive(rate, "telemetry rate");
+    	millis = prop.getProperty("telemetryBatteryMillis", "5000");
+    	telemetryBatteryMillis = validatePositive(millis, "telemetry battery period");
+    	//the dashboard's feed reports what changed in the metrics every interval
+    	millis = prop.getProperty("metricsFeedMillis", "1000");
+    	metricsFeedMillis = validatePositive(millis, "metrics feed interval");
+    	size = prop.getProperty("metricsFeedHistory", "120");
+    	metricsFeedHistory = validatePositive(size, "metrics feed history");
     }
     /**
      * Default Constructor
@@ -153,6 +367,68 @@ public class PortInfo {
     		throw new IllegalArgumentException("Invalid integer set to " + angle);
     	}
     }
+    /**
+     * Validates that value is a decimal number
+     * @param value
+     * @return double value representing String parameter
+     * @throws IllegalArgumentException
+     */
+    private double validateDouble(String value) throws IllegalArgumentException {
+    	try{
+    		return Double.parseDouble(value);
+    	} catch(NumberFormatException e){
+    		logger.error("Invalid decimal set to " + value + " " + e.getMessage());
+    		throw new IllegalArgumentException("Invalid decimal set to " + value);
+    	}
+    }
+    /**
+     * Validates that value is an integer greater than 0
+     * @param value
+     * @param name Setting name for the error message
+     * @return int value representing String parameter
+     * @throws IllegalArgumentException
+     */
+    private int validatePositive(String value, String name) throws IllegalArgumentException {
+    	int number = validateInt(value);
+    	if(number <= 0){
+    		logger.error("Invalid " + name + " set to " + value);
+    		throw new IllegalArgumentException("Invalid " + name + " set to " + value);
+    	}
+    	return number;
+    }
+    /**
+     * Validates that the injected latency distribution is normal, uniform or lognormal
+     * @param distribution
+     * @throws IllegalArgumentException
+     */
+    private void validateDistribution(String distribution) throws IllegalArgumentException {
+    	if(!distribution.equals("normal") && !distribution.equals("uniform") && !distribution.equals("lognormal")){
+    		logger.error("Invalid latency distribution set to " + distribution);
+    		throw new IllegalArgumentException("Invalid latency distribution set to " + distribution);
+    	}
+    }
+    /**
+     * Validates that turn mode is pivot, spin or pid
+     * @param mode
+     * @throws IllegalArgumentException
+     */
+    private void validateTurnMode(String mode) throws IllegalArgumentException {
+    	if(!mode.equals("pivot") && !mode.equals("spin") && !mode.equals("pid")){
+    		logger.error("Invalid turn mode set to " + mode);
+    		throw new IllegalArgumentException("Invalid turn mode set to " + mode);
+    	}
+    }
+    /**
+     * Validates that move mode is ultrasonic or tacho
+     * @param mode
+     * @throws IllegalArgumentException
+     */
+    private void validateMoveMode(String mode) throws IllegalArgumentException {
+    	if(!mode.equals("ultrasonic") && !mode.equals("tacho")){
+    		logger.error("Invalid move mode set to " + mode);
+    		throw new IllegalArgumentException("Invalid move mode set to " + mode);
+    	}
+    }
     /**
      * Validates port is 1, 2, 3, or 4
      * @param port
@@ -274,4 +550,358 @@ public class PortInfo {
     public int getMinDistToUltrasonic(){
     	return minDistToUltrasonic;
     }
+    public void setAsyncCommands(boolean asyncCommands){
+    	this.asyncCommands = asyncCommands;
+    }
+    public boolean getAsyncCommands(){
+    	return asyncCommands;
+    }
+    public void setMockMotionMillis(int mockMotionMillis){
+    	this.mockMotionMillis = mockMotionMillis;
+    }
+    public int getMockMotionMillis(){
+    	return mockMotionMillis;
+    }
+    public void setMaxStopLatency(int maxStopLatency){
+    	this.maxStopLatency = maxStopLatency;
+    }
+    public int getMaxStopLatency(){
+    	return maxStopLatency;
+    }
+    public void setSensorSampleRate(int sensorSampleRate){
+    	this.sensorSampleRate = sensorSampleRate;
+    }
+    public int getSensorSampleRate(){
+    	return sensorSampleRate;
+    }
+    public void setTurnMode(String turnMode){
+    	this.turnMode = turnMode;
+    }
+    public String getTurnMode(){
+    	return turnMode;
+    }
+    public void setTurnMaxSpeed(int turnMaxSpeed){
+    	this.turnMaxSpeed = turnMaxSpeed;
+    }
+    public int getTurnMaxSpeed(){
+    	return turnMaxSpeed;
+    }
+    public void setTurnMinSpeed(int turnMinSpeed){
+    	this.turnMinSpeed = turnMinSpeed;
+    }
+    public int getTurnMinSpeed(){
+    	return turnMinSpeed;
+    }
+    public void setTurnAcceleration(int turnAcceleration){
+    	this.turnAcceleration = turnAcceleration;
+    }
+    public int getTurnAcceleration(){
+    	return turnAcceleration;
+    }
+    public void setTurnTolerance(double turnTolerance){
+    	this.turnTolerance = turnTolerance;
+    }
+    public double getTurnTolerance(){
+    	return turnTolerance;
+    }
+    public void setWheelDiameter(double wheelDiameter){
+    	this.wheelDiameter = wheelDiameter;
+    }
+    public double getWheelDiameter(){
+    	return wheelDiameter;
+    }
+    public void setTrackWidth(double trackWidth){
+    	this.trackWidth = trackWidth;
+    }
+    public double getTrackWidth(){
+    	return trackWidth;
+    }
+    public void setPidKp(double pidKp){
+    	this.pidKp = pidKp;
+    }
+    public double getPidKp(){
+    	return pidKp;
+    }
+    public void setPidKi(double pidKi){
+    	this.pidKi = pidKi;
+    }
+    public double getPidKi(){
+    	return pidKi;
+    }
+    public void setPidKd(double pidKd){
+    	this.pidKd = pidKd;
+    }
+    public double getPidKd(){
+    	return pidKd;
+    }
+    public void setPidIntegralLimit(double pidIntegralLimit){
+    	this.pidIntegralLimit = pidIntegralLimit;
+    }
+    public double getPidIntegralLimit(){
+    	return pidIntegralLimit;
+    }
+    public void setPidControlRate(int pidControlRate){
+    	this.pidControlRate = pidControlRate;
+    }
+    public int getPidControlRate(){
+    	return pidControlRate;
+    }
+    public void setPidSettleMillis(int pidSettleMillis){
+    	this.pidSettleMillis = pidSettleMillis;
+    }
+    public int getPidSettleMillis(){
+    	return pidSettleMillis;
+    }
+    public void setPidTimeoutMillis(int pidTimeoutMillis){
+    	this.pidTimeoutMillis = pidTimeoutMillis;
+    }
+    public int getPidTimeoutMillis(){
+    	return pidTimeoutMillis;
+    }
+    public void setMoveMode(String moveMode){
+    	this.moveMode = moveMode;
+    }
+    public String getMoveMode(){
+    	return moveMode;
+    }
+    public void setMoveSpeed(int moveSpeed){
+    	this.moveSpeed = moveSpeed;
+    }
+    public int getMoveSpeed(){
+    	return moveSpeed;
+    }
+    public void setObstacleCheckMillis(int obstacleCheckMillis){
+    	this.obstacleCheckMillis = obstacleCheckMillis;
+    }
+    public int getObstacleCheckMillis(){
+    	return obstacleCheckMillis;
+    }
+    public void setObstacleStopDist(int obstacleStopDist){
+    	this.obstacleStopDist = obstacleStopDist;
+    }
+    public int getObstacleStopDist(){
+    	return obstacleStopDist;
+    }
+    public void setLazyPorts(boolean lazyPorts){
+    	this.lazyPorts = lazyPorts;
+    }
+    public boolean getLazyPorts(){
+    	return lazyPorts;
+    }
+    public void setPortOpenThreads(int portOpenThreads){
+    	this.portOpenThreads = portOpenThreads;
+    }
+    public int getPortOpenThreads(){
+    	return portOpenThreads;
+    }
+    public void setSupervisor(boolean supervisor){
+    	this.supervisor = supervisor;
+    }
+    public boolean getSupervisor(){
+    	return supervisor;
+    }
+    public void setHeartbeatMillis(int heartbeatMillis){
+    	this.heartbeatMillis = heartbeatMillis;
+    }
+    public int getHeartbeatMillis(){
+    	return heartbeatMillis;
+    }
+    public void setRmiTimeoutMillis(int rmiTimeoutMillis){
+    	this.rmiTimeoutMillis = rmiTimeoutMillis;
+    }
+    public int getRmiTimeoutMillis(){
+    	return rmiTimeoutMillis;
+    }
+    public void setBreakerFailures(int breakerFailures){
+    	this.breakerFailures = breakerFailures;
+    }
+    public int getBreakerFailures(){
+    	return breakerFailures;
+    }
+    public void setReconnectMinMillis(int reconnectMinMillis){
+    	this.reconnectMinMillis = reconnectMinMillis;
+    }
+    public int getReconnectMinMillis(){
+    	return reconnectMinMillis;
+    }
+    public void setReconnectMaxMillis(int reconnectMaxMillis){
+    	this.reconnectMaxMillis = reconnectMaxMillis;
+    }
+    public int getReconnectMaxMillis(){
+    	return reconnectMaxMillis;
+    }
+    public void setSimulatedEV3(boolean simulatedEV3){
+    	this.simulatedEV3 = simulatedEV3;
+    }
+    public boolean getSimulatedEV3(){
+    	return simulatedEV3;
+    }
+    public void setSimLatencyMillis(int simLatencyMillis){
+    	this.simLatencyMillis = simLatencyMillis;
+    }
+    public int getSimLatencyMillis(){
+    	return simLatencyMillis;
+    }
+    public void setSimSpeedup(double simSpeedup){
+    	this.simSpeedup = simSpeedup;
+    }
+    public double getSimSpeedup(){
+    	return simSpeedup;
+    }
+    public void setSimSeed(int simSeed){
+    	this.simSeed = simSeed;
+    }
+    public int getSimSeed(){
+    	return simSeed;
+    }
+    public void setSimGyroNoise(double simGyroNoise){
+    	this.simGyroNoise = simGyroNoise;
+    }
+    public double getSimGyroNoise(){
+    	return simGyroNoise;
+    }
+    public void setSimUltrasonicNoise(double simUltrasonicNoise){
+    	this.simUltrasonicNoise = simUltrasonicNoise;
+    }
+    public double getSimUltrasonicNoise(){
+    	return simUltrasonicNoise;
+    }
+    public void setSimArenaSize(double simArenaSize){
+    	this.simArenaSize = simArenaSize;
+    }
+    public double getSimArenaSize(){
+    	return simArenaSize;
+    }
+    public void setSimTouchDelayMillis(int simTouchDelayMillis){
+    	this.simTouchDelayMillis = simTouchDelayMillis;
+    }
+    public int getSimTouchDelayMillis(){
+    	return simTouchDelayMillis;
+    }
+    public void setInjectDistribution(String injectDistribution){
+    	this.injectDistribution = injectDistribution;
+    }
+    public String getInjectDistribution(){
+    	return injectDistribution;
+    }
+    public void setInjectLatencyMillis(double injectLatencyMillis){
+    	this.injectLatencyMillis = injectLatencyMillis;
+    }
+    public double getInjectLatencyMillis(){
+    	return injectLatencyMillis;
+    }
+    public void setInjectJitterMillis(double injectJitterMillis){
+    	this.injectJitterMillis = injectJitterMillis;
+    }
+    public double getInjectJitterMillis(){
+    	return injectJitterMillis;
+    }
+    public void setInjectLossRate(double injectLossRate){
+    	this.injectLossRate = injectLossRate;
+    }
+    public double getInjectLossRate(){
+    	return injectLossRate;
+    }
+    public void setInjectSlowRate(double injectSlowRate){
+    	this.injectSlowRate = injectSlowRate;
+    }
+    public double getInjectSlowRate(){
+    	return injectSlowRate;
+    }
+    public void setInjectSlowMillis(int injectSlowMillis){
+    	this.injectSlowMillis = injectSlowMillis;
+    }
+    public int getInjectSlowMillis(){
+    	return injectSlowMillis;
+    }
+    public void setInjectSeed(int injectSeed){
+    	this.injectSeed = injectSeed;
+    }
+    public int getInjectSeed(){
+    	return injectSeed;
+    }
+    public void setFuzzyMatching(boolean fuzzyMatching){
+    	this.fuzzyMatching = fuzzyMatching;
+    }
+    public boolean getFuzzyMatching(){
+    	return fuzzyMatching;
+    }
+    public void setFuzzyMinConfidence(double fuzzyMinConfidence){
+    	this.fuzzyMinConfidence = fuzzyMinConfidence;
+    }
+    public double getFuzzyMinConfidence(){
+    	return fuzzyMinConfidence;
+    }
+    public void setFuzzyMaxEdits(int fuzzyMaxEdits){
+    	this.fuzzyMaxEdits = fuzzyMaxEdits;
+    }
+    public int getFuzzyMaxEdits(){
+    	return fuzzyMaxEdits;
+    }
+    public void setFuzzyCacheSize(int fuzzyCacheSize){
+    	this.fuzzyCacheSize = fuzzyCacheSize;
+    }
+    public int getFuzzyCacheSize(){
+    	return fuzzyCacheSize;
+    }
+    public void setHypothesisCacheSize(int hypothesisCacheSize){
+    	this.hypothesisCacheSize = hypothesisCacheSize;
+    }
+    public int getHypothesisCacheSize(){
+    	return hypothesisCacheSize;
+    }
+    public void setEarlyCommands(String earlyCommands){
+    	this.earlyCommands = earlyCommands;
+    }
+    public String getEarlyCommands(){
+    	return earlyCommands;
+    }
+    public void setTraceSampleRate(double traceSampleRate){
+    	this.traceSampleRate = traceSampleRate;
+    }
+    public double getTraceSampleRate(){
+    	return traceSampleRate;
+    }
+    public void setTraceBufferSize(int traceBufferSize){
+    	this.traceBufferSize = traceBufferSize;
+    }
+    public int getTraceBufferSize(){
+    	return traceBufferSize;
+    }
+    public void setTraceFile(String traceFile){
+    	this.traceFile = traceFile;
+    }
+    public String getTraceFile(){
+    	return traceFile;
+    }
+    public void setTraceFlushMillis(int traceFlushMillis){
+    	this.traceFlushMillis = traceFlushMillis;
+    }
+    public int getTraceFlushMillis(){
+    	return traceFlushMillis;
+    }
+    public void setTelemetryRate(int telemetryRate){
+    	this.telemetryRate = telemetryRate;
+    }
+    public int getTelemetryRate(){
+    	return telemetryRate;
+    }
+    public void setTelemetryBatteryMillis(int telemetryBatteryMillis){
+    	this.telemetryBatteryMillis = telemetryBatteryMillis;
+    }
+    public int getTelemetryBatteryMillis(){
+    	return telemetryBatteryMillis;
+    }
+    public void setMetricsFeedMillis(int metricsFeedMillis){
+    	this.metricsFeedMillis = metricsFeedMillis;
+    }
+    public int getMetricsFeedMillis(){
+    	return metricsFeedMillis;
+    }
+    public void setMetricsFeedHistory(int metricsFeedHistory){
+    	this.metricsFeedHistory = metricsFeedHistory;
+    }
+    public int getMetricsFeedHistory(){
+    	return metricsFeedHistory;
+    }
 }
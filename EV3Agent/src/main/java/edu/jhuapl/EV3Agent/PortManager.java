@@ -0,0 +1,273 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.LoggerFactory;
+
+import lejos.remote.ev3.RMIRegulatedMotor;
+import lejos.remote.ev3.RMISampleProvider;
+
+/**
+ * Opens the EV3's motor and sensor ports on a small pool of threads. Each 
+ * port is opened at most once, either ahead of time by open or on first use 
+ * by get, and callers only wait for the ports they need. How long each port 
+ * took to open is kept for a startup report.
+ */
+public class PortManager {
+	
+	private static final org.slf4j.Logger logger = LoggerFactory.getLogger(PortManager.class);
+	private final Opener opener;
+	private final ExecutorService executor;
+	private final long createdNanos = System.nanoTime();
+	private final Map<Device, Future<Object>> ports = new EnumMap<Device, Future<Object>>(Device.class);
+	private final Map<String, Future<?>> tasks = new LinkedHashMap<String, Future<?>>();
+	private final Map<String, Timing> timings = new LinkedHashMap<String, Timing>();
+	private final AtomicInteger outstanding = new AtomicInteger();
+	
+	/**
+	 * Opens one port over RMI
+	 */
+	public interface Opener {
+		public Object open(Device device) throws RemoteException;
+	}
+	
+	/**
+	 * When one port or task started and finished
+	 */
+	private static class Timing {
+		private final long startNanos = System.nanoTime();
+		private volatile long endNanos;
+		private volatile boolean failed;
+	}
+	
+	/**
+	 * Constructor
+	 * @param opener Opens each port
+	 * @param threads Number of ports opened at the same time
+	 */
+	public PortManager(Opener opener, int threads){
+		this.opener = opener;
+		this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory(){
+			private final AtomicInteger count = new AtomicInteger();
+			public Thread newThread(Runnable r){
+				Thread thread = new Thread(r, "ev3-port-opener-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+	/**
+	 * Starts opening every port in the background
+	 */
+	public void openAll(){
+		open(Device.values());
+	}
+	/**
+	 * Starts opening the given ports in the background, ports already 
+	 * opened or opening are skipped
+	 * @param devices
+	 */
+	public synchronized void open(Device... devices){
+		for(final Device device : devices){
+			if(!ports.containsKey(device)){
+				ports.put(device, submit(device.getLabel(), new Callable<Object>(){
+					public Object call() throws RemoteException {
+						return opener.open(device);
+					}
+				}));
+			}
+		}
+	}
+	/**
+	 * Runs a task that uses the ports in the background, timed in the report
+	 * @param label Name of the task in the report
+	 * @param task
+	 * @return Future to wait on before relying on the task's work
+	 */
+	public synchronized Future<?> background(String label, Callable<?> task){
+		Future<?> future = submit(label, task);
+		tasks.put(label, future);
+		return future;
+	}
+	private <T> Future<T> submit(final String label, final Callable<T> task){
+		final Timing timing = new Timing();
+		timings.put(label, timing);
+		outstanding.incrementAndGet();
+		return executor.submit(new Callable<T>(){
+			public T call() throws Exception {
+				try{
+					return task.call();
+				} catch(Exception e){
+					timing.failed = true;
+					logger.error(label + " failed " + e.getMessage());
+					throw e;
+				} finally{
+					timing.endNanos = System.nanoTime();
+					if(outstanding.decrementAndGet() == 0){
+						logger.info(describe());
+					}
+				}
+			}
+		});
+	}
+	/**
+	 * Opens the port if it was not opened yet and waits for it
+	 * @param device
+	 * @return Object the opened port
+	 * @throws RemoteException if the port could not be opened
+	 */
+	public Object get(Device device) throws RemoteException {
+		Future<Object> future;
+		synchronized(this){
+			open(device);
+			future = ports.get(device);
+		}
+		return await(device.getLabel(), future);
+	}
+	public RMIRegulatedMotor motor(Device device) throws RemoteException {
+		return (RMIRegulatedMotor)get(device);
+	}
+	public RMISampleProvider sampleProvider(Device device) throws RemoteException {
+		return (RMISampleProvider)get(device);
+	}
+	/**
+	 * Waits for a background task started by background
+	 * @param future
+	 * @throws RemoteException if the task failed
+	 */
+	public void await(Future<?> future) throws RemoteException {
+		await("task", future);
+	}
+	private static <T> T await(String label, Future<T> future) throws RemoteException {
+		try{
+			return future.get();
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new RemoteException("Interrupted while waiting for " + label, e);
+		} catch(ExecutionException e){
+			if(e.getCause() instanceof RemoteException){
+				throw (RemoteException)e.getCause();
+			}
+			if(e.getCause() instanceof RuntimeException){
+				throw (RuntimeException)e.getCause();
+			}
+			throw new RemoteException("Could not open " + label, e.getCause());
+		}
+	}
+	/**
+	 * @param device
+	 * @return boolean value representing whether the port has finished opening successfully
+	 */
+	public synchronized boolean isOpen(Device device){
+		Future<Object> future = ports.get(device);
+		Timing timing = timings.get(device.getLabel());
+		return future != null && future.isDone() && !timing.failed;
+	}
+	/**
+	 * Starts opening again every port that failed to open
+	 * @return number of ports retried
+	 */
+	public synchronized int retryFailed(){
+		List<Device> failed = new ArrayList<Device>();
+		for(Map.Entry<Device, Future<Object>> entry : ports.entrySet()){
+			if(entry.getValue().isDone() && timings.get(entry.getKey().getLabel()).failed){
+				failed.add(entry.getKey());
+			}
+		}
+		for(Device device : failed){
+			ports.remove(device);
+		}
+		open(failed.toArray(new Device[failed.size()]));
+		return failed.size();
+	}
+	/**
+	 * @return String with when each port started and how long it took to open
+	 */
+	public synchronized String describe(){
+		StringBuilder text = new StringBuilder("Startup timing:");
+		long sum = 0;
+		long last = createdNanos;
+		for(Map.Entry<String, Timing> entry : timings.entrySet()){
+			Timing timing = entry.getValue();
+			text.append("\n").append(entry.getKey()).append(": ");
+			if(timing.endNanos == 0){
+				text.append("started at +").append(millis(timing.startNanos - createdNanos)).append(" ms, still running");
+				continue;
+			}
+			long took = timing.endNanos - timing.startNanos;
+			sum += took;
+			last = Math.max(last, timing.endNanos);
+			text.append(timing.failed ? "failed" : "done").append(" in ").append(millis(took))
+				.append(" ms, started at +").append(millis(timing.startNanos - createdNanos)).append(" ms");
+		}
+		text.append("\nTotal: ").append(millis(last - createdNanos)).append(" ms (")
+			.append(millis(sum)).append(" ms if opened one after another)");
+		return text.toString();
+	}
+	private static long millis(long nanos){
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+	/**
+	 * Cancels background tasks, waits for ports still opening and closes 
+	 * every port that opened
+	 */
+	public void close(){
+		List<Map.Entry<Device, Future<Object>>> opened;
+		synchronized(this){
+			for(Future<?> task : tasks.values()){
+				task.cancel(true);
+			}
+			opened = new ArrayList<Map.Entry<Device, Future<Object>>>(ports.entrySet());
+			tasks.clear();
+			ports.clear();
+		}
+		for(Map.Entry<Device, Future<Object>> entry : opened){
+			Object port;
+			try{
+				port = await(entry.getKey().getLabel(), entry.getValue());
+			} catch(RemoteException | RuntimeException e){
+				continue;
+			}
+			try{
+				if(port instanceof RMIRegulatedMotor){
+					((RMIRegulatedMotor)port).close();
+				}
+				else if(port instanceof RMISampleProvider){
+					((RMISampleProvider)port).close();
+				}
+			} catch(RemoteException e){
+				logger.error("Could not close " + entry.getKey().getLabel() + " Port " + e.getMessage());
+			}
+		}
+		executor.shutdown();
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.rmi.RemoteException;
+
+import lejos.remote.ev3.RMISampleProvider;
+
+/**
+ * Fetches a sample from the EV3 over RMI on every call
+ */
+public class RMISampleSource implements SampleSource {
+	
+	private final RMISampleProvider provider;
+	
+	public RMISampleSource(RMISampleProvider provider){
+		this.provider = provider;
+	}
+	public float fetch() throws RemoteException {
+		return provider.fetchSample()[0];
+	}
+}
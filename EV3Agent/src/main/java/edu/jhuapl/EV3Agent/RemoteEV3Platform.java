@@ -19,33 +19,68 @@ package edu.jhuapl.EV3Agent;
 import java.net.MalformedURLException;
 import java.rmi.NotBoundException;
 import java.rmi.RemoteException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
 
 import org.slf4j.LoggerFactory;
 
 import lejos.hardware.Battery;
 import lejos.remote.ev3.RMIRegulatedMotor;
-import lejos.remote.ev3.RMISampleProvider;
 import lejos.remote.ev3.RemoteEV3;
 
 public class RemoteEV3Platform implements EV3AgentPlatform{
 	
 	private static final org.slf4j.Logger logger = LoggerFactory.getLogger(EV3Agent.class);
-	private RemoteEV3 ev3;
-	private RMIRegulatedMotor rightWheel;
-	private RMIRegulatedMotor shooterAngle;
-	private RMIRegulatedMotor shooter;
-	private RMIRegulatedMotor leftWheel;
+	private volatile RemoteEV3 ev3;
 	private PortInfo portInfo;
-	private RMISampleProvider gyroSampleProvider;
-	private RMISampleProvider touchSampleProvider;
-	private RMISampleProvider ultrasonicSampleProvider;
+	private volatile ConnectionSupervisor supervisor;
+	private volatile PortManager portManager;
+	private Future<?> shooterHoming;
+	private volatile DifferentialDrive drive;
+	private SensorSampler sensorSampler;
+	private TurnStrategy turnStrategy;
+	private LatencyInjector latencyInjector;
+	private volatile TurnResult lastTurnResult;
+	private Metrics metrics = new Metrics();
+	private ExecutorService obstacleGuard;
+	private final Clock clock;
 	
 	/**
 	 * Constructor
 	 * @param prop Properties file
 	 */
 	public RemoteEV3Platform(PortInfo prop){
+		this(prop, Clock.SYSTEM);
+	}
+	/**
+	 * Constructor
+	 * @param prop Properties file
+	 * @param clock Clock the turn strategies and obstacle guard run on
+	 */
+	protected RemoteEV3Platform(PortInfo prop, Clock clock){
 		this.portInfo = prop;
+		this.clock = clock;
+		this.turnStrategy = createTurnStrategy(clock);
+		if(LatencyInjector.isEnabled(prop)){
+			this.latencyInjector = new LatencyInjector(prop, clock);
+		}
+	}
+	/**
+	 * @param clock
+	 * @return TurnStrategy selected by turnMode
+	 */
+	private TurnStrategy createTurnStrategy(Clock clock){
+		if(portInfo.getTurnMode().equals("spin")){
+			return new SpinTurnStrategy(clock, portInfo);
+		}
+		if(portInfo.getTurnMode().equals("pid")){
+			return new PidTurnStrategy(clock, portInfo);
+		}
+		return new PivotTurnStrategy(clock);
 	}
 	/**
 	 * Sets EV3 to null
@@ -73,66 +108,259 @@ public class RemoteEV3Platform implements EV3AgentPlatform{
 	 */
 	public void setUpEV3() throws RemoteException, MalformedURLException, NotBoundException {
 		ev3 = new RemoteEV3(portInfo.getIPAddress());
+		if(supervisor != null){
+			supervisor.shutdown();
+		}
+		if(portInfo.getSupervisor()){
+			supervisor = new ConnectionSupervisor(new ConnectionSupervisor.Link(){
+				public void heartbeat(){
+					ev3.getName();
+				}
+				public void reconnect() throws Exception {
+					ev3 = new RemoteEV3(portInfo.getIPAddress());
+					portManager.retryFailed();
+				}
+				public Object reopen(Device device) throws RemoteException {
+					DifferentialDrive wheels = drive;
+					if(wheels != null && (device == Device.LEFT_WHEEL || device == Device.RIGHT_WHEEL)){
+						wheels.reset();
+					}
+					return injectLatency(device, openPort(device));
+				}
+			}, portInfo);
+			supervisor.start();
+		}
+	}
+	/**
+	 * @return ConnectionSupervisor watching the link, null if supervisor is off or not connected
+	 */
+	public ConnectionSupervisor getConnectionSupervisor(){
+		return supervisor;
 	}
 	/**
-	 * Connects with EV3 ports
+	 * Connects with EV3 ports, opening them in parallel in the background 
+	 * unless lazyPorts is set, in which case each opens on first use
 	 * @throws RemoteException 
 	 */
 	public void setUpPorts() {
-		rightWheel = ev3.createRegulatedMotor(portInfo.getRightWheelPort(), portInfo.getRightWheelSize()); 
-		shooterAngle = ev3.createRegulatedMotor(portInfo.getShooterAnglePort(), portInfo.getShooterAngleSize()); 
-		shooter = ev3.createRegulatedMotor(portInfo.getShooterPort(), portInfo.getShooterSize()); 
-		leftWheel = ev3.createRegulatedMotor(portInfo.getLeftWheelPort(), portInfo.getLeftWheelSize());
-		gyroSampleProvider = ev3.createSampleProvider(("S" + portInfo.getGyroSensorPort()), "lejos.hardware.sensor.EV3GyroSensor", "Angle");
-		ultrasonicSampleProvider = ev3.createSampleProvider(("S" + portInfo.getUltrasonicSensorPort()), "lejos.hardware.sensor.EV3UltrasonicSensor", "Distance");
-		touchSampleProvider = ev3.createSampleProvider(("S" + portInfo.getTouchSensorPort()), "lejos.hardware.sensor.EV3TouchSensor", "Touch");
+		portManager = new PortManager(new PortManager.Opener(){
+			public Object open(Device device) throws RemoteException {
+				return openDevice(device);
+			}
+		}, portInfo.getPortOpenThreads());
+		if(!portInfo.getLazyPorts()){
+			portManager.openAll();
+		}
+		if(portInfo.getSensorSampleRate() > 0){
+			sensorSampler = new SensorSampler(portInfo.getSensorSampleRate(), portInfo.getRmiTimeoutMillis());
+			for(Sensor sensor : Sensor.values()){
+				sensorSampler.addSensor(sensor, portSource(Device.of(sensor)));
+			}
+			sensorSampler.start();
+		}
 	}
 	/**
-	 * Moves shooter arm to starting position
+	 * Opens a port, through the supervisor when there is one so that the open 
+	 * and every later call on the port are timed
+	 * @param device
+	 * @return RMIRegulatedMotor or RMISampleProvider
 	 * @throws RemoteException
 	 */
-	public void setUpShooter() throws RemoteException{
-		shooter.setSpeed(30);
-		shooter.rotate(portInfo.getShooterSetUp());
+	private Object openDevice(final Device device) throws RemoteException {
+		ConnectionSupervisor watcher = supervisor;
+		if(watcher == null){
+			return injectLatency(device, openPort(device));
+		}
+		Object port = watcher.call("Open " + device.getLabel(), new Callable<Object>(){
+			public Object call() throws RemoteException {
+				return openPort(device);
+			}
+		});
+		return watcher.guard(device, injectLatency(device, port));
 	}
 	/**
-	 * Attempts to close ports
+	 * @param device
+	 * @param port
+	 * @return port counting its RMI calls, wrapped by the latency injector when injection is configured,
+	 * recording a span for each call within a trace
 	 */
-	public void closePorts(){
-		try{
-			rightWheel.close();
-		} catch(RemoteException e){
-			logger.error("Could not close Right Wheel Port " + e.getMessage());
+	private Object injectLatency(Device device, Object port){
+		Object counted = metrics.count(port);
+		return Tracer.trace(device, latencyInjector == null ? counted : latencyInjector.wrap(device, counted));
+	}
+	/**
+	 * @param metrics Metrics the RMI calls and control loop iterations are counted in
+	 */
+	public void setMetrics(Metrics metrics){
+		this.metrics = metrics;
+	}
+	/**
+	 * @return LatencyInjector delaying calls on the ports, null when no injection is configured
+	 */
+	public LatencyInjector getLatencyInjector(){
+		return latencyInjector;
+	}
+	/**
+	 * Opens one port over RMI
+	 * @param device
+	 * @return RMIRegulatedMotor or RMISampleProvider
+	 * @throws RemoteException
+	 */
+	protected Object openPort(Device device) throws RemoteException {
+		RemoteEV3 brick = ev3;
+		switch(device){
+			case RIGHT_WHEEL:
+				return brick.createRegulatedMotor(portInfo.getRightWheelPort(), portInfo.getRightWheelSize());
+			case SHOOTER_ANGLE:
+				return brick.createRegulatedMotor(portInfo.getShooterAnglePort(), portInfo.getShooterAngleSize());
+			case SHOOTER:
+				return brick.createRegulatedMotor(portInfo.getShooterPort(), portInfo.getShooterSize());
+			case LEFT_WHEEL:
+				return brick.createRegulatedMotor(portInfo.getLeftWheelPort(), portInfo.getLeftWheelSize());
+			case GYRO:
+				return brick.createSampleProvider(("S" + portInfo.getGyroSensorPort()), "lejos.hardware.sensor.EV3GyroSensor", "Angle");
+			case ULTRASONIC:
+				return brick.createSampleProvider(("S" + portInfo.getUltrasonicSensorPort()), "lejos.hardware.sensor.EV3UltrasonicSensor", "Distance");
+			default:
+				return brick.createSampleProvider(("S" + portInfo.getTouchSensorPort()), "lejos.hardware.sensor.EV3TouchSensor", "Touch");
 		}
-		try{
-			shooterAngle.close();
-		} catch(RemoteException e){
-			logger.error("Could not close Shooter Angle Port " + e.getMessage());
+	}
+	private RMIRegulatedMotor shooter() throws RemoteException {
+		return portManager.motor(Device.SHOOTER);
+	}
+	private RMIRegulatedMotor shooterAngle() throws RemoteException {
+		return portManager.motor(Device.SHOOTER_ANGLE);
+	}
+	/**
+	 * @return DifferentialDrive over both wheels, opening them together on first use
+	 * @throws RemoteException
+	 */
+	private synchronized DifferentialDrive drive() throws RemoteException {
+		if(drive == null){
+			portManager.open(Device.LEFT_WHEEL, Device.RIGHT_WHEEL);
+			drive = createDrive(portManager.motor(Device.LEFT_WHEEL), portManager.motor(Device.RIGHT_WHEEL));
 		}
-		try{
-			shooter.close();
-		} catch(RemoteException e){
-			logger.error("Could not close Shooter Port " + e.getMessage());
+		return drive;
+	}
+	/**
+	 * @param leftWheel
+	 * @param rightWheel
+	 * @return DifferentialDrive commanding both wheels in parallel
+	 */
+	protected DifferentialDrive createDrive(RMIRegulatedMotor leftWheel, RMIRegulatedMotor rightWheel){
+		return new DifferentialDrive(leftWheel, rightWheel);
+	}
+	/**
+	 * @param device
+	 * @return SampleSource that opens the sensor's port on its first fetch
+	 */
+	private SampleSource portSource(final Device device){
+		return new SampleSource(){
+			public float fetch() throws RemoteException {
+				return portManager.sampleProvider(device).fetchSample()[0];
+			}
+		};
+	}
+	/**
+	 * @return String with how long each port took to open, null before the ports are set up
+	 */
+	public String getStartupReport(){
+		PortManager ports = portManager;
+		return ports == null ? null : ports.describe();
+	}
+	/**
+	 * Starts opening the ports a coming command uses in the background, so 
+	 * it does not wait on them when it starts. Ports already open are skipped.
+	 * @param devices
+	 */
+	public void prepare(Device... devices){
+		PortManager ports = portManager;
+		if(ports == null || devices.length == 0){
+			return;
 		}
 		try{
-			leftWheel.close();
-		} catch(RemoteException e){
-			logger.error("Could not close Left Wheel Port " + e.getMessage());
+			ports.open(devices);
+		} catch(RejectedExecutionException e){
+			//closed by a "quit" in the meantime, the command reconnects when it runs
+			logger.info("Could not prepare the ports " + e.getMessage());
 		}
-		try{
-			gyroSampleProvider.close();
-		} catch (RemoteException e){
-			logger.error("Could not close Gyro Sensor Port " + e.getMessage());
+	}
+	/**
+	 * Stops the sensor sampler before its sample providers are closed
+	 */
+	private void stopSampler(){
+		if(sensorSampler != null){
+			sensorSampler.stop();
+			sensorSampler = null;
 		}
-		try{
-			touchSampleProvider.close();
-		} catch (RemoteException e){
-			logger.error("Could not close Touch Sensor Port " + e.getMessage());
+	}
+	/**
+	 * @return SensorSampler polling the sensors, null if sensorSampleRate is 0
+	 */
+	public SensorSampler getSensorSampler(){
+		return sensorSampler;
+	}
+	/**
+	 * Reads from the sensor sampler's buffer when it is running, otherwise 
+	 * fetches straight from the EV3
+	 * @param sensor
+	 * @return SampleSource for one control loop
+	 */
+	private SampleSource source(Sensor sensor) throws RemoteException {
+		SensorSampler sampler = sensorSampler;
+		if(sampler != null){
+			return sampler.reader(sensor);
 		}
-		try{
-			ultrasonicSampleProvider.close();
-		} catch (RemoteException e){
-			logger.error("Could not close Ultrasonic Sensor Port " + e.getMessage());
+		return new RMISampleSource(portManager.sampleProvider(Device.of(sensor)));
+	}
+	/**
+	 * @param source
+	 * @return SampleSource counting each fetch as an iteration of a move or manual control loop
+	 */
+	private SampleSource loopSource(final SampleSource source){
+		return new SampleSource(){
+			public float fetch() throws RemoteException {
+				metrics.countLoopIterations(1);
+				return source.fetch();
+			}
+		};
+	}
+	/**
+	 * Starts moving the shooter arm to its starting position in the background,
+	 * shoot waits for it to finish
+	 * @throws RemoteException
+	 */
+	public void setUpShooter() throws RemoteException{
+		//queued ahead of the homing so it never waits on a port behind itself
+		portManager.open(Device.SHOOTER);
+		shooterHoming = portManager.background("Shooter homing", new Callable<Void>(){
+			public Void call() throws RemoteException {
+				RMIRegulatedMotor shooter = shooter();
+				shooter.setSpeed(30);
+				shooter.rotate(portInfo.getShooterSetUp());
+				return null;
+			}
+		});
+	}
+	/**
+	 * Attempts to close ports
+	 */
+	public void closePorts(){
+		stopSampler();
+		closeObstacleGuard();
+		closeDrive();
+		if(portManager != null){
+			portManager.close();
+		}
+		if(supervisor != null){
+			supervisor.shutdown();
+			supervisor = null;
+		}
+	}
+	private synchronized void closeDrive(){
+		if(drive != null){
+			drive.close();
+			drive = null;
 		}
 	}
 	/**
@@ -140,6 +368,10 @@ public class RemoteEV3Platform implements EV3AgentPlatform{
 	 * @throws RemoteException
 	 */
 	public void shoot() throws RemoteException{
+		if(shooterHoming != null){
+			portManager.await(shooterHoming);
+		}
+		RMIRegulatedMotor shooter = shooter();
 		shooter.setSpeed(75);
 		shooter.rotate(portInfo.getShooterWindUp());
 		shooter.setSpeed(1250);
@@ -148,14 +380,37 @@ public class RemoteEV3Platform implements EV3AgentPlatform{
 		shooter.rotate(Math.abs(portInfo.getShooterThrow())-Math.abs(portInfo.getShooterWindUp()));
 	}
 	/**
-	 * Stops all motors
-	 * @throws RemoteException
+	 * Stops all motors that have been opened, trying every motor even if 
+	 * one of them does not answer
+	 * @throws RemoteException the first failure, after every motor was tried
 	 */
 	public void stop() throws RemoteException{
-		rightWheel.stop(true);
-		leftWheel.stop(true);
-		shooterAngle.stop(true);
-		shooter.stop(true);
+		RemoteException failure = null;
+		DifferentialDrive wheels = drive;
+		if(wheels != null){
+			try{
+				wheels.stop();
+			} catch(RemoteException e){
+				failure = e;
+			}
+		}
+		if(portManager.isOpen(Device.SHOOTER_ANGLE)){
+			try{
+				shooterAngle().stop(true);
+			} catch(RemoteException e){
+				failure = failure == null ? e : failure;
+			}
+		}
+		if(portManager.isOpen(Device.SHOOTER)){
+			try{
+				shooter().stop(true);
+			} catch(RemoteException e){
+				failure = failure == null ? e : failure;
+			}
+		}
+		if(failure != null){
+			throw failure;
+		}
 	}
 	/**
 	 * Closes motors and sensors
@@ -164,13 +419,7 @@ public class RemoteEV3Platform implements EV3AgentPlatform{
 	 */
 	public void resetMotorsSensors(int bAngleCurrent) throws RemoteException{
 		bAngleCurrent = changeShooterAngle(-bAngleCurrent, bAngleCurrent);
-		rightWheel.close();
-		shooterAngle.close();
-		shooter.close();
-		leftWheel.close();
-		gyroSampleProvider.close();
-		touchSampleProvider.close();
-		ultrasonicSampleProvider.close();
+		closePorts();
 	}
 	/**
 	 * @return double Battery Voltage
@@ -186,60 +435,51 @@ public class RemoteEV3Platform implements EV3AgentPlatform{
 	 * @throws RemoteException
 	 */
 	public int changeShooterAngle(int inputAngle, int bAngleCurrent) throws RemoteException{
+		RMIRegulatedMotor shooterAngle = shooterAngle();
 		shooterAngle.setSpeed(20);
 		shooterAngle.rotate(inputAngle);
 		bAngleCurrent += inputAngle;
 		return bAngleCurrent;
 	}
 	/**
-	 * Determines which wheel to rotate
-	 * Rotates wheel until sample provider indicates robot has turned desired amount
+	 * Turns the robot using the strategy selected by turnMode
 	 * @param endAngle
+	 * @param token
+	 * @return TurnResult how the turn went
 	 * @throws RemoteException
 	 */
-	public void turn(int endAngle) throws RemoteException{
-		boolean complete = false;
-		float[] samples = gyroSampleProvider.fetchSample();
-		int start = (int)samples[0];
-		int end = start + endAngle;
-		final double errorMargin = 0.1;
-		if(endAngle > 0){
-			leftWheel.stop(true);
-			rightWheel.setSpeed(110);
-			while(!complete){
-				rightWheel.forward();
-				samples = gyroSampleProvider.fetchSample();
-				if(Math.abs(samples[0] - end) <= errorMargin || samples[0] > end){
-					complete = true;
-				}
-			}
-			rightWheel.stop(true);
+	public TurnResult turn(int endAngle, CancellationToken token) throws RemoteException{
+		TurnResult result = turnStrategy.turn(drive(), source(Sensor.GYRO), endAngle, token);
+		lastTurnResult = result;
+		metrics.countLoopIterations(result.getIterations());
+		if(result.isTimedOut()){
+			logger.warn(result.toString());
 		}
 		else{
-			rightWheel.stop(true);
-			leftWheel.setSpeed(110);
-			while(!complete){
-				leftWheel.forward();
-				samples = gyroSampleProvider.fetchSample();
-				if(Math.abs(samples[0] - end) <= errorMargin || samples[0] < end){
-					complete = true;
-				}
-			}
-			leftWheel.stop(true);
+			logger.info(result.toString());
 		}
+		return result;
+	}
+	/**
+	 * @return TurnResult of the most recent turn, null before the first turn
+	 */
+	public TurnResult getLastTurnResult(){
+		return lastTurnResult;
 	}
 	/**
 	 * Waits for button to be manually pressed
-	 * Calls shoot method when pressed
+	 * Calls shoot method when pressed, gives up if the token is cancelled
+	 * @param token
 	 * @throws RemoteException
 	 */
-	public void touchSensor() throws RemoteException{
+	public void touchSensor(CancellationToken token) throws RemoteException{
 		boolean complete = false;
-		float[] samples = touchSampleProvider.fetchSample();
+		SampleSource touch = loopSource(source(Sensor.TOUCH));
+		float sample;
 		final int PRESSED = 1;
-		while(!complete){
-			samples = touchSampleProvider.fetchSample();
-			if(samples[0] == PRESSED){
+		while(!complete && !token.isCancelled()){
+			sample = touch.fetch();
+			if(sample == PRESSED){
 				complete = true;
 				shoot();
 			}
@@ -250,46 +490,54 @@ public class RemoteEV3Platform implements EV3AgentPlatform{
 	 * @throws RemoteException
 	 */
 	public void moveForward() throws RemoteException{
-		rightWheel.forward();
-		leftWheel.forward();
+		drive().forward();
 	}
 	/**
 	 * Commands robot to move backward
 	 * @throws RemoteException
 	 */
 	public void moveBackward() throws RemoteException{
-		rightWheel.backward();
-		leftWheel.backward();
+		drive().backward();
 	}
 	/**
-	 * Determines and rotates appropriate motor until Ultrasonic Sensor 
-	 * reports that the robot has moved desired amount.
+	 * Moves by wheel rotation when moveMode is tacho. Otherwise determines and 
+	 * rotates appropriate motor until Ultrasonic Sensor reports that the robot 
+	 * has moved desired amount or the token is cancelled, falling back to wheel 
+	 * rotation when there is nothing in front of the sensor.
 	 * @param distanceToMove
 	 * @param bAngleCurrent
+	 * @param token
+	 * @return boolean value representing whether the move went the whole distance, 
+	 * false when the obstacle guard stopped a tacho move
 	 * @throws RemoteException
 	 */
-	public boolean move(int distanceToMove, int bAngleCurrent) throws RemoteException{
+	public boolean move(int distanceToMove, int bAngleCurrent, CancellationToken token) throws RemoteException{
 		bAngleCurrent = changeShooterAngle(-bAngleCurrent, bAngleCurrent);
+		if(portInfo.getMoveMode().equals("tacho")){
+			return moveByRotation(distanceToMove, token);
+		}
 		boolean complete = false;
 		final int errorMargin = 1;
-		float[] samples = ultrasonicSampleProvider.fetchSample();
-		if(100*samples[0] == Double.POSITIVE_INFINITY){
-			return false;
+		SampleSource ultrasonic = loopSource(source(Sensor.ULTRASONIC));
+		float sample = ultrasonic.fetch();
+		if(100*sample == Double.POSITIVE_INFINITY){
+			logger.info("Starting distance was not determinable, moving by wheel rotation");
+			return moveByRotation(distanceToMove, token);
 		}
-		int startDistance = (int)(100*samples[0]); //conversion from meters to centimeters
+		int startDistance = (int)(100*sample); //conversion from meters to centimeters
 		int end = startDistance - distanceToMove;
 		if(end < portInfo.getMinDistToUltrasonic()){
 			end = portInfo.getMinDistToUltrasonic();
 		}
 		if(distanceToMove > 0){				
 			moveForward();
-			while(!complete){
-				samples = ultrasonicSampleProvider.fetchSample();
-				if(100*samples[0] == Double.POSITIVE_INFINITY){
+			while(!complete && !token.isCancelled()){
+				sample = ultrasonic.fetch();
+				if(100*sample == Double.POSITIVE_INFINITY){
 					stop();
 					return true;
 				}
-				if(Math.abs((int)(100*samples[0]) - end) <= errorMargin || (int)(100*samples[0]) < end){
+				if(Math.abs((int)(100*sample) - end) <= errorMargin || (int)(100*sample) < end){
 					complete = true;
 				}
 			}
@@ -297,13 +545,13 @@ public class RemoteEV3Platform implements EV3AgentPlatform{
 		}
 		else{	
 			moveBackward();
-			while(!complete){
-				samples = ultrasonicSampleProvider.fetchSample();
-				if(100*samples[0] == Double.POSITIVE_INFINITY){
+			while(!complete && !token.isCancelled()){
+				sample = ultrasonic.fetch();
+				if(100*sample == Double.POSITIVE_INFINITY){
 					stop();
 					return true;
 				}
-				if(Math.abs((int)100*samples[0] - end) <= errorMargin || ((int)100*samples[0] > end)){
+				if(Math.abs((int)100*sample - end) <= errorMargin || ((int)100*sample > end)){
 					complete = true;
 				}
 			}
@@ -311,4 +559,135 @@ public class RemoteEV3Platform implements EV3AgentPlatform{
 		}
 		return true;
 	}
+	/**
+	 * Converts the distance to wheel degrees and rotates both wheels with a 
+	 * single non-blocking rotate each. While moving forward the Ultrasonic 
+	 * Sensor is checked on another thread and the wheels are stopped if an 
+	 * object gets within obstacleStopDist or the sensor cannot be read.
+	 * @param distanceToMove Centimeters, negative moves backward
+	 * @param token
+	 * @return boolean value representing whether the move went the whole distance
+	 * @throws RemoteException
+	 */
+	private boolean moveByRotation(int distanceToMove, CancellationToken token) throws RemoteException{
+		int degrees = (int)Math.round(distanceToMove / (Math.PI * portInfo.getWheelDiameter()) * 360);
+		DifferentialDrive drive = drive();
+		drive.setSpeed(portInfo.getMoveSpeed());
+		drive.rotate(degrees);
+		ObstacleGuard guard = null;
+		Future<?> guarding = null;
+		if(distanceToMove > 0){
+			guard = new ObstacleGuard(drive, source(Sensor.ULTRASONIC));
+			guarding = obstacleGuard().submit(guard);
+		}
+		try{
+			if(!token.isCancelled()){
+				drive.waitComplete();
+			}
+		} finally{
+			if(guard != null){
+				guard.finish();
+				guarding.cancel(true);
+			}
+		}
+		if(token.isCancelled()){
+			stop();
+		}
+		if(guard == null){
+			return true;
+		}
+		if(guard.failure != null){
+			throw new RemoteException("Stopped moving " + distanceToMove 
+					+ " because the Ultrasonic Sensor could not be read", guard.failure);
+		}
+		if(guard.blocked){
+			logger.warn("Stopped moving " + distanceToMove + " because of an object in front of the robot");
+			return false;
+		}
+		return true;
+	}
+	private synchronized ExecutorService obstacleGuard(){
+		if(obstacleGuard == null){
+			obstacleGuard = Executors.newSingleThreadExecutor(new ThreadFactory(){
+				public Thread newThread(Runnable r){
+					Thread thread = new Thread(r, "ev3-obstacle-guard");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return obstacleGuard;
+	}
+	private synchronized void closeObstacleGuard(){
+		if(obstacleGuard != null){
+			obstacleGuard.shutdownNow();
+			obstacleGuard = null;
+		}
+	}
+	
+	/**
+	 * Reads the Ultrasonic Sensor every obstacleCheckMillis on the platform's 
+	 * clock during a forward tacho move, and stops the wheels once an object 
+	 * is within obstacleStopDist or the sensor cannot be read
+	 */
+	private class ObstacleGuard implements Runnable {
+		private final DifferentialDrive drive;
+		private final SampleSource ultrasonic;
+		private boolean finished;
+		private volatile boolean blocked;
+		private volatile RemoteException failure;
+		
+		ObstacleGuard(DifferentialDrive drive, SampleSource ultrasonic){
+			this.drive = drive;
+			this.ultrasonic = ultrasonic;
+		}
+		public void run(){
+			try{
+				while(!isFinished()){
+					clock.sleep(portInfo.getObstacleCheckMillis());
+					float distance;
+					try{
+						distance = 100 * ultrasonic.fetch();
+					} catch(RemoteException e){
+						if(stopWheels()){
+							failure = e;
+							logger.error("Could not check for obstacles, stopped the wheels " + e.getMessage());
+						}
+						return;
+					}
+					if(distance <= portInfo.getObstacleStopDist() && stopWheels()){
+						blocked = true;
+						return;
+					}
+				}
+			} catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+			}
+		}
+		/**
+		 * Stops the wheels unless the move has already ended
+		 * @return boolean value representing whether the wheels were stopped
+		 */
+		private synchronized boolean stopWheels(){
+			if(finished){
+				return false;
+			}
+			try{
+				drive.stop();
+			} catch(RemoteException e){
+				logger.error("Could not stop the wheels " + e.getMessage());
+			}
+			finished = true;
+			return true;
+		}
+		private synchronized boolean isFinished(){
+			return finished;
+		}
+		/**
+		 * Ends the guard, after which it no longer stops the wheels
+		 */
+		synchronized void finish(){
+			finished = true;
+		}
+	}
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed size ring of timestamped sensor values with a single writer and
+ * any number of lock-free readers. The writer fills a slot and then
+ * publishes it by advancing the sequence; readers retry if the slot they
+ * read was overwritten while they were reading it.
+ */
+public class SampleRingBuffer {
+	
+	private final float[] values;
+	private final long[] timestamps;
+	private final int mask;
+	private final AtomicLong sequence = new AtomicLong(0);
+	
+	/**
+	 * Constructor
+	 * @param capacity Number of samples kept, rounded up to a power of two
+	 */
+	public SampleRingBuffer(int capacity){
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		values = new float[size];
+		timestamps = new long[size];
+		mask = size - 1;
+	}
+	/**
+	 * Adds a sample, must only be called from the sampling thread
+	 * @param value
+	 * @param timestampNanos System.nanoTime() when the sample was taken
+	 */
+	public void publish(float value, long timestampNanos){
+		long next = sequence.get();
+		int slot = (int)(next & mask);
+		values[slot] = value;
+		timestamps[slot] = timestampNanos;
+		sequence.set(next + 1);
+	}
+	/**
+	 * @return number of samples published so far
+	 */
+	public long getSequence(){
+		return sequence.get();
+	}
+	public int getCapacity(){
+		return values.length;
+	}
+	/**
+	 * @return most recent value, NaN if nothing has been published
+	 */
+	public float latestValue(){
+		while(true){
+			long published = sequence.get();
+			if(published == 0){
+				return Float.NaN;
+			}
+			float value = values[(int)((published - 1) & mask)];
+			if(sequence.get() - published < values.length - 1){
+				return value;
+			}
+		}
+	}
+	/**
+	 * @return System.nanoTime() of the most recent sample, 0 if nothing has been published
+	 */
+	public long latestTimestamp(){
+		while(true){
+			long published = sequence.get();
+			if(published == 0){
+				return 0;
+			}
+			long timestamp = timestamps[(int)((published - 1) & mask)];
+			if(sequence.get() - published < values.length - 1){
+				return timestamp;
+			}
+		}
+	}
+	/**
+	 * Copies up to values.length of the newest samples, oldest first
+	 * @param valuesOut
+	 * @param timestampsOut
+	 * @return number of samples copied
+	 */
+	public int copyRecent(float[] valuesOut, long[] timestampsOut){
+		while(true){
+			long published = sequence.get();
+			int count = (int)Math.min(published, Math.min(valuesOut.length, values.length - 1));
+			long first = published - count;
+			for(int i = 0; i < count; i++){
+				int slot = (int)((first + i) & mask);
+				valuesOut[i] = values[slot];
+				timestampsOut[i] = timestamps[slot];
+			}
+			if(sequence.get() - first < values.length){
+				return count;
+			}
+		}
+	}
+	/**
+	 * Parks until a sample newer than lastSequence is published
+	 * @param lastSequence Sequence the reader has already seen
+	 * @param timeoutNanos
+	 * @return current sequence, unchanged from lastSequence if the wait timed out
+	 */
+	public long awaitNewer(long lastSequence, long timeoutNanos){
+		long deadline = System.nanoTime() + timeoutNanos;
+		long current = sequence.get();
+		while(current <= lastSequence){
+			long remaining = deadline - System.nanoTime();
+			if(remaining <= 0 || Thread.currentThread().isInterrupted()){
+				break;
+			}
+			LockSupport.parkNanos(Math.min(remaining, TimeUnit.MICROSECONDS.toNanos(500)));
+			current = sequence.get();
+		}
+		return current;
+	}
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+/**
+ * Sensors attached to the EV3
+ */
+public enum Sensor {
+	GYRO("Gyro"),
+	ULTRASONIC("Ultrasonic"),
+	TOUCH("Touch");
+	
+	private final String label;
+	
+	private Sensor(String label){
+		this.label = label;
+	}
+	public String getLabel(){
+		return label;
+	}
+}
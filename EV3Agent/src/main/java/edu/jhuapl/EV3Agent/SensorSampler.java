@@ -0,0 +1,276 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.rmi.RemoteException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * Polls the EV3 sensors at a fixed rate on its own thread and publishes the
+ * samples into ring buffers. Control loops and queries read the buffers
+ * instead of making their own RMI calls. A control loop is never handed a 
+ * sample older than the longest an RMI fetch may take, so a stalled or 
+ * failing sampler ends the loop instead of steering it on old readings.
+ */
+public class SensorSampler {
+	
+	private static final org.slf4j.Logger logger = LoggerFactory.getLogger(SensorSampler.class);
+	private static final int BUFFER_SIZE = 64;
+	private static final long RATE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+	private final Map<Sensor, Channel> channels = new EnumMap<Sensor, Channel>(Sensor.class);
+	private final long periodNanos;
+	private final long maxAgeNanos;
+	private ScheduledExecutorService sampler;
+	
+	/**
+	 * Sensor being sampled along with its buffer and rate statistics
+	 */
+	private static class Channel {
+		private final SampleSource source;
+		private final SampleRingBuffer buffer = new SampleRingBuffer(BUFFER_SIZE);
+		private volatile double sampleRate;
+		private volatile long errors;
+		/** failure of the most recent fetch, null if it succeeded */
+		private volatile RemoteException lastError;
+		private long windowStartNanos;
+		private long windowStartSequence;
+		
+		Channel(SampleSource source){
+			this.source = source;
+		}
+	}
+	
+	/**
+	 * Constructor
+	 * @param sampleRate Samples per second for each sensor
+	 * @param fetchTimeoutMillis Longest one fetch from the EV3 may take, rmiTimeoutMillis
+	 */
+	public SensorSampler(int sampleRate, long fetchTimeoutMillis){
+		if(sampleRate <= 0){
+			throw new IllegalArgumentException("Invalid sample rate " + sampleRate);
+		}
+		this.periodNanos = TimeUnit.SECONDS.toNanos(1) / sampleRate;
+		this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(fetchTimeoutMillis) + 2 * periodNanos;
+	}
+	/**
+	 * Adds a sensor to be sampled, must be called before start
+	 * @param sensor
+	 * @param source Source that fetches the sample from the EV3
+	 */
+	public void addSensor(Sensor sensor, SampleSource source){
+		channels.put(sensor, new Channel(source));
+	}
+	/**
+	 * Starts the sampling thread
+	 */
+	public synchronized void start(){
+		if(sampler != null){
+			return;
+		}
+		sampler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory(){
+			public Thread newThread(Runnable r){
+				Thread thread = new Thread(r, "ev3-sensor-sampler");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		sampler.scheduleAtFixedRate(new Runnable(){
+			public void run(){
+				sampleAll();
+			}
+		}, 0, periodNanos, TimeUnit.NANOSECONDS);
+	}
+	/**
+	 * Stops the sampling thread and waits for the current round to finish
+	 */
+	public synchronized void stop(){
+		if(sampler == null){
+			return;
+		}
+		sampler.shutdownNow();
+		try{
+			sampler.awaitTermination(1, TimeUnit.SECONDS);
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+		sampler = null;
+	}
+	/**
+	 * Fetches one sample from every sensor
+	 */
+	private void sampleAll(){
+		for(Map.Entry<Sensor, Channel> entry : channels.entrySet()){
+			Channel channel = entry.getValue();
+			try{
+				float value = channel.source.fetch();
+				long now = System.nanoTime();
+				channel.buffer.publish(value, now);
+				channel.lastError = null;
+				updateRate(channel, now);
+			} catch(RemoteException e){
+				failed(entry.getKey(), channel, e);
+			} catch(RuntimeException e){
+				//leJOS wraps some RMI failures in a PortException, which must not end the sampling task
+				failed(entry.getKey(), channel, new RemoteException(e.toString(), e));
+			}
+		}
+	}
+	/**
+	 * Records a failed fetch, logging only the first failure of each sensor
+	 * @param sensor
+	 * @param channel
+	 * @param e
+	 */
+	private void failed(Sensor sensor, Channel channel, RemoteException e){
+		channel.lastError = e;
+		if(channel.errors++ == 0){
+			logger.error("Could not sample " + sensor.getLabel() + " Sensor " + e.getMessage());
+		}
+	}
+	private void updateRate(Channel channel, long now){
+		if(channel.windowStartNanos == 0){
+			channel.windowStartNanos = now;
+			channel.windowStartSequence = channel.buffer.getSequence();
+			return;
+		}
+		long elapsed = now - channel.windowStartNanos;
+		if(elapsed >= RATE_WINDOW_NANOS){
+			long samples = channel.buffer.getSequence() - channel.windowStartSequence;
+			channel.sampleRate = samples * 1e9 / elapsed;
+			channel.windowStartNanos = now;
+			channel.windowStartSequence = channel.buffer.getSequence();
+		}
+	}
+	public boolean hasSensor(Sensor sensor){
+		return channels.containsKey(sensor);
+	}
+	/**
+	 * @param sensor
+	 * @return buffer holding the sensor's samples
+	 */
+	public SampleRingBuffer getBuffer(Sensor sensor){
+		return channel(sensor).buffer;
+	}
+	/**
+	 * @param sensor
+	 * @return most recent value of the sensor, NaN if it has not been sampled yet
+	 */
+	public float getLatest(Sensor sensor){
+		return channel(sensor).buffer.latestValue();
+	}
+	/**
+	 * @param sensor
+	 * @return samples per second achieved over the last second
+	 */
+	public double getSampleRate(Sensor sensor){
+		return channel(sensor).sampleRate;
+	}
+	/**
+	 * @param sensor
+	 * @return milliseconds since the most recent sample, -1 if it has not been sampled yet
+	 */
+	public double getStalenessMillis(Sensor sensor){
+		long timestamp = channel(sensor).buffer.latestTimestamp();
+		if(timestamp == 0){
+			return -1;
+		}
+		return (System.nanoTime() - timestamp) / 1e6;
+	}
+	/**
+	 * @param sensor
+	 * @return number of failed fetches
+	 */
+	public long getErrorCount(Sensor sensor){
+		return channel(sensor).errors;
+	}
+	/**
+	 * Creates a source for one control loop that waits for a fresh sample on 
+	 * each fetch, so the loop runs at the sample rate without calling the EV3.
+	 * A fetch fails once no new sample has arrived within the fetch timeout 
+	 * plus two sample periods, or after two periods with ConnectionLostException 
+	 * if the sampler's own fetches are failing because the connection is down.
+	 * @param sensor
+	 * @return SampleSource reading from the sensor's buffer
+	 */
+	public SampleSource reader(final Sensor sensor){
+		final Channel channel = channel(sensor);
+		return new SampleSource(){
+			private long lastSequence = 0;
+			public float fetch() throws RemoteException {
+				long deadline = System.nanoTime() + maxAgeNanos;
+				long sequence;
+				while((sequence = channel.buffer.awaitNewer(lastSequence, 2 * periodNanos)) <= lastSequence){
+					if(channel.lastError instanceof ConnectionLostException || System.nanoTime() - deadline >= 0
+							|| Thread.currentThread().isInterrupted()){
+						throw stale(sensor, channel);
+					}
+				}
+				lastSequence = sequence;
+				return channel.buffer.latestValue();
+			}
+		};
+	}
+	/**
+	 * @param sensor
+	 * @param channel
+	 * @return RemoteException saying how old the sensor's latest sample is and why
+	 */
+	private RemoteException stale(Sensor sensor, Channel channel){
+		long timestamp = channel.buffer.latestTimestamp();
+		String message = timestamp == 0 
+				? "No samples received from the " + sensor.getLabel() + " Sensor" 
+				: "The latest " + sensor.getLabel() + " Sensor sample is " 
+						+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - timestamp) + " ms old";
+		RemoteException error = channel.lastError;
+		if(error == null){
+			return new RemoteException(message);
+		}
+		if(error instanceof ConnectionLostException){
+			return new ConnectionLostException(message + ", " + error.getMessage());
+		}
+		return new RemoteException(message, error);
+	}
+	/**
+	 * @return String describing the latest value, rate and staleness of each sensor
+	 */
+	public String describe(){
+		StringBuilder text = new StringBuilder();
+		for(Sensor sensor : channels.keySet()){
+			if(text.length() > 0){
+				text.append('\n');
+			}
+			text.append(sensor.getLabel()).append(": ").append(getLatest(sensor))
+				.append(String.format(" (%.1f samples/s, %.1f ms old)", getSampleRate(sensor), 
+						getStalenessMillis(sensor)));
+		}
+		return text.toString();
+	}
+	private Channel channel(Sensor sensor){
+		Channel channel = channels.get(sensor);
+		if(channel == null){
+			throw new IllegalArgumentException(sensor.getLabel() + " Sensor is not being sampled");
+		}
+		return channel;
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import lejos.remote.ev3.RMIRegulatedMotor;
+
+/**
+ * Runs the RemoteEV3Platform's control code against a SimulatedRobot 
+ * instead of a brick, on a VirtualClock that can run faster than real time. 
+ * Turns, moves and shots take as long in simulated time as they would over 
+ * a link with simLatencyMillis round trips, so they can be load-tested and 
+ * benchmarked without a robot.
+ */
+public class SimulatedEV3Platform extends RemoteEV3Platform {
+	
+	private final SimulatedRobot robot;
+	private volatile boolean connected;
+	
+	/**
+	 * Constructor
+	 * @param portInfo
+	 */
+	public SimulatedEV3Platform(PortInfo portInfo){
+		this(portInfo, new SimulatedRobot(portInfo));
+	}
+	private SimulatedEV3Platform(PortInfo portInfo, SimulatedRobot robot){
+		super(portInfo, robot.getClock());
+		this.robot = robot;
+	}
+	public SimulatedRobot getRobot(){
+		return robot;
+	}
+	@Override
+	public void ev3Null(){
+		connected = false;
+	}
+	@Override
+	public boolean ev3On(){
+		return connected;
+	}
+	/**
+	 * Connects to the simulated robot, there is no link to supervise
+	 */
+	@Override
+	public void setUpEV3(){
+		connected = true;
+	}
+	@Override
+	protected Object openPort(Device device){
+		return robot.open(device);
+	}
+	/**
+	 * Commands the wheels one after the other so that runs with the same 
+	 * seed repeat exactly
+	 */
+	@Override
+	protected DifferentialDrive createDrive(RMIRegulatedMotor leftWheel, RMIRegulatedMotor rightWheel){
+		return new DifferentialDrive(leftWheel, rightWheel, DifferentialDrive.SAME_THREAD);
+	}
+	/**
+	 * @return double Simulated battery voltage
+	 */
+	@Override
+	public double getBattery(){
+		return robot.getVoltage();
+	}
+}
@@ -0,0 +1,348 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import lejos.remote.ev3.RMIRegulatedMotor;
+import lejos.remote.ev3.RMISampleProvider;
+
+/**
+ * Differential-drive robot in a square arena for the SimulatedEV3Platform. 
+ * Motors accelerate toward their set speed, hold a rotate target with a 
+ * trapezoidal profile and slow down as the battery drains. The Gyro Sensor 
+ * reports the heading in whole degrees, the Ultrasonic Sensor the distance 
+ * to the wall in front and the Touch Sensor is pressed a fixed time after 
+ * something starts waiting on it. Noise comes from a seeded Random so runs 
+ * repeat exactly. Every call on a motor or sensor costs one simulated round 
+ * trip, half before the brick acts on it and half after.
+ */
+public class SimulatedRobot implements VirtualClock.Model {
+	
+	private static final long STEP_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+	private static final double MAX_ULTRASONIC_CM = 255;
+	private static final double FULL_VOLTAGE = 8.2;
+	private static final double EMPTY_VOLTAGE = 6.0;
+	private static final double VOLTS_PER_DEGREE = 2e-6;
+	private final VirtualClock clock;
+	private final long latencyNanos;
+	private final double wheelDiameter;
+	private final double trackWidth;
+	private final double arenaSize;
+	private final double gyroNoise;
+	private final double ultrasonicNoise;
+	private final long touchDelayNanos;
+	private final Random random;
+	private final Map<Device, Motor> motors = new EnumMap<Device, Motor>(Device.class);
+	private double x;
+	private double y;
+	private double heading;
+	private double voltage = FULL_VOLTAGE;
+	private long touchWaitNanos = -1;
+	private long rmiCalls;
+	
+	/**
+	 * Regulated motor state, positions and speeds in degrees
+	 */
+	private static class Motor {
+		private static final int STOPPED = 0;
+		private static final int ROTATING = 2;
+		private int speed = 360;
+		private int acceleration = 6000;
+		private int mode = STOPPED;
+		private double position;
+		private double velocity;
+		private double target;
+		private double tachoZero;
+		
+		void step(double seconds, double maxSpeed){
+			double limit = Math.min(speed, maxSpeed);
+			double desired;
+			if(mode == ROTATING){
+				double remaining = target - position;
+				desired = Math.signum(remaining) * Math.min(limit, Math.sqrt(2 * acceleration * Math.abs(remaining)));
+			}
+			else{
+				desired = mode * limit;
+			}
+			double change = acceleration * seconds;
+			if(Math.abs(desired - velocity) <= change){
+				velocity = desired;
+			}
+			else{
+				velocity += Math.signum(desired - velocity) * change;
+			}
+			double next = position + velocity * seconds;
+			if(mode == ROTATING && (Math.signum(target - next) != Math.signum(target - position) 
+					|| Math.abs(target - next) < 0.5)){
+				//reached the rotate target this step
+				next = target;
+				velocity = 0;
+				mode = STOPPED;
+			}
+			position = next;
+		}
+		boolean isMoving(){
+			return mode != STOPPED || velocity != 0;
+		}
+		int tachoCount(){
+			return (int)Math.round(position - tachoZero);
+		}
+	}
+	
+	/**
+	 * Constructor
+	 * @param portInfo Wheel geometry and sim settings
+	 */
+	public SimulatedRobot(PortInfo portInfo){
+		this.clock = new VirtualClock(this, portInfo.getSimSpeedup());
+		this.latencyNanos = TimeUnit.MILLISECONDS.toNanos(portInfo.getSimLatencyMillis());
+		this.wheelDiameter = portInfo.getWheelDiameter();
+		this.trackWidth = portInfo.getTrackWidth();
+		this.arenaSize = portInfo.getSimArenaSize();
+		this.gyroNoise = portInfo.getSimGyroNoise();
+		this.ultrasonicNoise = portInfo.getSimUltrasonicNoise();
+		this.touchDelayNanos = TimeUnit.MILLISECONDS.toNanos(portInfo.getSimTouchDelayMillis());
+		this.random = new Random(portInfo.getSimSeed());
+		motors.put(Device.RIGHT_WHEEL, new Motor());
+		motors.put(Device.SHOOTER_ANGLE, new Motor());
+		motors.put(Device.SHOOTER, new Motor());
+		motors.put(Device.LEFT_WHEEL, new Motor());
+	}
+	public VirtualClock getClock(){
+		return clock;
+	}
+	/**
+	 * Advances the motors, battery and pose, called by the clock
+	 * @param seconds
+	 */
+	public void step(double seconds){
+		double maxSpeed = maxSpeed();
+		for(Motor motor : motors.values()){
+			double before = motor.position;
+			motor.step(seconds, maxSpeed);
+			voltage = Math.max(EMPTY_VOLTAGE, voltage - Math.abs(motor.position - before) * VOLTS_PER_DEGREE);
+		}
+		double left = motors.get(Device.LEFT_WHEEL).velocity * Math.PI * wheelDiameter / 360;
+		double right = motors.get(Device.RIGHT_WHEEL).velocity * Math.PI * wheelDiameter / 360;
+		double speed = (left + right) / 2;
+		double radians = Math.toRadians(heading);
+		double half = arenaSize / 2;
+		x = Math.max(-half, Math.min(half, x + speed * Math.cos(radians) * seconds));
+		y = Math.max(-half, Math.min(half, y + speed * Math.sin(radians) * seconds));
+		heading += Math.toDegrees((right - left) / trackWidth) * seconds;
+	}
+	/**
+	 * @return degrees per second a motor can reach at the current voltage, as leJOS reports it
+	 */
+	private double maxSpeed(){
+		return voltage * 100;
+	}
+	/**
+	 * @return centimeters from the robot to the arena wall it is facing
+	 */
+	private double wallDistance(){
+		double radians = Math.toRadians(heading);
+		double half = arenaSize / 2;
+		double cos = Math.cos(radians);
+		double sin = Math.sin(radians);
+		double toX = cos > 1e-9 ? (half - x) / cos : cos < -1e-9 ? (-half - x) / cos : Double.POSITIVE_INFINITY;
+		double toY = sin > 1e-9 ? (half - y) / sin : sin < -1e-9 ? (-half - y) / sin : Double.POSITIVE_INFINITY;
+		return Math.min(toX, toY);
+	}
+	private float sense(Device device){
+		switch(device){
+			case GYRO:
+				return Math.round(heading + random.nextGaussian() * gyroNoise);
+			case ULTRASONIC:
+				double distance = wallDistance() + random.nextGaussian() * ultrasonicNoise;
+				if(distance > MAX_ULTRASONIC_CM){
+					return Float.POSITIVE_INFINITY;
+				}
+				return (float)(Math.max(0, distance) / 100);
+			default:
+				long now = clock.nanoTime();
+				if(touchWaitNanos < 0){
+					touchWaitNanos = now;
+				}
+				if(now - touchWaitNanos >= touchDelayNanos){
+					touchWaitNanos = -1;
+					return 1;
+				}
+				return 0;
+		}
+	}
+	/**
+	 * Opens a port, costing one round trip
+	 * @param device
+	 * @return RMIRegulatedMotor or RMISampleProvider backed by this robot
+	 */
+	public Object open(Device device){
+		clock.advance(latencyNanos);
+		if(motors.containsKey(device)){
+			return motor(motors.get(device));
+		}
+		return sampleProvider(device);
+	}
+	private RMIRegulatedMotor motor(final Motor motor){
+		return (RMIRegulatedMotor)Proxy.newProxyInstance(RMIRegulatedMotor.class.getClassLoader(),
+				new Class<?>[] {RMIRegulatedMotor.class}, new InvocationHandler(){
+			public Object invoke(Object proxy, Method method, Object[] args){
+				String name = method.getName();
+				clock.advance(latencyNanos / 2);
+				Object result;
+				synchronized(clock){
+					rmiCalls++;
+					result = command(motor, name, args);
+				}
+				boolean blocking = (name.equals("rotate") || name.equals("rotateTo")) 
+						&& (args.length == 1 || Boolean.FALSE.equals(args[1]));
+				if(blocking || name.equals("waitComplete")){
+					waitFor(motor);
+				}
+				clock.advance(latencyNanos - latencyNanos / 2);
+				return result;
+			}
+		});
+	}
+	private Object command(Motor motor, String name, Object[] args){
+		switch(name){
+			case "forward":
+				motor.mode = 1;
+				return null;
+			case "backward":
+				motor.mode = -1;
+				return null;
+			case "stop":
+			case "flt":
+				motor.mode = Motor.STOPPED;
+				return null;
+			case "rotate":
+				motor.target = motor.position + (Integer)args[0];
+				motor.mode = Motor.ROTATING;
+				return null;
+			case "rotateTo":
+				motor.target = motor.tachoZero + (Integer)args[0];
+				motor.mode = Motor.ROTATING;
+				return null;
+			case "setSpeed":
+				motor.speed = Math.abs((Integer)args[0]);
+				return null;
+			case "setAcceleration":
+				motor.acceleration = Math.abs((Integer)args[0]);
+				return null;
+			case "resetTachoCount":
+				motor.tachoZero = motor.position;
+				return null;
+			case "isMoving":
+				return motor.isMoving();
+			case "isStalled":
+				return false;
+			case "getSpeed":
+				return motor.speed;
+			case "getMaxSpeed":
+				return (float)maxSpeed();
+			case "getTachoCount":
+				return motor.tachoCount();
+			case "getRotationSpeed":
+				return (int)Math.round(motor.velocity);
+			case "getLimitAngle":
+				return (int)Math.round(motor.target - motor.tachoZero);
+			default:
+				return null;
+		}
+	}
+	/**
+	 * Lets simulated time pass until the motor has stopped, a stop from 
+	 * another thread ends the wait early
+	 * @param motor
+	 */
+	private void waitFor(Motor motor){
+		while(true){
+			synchronized(clock){
+				if(!motor.isMoving()){
+					return;
+				}
+			}
+			clock.advance(STEP_NANOS);
+		}
+	}
+	private RMISampleProvider sampleProvider(final Device device){
+		return (RMISampleProvider)Proxy.newProxyInstance(RMISampleProvider.class.getClassLoader(),
+				new Class<?>[] {RMISampleProvider.class}, new InvocationHandler(){
+			public Object invoke(Object proxy, Method method, Object[] args){
+				if(!method.getName().equals("fetchSample")){
+					return null;
+				}
+				clock.advance(latencyNanos / 2);
+				float sample;
+				synchronized(clock){
+					rmiCalls++;
+					sample = sense(device);
+				}
+				clock.advance(latencyNanos - latencyNanos / 2);
+				return new float[] {sample};
+			}
+		});
+	}
+	/**
+	 * @return centimeters from the starting point along the starting heading
+	 */
+	public double getX(){
+		synchronized(clock){
+			return x;
+		}
+	}
+	public double getY(){
+		synchronized(clock){
+			return y;
+		}
+	}
+	/**
+	 * @return degrees turned since the start, without sensor noise
+	 */
+	public double getHeading(){
+		synchronized(clock){
+			return heading;
+		}
+	}
+	public double getVoltage(){
+		synchronized(clock){
+			return voltage;
+		}
+	}
+	/**
+	 * @param device One of the motors
+	 * @return degrees the motor has turned since it was last reset
+	 */
+	public int getTachoCount(Device device){
+		synchronized(clock){
+			return motors.get(device).tachoCount();
+		}
+	}
+	public long getRmiCalls(){
+		synchronized(clock){
+			return rmiCalls;
+		}
+	}
+}
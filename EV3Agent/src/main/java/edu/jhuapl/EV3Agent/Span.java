@@ -0,0 +1,126 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Timed operation within a traced request. A span is made current on its 
+ * thread when it starts, so spans started below it become its children, 
+ * and must be ended on the same thread. Requests that are not sampled get 
+ * the no-op span, which records nothing.
+ */
+public class Span {
+
+	static final Span NOOP = new Span(null, "", 0, 0, 0, null);
+	private final Tracer tracer;
+	private final String name;
+	private final long traceId;
+	private final long spanId;
+	private final long parentId;
+	private final Span previous;
+	private final long threadId;
+	private final String threadName;
+	private final long startNanos;
+	private volatile long endNanos;
+	private Map<String, String> attributes;
+
+	Span(Tracer tracer, String name, long traceId, long spanId, long parentId, Span previous){
+		this.tracer = tracer;
+		this.name = name;
+		this.traceId = traceId;
+		this.spanId = spanId;
+		this.parentId = parentId;
+		this.previous = previous;
+		Thread thread = Thread.currentThread();
+		this.threadId = thread.getId();
+		this.threadName = thread.getName();
+		this.startNanos = System.nanoTime();
+	}
+	/**
+	 * @return boolean value representing whether the span is recorded
+	 */
+	public boolean isSampled(){
+		return tracer != null;
+	}
+	/**
+	 * @param key
+	 * @param value
+	 * @return this span
+	 */
+	public Span setAttribute(String key, Object value){
+		if(tracer != null){
+			if(attributes == null){
+				attributes = new LinkedHashMap<String, String>();
+			}
+			attributes.put(key, String.valueOf(value));
+		}
+		return this;
+	}
+	/**
+	 * Records the span and makes the span that was current when it started current again
+	 */
+	public void end(){
+		if(tracer == null || endNanos != 0){
+			return;
+		}
+		endNanos = System.nanoTime();
+		Tracer.exit(previous);
+		tracer.finished(this);
+	}
+	Tracer getTracer(){
+		return tracer;
+	}
+	public String getName(){
+		return name;
+	}
+	public long getTraceId(){
+		return traceId;
+	}
+	public long getSpanId(){
+		return spanId;
+	}
+	/**
+	 * @return id of the parent span, 0 for the root span of a trace
+	 */
+	public long getParentId(){
+		return parentId;
+	}
+	public long getThreadId(){
+		return threadId;
+	}
+	public String getThreadName(){
+		return threadName;
+	}
+	/**
+	 * @return System.nanoTime() when the span started
+	 */
+	public long getStartNanos(){
+		return startNanos;
+	}
+	/**
+	 * @return nanoseconds between start and end, 0 until the span ends
+	 */
+	public long getDurationNanos(){
+		return endNanos == 0 ? 0 : endNanos - startNanos;
+	}
+	public Map<String, String> getAttributes(){
+		return attributes == null ? Collections.<String, String>emptyMap() : attributes;
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.rmi.RemoteException;
+
+/**
+ * Turns in place by driving the wheels in opposite directions. Wheel speed 
+ * follows a trapezoidal profile: it ramps up at the configured acceleration, 
+ * cruises at the maximum speed and ramps down as the remaining gyro error 
+ * shrinks, so the robot arrives at the minimum speed instead of overshooting.
+ */
+public class SpinTurnStrategy implements TurnStrategy {
+	
+	private static final int SPEED_STEP = 5;
+	//the motor regulator ramps faster than the profile so it follows the profile closely
+	private static final int REGULATOR_ACCELERATION_FACTOR = 4;
+	private final Clock clock;
+	private final int maxSpeed;
+	private final int minSpeed;
+	private final int acceleration;
+	private final double tolerance;
+	private final double wheelDegreesPerHeadingDegree;
+	
+	/**
+	 * Constructor
+	 * @param clock
+	 * @param portInfo Source of the speed limits, acceleration, tolerance and robot geometry
+	 */
+	public SpinTurnStrategy(Clock clock, PortInfo portInfo){
+		this.clock = clock;
+		this.maxSpeed = portInfo.getTurnMaxSpeed();
+		this.minSpeed = Math.min(portInfo.getTurnMinSpeed(), maxSpeed);
+		this.acceleration = portInfo.getTurnAcceleration();
+		this.tolerance = portInfo.getTurnTolerance();
+		//spinning in place, each wheel travels trackWidth * PI per full turn of the robot
+		this.wheelDegreesPerHeadingDegree = portInfo.getTrackWidth() / portInfo.getWheelDiameter();
+	}
+	public TurnResult turn(DifferentialDrive drive, SampleSource gyro, int angle, 
+			CancellationToken token) throws RemoteException {
+		long startNanos = clock.nanoTime();
+		float start = gyro.fetch();
+		float heading = start;
+		float target = start + angle;
+		int direction = angle >= 0 ? 1 : -1;
+		int iterations = 0;
+		boolean complete = false;
+		int speed = minSpeed;
+		drive.setAcceleration(acceleration * REGULATOR_ACCELERATION_FACTOR);
+		drive.setSpeed(speed);
+		drive.spin(direction);
+		float lastHeading = start;
+		while(!token.isCancelled()){
+			heading = gyro.fetch();
+			long now = clock.nanoTime();
+			iterations++;
+			//the stop command lands after the gyro reading is already stale, so
+			//lead the target by half of the distance covered in the last loop
+			double travelled = (heading - lastHeading) * direction;
+			double remaining = (target - heading) * direction - 0.5 * Math.max(0, travelled);
+			lastHeading = heading;
+			if(remaining <= tolerance + brakingDistance(speed)){
+				complete = true;
+				break;
+			}
+			int nextSpeed = profileSpeed(remaining, (now - startNanos) / 1e9);
+			if(Math.abs(nextSpeed - speed) >= SPEED_STEP){
+				speed = nextSpeed;
+				drive.setSpeed(speed);
+			}
+		}
+		drive.stop();
+		return new TurnResult(angle, start, heading, clock.nanoTime() - startNanos, 
+				iterations, !complete);
+	}
+	/**
+	 * @param speed Wheel speed in degrees per second
+	 * @return degrees of heading the robot turns while the motors decelerate to a stop
+	 */
+	double brakingDistance(int speed){
+		double regulatorAcceleration = acceleration * REGULATOR_ACCELERATION_FACTOR;
+		return (double)speed * speed / (2.0 * regulatorAcceleration) / wheelDegreesPerHeadingDegree;
+	}
+	/**
+	 * Speed of each wheel in degrees per second
+	 * @param remaining Degrees of heading left to turn
+	 * @param elapsedSeconds Time since the turn started
+	 * @return int speed limited by the acceleration ramp, the deceleration 
+	 * needed to stop at the target and the maximum speed
+	 */
+	int profileSpeed(double remaining, double elapsedSeconds){
+		double accelerating = minSpeed + acceleration * elapsedSeconds;
+		//v^2 = 2 * a * d, with the wheel distance left being remaining * wheelDegreesPerHeadingDegree
+		double decelerating = Math.sqrt(2.0 * acceleration * remaining * wheelDegreesPerHeadingDegree);
+		double speed = Math.min(maxSpeed, Math.min(accelerating, decelerating));
+		return (int)Math.max(minSpeed, speed);
+	}
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import edu.jhuapl.dorset.Request;
+import edu.jhuapl.dorset.filters.RequestFilter;
+
+/**
+ * Request filter that writes spoken numbers as numerals, "turn negative one
+ * hundred and eighty" becoming "turn -180". The number words are compiled
+ * into a trie, and the ways they combine into a transition table, so the
+ * text is normalized in one pass: each word is recognized one character at
+ * a time, and moves the number being read to its next state or ends it.
+ * Covers cardinals up to nineteen hundred and ninety-nine and their
+ * negatives, with numerals allowed in place of words ("twenty 5",
+ * "negative 90"), "and" after hundred, and hyphens ("twenty-five").
+ */
+public class SpokenNumberFilter implements RequestFilter {
+
+	/** word classes */
+	private static final int ZERO = 0, ONES = 1, TEENS = 2, TENS = 3, HUNDRED = 4, AND = 5,
+			NEGATIVE = 6, NUMERAL = 7, OTHER = 8;
+	private static final int CLASSES = 9;
+	/** states of the number being read */
+	private static final int START = 0, SIGN = 1, ONE = 2, TEEN = 3, TEN = 4, TEN_ONE = 5,
+			HUNDREDS = 6, HUNDREDS_AND = 7, DONE = 8;
+	private static final int STATES = 9;
+	private static final int NONE = -1;
+	private static final int[][] NEXT = new int[STATES][CLASSES];
+	private static final boolean[] ACCEPTS = new boolean[STATES];
+
+	static {
+		for(int[] row : NEXT){
+			Arrays.fill(row, NONE);
+		}
+		transition(START, NEGATIVE, SIGN);
+		for(int state : new int[] {START, SIGN, HUNDREDS, HUNDREDS_AND}){
+			transition(state, ONES, ONE);
+			transition(state, TEENS, TEEN);
+			transition(state, TENS, TEN);
+		}
+		transition(START, ZERO, DONE);
+		transition(SIGN, ZERO, DONE);
+		transition(START, NUMERAL, DONE);
+		transition(SIGN, NUMERAL, DONE);
+		transition(TEN, ONES, TEN_ONE);
+		transition(HUNDREDS, AND, HUNDREDS_AND);
+		for(int state : new int[] {ONE, TEEN}){
+			transition(state, HUNDRED, HUNDREDS);
+		}
+		for(int state : new int[] {ONE, TEEN, TEN, TEN_ONE, HUNDREDS, DONE}){
+			ACCEPTS[state] = true;
+		}
+	}
+	private static void transition(int state, int wordClass, int next){
+		NEXT[state][wordClass] = next;
+	}
+
+	private static final String[] ONES_WORDS = new String[] {"one", "two", "three", "four", "five",
+		"six", "seven", "eight", "nine"};
+	private static final String[] TEENS_WORDS = new String[] {"ten", "eleven", "twelve", "thirteen",
+		"fourteen", "fifteen", "sixteen", "seventeen", "eighteen", "nineteen"};
+	private static final String[] TENS_WORDS = new String[] {"twenty", "thirty", "forty", "fifty",
+		"sixty", "seventy", "eighty", "ninety"};
+	/** trie of the number words, 26 letters per node */
+	private static final int[] LETTERS;
+	private static final int[] WORD_CLASS;
+	private static final int[] WORD_VALUE;
+
+	static {
+		Map<String, int[]> words = new TreeMap<String, int[]>();
+		words.put("zero", new int[] {ZERO, 0});
+		for(int i = 0; i < ONES_WORDS.length; i++){
+			words.put(ONES_WORDS[i], new int[] {ONES, i + 1});
+		}
+		for(int i = 0; i < TEENS_WORDS.length; i++){
+			words.put(TEENS_WORDS[i], new int[] {TEENS, i + 10});
+		}
+		for(int i = 0; i < TENS_WORDS.length; i++){
+			words.put(TENS_WORDS[i], new int[] {TENS, (i + 2) * 10});
+		}
+		words.put("hundred", new int[] {HUNDRED, 100});
+		words.put("and", new int[] {AND, 0});
+		words.put("negative", new int[] {NEGATIVE, -1});
+		words.put("minus", new int[] {NEGATIVE, -1});
+		List<int[]> transitions = new ArrayList<int[]>();
+		List<int[]> accepts = new ArrayList<int[]>();
+		for(Map.Entry<String, int[]> word : words.entrySet()){
+			int node = 0;
+			for(char c : word.getKey().toCharArray()){
+				if(node == transitions.size()){
+					transitions.add(newNode());
+					accepts.add(null);
+				}
+				if(transitions.get(node)[c - 'a'] == NONE){
+					transitions.get(node)[c - 'a'] = transitions.size();
+					transitions.add(newNode());
+					accepts.add(null);
+				}
+				node = transitions.get(node)[c - 'a'];
+			}
+			accepts.set(node, word.getValue());
+		}
+		LETTERS = new int[transitions.size() * 26];
+		WORD_CLASS = new int[transitions.size()];
+		WORD_VALUE = new int[transitions.size()];
+		for(int node = 0; node < transitions.size(); node++){
+			System.arraycopy(transitions.get(node), 0, LETTERS, node * 26, 26);
+			WORD_CLASS[node] = accepts.get(node) == null ? OTHER : accepts.get(node)[0];
+			WORD_VALUE[node] = accepts.get(node) == null ? 0 : accepts.get(node)[1];
+		}
+	}
+	private static int[] newNode(){
+		int[] node = new int[26];
+		Arrays.fill(node, NONE);
+		return node;
+	}
+
+	private final ThreadLocal<Reader> reader = new ThreadLocal<Reader>(){
+		@Override
+		protected Reader initialValue(){
+			return new Reader();
+		}
+	};
+
+	public Request filter(Request request){
+		String text = request.getText();
+		String normalized = normalize(text);
+		if(normalized != text){
+			request.setText(normalized);
+		}
+		return request;
+	}
+	/**
+	 * @param text
+	 * @return text with spoken numbers written as numerals, the same
+	 * instance if there were none
+	 */
+	public String normalize(String text){
+		Reader reader = null;
+		int i = 0;
+		int length = text.length();
+		while(i < length){
+			char c = text.charAt(i);
+			if(isSpace(c) || c == '-' && isLetter(text, i - 1) && isLetter(text, i + 1)){
+				i++;
+				continue;
+			}
+			int start = i;
+			int wordClass;
+			int value;
+			if(isDigit(text, i) || (c == '-' || c == '+') && isDigit(text, i + 1)){
+				long numeral = 0;
+				if(!isDigit(text, i)){
+					i++;
+				}
+				while(isDigit(text, i)){
+					numeral = Math.min(numeral * 10 + (text.charAt(i) - '0'), Integer.MAX_VALUE);
+					i++;
+				}
+				value = c == '-' ? (int)-numeral : (int)numeral;
+				wordClass = isWordEnd(text, i) ? numeralClass(text, start, value) : OTHER;
+			}
+			else{
+				int node = 0;
+				while(i < length && isLetter(text.charAt(i))){
+					node = node == NONE ? NONE : next(node, toLowerCase(text.charAt(i)));
+					i++;
+				}
+				if(i == start){
+					i++;
+				}
+				wordClass = node == NONE || !isWordEnd(text, i) ? OTHER : WORD_CLASS[node];
+				value = node == NONE ? 0 : WORD_VALUE[node];
+			}
+			if(reader == null && wordClass != OTHER){
+				reader = this.reader.get();
+				reader.reset(text);
+			}
+			if(reader != null){
+				reader.read(wordClass, value, start, i);
+			}
+		}
+		return reader == null ? text : reader.finish();
+	}
+	private static int next(int node, char c){
+		return c >= 'a' && c <= 'z' ? LETTERS[node * 26 + c - 'a'] : NONE;
+	}
+	/**
+	 * A numeral can stand in for the words with the same value, so "twenty 5" is read as 25
+	 */
+	private static int numeralClass(String text, int start, int value){
+		if(text.charAt(start) == '-' || text.charAt(start) == '+'){
+			return NUMERAL;
+		}
+		if(value == 0){
+			return ZERO;
+		}
+		if(value < 10){
+			return ONES;
+		}
+		if(value < 20){
+			return TEENS;
+		}
+		if(value < 100 && value % 10 == 0){
+			return TENS;
+		}
+		return NUMERAL;
+	}
+	private static boolean isLetter(String text, int i){
+		return i >= 0 && i < text.length() && isLetter(text.charAt(i));
+	}
+	private static boolean isLetter(char c){
+		return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c > 127 && Character.isLetter(c);
+	}
+	private static char toLowerCase(char c){
+		return c >= 'A' && c <= 'Z' ? (char)(c + 'a' - 'A') : c;
+	}
+	private static boolean isSpace(char c){
+		return c == ' ' || Character.isWhitespace(c);
+	}
+	private static boolean isDigit(String text, int i){
+		return i >= 0 && i < text.length() && text.charAt(i) >= '0' && text.charAt(i) <= '9';
+	}
+	/**
+	 * @param text
+	 * @param i
+	 * @return boolean value representing whether the word ending before i is followed by a separator
+	 */
+	private static boolean isWordEnd(String text, int i){
+		return i == text.length() || isSpace(text.charAt(i))
+				|| text.charAt(i) == '-' && isLetter(text, i + 1);
+	}
+
+	/**
+	 * Reads the words of one request through the transition table
+	 */
+	private static class Reader {
+		private final StringBuilder out = new StringBuilder();
+		private String text;
+		private boolean changed;
+		private int copied;
+		private int state = START;
+		private int spanStart;
+		private int acceptedEnd;
+		private int accepted;
+		private boolean rewrite;
+		private boolean acceptedRewrite;
+		private int sign;
+		private int hundreds;
+		private int units;
+
+		void reset(String text){
+			this.text = text;
+			out.setLength(0);
+			changed = false;
+			copied = 0;
+			state = START;
+			spanStart = 0;
+			acceptedEnd = 0;
+		}
+		void read(int wordClass, int value, int start, int end){
+			int next = NEXT[state][wordClass];
+			if(next == NONE && state != START){
+				end();
+				next = NEXT[START][wordClass];
+			}
+			if(next == NONE){
+				return;
+			}
+			if(state == START){
+				spanStart = start;
+				acceptedEnd = start;
+				rewrite = isLetter(text.charAt(start));
+				sign = 1;
+				hundreds = 0;
+				units = 0;
+			}
+			else{
+				rewrite = true;
+			}
+			switch(wordClass){
+				case NEGATIVE:
+					sign = -1;
+					break;
+				case HUNDRED:
+					hundreds = units * 100;
+					units = 0;
+					break;
+				case AND:
+					break;
+				default:
+					units += value;
+					break;
+			}
+			state = next;
+			if(ACCEPTS[state]){
+				acceptedEnd = end;
+				accepted = sign * (hundreds + units);
+				acceptedRewrite = rewrite;
+			}
+		}
+		/**
+		 * Writes the longest number read as a numeral, words after it are left as they were.
+		 * A lone numeral is already written as one and is left alone.
+		 */
+		private void end(){
+			if(acceptedEnd > spanStart && acceptedRewrite){
+				out.append(text, copied, spanStart).append(accepted);
+				changed = true;
+				copied = acceptedEnd;
+			}
+			acceptedEnd = spanStart;
+			state = START;
+		}
+		String finish(){
+			end();
+			if(!changed){
+				return text;
+			}
+			return out.append(text, copied, text.length()).toString();
+		}
+	}
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.LoggerFactory;
+
+import edu.jhuapl.dorset.Request;
+import edu.jhuapl.dorset.agents.AgentRequest;
+import edu.jhuapl.dorset.agents.AgentResponse;
+import edu.jhuapl.dorset.filters.RequestFilter;
+
+/**
+ * Runs a spoken command while it is still being spoken. Partial transcripts
+ * are accepted as the recognizer produces them. A command named in the
+ * earlyCommands property runs as soon as it is the whole partial, if no
+ * longer command name starts with it, instead of waiting for the end of
+ * the utterance. If later partials no longer begin with that command, it
+ * is retracted: motions are stopped, and the new first word is run instead
+ * if it is an early command too. Other commands run on the final transcript.
+ * One recognizer follows one utterance at a time.
+ */
+public class StreamingRecognizer {
+
+	private static final org.slf4j.Logger logger = LoggerFactory.getLogger(StreamingRecognizer.class);
+	/** early commands whose effect a "stop" ends; the other motions take an argument so never run early */
+	private static final Set<String> STOPPABLE = new HashSet<String>(Arrays.asList("forward", "backward"));
+
+	/**
+	 * What a partial transcript did
+	 */
+	public enum Event { NONE, COMMITTED, RETRACTED, AMENDED }
+
+	private final EV3Agent agent;
+	private final RequestFilter[] filters;
+	private final Set<String> earlyCommands;
+	private final ExecutorService executor;
+	private String partial = "";
+	private String committed;
+	private Future<AgentResponse> committedResponse;
+
+	/**
+	 * Constructor
+	 * @param agent Agent that runs the commands
+	 * @param filters Request filters applied to every transcript, in order
+	 */
+	public StreamingRecognizer(EV3Agent agent, RequestFilter... filters){
+		this.agent = agent;
+		this.filters = filters;
+		this.earlyCommands = earlyCommands(agent.getGrammar(), agent.getPortInfo().getEarlyCommands());
+		this.executor = Executors.newSingleThreadExecutor(new ThreadFactory(){
+			public Thread newThread(Runnable r){
+				Thread thread = new Thread(r, "ev3-streaming");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+	/**
+	 * @param grammar
+	 * @param names Comma separated command names
+	 * @return Names of the commands without an argument that no other command name extends
+	 */
+	private static Set<String> earlyCommands(CommandGrammar<?> grammar, String names){
+		Set<String> early = new HashSet<String>();
+		for(String name : names.split(",")){
+			name = name.trim().toLowerCase();
+			if(name.isEmpty()){
+				continue;
+			}
+			CommandGrammar.Command<?> command = grammar.get(name);
+			if(command == null || command.getArgument() != CommandGrammar.Argument.NONE){
+				throw new IllegalArgumentException("Invalid early command set to " + name);
+			}
+			boolean prefix = false;
+			for(CommandGrammar.Command<?> other : grammar.getCommands()){
+				prefix |= other.getName().length() > name.length() && other.getName().startsWith(name);
+			}
+			if(prefix){
+				logger.warn("Early command {} is the start of another command, it runs on the final transcript", 
+						name);
+				continue;
+			}
+			early.add(name);
+		}
+		return Collections.unmodifiableSet(early);
+	}
+	/**
+	 * @param transcript Partial transcript of the utterance so far, which may 
+	 * revise the words of earlier partials
+	 * @return Event what the partial did
+	 */
+	public synchronized Event accept(String transcript){
+		partial = transcript;
+		String text = filter(transcript);
+		String early = earlyCommands.contains(text.toLowerCase()) ? text.toLowerCase() : null;
+		if(committed == null){
+			if(early == null){
+				return Event.NONE;
+			}
+			commit(early);
+			return Event.COMMITTED;
+		}
+		if(firstWord(text).equalsIgnoreCase(committed)){
+			return Event.NONE;
+		}
+		retract();
+		if(early == null){
+			return Event.RETRACTED;
+		}
+		commit(early);
+		return Event.AMENDED;
+	}
+	/**
+	 * Appends a word to the partial transcript
+	 * @param token
+	 * @return Event what the word did
+	 */
+	public synchronized Event append(String token){
+		return accept(partial.isEmpty() ? token : partial + " " + token);
+	}
+	/**
+	 * Ends the utterance, running the final transcript unless it is the command already run
+	 * @param transcript Final transcript
+	 * @return Future response of the command the utterance ran
+	 */
+	public synchronized Future<AgentResponse> finish(String transcript){
+		String text = filter(transcript);
+		Future<AgentResponse> response;
+		if(committed != null && text.equalsIgnoreCase(committed)){
+			response = committedResponse;
+		}
+		else{
+			if(committed != null){
+				retract();
+			}
+			response = submit(text);
+		}
+		partial = "";
+		committed = null;
+		committedResponse = null;
+		return response;
+	}
+	/**
+	 * @return Future response of the command run early in this utterance, null if none
+	 */
+	public synchronized Future<AgentResponse> getCommitted(){
+		return committedResponse;
+	}
+	/**
+	 * Stops the thread commands run on
+	 */
+	public void close(){
+		executor.shutdown();
+	}
+	private void commit(String command){
+		logger.info("Running \"{}\" before the end of the utterance", command);
+		committed = command;
+		committedResponse = submit(command);
+	}
+	/**
+	 * Cancels the committed command if it has not started yet, then stops it 
+	 * if a stop ends its effect. The stop runs on the calling thread so that 
+	 * it is not queued behind the command, and the cancel keeps a command 
+	 * still waiting behind another from running after its stop.
+	 */
+	private void retract(){
+		committedResponse.cancel(false);
+		if(STOPPABLE.contains(committed)){
+			logger.info("Retracting \"{}\"", committed);
+			agent.process(new AgentRequest("stop"));
+		}
+		else{
+			logger.info("\"{}\" was contradicted, it cannot be undone if it already ran", committed);
+		}
+		committed = null;
+		committedResponse = null;
+	}
+	private Future<AgentResponse> submit(final String text){
+		return executor.submit(new Callable<AgentResponse>(){
+			public AgentResponse call(){
+				return agent.process(new AgentRequest(text));
+			}
+		});
+	}
+	private String filter(String transcript){
+		Request request = new Request(transcript);
+		for(RequestFilter filter : filters){
+			request = filter.filter(request);
+		}
+		return request.getText().trim();
+	}
+	private static String firstWord(String text){
+		int end = 0;
+		while(end < text.length() && !Character.isWhitespace(text.charAt(end))){
+			end++;
+		}
+		return text.substring(0, end);
+	}
+}
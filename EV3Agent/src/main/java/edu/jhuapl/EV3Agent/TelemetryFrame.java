@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+/**
+ * State of the robot at one point in time, as streamed to telemetry viewers.
+ * Values that are not known, like the sensors when sensor sampling is off,
+ * are NaN and sent as null.
+ */
+public class TelemetryFrame {
+
+	private final long sequence;
+	private final long timeMillis;
+	private final double heading;
+	private final double distance;
+	private final Boolean touch;
+	private final double battery;
+	private final int shooterAngle;
+	private final String command;
+	private final int queued;
+	private final String json;
+
+	/**
+	 * Constructor
+	 * @param sequence Number of the frame, increasing by one
+	 * @param timeMillis Wall clock time of the frame
+	 * @param heading Gyro angle in degrees
+	 * @param distance Ultrasonic distance in centimeters
+	 * @param touch State of the touch sensor, null when not known
+	 * @param battery Battery voltage
+	 * @param shooterAngle Angle of the shooter in degrees
+	 * @param command Motion command running, null when idle
+	 * @param queued Number of commands queued or running
+	 */
+	public TelemetryFrame(long sequence, long timeMillis, double heading, double distance, Boolean touch, 
+			double battery, int shooterAngle, String command, int queued){
+		this.sequence = sequence;
+		this.timeMillis = timeMillis;
+		this.heading = heading;
+		this.distance = distance;
+		this.touch = touch;
+		this.battery = battery;
+		this.shooterAngle = shooterAngle;
+		this.command = command;
+		this.queued = queued;
+		this.json = buildJson();
+	}
+	private String buildJson(){
+		StringBuilder out = new StringBuilder(160);
+		out.append("{\"seq\":").append(sequence)
+			.append(",\"time\":").append(timeMillis)
+			.append(",\"heading\":").append(number(heading))
+			.append(",\"distance\":").append(number(distance))
+			.append(",\"touch\":").append(touch)
+			.append(",\"battery\":").append(number(battery))
+			.append(",\"shooterAngle\":").append(shooterAngle)
+			.append(",\"command\":");
+		if(command == null){
+			out.append("null");
+		}
+		else{
+			out.append('"');
+			for(int i = 0; i < command.length(); i++){
+				char c = command.charAt(i);
+				if(c == '"' || c == '\\'){
+					out.append('\\');
+				}
+				out.append(c < 0x20 ? ' ' : c);
+			}
+			out.append('"');
+		}
+		out.append(",\"queued\":").append(queued).append('}');
+		return out.toString();
+	}
+	private static String number(double value){
+		if(Double.isNaN(value) || Double.isInfinite(value)){
+			return "null";
+		}
+		return Double.toString(Math.round(value * 100) / 100.0);
+	}
+	public long getSequence(){
+		return sequence;
+	}
+	public long getTimeMillis(){
+		return timeMillis;
+	}
+	public double getHeading(){
+		return heading;
+	}
+	public double getDistance(){
+		return distance;
+	}
+	public Boolean getTouch(){
+		return touch;
+	}
+	public double getBattery(){
+		return battery;
+	}
+	public int getShooterAngle(){
+		return shooterAngle;
+	}
+	public String getCommand(){
+		return command;
+	}
+	public int getQueued(){
+		return queued;
+	}
+	/**
+	 * @return Frame as a JSON object, built once and shared by every viewer
+	 */
+	public String toJson(){
+		return json;
+	}
+}
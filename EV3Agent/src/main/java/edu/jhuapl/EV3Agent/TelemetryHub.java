@@ -0,0 +1,209 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * Samples the robot's state on one thread while anyone is subscribed and 
+ * fans each frame out to every subscriber. Sensor values come from the 
+ * SensorSampler and the battery is read at its own, slower period, so the 
+ * number of viewers never changes the number of RMI calls. Each subscriber 
+ * holds only the newest frame: a slow viewer skips the frames it missed 
+ * instead of queueing them.
+ */
+public class TelemetryHub {
+
+	private static final org.slf4j.Logger logger = LoggerFactory.getLogger(TelemetryHub.class);
+	private final EV3Agent agent;
+	private final long periodNanos;
+	private final long batteryNanos;
+	private final List<Subscription> subscribers = new CopyOnWriteArrayList<Subscription>();
+	private final AtomicLong published = new AtomicLong();
+	private ScheduledExecutorService sampler;
+	private volatile TelemetryFrame latest;
+	private final Object batteryLock = new Object();
+	private double battery = Double.NaN;
+	private long batteryReadNanos;
+
+	/**
+	 * Latest frame for one viewer
+	 */
+	public class Subscription {
+		private TelemetryFrame pending;
+		private long dropped;
+		private boolean closed;
+
+		private synchronized void offer(TelemetryFrame frame){
+			if(pending != null){
+				dropped++;
+			}
+			pending = frame;
+			notifyAll();
+		}
+		/**
+		 * Waits for a frame newer than the last one taken
+		 * @param timeout
+		 * @param unit
+		 * @return TelemetryFrame, null if none arrived in time or the subscription is closed
+		 * @throws InterruptedException
+		 */
+		public synchronized TelemetryFrame take(long timeout, TimeUnit unit) throws InterruptedException {
+			long deadline = System.nanoTime() + unit.toNanos(timeout);
+			while(pending == null && !closed){
+				long remaining = deadline - System.nanoTime();
+				if(remaining <= 0){
+					return null;
+				}
+				TimeUnit.NANOSECONDS.timedWait(this, remaining);
+			}
+			TelemetryFrame frame = pending;
+			pending = null;
+			return frame;
+		}
+		/**
+		 * @return number of frames replaced before this subscriber took them
+		 */
+		public synchronized long getDropped(){
+			return dropped;
+		}
+		/**
+		 * Stops the frames to this subscriber, and the sampling when it was the last one
+		 */
+		public void close(){
+			synchronized(this){
+				closed = true;
+				notifyAll();
+			}
+			unsubscribe(this);
+		}
+	}
+
+	/**
+	 * Constructor
+	 * @param agent Agent whose state is sampled
+	 * @param rate Frames per second
+	 * @param batteryMillis Period between battery readings
+	 */
+	public TelemetryHub(EV3Agent agent, int rate, int batteryMillis){
+		this.agent = agent;
+		this.periodNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+		this.batteryNanos = TimeUnit.MILLISECONDS.toNanos(batteryMillis);
+	}
+	/**
+	 * Starts the frames to a new viewer, beginning with the latest frame
+	 * @return Subscription to take the frames from
+	 */
+	public Subscription subscribe(){
+		Subscription subscription = new Subscription();
+		TelemetryFrame frame = latest;
+		if(frame != null){
+			subscription.offer(frame);
+		}
+		synchronized(this){
+			subscribers.add(subscription);
+			if(sampler == null){
+				sampler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory(){
+					public Thread newThread(Runnable r){
+						Thread thread = new Thread(r, "ev3-telemetry");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+				sampler.scheduleAtFixedRate(new Runnable(){
+					public void run(){
+						publish();
+					}
+				}, 0, periodNanos, TimeUnit.NANOSECONDS);
+			}
+		}
+		return subscription;
+	}
+	private synchronized void unsubscribe(Subscription subscription){
+		subscribers.remove(subscription);
+		if(subscribers.isEmpty() && sampler != null){
+			sampler.shutdown();
+			sampler = null;
+		}
+	}
+	/**
+	 * Samples one frame and hands it to every subscriber
+	 */
+	private void publish(){
+		try{
+			TelemetryFrame frame = sample();
+			latest = frame;
+			for(Subscription subscription : subscribers){
+				subscription.offer(frame);
+			}
+		} catch(RuntimeException e){
+			logger.error("Could not sample telemetry " + e.getMessage());
+		}
+	}
+	/**
+	 * Reads the battery at most once per battery period, for the frames 
+	 * and anyone else who wants the voltage without another RMI call
+	 * @return double Battery Voltage, NaN when the EV3 is not connected
+	 */
+	public double getBattery(){
+		synchronized(batteryLock){
+			long now = System.nanoTime();
+			if(batteryReadNanos == 0 || now - batteryReadNanos >= batteryNanos){
+				batteryReadNanos = now;
+				battery = agent.readBattery();
+			}
+			return battery;
+		}
+	}
+	private TelemetryFrame sample(){
+		SensorSampler sensors = agent.getSensorSampler();
+		float touch = latest(sensors, Sensor.TOUCH);
+		return new TelemetryFrame(published.incrementAndGet(), System.currentTimeMillis(), 
+				latest(sensors, Sensor.GYRO), 100 * latest(sensors, Sensor.ULTRASONIC), 
+				Float.isNaN(touch) ? null : Boolean.valueOf(touch == 1), getBattery(), 
+				agent.getShooterAngle(), agent.getRunningCommand(), agent.getQueuedCommands());
+	}
+	private static float latest(SensorSampler sensors, Sensor sensor){
+		if(sensors == null || !sensors.hasSensor(sensor)){
+			return Float.NaN;
+		}
+		return sensors.getLatest(sensor);
+	}
+	/**
+	 * @return Most recent frame, null before the first one
+	 */
+	public TelemetryFrame getLatest(){
+		return latest;
+	}
+	/**
+	 * @return number of frames sampled
+	 */
+	public long getPublished(){
+		return published.get();
+	}
+	public int getSubscriberCount(){
+		return subscribers.size();
+	}
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.net.MalformedURLException;
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+
+/**
+ * EV3AgentPlatform that records the latency of every call reaching the brick 
+ * in Metrics, and a span for it within a trace. Accessors of local state are 
+ * passed through untimed, since ev3On is checked on every request.
+ */
+public class TimedEV3Platform implements EV3AgentPlatform {
+
+	private final EV3AgentPlatform platform;
+	private final Metrics metrics;
+
+	/**
+	 * Constructor
+	 * @param platform Platform whose calls are timed
+	 * @param metrics Metrics the latencies are recorded in
+	 */
+	public TimedEV3Platform(EV3AgentPlatform platform, Metrics metrics){
+		this.platform = platform;
+		this.metrics = metrics;
+	}
+	private void record(String method, long start, Span span){
+		metrics.recordPlatformCall(method, System.nanoTime() - start);
+		span.end();
+	}
+	public void ev3Null(){
+		platform.ev3Null();
+	}
+	public boolean ev3On(){
+		return platform.ev3On();
+	}
+	public void setUpEV3() throws RemoteException, MalformedURLException, NotBoundException {
+		Span span = Tracer.child("EV3AgentPlatform.setUpEV3");
+		long start = System.nanoTime();
+		try{
+			platform.setUpEV3();
+		} finally{
+			record("setUpEV3", start, span);
+		}
+	}
+	public void setUpPorts(){
+		Span span = Tracer.child("EV3AgentPlatform.setUpPorts");
+		long start = System.nanoTime();
+		try{
+			platform.setUpPorts();
+		} finally{
+			record("setUpPorts", start, span);
+		}
+	}
+	public void setUpShooter() throws RemoteException {
+		Span span = Tracer.child("EV3AgentPlatform.setUpShooter");
+		long start = System.nanoTime();
+		try{
+			platform.setUpShooter();
+		} finally{
+			record("setUpShooter", start, span);
+		}
+	}
+	public void closePorts(){
+		Span span = Tracer.child("EV3AgentPlatform.closePorts");
+		long start = System.nanoTime();
+		try{
+			platform.closePorts();
+		} finally{
+			record("closePorts", start, span);
+		}
+	}
+	public void shoot() throws RemoteException {
+		Span span = Tracer.child("EV3AgentPlatform.shoot");
+		long start = System.nanoTime();
+		try{
+			platform.shoot();
+		} finally{
+			record("shoot", start, span);
+		}
+	}
+	public void stop() throws RemoteException {
+		Span span = Tracer.child("EV3AgentPlatform.stop");
+		long start = System.nanoTime();
+		try{
+			platform.stop();
+		} finally{
+			record("stop", start, span);
+		}
+	}
+	public void resetMotorsSensors(int bAngleCurrent) throws RemoteException {
+		Span span = Tracer.child("EV3AgentPlatform.resetMotorsSensors");
+		long start = System.nanoTime();
+		try{
+			platform.resetMotorsSensors(bAngleCurrent);
+		} finally{
+			record("resetMotorsSensors", start, span);
+		}
+	}
+	public double getBattery(){
+		Span span = Tracer.child("EV3AgentPlatform.getBattery");
+		long start = System.nanoTime();
+		try{
+			return platform.getBattery();
+		} finally{
+			record("getBattery", start, span);
+		}
+	}
+	public int changeShooterAngle(int inputAngle, int bAngleCurrent) throws RemoteException {
+		Span span = Tracer.child("EV3AgentPlatform.changeShooterAngle");
+		long start = System.nanoTime();
+		try{
+			return platform.changeShooterAngle(inputAngle, bAngleCurrent);
+		} finally{
+			record("changeShooterAngle", start, span);
+		}
+	}
+	public TurnResult turn(int endAngle, CancellationToken token) throws RemoteException {
+		Span span = Tracer.child("EV3AgentPlatform.turn");
+		long start = System.nanoTime();
+		try{
+			return platform.turn(endAngle, token);
+		} finally{
+			record("turn", start, span);
+		}
+	}
+	public void touchSensor(CancellationToken token) throws RemoteException {
+		Span span = Tracer.child("EV3AgentPlatform.touchSensor");
+		long start = System.nanoTime();
+		try{
+			platform.touchSensor(token);
+		} finally{
+			record("touchSensor", start, span);
+		}
+	}
+	public void moveForward() throws RemoteException {
+		Span span = Tracer.child("EV3AgentPlatform.moveForward");
+		long start = System.nanoTime();
+		try{
+			platform.moveForward();
+		} finally{
+			record("moveForward", start, span);
+		}
+	}
+	public void moveBackward() throws RemoteException {
+		Span span = Tracer.child("EV3AgentPlatform.moveBackward");
+		long start = System.nanoTime();
+		try{
+			platform.moveBackward();
+		} finally{
+			record("moveBackward", start, span);
+		}
+	}
+	public boolean move(int distanceToMove, int bAngleCurrent, CancellationToken token) throws RemoteException {
+		Span span = Tracer.child("EV3AgentPlatform.move");
+		long start = System.nanoTime();
+		try{
+			return platform.move(distanceToMove, bAngleCurrent, token);
+		} finally{
+			record("move", start, span);
+		}
+	}
+	public SensorSampler getSensorSampler(){
+		return platform.getSensorSampler();
+	}
+	public TurnResult getLastTurnResult(){
+		return platform.getLastTurnResult();
+	}
+	public String getStartupReport(){
+		return platform.getStartupReport();
+	}
+	public ConnectionSupervisor getConnectionSupervisor(){
+		return platform.getConnectionSupervisor();
+	}
+	/**
+	 * Passed through untimed, the ports open in the background
+	 */
+	public void prepare(Device... devices){
+		platform.prepare(devices);
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * Appends the spans of a Tracer to a file in the Trace Event Format, which 
+ * chrome://tracing and Perfetto open directly. The file is a JSON array 
+ * that is never closed, which the format allows, so traces of later runs 
+ * append to it.
+ */
+public class TraceExporter {
+
+	private static final org.slf4j.Logger logger = LoggerFactory.getLogger(TraceExporter.class);
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private final Tracer tracer;
+	private final File file;
+	private final long flushMillis;
+	private final long epochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+	private final long epochNanos = System.nanoTime();
+	private final Set<Long> namedThreads = new HashSet<Long>();
+	private ScheduledExecutorService exporter;
+
+	/**
+	 * Constructor
+	 * @param tracer Tracer whose spans are exported
+	 * @param file File the spans are appended to
+	 * @param flushMillis Period between writes
+	 */
+	public TraceExporter(Tracer tracer, File file, long flushMillis){
+		this.tracer = tracer;
+		this.file = file;
+		this.flushMillis = flushMillis;
+	}
+	/**
+	 * Starts the exporting thread
+	 */
+	public synchronized void start(){
+		if(exporter != null){
+			return;
+		}
+		exporter = Executors.newSingleThreadScheduledExecutor(new ThreadFactory(){
+			public Thread newThread(Runnable r){
+				Thread thread = new Thread(r, "ev3-trace-exporter");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		exporter.scheduleWithFixedDelay(new Runnable(){
+			public void run(){
+				flush();
+			}
+		}, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+	}
+	/**
+	 * Stops the exporting thread and writes the spans still buffered
+	 */
+	public synchronized void stop(){
+		if(exporter != null){
+			exporter.shutdownNow();
+			exporter = null;
+		}
+		flush();
+	}
+	/**
+	 * Writes the buffered spans to the file
+	 * @return number of spans written
+	 */
+	public synchronized int flush(){
+		List<Span> spans = tracer.drain();
+		if(spans.isEmpty()){
+			return 0;
+		}
+		boolean created = !file.exists() || file.length() == 0;
+		Writer out = null;
+		try{
+			out = new OutputStreamWriter(new FileOutputStream(file, true), UTF_8);
+			StringBuilder events = new StringBuilder();
+			if(created){
+				events.append("[\n");
+				namedThreads.clear();
+			}
+			for(Span span : spans){
+				append(events, span);
+			}
+			out.write(events.toString());
+		} catch(IOException e){
+			logger.error("Could not export traces to " + file + " " + e.getMessage());
+		} finally{
+			if(out != null){
+				try{
+					out.close();
+				} catch(IOException e){
+					logger.error("Could not close " + file + " " + e.getMessage());
+				}
+			}
+		}
+		return spans.size();
+	}
+	private void append(StringBuilder events, Span span){
+		if(namedThreads.add(span.getThreadId())){
+			events.append("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":").append(span.getThreadId())
+				.append(",\"args\":{\"name\":");
+			string(events, span.getThreadName());
+			events.append("}},\n");
+		}
+		long start = epochMicros + TimeUnit.NANOSECONDS.toMicros(span.getStartNanos() - epochNanos);
+		events.append("{\"name\":");
+		string(events, span.getName());
+		events.append(",\"cat\":\"ev3\",\"ph\":\"X\",\"ts\":").append(start)
+			.append(",\"dur\":").append(TimeUnit.NANOSECONDS.toMicros(span.getDurationNanos()))
+			.append(",\"pid\":1,\"tid\":").append(span.getThreadId())
+			.append(",\"args\":{\"trace\":\"").append(hex(span.getTraceId()))
+			.append("\",\"span\":\"").append(hex(span.getSpanId())).append('"');
+		if(span.getParentId() != 0){
+			events.append(",\"parent\":\"").append(hex(span.getParentId())).append('"');
+		}
+		for(Map.Entry<String, String> attribute : span.getAttributes().entrySet()){
+			events.append(',');
+			string(events, attribute.getKey());
+			events.append(':');
+			string(events, attribute.getValue());
+		}
+		events.append("}},\n");
+	}
+	private static String hex(long id){
+		String digits = Long.toHexString(id);
+		return "0000000000000000".substring(digits.length()) + digits;
+	}
+	private static void string(StringBuilder out, String value){
+		out.append('"');
+		for(int i = 0; i < value.length(); i++){
+			char c = value.charAt(i);
+			if(c == '"' || c == '\\'){
+				out.append('\\').append(c);
+			}
+			else if(c < 0x20){
+				out.append(String.format("\\u%04x", (int)c));
+			}
+			else{
+				out.append(c);
+			}
+		}
+		out.append('"');
+	}
+}
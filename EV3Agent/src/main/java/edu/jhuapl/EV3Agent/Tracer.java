@@ -0,0 +1,214 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lejos.remote.ev3.RMIRegulatedMotor;
+import lejos.remote.ev3.RMISampleProvider;
+
+/**
+ * Starts spans for sampled requests and keeps the finished spans in a 
+ * bounded buffer until an exporter drains them. Spans that find the buffer 
+ * full are dropped and counted. A request that is not sampled costs a 
+ * thread local lookup per instrumented call.
+ */
+public class Tracer {
+
+	private static final ThreadLocal<Span> CURRENT = new ThreadLocal<Span>();
+	private final double sampleRate;
+	private final BlockingQueue<Span> finished;
+	private final AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * Constructor
+	 * @param sampleRate Fraction of requests traced, 0 disables tracing
+	 * @param bufferSize Number of finished spans kept until they are exported
+	 */
+	public Tracer(double sampleRate, int bufferSize){
+		this.sampleRate = sampleRate;
+		this.finished = new ArrayBlockingQueue<Span>(Math.max(1, bufferSize));
+	}
+	/**
+	 * Starts a span below the current one, or the root span of a new trace 
+	 * when the request is sampled
+	 * @param name
+	 * @return Span to end when the operation finishes, the no-op span if not sampled
+	 */
+	public Span start(String name){
+		Span parent = CURRENT.get();
+		if(parent != null){
+			return child(parent, name);
+		}
+		if(sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate){
+			return Span.NOOP;
+		}
+		return begin(this, name, newId(), 0, null);
+	}
+	/**
+	 * Starts a span below the current one without ever starting a trace, 
+	 * for work like sensor polling that is only of interest within a request
+	 * @param name
+	 * @return Span to end when the operation finishes, the no-op span outside a trace
+	 */
+	public static Span child(String name){
+		Span parent = CURRENT.get();
+		return parent == null ? Span.NOOP : child(parent, name);
+	}
+	private static Span child(Span parent, String name){
+		return begin(parent.getTracer(), name, parent.getTraceId(), parent.getSpanId(), parent);
+	}
+	private static Span begin(Tracer tracer, String name, long traceId, long parentId, Span parent){
+		Span span = new Span(tracer, name, traceId, newId(), parentId, parent);
+		CURRENT.set(span);
+		return span;
+	}
+	private static long newId(){
+		long id;
+		do{
+			id = ThreadLocalRandom.current().nextLong();
+		} while(id == 0);
+		return id;
+	}
+	/**
+	 * @return Span current on the calling thread, null outside a trace
+	 */
+	public static Span current(){
+		return CURRENT.get();
+	}
+	/**
+	 * Continues a trace on another thread
+	 * @param span Span returned by current on the thread that handed over the work
+	 * @return Span current before, to pass to exit
+	 */
+	public static Span enter(Span span){
+		Span previous = CURRENT.get();
+		CURRENT.set(span);
+		return previous;
+	}
+	/**
+	 * @param previous Span returned by enter
+	 */
+	public static void exit(Span previous){
+		CURRENT.set(previous);
+	}
+	/**
+	 * @param task
+	 * @return Task whose spans belong to the trace of the calling thread 
+	 * when it runs on another thread
+	 */
+	public static Runnable propagate(final Runnable task){
+		final Span span = CURRENT.get();
+		if(span == null){
+			return task;
+		}
+		return new Runnable(){
+			public void run(){
+				Span previous = enter(span);
+				try{
+					task.run();
+				} finally{
+					exit(previous);
+				}
+			}
+		};
+	}
+	/**
+	 * @param task
+	 * @return Task whose spans belong to the trace of the calling thread 
+	 * when it runs on another thread
+	 */
+	public static <T> Callable<T> propagate(final Callable<T> task){
+		final Span span = CURRENT.get();
+		if(span == null){
+			return task;
+		}
+		return new Callable<T>(){
+			public T call() throws Exception {
+				Span previous = enter(span);
+				try{
+					return task.call();
+				} finally{
+					exit(previous);
+				}
+			}
+		};
+	}
+	/**
+	 * @param device Device the port belongs to
+	 * @param port RMIRegulatedMotor or RMISampleProvider
+	 * @return Object proxy implementing the same interface as port that 
+	 * records a span for each call made within a trace
+	 */
+	public static Object trace(final Device device, final Object port){
+		final Class<?> type = port instanceof RMIRegulatedMotor ? RMIRegulatedMotor.class : RMISampleProvider.class;
+		return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, new InvocationHandler(){
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				Span parent = CURRENT.get();
+				if(parent == null || method.getDeclaringClass() == Object.class){
+					try{
+						return method.invoke(port, args);
+					} catch(InvocationTargetException e){
+						throw e.getCause();
+					}
+				}
+				Span span = child(parent, type.getSimpleName() + "." + method.getName());
+				try{
+					return method.invoke(port, args);
+				} catch(InvocationTargetException e){
+					span.setAttribute("error", e.getCause());
+					throw e.getCause();
+				} finally{
+					span.setAttribute("device", device.getLabel());
+					span.end();
+				}
+			}
+		});
+	}
+	void finished(Span span){
+		if(!finished.offer(span)){
+			dropped.incrementAndGet();
+		}
+	}
+	/**
+	 * @return Finished spans, removed from the buffer
+	 */
+	public List<Span> drain(){
+		List<Span> spans = new ArrayList<Span>();
+		finished.drainTo(spans);
+		return spans;
+	}
+	public double getSampleRate(){
+		return sampleRate;
+	}
+	/**
+	 * @return number of spans dropped because the buffer was full
+	 */
+	public long getDropped(){
+		return dropped.get();
+	}
+}
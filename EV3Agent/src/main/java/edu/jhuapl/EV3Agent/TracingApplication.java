@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.jhuapl.dorset.Application;
+import edu.jhuapl.dorset.Request;
+import edu.jhuapl.dorset.Response;
+import edu.jhuapl.dorset.filters.RequestFilter;
+import edu.jhuapl.dorset.routing.Router;
+
+/**
+ * Application that starts the trace of a sampled request, so its request 
+ * filters and the agent's spans are recorded under one root span
+ */
+public class TracingApplication extends Application {
+
+	private final Tracer tracer;
+	private final List<RequestFilter> filters = new ArrayList<RequestFilter>();
+
+	/**
+	 * Constructor
+	 * @param router
+	 * @param tracer Tracer deciding which requests are traced, usually the EV3Agent's
+	 */
+	public TracingApplication(Router router, Tracer tracer){
+		super(router);
+		this.tracer = tracer;
+	}
+	/**
+	 * Adds a request filter that runs in its own span
+	 * @param filter
+	 */
+	@Override
+	public void addRequestFilter(final RequestFilter filter){
+		final String name = filter.getClass().getSimpleName() + ".filter";
+		RequestFilter traced = new RequestFilter(){
+			public Request filter(Request request){
+				Span span = Tracer.child(name);
+				try{
+					return filter.filter(request);
+				} finally{
+					span.end();
+				}
+			}
+		};
+		filters.add(traced);
+		super.addRequestFilter(traced);
+	}
+	/**
+	 * Runs the request filters without routing the request, for callers that 
+	 * hand the filtered text to the agent themselves such as batches
+	 * @param request
+	 * @return Request after every filter
+	 */
+	public Request filter(Request request){
+		for(RequestFilter filter : filters){
+			request = filter.filter(request);
+		}
+		return request;
+	}
+	@Override
+	public Response process(Request request){
+		Span span = tracer.start("Application.process").setAttribute("request", request.getText());
+		try{
+			return super.process(request);
+		} finally{
+			span.end();
+		}
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of a single turn
+ */
+public class TurnResult {
+	
+	/**
+	 * How the turn ended
+	 */
+	public enum Outcome { COMPLETED, CANCELLED, TIMED_OUT }
+	
+	private final int angle;
+	private final float startHeading;
+	private final float endHeading;
+	private final long elapsedNanos;
+	private final int iterations;
+	private final Outcome outcome;
+	private final float overshoot;
+	private final long settleNanos;
+	
+	/**
+	 * Constructor
+	 * @param angle Degrees the robot was asked to turn
+	 * @param startHeading Gyro heading before the turn
+	 * @param endHeading Gyro heading when the motors were stopped
+	 * @param elapsedNanos Time from the start of the turn until the motors were stopped
+	 * @param iterations Number of control loop iterations
+	 * @param cancelled Whether the turn was cancelled before reaching the target
+	 */
+	public TurnResult(int angle, float startHeading, float endHeading, long elapsedNanos,
+			int iterations, boolean cancelled){
+		this(angle, startHeading, endHeading, elapsedNanos, iterations, 
+				cancelled ? Outcome.CANCELLED : Outcome.COMPLETED, 
+				Math.max(0, (endHeading - startHeading - angle) * Math.signum(angle)), elapsedNanos);
+	}
+	/**
+	 * Constructor
+	 * @param angle Degrees the robot was asked to turn
+	 * @param startHeading Gyro heading before the turn
+	 * @param endHeading Gyro heading when the motors were stopped
+	 * @param elapsedNanos Time from the start of the turn until the motors were stopped
+	 * @param iterations Number of control loop iterations
+	 * @param outcome Whether the turn reached the target, was cancelled or ran out of time
+	 * @param overshoot Largest number of degrees the heading went past the target
+	 * @param settleNanos Time from the start of the turn until the heading stayed within tolerance
+	 */
+	public TurnResult(int angle, float startHeading, float endHeading, long elapsedNanos,
+			int iterations, Outcome outcome, float overshoot, long settleNanos){
+		this.angle = angle;
+		this.startHeading = startHeading;
+		this.endHeading = endHeading;
+		this.elapsedNanos = elapsedNanos;
+		this.iterations = iterations;
+		this.outcome = outcome;
+		this.overshoot = overshoot;
+		this.settleNanos = settleNanos;
+	}
+	public int getAngle(){
+		return angle;
+	}
+	public float getStartHeading(){
+		return startHeading;
+	}
+	public float getEndHeading(){
+		return endHeading;
+	}
+	public long getElapsedMillis(){
+		return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+	}
+	public int getIterations(){
+		return iterations;
+	}
+	public Outcome getOutcome(){
+		return outcome;
+	}
+	public boolean isCancelled(){
+		return outcome == Outcome.CANCELLED;
+	}
+	/**
+	 * @return boolean value representing whether the turn gave up before the heading settled
+	 */
+	public boolean isTimedOut(){
+		return outcome == Outcome.TIMED_OUT;
+	}
+	/**
+	 * @return largest number of degrees the heading went past the target
+	 */
+	public float getOvershoot(){
+		return overshoot;
+	}
+	/**
+	 * @return milliseconds until the heading stayed within tolerance of the target
+	 */
+	public long getSettleMillis(){
+		return TimeUnit.NANOSECONDS.toMillis(settleNanos);
+	}
+	/**
+	 * @return degrees between the target heading and the heading when the motors stopped
+	 */
+	public float getError(){
+		return endHeading - (startHeading + angle);
+	}
+	@Override
+	public String toString(){
+		return String.format("turn %d: %d ms, settled in %d ms, %d iterations, overshoot %.1f degrees, "
+				+ "error %.1f degrees%s", angle, getElapsedMillis(), getSettleMillis(), iterations, 
+				overshoot, getError(), outcome == Outcome.COMPLETED ? "" 
+						: " (" + outcome.name().toLowerCase().replace('_', ' ') + ")");
+	}
+}
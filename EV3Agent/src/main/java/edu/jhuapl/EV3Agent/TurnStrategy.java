@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.rmi.RemoteException;
+
+/**
+ * Algorithm used to turn the robot in place using the gyro sensor
+ */
+public interface TurnStrategy {
+	
+	/**
+	 * Turns the robot by the given angle
+	 * @param drive Wheels of the robot
+	 * @param gyro Source of the robot's heading in degrees
+	 * @param angle Degrees to turn, positive turns toward increasing heading
+	 * @param token Ends the turn early when cancelled
+	 * @return TurnResult describing how the turn went
+	 * @throws RemoteException
+	 */
+	public abstract TurnResult turn(DifferentialDrive drive, SampleSource gyro, int angle, 
+			CancellationToken token) throws RemoteException;
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulated time for the SimulatedEV3Platform. Time only moves when a thread 
+ * sleeps or waits for a simulated RMI call, and the model is stepped in 1 ms 
+ * increments as it does. Threads waiting at the same time share the time 
+ * that passes. A speedup of 1 paces the clock with real time, larger values 
+ * run faster than real time and 0 does not wait at all.
+ */
+public class VirtualClock implements Clock {
+	
+	private static final long STEP_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+	private static final long CHUNK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+	private final Model model;
+	private final double speedup;
+	private long nanos;
+	
+	/**
+	 * What the clock moves forward
+	 */
+	public interface Model {
+		/**
+		 * Advances the model, called with the clock's lock held
+		 * @param seconds
+		 */
+		public void step(double seconds);
+	}
+	
+	/**
+	 * Constructor
+	 * @param model
+	 * @param speedup Simulated seconds per real second, 0 to run as fast as possible
+	 */
+	public VirtualClock(Model model, double speedup){
+		this.model = model;
+		this.speedup = speedup;
+	}
+	public synchronized long nanoTime(){
+		return nanos;
+	}
+	public void sleep(long millis){
+		advanceTo(nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+	}
+	/**
+	 * Moves time forward by the given amount
+	 * @param duration nanoseconds
+	 */
+	public void advance(long duration){
+		advanceTo(nanoTime() + duration);
+	}
+	/**
+	 * Moves time forward until it reaches the given time, returning at once 
+	 * if another thread already moved it that far
+	 * @param time nanoseconds
+	 */
+	public void advanceTo(long time){
+		while(true){
+			long realStart = System.nanoTime();
+			long stepped = 0;
+			synchronized(this){
+				//other threads get the lock between chunks, so a long wait can be interrupted by a command
+				long chunkEnd = Math.min(time, nanos + CHUNK_NANOS);
+				while(nanos < chunkEnd){
+					long step = Math.min(STEP_NANOS, chunkEnd - nanos);
+					model.step(step / 1e9);
+					nanos += step;
+					stepped += step;
+				}
+				if(stepped == 0){
+					return;
+				}
+			}
+			pace(realStart, stepped);
+		}
+	}
+	private void pace(long realStart, long stepped){
+		if(speedup <= 0){
+			return;
+		}
+		long remaining = (long)(stepped / speedup) - (System.nanoTime() - realStart);
+		if(remaining > 0){
+			try{
+				TimeUnit.NANOSECONDS.sleep(remaining);
+			} catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import edu.jhuapl.dorset.Request;
+
+
+public class AliasFilterTest {
+	
+	private String filter(AliasFilter filter, String text){
+		return filter.filter(new Request(text)).getText();
+	}
+	@Test
+	public void testDefaultAliases() throws IOException {
+		AliasFilter filter = AliasFilter.loadDefault();
+		
+		assertEquals("forward", filter(filter, "for word"));
+		assertEquals("forward", filter(filter, "Four Words"));
+		assertEquals("turn 4", filter(filter, "turn for"));
+		assertEquals("turn negative 90", filter(filter, "turn negative 90"));
+		assertEquals("angle minus five", filter(filter, "single minus five"));
+		assertEquals("turn 8", filter(filter, "ternate"));
+		assertEquals("move 2", filter(filter, "move to"));
+	}
+	@Test
+	public void testWholeWordsOnly(){
+		Map<String, String> aliases = new HashMap<String, String>();
+		aliases.put("to", "2");
+		aliases.put("ate", "8");
+		AliasFilter filter = new AliasFilter(aliases);
+		String text = "tomato state";
+		
+		assertSame(text, filter(filter, text));
+		assertEquals("2 8 2", filter(filter, "to ate TO"));
+	}
+	@Test
+	public void testLongestMatchWins(){
+		Map<String, String> aliases = new HashMap<String, String>();
+		aliases.put("back", "b");
+		aliases.put("back word", "backward");
+		aliases.put("word", "w");
+		aliases.put("back word two", "x");
+		AliasFilter filter = new AliasFilter(aliases);
+		
+		assertEquals("backward", filter(filter, "back word"));
+		assertEquals("x", filter(filter, "back word two"));
+		assertEquals("backward three", filter(filter, "back word three"));
+		assertEquals("w b", filter(filter, "word back"));
+	}
+	@Test
+	public void testThousandsOfAliases(){
+		Map<String, String> aliases = new HashMap<String, String>();
+		for(int i = 0; i < 5000; i++){
+			aliases.put("phrase" + i + " word", "command" + i);
+		}
+		AliasFilter filter = new AliasFilter(aliases);
+		
+		assertEquals(5000, filter.size());
+		assertEquals("command42 and command4999", filter(filter, "phrase42 word and phrase4999 word"));
+		assertEquals("phrase42 words", filter(filter, "phrase42 words"));
+	}
+	@Test
+	public void testReload() throws IOException {
+		File file = File.createTempFile("aliases", ".properties");
+		file.deleteOnExit();
+		write(file, "for\\ word=forward\n");
+		AliasFilter filter = AliasFilter.load(file);
+		
+		assertEquals("forward", filter(filter, "for word"));
+		write(file, "for\\ word=backward\nfour=4\n");
+		assertTrue(filter.reload());
+		assertEquals(2, filter.size());
+		assertEquals("backward 4", filter(filter, "for word four"));
+		write(file, "=broken\n");
+		assertFalse(filter.reload());
+		assertEquals("backward 4", filter(filter, "for word four"));
+	}
+	private void write(File file, String text) throws IOException {
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try{
+			writer.write(text);
+		} finally{
+			writer.close();
+		}
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import edu.jhuapl.dorset.agents.AgentRequest;
+
+
+public class BatchTest {
+
+	private static EV3Agent mockAgent(){
+		Properties prop = new Properties();
+		prop.setProperty("mockEV3", "true");
+		prop.setProperty("mockMotionMillis", "0");
+		return new EV3Agent(prop);
+	}
+	@Test
+	public void testRunsStepsInOrder(){
+		EV3Agent agent = mockAgent();
+		BatchResult result = agent.processBatch(Arrays.asList("angle 10", "turn 90", "angle -4", "fire"));
+		int angle = agent.getShooterAngle();
+		agent.process(new AgentRequest("quit"));
+
+		assertTrue(result.isDone());
+		assertEquals(4, result.getSteps().size());
+		assertEquals("Firing", result.getSteps().get(3).getResponse());
+		assertEquals(6, angle);
+	}
+	@Test
+	public void testAsyncRunsStepsOnActuator(){
+		Properties prop = new Properties();
+		prop.setProperty("mockEV3", "true");
+		prop.setProperty("mockMotionMillis", "300");
+		prop.setProperty("asyncCommands", "true");
+		EV3Agent agent = new EV3Agent(prop);
+		BatchResult result = agent.processBatch(Arrays.asList("turn 90", "move 30", "fire"));
+		agent.process(new AgentRequest("quit"));
+
+		assertTrue(result.describe(), result.isDone());
+		assertEquals("Turning", result.getSteps().get(0).getResponse());
+		assertEquals("Firing", result.getSteps().get(2).getResponse());
+		assertTrue(result.describe(), result.getSteps().get(0).getMillis() >= 250);
+		assertTrue(result.describe(), result.getSteps().get(1).getMillis() >= 250);
+		assertTrue(result.describe(), result.getTotalMillis() >= 500);
+	}
+	@Test
+	public void testStopStepDoesNotEndBatch(){
+		for(String async : new String[] {"false", "true"}){
+			Properties prop = new Properties();
+			prop.setProperty("mockEV3", "true");
+			prop.setProperty("mockMotionMillis", "0");
+			prop.setProperty("asyncCommands", async);
+			EV3Agent agent = new EV3Agent(prop);
+			BatchResult result = agent.processBatch(Arrays.asList("forward", "stop", "fire"));
+			agent.process(new AgentRequest("quit"));
+
+			assertTrue(result.describe(), result.isDone());
+			assertEquals(BatchResult.Status.DONE, result.getSteps().get(1).getStatus());
+			assertEquals(BatchResult.Status.DONE, result.getSteps().get(2).getStatus());
+			assertEquals("Firing", result.getSteps().get(2).getResponse());
+		}
+	}
+	@Test
+	public void testInvalidStepRunsNothing(){
+		EV3Agent agent = mockAgent();
+		BatchResult result = agent.processBatch(Arrays.asList("angle 20", "fire", "angle 10", "dance"));
+		int angle = agent.getShooterAngle();
+		agent.process(new AgentRequest("quit"));
+
+		assertFalse(result.isValid());
+		assertEquals(BatchResult.Status.NOT_RUN, result.getSteps().get(0).getStatus());
+		assertEquals(BatchResult.Status.INVALID, result.getSteps().get(2).getStatus());
+		assertEquals(BatchResult.Status.INVALID, result.getSteps().get(3).getStatus());
+		assertEquals(0, angle);
+		assertTrue(result.toJson().startsWith("{\"valid\":false,\"done\":false,"));
+	}
+	@Test
+	public void testOpensNextPortsOnLazyPlatform(){
+		Properties prop = new Properties();
+		prop.setProperty("simulatedEV3", "true");
+		prop.setProperty("simLatencyMillis", "1");
+		prop.setProperty("simSpeedup", "0");
+		prop.setProperty("lazyPorts", "true");
+		EV3Agent agent = new EV3Agent(prop);
+		BatchResult result = agent.processBatch(Arrays.asList("angle 5", "turn 45", "fire"));
+		String ports = agent.process(new AgentRequest("ports")).getText();
+		agent.process(new AgentRequest("quit"));
+
+		assertTrue(result.describe(), result.isDone());
+		assertTrue(ports, ports.contains("Gyro Sensor"));
+	}
+}
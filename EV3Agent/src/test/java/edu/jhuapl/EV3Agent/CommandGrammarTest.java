@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import edu.jhuapl.EV3Agent.CommandGrammar.Argument;
+import edu.jhuapl.EV3Agent.CommandGrammar.Status;
+
+
+public class CommandGrammarTest {
+	
+	private final CommandGrammar<String> grammar = new CommandGrammar.Builder<String>()
+			.add("fire", Argument.NONE, "fires", "fire")
+			.add("forward", Argument.NONE, null, "forward")
+			.add("turn", Argument.NUMBER, "turns", "turn", "degrees", "deg")
+			.add("help", Argument.COMMAND, null, "help")
+			.build();
+	private final ParsedCommand<String> parsed = new ParsedCommand<String>();
+	
+	@Test
+	public void testCommandWords(){
+		assertEquals(Status.OK, grammar.parse("fire", parsed));
+		assertEquals("fire", parsed.getCommand().getHandler());
+		assertEquals(Status.OK, grammar.parse("  FORWARD ", parsed));
+		assertEquals("forward", parsed.getCommand().getHandler());
+		assertEquals(Status.UNKNOWN_COMMAND, grammar.parse("for", parsed));
+		assertEquals(Status.UNKNOWN_COMMAND, grammar.parse("fired", parsed));
+		assertEquals(Status.EMPTY, grammar.parse(" ", parsed));
+		assertEquals(Status.UNEXPECTED_ARGUMENT, grammar.parse("fire 10", parsed));
+	}
+	@Test
+	public void testNumbers(){
+		assertEquals(Status.OK, grammar.parse("turn 90", parsed));
+		assertEquals(90, parsed.getNumber());
+		assertEquals(Status.OK, grammar.parse("turn -90", parsed));
+		assertEquals(-90, parsed.getNumber());
+		assertEquals(Status.OK, grammar.parse("turn +45", parsed));
+		assertEquals(45, parsed.getNumber());
+		assertEquals(Status.OK, grammar.parse("turn -2147483648", parsed));
+		assertEquals(Integer.MIN_VALUE, parsed.getNumber());
+		assertEquals(Status.INVALID_NUMBER, grammar.parse("turn 2147483648", parsed));
+		assertEquals(Status.INVALID_NUMBER, grammar.parse("turn 99999999999999999999", parsed));
+		assertEquals(Status.INVALID_NUMBER, grammar.parse("turn ninety", parsed));
+		assertEquals(Status.INVALID_NUMBER, grammar.parse("turn #50", parsed));
+		assertEquals(Status.INVALID_NUMBER, grammar.parse("turn -", parsed));
+		assertEquals(Status.MISSING_ARGUMENT, grammar.parse("turn", parsed));
+		assertEquals(Status.TOO_MANY_WORDS, grammar.parse("turn 90 90", parsed));
+	}
+	@Test
+	public void testUnits(){
+		assertEquals(Status.OK, grammar.parse("turn 90 degrees", parsed));
+		assertEquals(90, parsed.getNumber());
+		assertEquals(Status.OK, grammar.parse("turn -90deg", parsed));
+		assertEquals(-90, parsed.getNumber());
+		assertEquals(Status.OK, grammar.parse("turn 90 DEG ", parsed));
+		assertEquals(Status.INVALID_NUMBER, grammar.parse("turn 90cm", parsed));
+		assertEquals(Status.TOO_MANY_WORDS, grammar.parse("turn 90 cm", parsed));
+	}
+	@Test
+	public void testCommandArgument(){
+		assertEquals(Status.OK, grammar.parse("help turn", parsed));
+		assertSame(grammar.get("turn"), parsed.getArgument());
+		assertEquals("turns", parsed.getArgument().getHelp());
+		assertEquals(Status.OK, grammar.parse("help jump", parsed));
+		assertNull(parsed.getArgument());
+		assertEquals(Status.MISSING_ARGUMENT, grammar.parse("help", parsed));
+	}
+	@Test
+	public void testDuplicateCommand(){
+		try{
+			new CommandGrammar.Builder<String>()
+					.add("fire", Argument.NONE, null, "fire")
+					.add("FIRE", Argument.NONE, null, "fire")
+					.build();
+			fail("Registered fire twice");
+		} catch(IllegalArgumentException e){
+			assertEquals("Command fire is registered twice", e.getMessage());
+		}
+	}
+}
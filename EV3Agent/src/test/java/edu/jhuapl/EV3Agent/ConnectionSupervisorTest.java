@@ -0,0 +1,232 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+
+import org.junit.Test;
+
+import lejos.remote.ev3.RMIRegulatedMotor;
+
+
+public class ConnectionSupervisorTest {
+	
+	private volatile boolean linkDown;
+	private volatile boolean linkDropped;
+	private final List<Device> reopened = Collections.synchronizedList(new ArrayList<Device>());
+	
+	private PortInfo portInfo(){
+		PortInfo portInfo = new PortInfo(new Properties());
+		portInfo.setHeartbeatMillis(20);
+		portInfo.setRmiTimeoutMillis(100);
+		portInfo.setBreakerFailures(1);
+		portInfo.setReconnectMinMillis(10);
+		portInfo.setReconnectMaxMillis(40);
+		return portInfo;
+	}
+	private ConnectionSupervisor.Link link(){
+		return new ConnectionSupervisor.Link(){
+			public void heartbeat() throws RemoteException {
+				if(linkDown){
+					throw new RemoteException("Link down");
+				}
+			}
+			public void reconnect() throws RemoteException {
+				heartbeat();
+			}
+			public Object reopen(Device device){
+				reopened.add(device);
+				return motor(0, false);
+			}
+		};
+	}
+	/**
+	 * @param tachoCount Value returned by getTachoCount
+	 * @param stale Whether the handle stops answering after the link drops
+	 */
+	private RMIRegulatedMotor motor(final int tachoCount, final boolean stale){
+		return (RMIRegulatedMotor)Proxy.newProxyInstance(RMIRegulatedMotor.class.getClassLoader(),
+				new Class<?>[] {RMIRegulatedMotor.class}, new InvocationHandler(){
+			public Object invoke(Object proxy, Method method, Object[] args) throws RemoteException {
+				if(linkDown || (stale && linkDropped)){
+					throw new RemoteException("No response");
+				}
+				return method.getName().equals("getTachoCount") ? tachoCount : null;
+			}
+		});
+	}
+	/**
+	 * @param calls Names of the methods called, in order
+	 * @return RMIRegulatedMotor that answers even while the link is down
+	 */
+	private RMIRegulatedMotor recordingMotor(final List<String> calls){
+		return (RMIRegulatedMotor)Proxy.newProxyInstance(RMIRegulatedMotor.class.getClassLoader(),
+				new Class<?>[] {RMIRegulatedMotor.class}, new InvocationHandler(){
+			public Object invoke(Object proxy, Method method, Object[] args){
+				calls.add(method.getName());
+				return method.getName().equals("getTachoCount") ? 0 : null;
+			}
+		});
+	}
+	private static void waitFor(ConnectionSupervisor supervisor, boolean connected) throws InterruptedException {
+		for(int i = 0; i < 200 && supervisor.isConnected() != connected; i++){
+			Thread.sleep(10);
+		}
+	}
+	@Test
+	public void testCallTimesOut(){
+		ConnectionSupervisor supervisor = new ConnectionSupervisor(link(), portInfo());
+		long start = System.nanoTime();
+		try{
+			supervisor.call("Slow call", new Callable<Void>(){
+				public Void call() throws InterruptedException {
+					Thread.sleep(2000);
+					return null;
+				}
+			});
+			fail("Slow call should time out");
+		} catch(RemoteException e){
+			assertTrue(e instanceof ConnectionLostException);
+		}
+		long elapsedMillis = (System.nanoTime() - start) / 1000000;
+		supervisor.shutdown();
+
+		assertTrue(elapsedMillis < 1000);
+		assertEquals(1, supervisor.getTimeoutCount());
+		assertFalse(supervisor.isConnected());
+	}
+	@Test
+	public void testReconnectReopensOnlyStalePorts() throws Exception {
+		ConnectionSupervisor supervisor = new ConnectionSupervisor(link(), portInfo());
+		RMIRegulatedMotor left = (RMIRegulatedMotor)supervisor.guard(Device.LEFT_WHEEL, motor(5, true));
+		RMIRegulatedMotor right = (RMIRegulatedMotor)supervisor.guard(Device.RIGHT_WHEEL, motor(7, false));
+		supervisor.start();
+		left.getTachoCount();
+		linkDown = true;
+		linkDropped = true;
+		waitFor(supervisor, false);
+		try{
+			right.getTachoCount();
+			fail("Calls should fail while the link is down");
+		} catch(ConnectionLostException e){
+			assertFalse(supervisor.isConnected());
+		}
+		Thread.sleep(100);
+		linkDown = false;
+		waitFor(supervisor, true);
+		int leftCount = left.getTachoCount();
+		int rightCount = right.getTachoCount();
+		supervisor.shutdown();
+
+		assertTrue(supervisor.isConnected());
+		assertEquals(Collections.singletonList(Device.LEFT_WHEEL), reopened);
+		assertEquals(0, leftCount);
+		assertEquals(7, rightCount);
+		assertEquals(1, supervisor.getReconnectCount());
+		assertTrue(supervisor.getReconnectAttemptCount() > 1);
+		assertTrue(supervisor.getLastFailoverMillis() >= 100);
+	}
+	@Test
+	public void testStopWhileBreakerOpen() throws Exception {
+		List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+		ConnectionSupervisor supervisor = new ConnectionSupervisor(link(), portInfo());
+		RMIRegulatedMotor shooter = (RMIRegulatedMotor)supervisor.guard(Device.SHOOTER, recordingMotor(calls));
+		supervisor.start();
+		linkDown = true;
+		try{
+			supervisor.call("Failing call", new Callable<Void>(){
+				public Void call() throws RemoteException {
+					throw new RemoteException("No response");
+				}
+			});
+			fail("Failing call should fail");
+		} catch(RemoteException e){
+			assertFalse(supervisor.isConnected());
+		}
+		try{
+			shooter.rotate(90, true);
+			fail("Calls should fail while the breaker is open");
+		} catch(ConnectionLostException e){
+			assertFalse(calls.contains("rotate"));
+		}
+		shooter.stop(true);
+		shooter.flt(true);
+		boolean connected = supervisor.isConnected();
+		linkDown = false;
+		waitFor(supervisor, true);
+		supervisor.shutdown();
+
+		assertFalse(connected);
+		assertEquals(3, calls.size());
+		assertEquals("stop", calls.get(0));
+		assertEquals("flt", calls.get(1));
+		assertEquals("stop", calls.get(2));
+		assertTrue(supervisor.isConnected());
+	}
+	@Test
+	public void testReconnectStopsReopenedMotors() throws Exception {
+		final List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+		ConnectionSupervisor.Link link = new ConnectionSupervisor.Link(){
+			public void heartbeat() throws RemoteException {
+				if(linkDown){
+					throw new RemoteException("Link down");
+				}
+			}
+			public void reconnect() throws RemoteException {
+				heartbeat();
+			}
+			public Object reopen(Device device){
+				return recordingMotor(calls);
+			}
+		};
+		ConnectionSupervisor supervisor = new ConnectionSupervisor(link, portInfo());
+		supervisor.guard(Device.LEFT_WHEEL, motor(5, true));
+		supervisor.start();
+		linkDown = true;
+		linkDropped = true;
+		waitFor(supervisor, false);
+		linkDown = false;
+		waitFor(supervisor, true);
+		supervisor.shutdown();
+
+		assertTrue(supervisor.isConnected());
+		assertEquals(Collections.singletonList("stop"), calls);
+	}
+	@Test
+	public void testBackoffDoublesUpToMax(){
+		ConnectionSupervisor supervisor = new ConnectionSupervisor(link(), portInfo());
+		supervisor.shutdown();
+
+		assertEquals(10, supervisor.backoffMillis(0));
+		assertEquals(20, supervisor.backoffMillis(1));
+		assertEquals(40, supervisor.backoffMillis(2));
+		assertEquals(40, supervisor.backoffMillis(30));
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import lejos.remote.ev3.RMIRegulatedMotor;
+
+
+public class DifferentialDriveTest {
+	
+	/**
+	 * Motor that records each call by name and argument
+	 * @param calls Receives the calls
+	 * @param failing Name of a call that throws, or null
+	 * @return
+	 */
+	private static RMIRegulatedMotor recordingMotor(final List<String> calls, final String failing){
+		return (RMIRegulatedMotor)Proxy.newProxyInstance(RMIRegulatedMotor.class.getClassLoader(),
+				new Class<?>[] {RMIRegulatedMotor.class}, new InvocationHandler(){
+			public Object invoke(Object proxy, Method method, Object[] args) throws RemoteException {
+				String call = method.getName();
+				if(args != null && args.length > 0){
+					call += " " + args[0];
+				}
+				calls.add(call);
+				if(method.getName().equals(failing)){
+					throw new RemoteException("No response");
+				}
+				return null;
+			}
+		});
+	}
+	@Test
+	public void testSpinCommandsBothWheels() throws RemoteException {
+		List<String> left = Collections.synchronizedList(new ArrayList<String>());
+		List<String> right = Collections.synchronizedList(new ArrayList<String>());
+		DifferentialDrive drive = new DifferentialDrive(recordingMotor(left, null), 
+				recordingMotor(right, null));
+		drive.spin(1);
+		drive.spin(-1);
+		drive.stop();
+		drive.close();
+
+		assertEquals(Arrays.asList("backward", "forward", "stop true"), left);
+		assertEquals(Arrays.asList("forward", "backward", "stop true"), right);
+	}
+	@Test
+	public void testUnchangedSpeedNotResent() throws RemoteException {
+		List<String> left = new ArrayList<String>();
+		List<String> right = new ArrayList<String>();
+		DifferentialDrive drive = new DifferentialDrive(recordingMotor(left, null), 
+				recordingMotor(right, null), DifferentialDrive.SAME_THREAD);
+		drive.setSpeed(200);
+		drive.setSpeed(200);
+		drive.setSpeeds(200, 150);
+		drive.setAcceleration(800);
+		drive.setAcceleration(800);
+		drive.reset();
+		drive.setSpeed(200);
+
+		assertEquals(Arrays.asList("setSpeed 200", "setAcceleration 800", "setSpeed 200"), left);
+		assertEquals(Arrays.asList("setSpeed 200", "setSpeed 150", "setAcceleration 800", 
+				"setSpeed 200"), right);
+	}
+	@Test
+	public void testFailedWheelStillCommandsOther(){
+		List<String> left = Collections.synchronizedList(new ArrayList<String>());
+		List<String> right = Collections.synchronizedList(new ArrayList<String>());
+		DifferentialDrive drive = new DifferentialDrive(recordingMotor(left, "stop"), 
+				recordingMotor(right, null));
+		try{
+			drive.stop();
+			fail("A failed stop on the left wheel should be rethrown");
+		} catch(RemoteException e){
+			assertEquals("No response", e.getMessage());
+		}
+		try{
+			drive.setSpeed(300);
+		} catch(RemoteException e){
+			fail("Setting the speed should not fail");
+		}
+		drive.close();
+
+		assertEquals(Arrays.asList("stop true", "setSpeed 300"), left);
+		assertEquals(Arrays.asList("stop true", "setSpeed 300"), right);
+	}
+	@Test
+	public void testFailedSpeedNotCached(){
+		List<String> left = new ArrayList<String>();
+		List<String> right = new ArrayList<String>();
+		DifferentialDrive drive = new DifferentialDrive(recordingMotor(left, null), 
+				recordingMotor(right, "setSpeed"), DifferentialDrive.SAME_THREAD);
+		for(int i = 0; i < 2; i++){
+			try{
+				drive.setSpeed(100);
+				fail("Setting the speed should fail on the right wheel");
+			} catch(RemoteException e){
+				assertTrue(e.getMessage() != null);
+			}
+		}
+
+		assertEquals(Arrays.asList("setSpeed 100", "setSpeed 100"), left);
+		assertEquals(Arrays.asList("setSpeed 100", "setSpeed 100"), right);
+	}
+}
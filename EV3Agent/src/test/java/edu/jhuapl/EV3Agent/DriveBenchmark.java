@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.rmi.RemoteException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lejos.remote.ev3.RMIRegulatedMotor;
+
+/**
+ * Compares commanding the two wheels one after the other with commanding 
+ * them through a DifferentialDrive, over motors whose every call sleeps for 
+ * a fixed round trip. Reports the wall time of a start-cruise-stop sequence, 
+ * the skew between the two wheels starting and stopping, and the number of 
+ * RMI calls. Run with
+ * mvn test-compile exec:java -Dexec.mainClass=edu.jhuapl.EV3Agent.DriveBenchmark -Dexec.classpathScope=test
+ */
+public class DriveBenchmark {
+	
+	private static final long[] LATENCIES = {5, 15, 30};
+	private static final int SPEED_UPDATES = 20;
+	private static final int RUNS = 5;
+	
+	/**
+	 * Motor whose calls take a fixed time and that records when it was 
+	 * last started and stopped, taken as the middle of the round trip
+	 */
+	private static class TimedMotor implements InvocationHandler {
+		private final long latencyMillis;
+		private final AtomicInteger calls;
+		private volatile long startedNanos;
+		private volatile long stoppedNanos;
+		
+		TimedMotor(long latencyMillis, AtomicInteger calls){
+			this.latencyMillis = latencyMillis;
+			this.calls = calls;
+		}
+		public Object invoke(Object proxy, Method method, Object[] args) throws InterruptedException {
+			calls.incrementAndGet();
+			long sent = System.nanoTime();
+			Thread.sleep(latencyMillis);
+			long arrived = sent + (System.nanoTime() - sent) / 2;
+			String name = method.getName();
+			if(name.equals("forward") || name.equals("backward")){
+				startedNanos = arrived;
+			}
+			else if(name.equals("stop")){
+				stoppedNanos = arrived;
+			}
+			return null;
+		}
+		RMIRegulatedMotor proxy(){
+			return (RMIRegulatedMotor)Proxy.newProxyInstance(RMIRegulatedMotor.class.getClassLoader(),
+					new Class<?>[] {RMIRegulatedMotor.class}, this);
+		}
+	}
+	
+	public static void main(String[] args) throws RemoteException {
+		System.out.println("dispatch    latency  time(ms)  start skew(ms)  stop skew(ms)  rmi calls");
+		for(long latency : LATENCIES){
+			report("sequential", latency, false);
+			report("paired", latency, true);
+		}
+	}
+	private static void report(String name, long latency, boolean paired) throws RemoteException {
+		long totalNanos = 0;
+		long startSkew = 0;
+		long stopSkew = 0;
+		int calls = 0;
+		for(int i = 0; i < RUNS; i++){
+			AtomicInteger counter = new AtomicInteger();
+			TimedMotor left = new TimedMotor(latency, counter);
+			TimedMotor right = new TimedMotor(latency, counter);
+			long start = System.nanoTime();
+			if(paired){
+				runPaired(left.proxy(), right.proxy());
+			}
+			else{
+				runSequential(left.proxy(), right.proxy());
+			}
+			totalNanos += System.nanoTime() - start;
+			startSkew += Math.abs(left.startedNanos - right.startedNanos);
+			stopSkew += Math.abs(left.stoppedNanos - right.stoppedNanos);
+			calls += counter.get();
+		}
+		System.out.println(String.format("%-10s  %4d ms  %8.1f  %14.1f  %13.1f  %9d", name, latency,
+				millis(totalNanos), millis(startSkew), millis(stopSkew), calls / RUNS));
+	}
+	private static double millis(long totalNanos){
+		return totalNanos / (double)RUNS / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+	/**
+	 * Start, a speed profile that repeats values as a control loop does, then stop
+	 */
+	private static void runSequential(RMIRegulatedMotor left, RMIRegulatedMotor right) 
+			throws RemoteException {
+		left.setSpeed(360);
+		right.setSpeed(360);
+		right.forward();
+		left.forward();
+		for(int i = 0; i < SPEED_UPDATES; i++){
+			left.setSpeed(speedAt(i));
+			right.setSpeed(speedAt(i));
+		}
+		right.stop(true);
+		left.stop(true);
+	}
+	private static void runPaired(RMIRegulatedMotor left, RMIRegulatedMotor right) 
+			throws RemoteException {
+		DifferentialDrive drive = new DifferentialDrive(left, right);
+		try{
+			drive.setSpeed(360);
+			drive.forward();
+			for(int i = 0; i < SPEED_UPDATES; i++){
+				drive.setSpeed(speedAt(i));
+			}
+			drive.stop();
+		} finally{
+			drive.close();
+		}
+	}
+	private static int speedAt(int update){
+		return 360 - 40 * (update / 4);
+	}
+}
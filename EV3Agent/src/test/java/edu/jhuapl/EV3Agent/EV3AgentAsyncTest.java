@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.jhuapl.dorset.agents.AgentRequest;
+import edu.jhuapl.dorset.agents.AgentResponse;
+
+
+public class EV3AgentAsyncTest {
+
+	private static EV3Agent agent;
+	
+	@BeforeClass
+	public static void runBeforeTests(){
+		Properties prop = new Properties();
+		prop.setProperty("mockEV3", "true");
+		prop.setProperty("asyncCommands", "true");
+		agent = new EV3Agent(prop);
+	}	
+	@AfterClass
+	public static void runAfterTests(){
+		AgentRequest request = new AgentRequest("quit");
+        agent.process(request);
+	}
+	@Test
+	public void testTurnQueued() throws InterruptedException {
+        AgentRequest request = new AgentRequest("turn 90");
+        AgentResponse response = agent.process(request);
+
+        assertTrue(response.getText().startsWith("Queued \"turn 90\" as command "));
+        long id = Long.parseLong(response.getText().substring(response.getText().lastIndexOf(' ') + 1));
+        CommandHandle handle = agent.getCommandStatus(id);
+        assertNotNull(handle);
+        assertTrue(handle.await(5, TimeUnit.SECONDS));
+        assertEquals(CommandHandle.Status.COMPLETED, handle.getStatus());
+        assertEquals("Turning", handle.getResponse().getText());
+	}
+	@Test
+	public void testStatusGood() throws InterruptedException {
+        AgentResponse response = agent.process(new AgentRequest("fire"));
+        long id = Long.parseLong(response.getText().substring(response.getText().lastIndexOf(' ') + 1));
+        agent.getCommandStatus(id).await(5, TimeUnit.SECONDS);
+
+        response = agent.process(new AgentRequest("status " + id));
+        assertEquals("Command " + id + " (fire): COMPLETED - Firing", response.getText());
+	}
+	@Test
+	public void testStatusUnknown() {
+        AgentResponse response = agent.process(new AgentRequest("status 100000"));
+
+        assertEquals("Unknown command 100000", response.getText());
+	}
+	@Test
+	public void testInvalidNotQueued() {
+        AgentResponse response = agent.process(new AgentRequest("turn 370"));
+
+        assertEquals("Invalid number", response.getText());
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import edu.jhuapl.dorset.agents.AgentRequest;
+import edu.jhuapl.dorset.agents.AgentResponse;
+
+
+public class EV3AgentStopTest {
+
+	private static final long MAX_STOP_MILLIS = 50;
+	
+	private EV3Agent createAgent(boolean async){
+		Properties prop = new Properties();
+		prop.setProperty("mockEV3", "true");
+		prop.setProperty("mockMotionMillis", "10000");
+		prop.setProperty("asyncCommands", Boolean.toString(async));
+		return new EV3Agent(prop);
+	}
+	private CommandHandle handle(EV3Agent agent, AgentResponse response){
+		String text = response.getText();
+		return agent.getCommandStatus(Long.parseLong(text.substring(text.lastIndexOf(' ') + 1)));
+	}
+	private void waitUntilRunning(CommandHandle handle) throws InterruptedException {
+		while(handle.getStatus() == CommandHandle.Status.QUEUED){
+			Thread.sleep(1);
+		}
+	}
+	@Test
+	public void testStopCancelsQueuedTurn() throws InterruptedException {
+		EV3Agent agent = createAgent(true);
+		CommandHandle turn = handle(agent, agent.process(new AgentRequest("turn 360")));
+		CommandHandle move = handle(agent, agent.process(new AgentRequest("move 200")));
+		waitUntilRunning(turn);
+
+		AgentResponse response = agent.process(new AgentRequest("stop"));
+
+		assertEquals("Stopped", response.getText());
+		assertTrue(turn.await(MAX_STOP_MILLIS, TimeUnit.MILLISECONDS));
+		assertEquals("Stopped before completing turn 360", turn.getResponse().getText());
+		assertEquals(CommandHandle.Status.CANCELLED, move.getStatus());
+		assertTrue("stop took " + agent.getLastStopLatencyMillis() + " ms",
+				agent.getLastStopLatencyMillis() < MAX_STOP_MILLIS);
+	}
+	@Test
+	public void testStopCancelsManualWait() throws InterruptedException {
+		final EV3Agent agent = createAgent(false);
+		final AgentResponse[] manual = new AgentResponse[1];
+		Thread caller = new Thread(new Runnable(){
+			public void run(){
+				manual[0] = agent.process(new AgentRequest("manual"));
+			}
+		});
+		caller.start();
+		Thread.sleep(100);
+
+		long start = System.nanoTime();
+		agent.process(new AgentRequest("stop"));
+		caller.join(1000);
+
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < MAX_STOP_MILLIS);
+		assertEquals("Stopped before completing manual", manual[0].getText());
+		assertTrue(agent.getMaxStopLatencyMillis() < MAX_STOP_MILLIS);
+	}
+}
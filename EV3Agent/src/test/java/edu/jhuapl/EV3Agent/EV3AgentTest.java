@@ -126,6 +126,36 @@ public class EV3AgentTest {
         assertEquals("Turning", response.getText());
     }    
     @Test
+    public void testTurnWithUnit() {
+        AgentRequest request = new AgentRequest("Turn 20 degrees");
+        AgentResponse response = agent.process(request);
+
+        assertEquals("Turning", response.getText());
+    }    
+    @Test
+    public void testTurnMisheard() {
+        AgentRequest request = new AgentRequest("tern ninety");
+        AgentResponse response = agent.process(request);
+
+        assertEquals("Turning", response.getText());
+    }    
+    @Test
+    public void testShortWordsNotFire() {
+        for(String word : new String[] {"far", "fine", "hire", "file"}){
+            AgentRequest request = new AgentRequest(word);
+            AgentResponse response = agent.process(request);
+
+            assertEquals(word, "Invalid command", response.getText());
+        }
+    }    
+    @Test
+    public void testShortWordNotMove() {
+        AgentRequest request = new AgentRequest("more ten");
+        AgentResponse response = agent.process(request);
+
+        assertEquals("Invalid command", response.getText());
+    }    
+    @Test
     public void testTurnPositiveBad() {
         AgentRequest request = new AgentRequest("turn 370");
         AgentResponse response = agent.process(request);
@@ -330,6 +360,13 @@ public class EV3AgentTest {
         assertEquals("\"move <number>\" \nMoves EV3 \nNumber should be in centimeters", response.getText());
     }       
     @Test
+    public void testHelpMissing() {
+        AgentRequest request = new AgentRequest("help");
+        AgentResponse response = agent.process(request);
+
+        assertEquals("Invalid command", response.getText());
+    }    
+    @Test
     public void testHelpBad() {
         AgentRequest request = new AgentRequest("help bad");
         AgentResponse response = agent.process(request);
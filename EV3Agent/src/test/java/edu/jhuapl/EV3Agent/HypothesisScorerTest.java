@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.jhuapl.dorset.agents.AgentRequest;
+
+
+public class HypothesisScorerTest {
+
+	private static EV3Agent agent;
+
+	@BeforeClass
+	public static void runBeforeTests(){
+		Properties prop = new Properties();
+		prop.setProperty("mockEV3", "true");
+		prop.setProperty("mockMotionMillis", "0");
+		agent = new EV3Agent(prop);
+	}
+	@AfterClass
+	public static void runAfterTests(){
+		agent.process(new AgentRequest("quit"));
+	}
+	@Test
+	public void testSkipsInvalidHypotheses(){
+		List<Hypothesis> hypotheses = Arrays.asList(new Hypothesis("bat tree free", 0.9), 
+				new Hypothesis("turn 900", 0.8), new Hypothesis("battery", 0.4));
+
+		assertTrue(agent.process(hypotheses).getText().startsWith("Battery"));
+	}
+	@Test
+	public void testChecksShooterAngle(){
+		List<Hypothesis> hypotheses = Arrays.asList(new Hypothesis("angle 50", 0.9), 
+				new Hypothesis("angle 15", 0.5));
+		HypothesisScorer.Choice choice = agent.getHypothesisScorer().choose(hypotheses);
+
+		assertEquals("angle 15", choice.getText());
+		assertEquals(0.0, agent.getHypothesisScorer().score(hypotheses.get(0)), 0);
+	}
+	@Test
+	public void testPrefersExactParse(){
+		HypothesisScorer<EV3Agent.CommandHandler> scorer = agent.getHypothesisScorer();
+		List<Hypothesis> hypotheses = Arrays.asList(new Hypothesis("tern 90", 0.6), 
+				new Hypothesis("turn 19", 0.55));
+
+		assertEquals("turn 19", scorer.choose(hypotheses).getText());
+		hypotheses = Arrays.asList(new Hypothesis("tern 90", 0.9), new Hypothesis("turn 19", 0.55));
+		assertEquals("turn 90", scorer.choose(hypotheses).getText());
+	}
+	@Test
+	public void testCachesParses(){
+		HypothesisScorer<EV3Agent.CommandHandler> scorer = agent.getHypothesisScorer();
+		List<Hypothesis> hypotheses = Collections.singletonList(new Hypothesis("move 25", 1));
+		long hits = scorer.getCacheHits();
+
+		scorer.choose(hypotheses);
+		scorer.choose(hypotheses);
+		assertEquals(hits + 1, scorer.getCacheHits());
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+import lejos.remote.ev3.RMIRegulatedMotor;
+
+/**
+ * Two-wheeled robot for benchmarks. Every RMI call to one of its motors 
+ * or its gyro costs a fixed round trip of simulated time, during which the 
+ * wheels accelerate toward their set speed and the heading integrates.
+ */
+public class KinematicRobot implements Clock {
+	
+	private static final long STEP_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+	private final long latencyNanos;
+	private final double wheelDiameter;
+	private final double trackWidth;
+	private final Wheel left = new Wheel();
+	private final Wheel right = new Wheel();
+	private long nanos;
+	private double heading;
+	private int rmiCalls;
+	
+	/**
+	 * State of one wheel's motor
+	 */
+	private static class Wheel {
+		private int speed = 360;
+		private int acceleration = 6000;
+		private int direction;
+		private double actualSpeed;
+		
+		void step(double seconds){
+			double target = speed * direction;
+			double change = acceleration * seconds;
+			if(Math.abs(target - actualSpeed) <= change){
+				actualSpeed = target;
+			}
+			else{
+				actualSpeed += Math.signum(target - actualSpeed) * change;
+			}
+		}
+	}
+	
+	/**
+	 * Constructor
+	 * @param latencyMillis Round trip time of each RMI call
+	 * @param wheelDiameter Centimeters
+	 * @param trackWidth Centimeters between the wheels
+	 */
+	public KinematicRobot(long latencyMillis, double wheelDiameter, double trackWidth){
+		this.latencyNanos = TimeUnit.MILLISECONDS.toNanos(latencyMillis);
+		this.wheelDiameter = wheelDiameter;
+		this.trackWidth = trackWidth;
+	}
+	public long nanoTime(){
+		return nanos;
+	}
+	public void sleep(long millis){
+		advance(TimeUnit.MILLISECONDS.toNanos(millis));
+	}
+	public double getHeading(){
+		return heading;
+	}
+	public int getRmiCalls(){
+		return rmiCalls;
+	}
+	/**
+	 * Moves simulated time forward
+	 * @param duration nanoseconds
+	 */
+	public void advance(long duration){
+		long end = nanos + duration;
+		while(nanos < end){
+			long step = Math.min(STEP_NANOS, end - nanos);
+			double seconds = step / 1e9;
+			left.step(seconds);
+			right.step(seconds);
+			//spinning in place turns the robot by (right - left) * diameter / (2 * trackWidth)
+			heading += (right.actualSpeed - left.actualSpeed) * wheelDiameter / (2 * trackWidth) * seconds;
+			nanos += step;
+		}
+	}
+	private void call(){
+		rmiCalls++;
+		advance(latencyNanos);
+	}
+	/**
+	 * @return gyro that reports whole degrees like the EV3 Gyro Sensor
+	 */
+	public SampleSource gyro(){
+		return new SampleSource(){
+			public float fetch(){
+				call();
+				return Math.round(heading);
+			}
+		};
+	}
+	public RMIRegulatedMotor leftWheel(){
+		return motor(left);
+	}
+	public RMIRegulatedMotor rightWheel(){
+		return motor(right);
+	}
+	private RMIRegulatedMotor motor(final Wheel wheel){
+		return (RMIRegulatedMotor)Proxy.newProxyInstance(RMIRegulatedMotor.class.getClassLoader(),
+				new Class<?>[] {RMIRegulatedMotor.class}, new InvocationHandler(){
+			public Object invoke(Object proxy, Method method, Object[] args){
+				call();
+				String name = method.getName();
+				if(name.equals("forward")){
+					wheel.direction = 1;
+				}
+				else if(name.equals("backward")){
+					wheel.direction = -1;
+				}
+				else if(name.equals("stop") || name.equals("flt")){
+					wheel.direction = 0;
+				}
+				else if(name.equals("setSpeed")){
+					wheel.speed = (Integer)args[0];
+				}
+				else if(name.equals("setAcceleration")){
+					wheel.acceleration = (Integer)args[0];
+				}
+				else if(name.equals("getSpeed")){
+					return wheel.speed;
+				}
+				else if(name.equals("isMoving")){
+					return wheel.direction != 0;
+				}
+				return null;
+			}
+		});
+	}
+}
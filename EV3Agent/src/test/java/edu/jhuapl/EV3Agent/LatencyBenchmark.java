@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.rmi.RemoteException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs turn, move and shoot on the SimulatedEV3Platform with round trips 
+ * drawn from a lognormal distribution between 20 and 200 ms, with and 
+ * without packet loss, and prints a markdown report of simulated time, 
+ * final error and failed runs for each. Pass a file name to also write the 
+ * report there. Run with
+ * mvn test-compile exec:java -Dexec.mainClass=edu.jhuapl.EV3Agent.LatencyBenchmark -Dexec.classpathScope=test
+ */
+public class LatencyBenchmark {
+	
+	private static final int[] LATENCIES = {20, 50, 100, 200};
+	private static final double JITTER = 0.3;
+	private static final double[] LOSS_RATES = {0, 0.01};
+	private static final int RUNS = 10;
+	
+	/**
+	 * One operation measured by the benchmark
+	 */
+	private static abstract class Scenario {
+		private final String name;
+		private final String turnMode;
+		private final String moveMode;
+		
+		Scenario(String name, String turnMode, String moveMode){
+			this.name = name;
+			this.turnMode = turnMode;
+			this.moveMode = moveMode;
+		}
+		/**
+		 * @param platform
+		 * @return error of the operation in degrees or centimeters
+		 * @throws RemoteException
+		 */
+		abstract double run(SimulatedEV3Platform platform) throws RemoteException;
+	}
+	
+	private static final Scenario[] SCENARIOS = {
+		new Scenario("turn 90 pivot", "pivot", "tacho"){
+			double run(SimulatedEV3Platform platform) throws RemoteException {
+				platform.turn(90, CancellationToken.none());
+				return platform.getRobot().getHeading() - 90;
+			}
+		},
+		new Scenario("turn 90 spin", "spin", "tacho"){
+			double run(SimulatedEV3Platform platform) throws RemoteException {
+				platform.turn(90, CancellationToken.none());
+				return platform.getRobot().getHeading() - 90;
+			}
+		},
+		new Scenario("turn 90 pid", "pid", "tacho"){
+			double run(SimulatedEV3Platform platform) throws RemoteException {
+				platform.turn(90, CancellationToken.none());
+				return platform.getRobot().getHeading() - 90;
+			}
+		},
+		new Scenario("move 50 tacho", "pivot", "tacho"){
+			double run(SimulatedEV3Platform platform) throws RemoteException {
+				platform.move(50, 0, CancellationToken.none());
+				return platform.getRobot().getX() - 50;
+			}
+		},
+		new Scenario("move 50 ultrasonic", "pivot", "ultrasonic"){
+			double run(SimulatedEV3Platform platform) throws RemoteException {
+				platform.move(50, 0, CancellationToken.none());
+				return platform.getRobot().getX() - 50;
+			}
+		},
+		new Scenario("shoot", "pivot", "tacho"){
+			double run(SimulatedEV3Platform platform) throws RemoteException {
+				platform.shoot();
+				return 0;
+			}
+		}
+	};
+	
+	public static void main(String[] args) throws IOException {
+		StringBuilder report = new StringBuilder();
+		report.append("| operation | latency (ms) | loss | mean time (ms) | max time (ms) | mean abs error | failed runs |\n");
+		report.append("|---|---|---|---|---|---|---|\n");
+		for(Scenario scenario : SCENARIOS){
+			for(double loss : LOSS_RATES){
+				for(int latency : LATENCIES){
+					report.append(measure(scenario, latency, loss)).append("\n");
+				}
+			}
+		}
+		System.out.print(report);
+		if(args.length > 0){
+			PrintWriter writer = new PrintWriter(new FileWriter(args[0]));
+			try{
+				writer.print(report);
+			} finally{
+				writer.close();
+			}
+		}
+	}
+	private static String measure(Scenario scenario, int latency, double loss){
+		long totalNanos = 0;
+		long maxNanos = 0;
+		double totalError = 0;
+		int failed = 0;
+		for(int seed = 1; seed <= RUNS; seed++){
+			SimulatedEV3Platform platform = new SimulatedEV3Platform(portInfo(scenario, latency, loss, seed));
+			platform.setUpEV3();
+			platform.setUpPorts();
+			VirtualClock clock = platform.getRobot().getClock();
+			try{
+				long start = clock.nanoTime();
+				double error = scenario.run(platform);
+				long elapsed = clock.nanoTime() - start;
+				totalNanos += elapsed;
+				maxNanos = Math.max(maxNanos, elapsed);
+				totalError += Math.abs(error);
+			} catch(RemoteException e){
+				failed++;
+			} finally{
+				platform.closePorts();
+			}
+		}
+		int succeeded = Math.max(1, RUNS - failed);
+		return String.format("| %s | %d | %.0f%% | %d | %d | %.1f | %d/%d |", scenario.name, latency, loss * 100,
+				TimeUnit.NANOSECONDS.toMillis(totalNanos / succeeded), TimeUnit.NANOSECONDS.toMillis(maxNanos),
+				totalError / succeeded, failed, RUNS);
+	}
+	private static PortInfo portInfo(Scenario scenario, int latency, double loss, int seed){
+		Properties prop = new Properties();
+		prop.setProperty("simulatedEV3", "true");
+		prop.setProperty("supervisor", "false");
+		//the smallest simulated round trip, the injector adds the latency under test on top
+		prop.setProperty("simLatencyMillis", "1");
+		prop.setProperty("simSeed", String.valueOf(seed));
+		prop.setProperty("turnMode", scenario.turnMode);
+		prop.setProperty("moveMode", scenario.moveMode);
+		prop.setProperty("injectDistribution", "lognormal");
+		prop.setProperty("injectLatencyMillis", String.valueOf(latency));
+		prop.setProperty("injectJitterMillis", String.valueOf(latency * JITTER));
+		prop.setProperty("injectLossRate", String.valueOf(loss));
+		prop.setProperty("injectSeed", String.valueOf(seed));
+		return new PortInfo(prop);
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.rmi.RemoteException;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import lejos.remote.ev3.RMISampleProvider;
+
+
+public class LatencyInjectorTest {
+	
+	private long sleptMillis;
+	private final Clock clock = new Clock(){
+		public long nanoTime(){
+			return sleptMillis * 1000000;
+		}
+		public void sleep(long millis){
+			sleptMillis += millis;
+		}
+	};
+	
+	private RMISampleProvider sensor(){
+		return (RMISampleProvider)Proxy.newProxyInstance(RMISampleProvider.class.getClassLoader(),
+				new Class<?>[] {RMISampleProvider.class}, new InvocationHandler(){
+			public Object invoke(Object proxy, Method method, Object[] args){
+				return new float[] {1};
+			}
+		});
+	}
+	private LatencyInjector injector(String distribution, double loss){
+		Properties prop = new Properties();
+		prop.setProperty("injectDistribution", distribution);
+		prop.setProperty("injectLatencyMillis", "50");
+		prop.setProperty("injectJitterMillis", "10");
+		prop.setProperty("injectLossRate", String.valueOf(loss));
+		return new LatencyInjector(new PortInfo(prop), clock);
+	}
+	@Test
+	public void testDelaysFollowDistribution() throws RemoteException {
+		for(String distribution : new String[] {"normal", "uniform", "lognormal"}){
+			sleptMillis = 0;
+			LatencyInjector injector = injector(distribution, 0);
+			RMISampleProvider sensor = (RMISampleProvider)injector.wrap(Device.GYRO, sensor());
+			for(int i = 0; i < 2000; i++){
+				assertEquals(1f, sensor.fetchSample()[0], 0);
+			}
+
+			assertEquals(50, sleptMillis / 2000.0, 2);
+			assertEquals(sleptMillis, injector.getInjectedMillis());
+		}
+	}
+	@Test
+	public void testInjectedLoss(){
+		LatencyInjector injector = injector("normal", 0.2);
+		RMISampleProvider sensor = (RMISampleProvider)injector.wrap(Device.GYRO, sensor());
+		int lost = 0;
+		for(int i = 0; i < 2000; i++){
+			try{
+				sensor.fetchSample();
+			} catch(RemoteException e){
+				lost++;
+			}
+		}
+
+		assertEquals(400, lost, 60);
+		assertEquals(lost, injector.getLossCount());
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.jhuapl.dorset.agents.AgentRequest;
+
+
+public class MetricsFeedTest {
+
+	private static EV3Agent agent;
+
+	@BeforeClass
+	public static void runBeforeTests(){
+		Properties prop = new Properties();
+		prop.setProperty("mockEV3", "true");
+		prop.setProperty("mockMotionMillis", "0");
+		prop.setProperty("metricsFeedMillis", "50");
+		prop.setProperty("metricsFeedHistory", "4");
+		agent = new EV3Agent(prop);
+	}
+	@AfterClass
+	public static void runAfterTests(){
+		agent.process(new AgentRequest("quit"));
+	}
+	@Test
+	public void testDeltaHoldsOnlyTheInterval() throws InterruptedException {
+		MetricsFeed feed = agent.getMetricsFeed();
+		MetricsFeed.Delta before = feed.poll(0, 1, TimeUnit.SECONDS);
+		assertNotNull(before);
+		agent.process(new AgentRequest("angle 5"));
+		MetricsFeed.Delta delta = feed.poll(before.getSequence(), 1, TimeUnit.SECONDS);
+		MetricsFeed.Delta quiet = feed.poll(delta.getSequence(), 1, TimeUnit.SECONDS);
+
+		assertEquals(before.getSequence() + 1, delta.getSequence());
+		assertTrue(delta.toJson().contains("\"angle\":{\"count\":1,"));
+		assertFalse(quiet.toJson().contains("\"angle\""));
+	}
+	@Test
+	public void testReaderBehindSkipsToOldestKept() throws InterruptedException {
+		MetricsFeed feed = agent.getMetricsFeed();
+		MetricsFeed.Delta first = feed.poll(0, 1, TimeUnit.SECONDS);
+		Thread.sleep(400);
+		MetricsFeed.Delta next = feed.poll(first.getSequence(), 1, TimeUnit.SECONDS);
+		long newest = feed.getSequence();
+
+		assertTrue(next.getSequence() > first.getSequence() + 1);
+		assertTrue(newest - next.getSequence() < 4);
+	}
+}
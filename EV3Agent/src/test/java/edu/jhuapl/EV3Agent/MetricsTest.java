@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.jhuapl.dorset.agents.AgentRequest;
+
+
+public class MetricsTest {
+
+	private static EV3Agent agent;
+
+	@BeforeClass
+	public static void runBeforeTests(){
+		Properties prop = new Properties();
+		prop.setProperty("mockEV3", "true");
+		prop.setProperty("mockMotionMillis", "0");
+		agent = new EV3Agent(prop);
+	}
+	@AfterClass
+	public static void runAfterTests(){
+		agent.process(new AgentRequest("quit"));
+	}
+	@Test
+	public void testHistogramPercentiles(){
+		LatencyHistogram histogram = new LatencyHistogram();
+		for(int i = 1; i <= 1000; i++){
+			histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+		}
+		LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+		assertEquals(1000, snapshot.getCount());
+		assertEquals(500, snapshot.getPercentileMillis(50), 500 / 64.0);
+		assertEquals(990, snapshot.getPercentileMillis(99), 990 / 64.0);
+		assertEquals(1000, snapshot.getMaxMillis(), 0.001);
+	}
+	@Test
+	public void testCountsCommands(){
+		agent.process(new AgentRequest("battery"));
+		agent.process(new AgentRequest("battery"));
+		agent.process(new AgentRequest("bat tree free"));
+		agent.process(new AgentRequest("help turn"));
+		Metrics.Snapshot snapshot = agent.getMetrics().snapshot();
+
+		assertEquals(2, snapshot.getCommands().get("battery").getCount());
+		assertEquals(1, (long)snapshot.getUntimedCommands().get("invalid"));
+		assertEquals(1, (long)snapshot.getUntimedCommands().get("help"));
+		assertFalse(snapshot.getCommands().containsKey("help"));
+		assertTrue(snapshot.getPlatformMethods().get("getBattery").getCount() >= 2);
+	}
+	@Test
+	public void testPrometheusText(){
+		Metrics metrics = new Metrics();
+		metrics.recordCommand("fire", TimeUnit.MILLISECONDS.toNanos(250));
+		String text = metrics.snapshot().toPrometheus();
+
+		assertTrue(text.contains("# TYPE ev3_command_seconds summary"));
+		assertTrue(text.contains("ev3_command_seconds_count{command=\"fire\"} 1"));
+		assertTrue(text.contains("ev3_command_seconds{command=\"fire\",quantile=\"0.5\"} 0.25"));
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+
+public class PhoneticMatcherTest {
+	
+	private PhoneticMatcher commands(double minConfidence, int cacheSize){
+		PhoneticMatcher matcher = new PhoneticMatcher(minConfidence, 2, 2, cacheSize);
+		for(String command : new String[] {"fire", "angle", "manual", "turn", "battery", "help"}){
+			matcher.add(command, command);
+		}
+		return matcher;
+	}
+	@Test
+	public void testMetaphone(){
+		assertEquals("FR", Metaphone.encode("four"));
+		assertEquals("FR", Metaphone.encode("for"));
+		assertEquals("AT", Metaphone.encode("eight"));
+		assertEquals("AT", Metaphone.encode("ate"));
+		assertEquals("ANKL", Metaphone.encode("angle"));
+		assertEquals("0M", Metaphone.encode("thumb"));
+		assertEquals("NT", Metaphone.encode("knight"));
+	}
+	@Test
+	public void testResolvesMisheardWords(){
+		PhoneticMatcher matcher = commands(0.65, 16);
+		
+		assertEquals("angle", matcher.resolve("ingle").getWord());
+		assertEquals("angle", matcher.resolve("mingle").getWord());
+		assertEquals("turn", matcher.resolve("tern").getWord());
+		assertEquals("battery", matcher.resolve("Batery").getWord());
+		assertEquals(1.0, matcher.resolve("fire").getConfidence(), 0);
+		assertNull(matcher.resolve("bad"));
+		assertNull(matcher.resolve("jump"));
+		assertNull(matcher.resolve("f"));
+	}
+	@Test
+	public void testConfidenceThreshold(){
+		assertEquals("angle", commands(0.6, 16).resolve("single").getWord());
+		assertNull(commands(0.7, 16).resolve("single"));
+	}
+	@Test
+	public void testMinHeardLength(){
+		PhoneticMatcher matcher = new PhoneticMatcher(0.65, 2, 2, 16);
+		matcher.add("fire", "fire", 5);
+		
+		assertNull(matcher.resolve("far"));
+		assertNull(matcher.resolve("hire"));
+		assertEquals("fire", matcher.resolve("fire").getWord());
+		assertEquals("fire", matcher.resolve("fyyre").getWord());
+	}
+	@Test
+	public void testCache(){
+		PhoneticMatcher matcher = commands(0.65, 2);
+		matcher.resolve("tern");
+		matcher.resolve("tern");
+		matcher.resolve("bad");
+		matcher.resolve("bad");
+		assertEquals(4, matcher.getLookups());
+		assertEquals(2, matcher.getCacheHits());
+		
+		matcher.resolve("yelp");
+		matcher.resolve("batery");
+		matcher.resolve("tern");
+		assertEquals(2, matcher.getCacheHits());
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.rmi.RemoteException;
+import java.util.Properties;
+
+import org.junit.Test;
+
+
+public class PidTurnStrategyTest {
+	
+	private static final long LATENCY_MILLIS = 20;
+	
+	private static PortInfo portInfo(){
+		Properties prop = new Properties();
+		prop.setProperty("turnMode", "pid");
+		return new PortInfo(prop);
+	}
+	private static TurnResult turn(PortInfo portInfo, KinematicRobot robot, int angle, 
+			CancellationToken token) throws RemoteException {
+		DifferentialDrive drive = new DifferentialDrive(robot.leftWheel(), robot.rightWheel(), 
+				DifferentialDrive.SAME_THREAD);
+		return new PidTurnStrategy(robot, portInfo).turn(drive, robot.gyro(), angle, token);
+	}
+	private static KinematicRobot robot(PortInfo portInfo){
+		return new KinematicRobot(LATENCY_MILLIS, portInfo.getWheelDiameter(), portInfo.getTrackWidth());
+	}
+	@Test
+	public void testSettlesOnTarget() throws RemoteException {
+		PortInfo portInfo = portInfo();
+		KinematicRobot robot = robot(portInfo);
+		TurnResult result = turn(portInfo, robot, 90, CancellationToken.none());
+
+		assertEquals(TurnResult.Outcome.COMPLETED, result.getOutcome());
+		assertEquals(90, robot.getHeading(), portInfo.getTurnTolerance() + 1);
+		assertTrue(result.getSettleMillis() < portInfo.getPidTimeoutMillis());
+	}
+	@Test
+	public void testTimesOut() throws RemoteException {
+		PortInfo portInfo = portInfo();
+		portInfo.setPidTimeoutMillis(300);
+		KinematicRobot robot = robot(portInfo);
+		TurnResult result = turn(portInfo, robot, 180, CancellationToken.none());
+
+		assertEquals(TurnResult.Outcome.TIMED_OUT, result.getOutcome());
+		assertTrue(result.isTimedOut());
+		assertFalse(result.isCancelled());
+		assertTrue(Math.abs(result.getError()) > portInfo.getTurnTolerance());
+	}
+	@Test
+	public void testIntegralDoesNotWindUp() throws RemoteException {
+		PortInfo portInfo = portInfo();
+		portInfo.setPidKi(10);
+		portInfo.setPidIntegralLimit(1e6);
+		KinematicRobot robot = robot(portInfo);
+		TurnResult result = turn(portInfo, robot, 360, CancellationToken.none());
+
+		assertEquals(TurnResult.Outcome.COMPLETED, result.getOutcome());
+		assertTrue(result.toString(), result.getOvershoot() < 5);
+	}
+}
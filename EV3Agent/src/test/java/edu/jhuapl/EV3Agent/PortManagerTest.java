@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.rmi.RemoteException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+
+import lejos.remote.ev3.RMIRegulatedMotor;
+
+
+public class PortManagerTest {
+	
+	private static final long OPEN_MILLIS = 100;
+	private final Set<Device> opened = Collections.newSetFromMap(new ConcurrentHashMap<Device, Boolean>());
+	private final Set<Device> closed = Collections.newSetFromMap(new ConcurrentHashMap<Device, Boolean>());
+	
+	private PortManager.Opener slowOpener(){
+		return new PortManager.Opener(){
+			public Object open(final Device device) throws RemoteException {
+				try{
+					Thread.sleep(OPEN_MILLIS);
+				} catch(InterruptedException e){
+					throw new RemoteException("Interrupted", e);
+				}
+				if(device == Device.TOUCH){
+					throw new RemoteException("No sensor on port");
+				}
+				opened.add(device);
+				return Proxy.newProxyInstance(RMIRegulatedMotor.class.getClassLoader(),
+						new Class<?>[] {RMIRegulatedMotor.class}, new InvocationHandler(){
+					public Object invoke(Object proxy, Method method, Object[] args){
+						if(method.getName().equals("close")){
+							closed.add(device);
+						}
+						return null;
+					}
+				});
+			}
+		};
+	}
+	@Test
+	public void testPortsOpenInParallel() throws RemoteException {
+		PortManager ports = new PortManager(slowOpener(), 4);
+		long start = System.nanoTime();
+		ports.open(Device.LEFT_WHEEL, Device.RIGHT_WHEEL, Device.SHOOTER, Device.SHOOTER_ANGLE);
+		ports.motor(Device.LEFT_WHEEL);
+		ports.motor(Device.RIGHT_WHEEL);
+		ports.motor(Device.SHOOTER);
+		ports.motor(Device.SHOOTER_ANGLE);
+		long elapsedMillis = (System.nanoTime() - start) / 1000000;
+		ports.close();
+
+		assertTrue(elapsedMillis < 2 * OPEN_MILLIS);
+		assertEquals(4, closed.size());
+		assertTrue(ports.describe().contains("Left Wheel: done in"));
+	}
+	@Test
+	public void testPortsOpenLazily() throws RemoteException {
+		PortManager ports = new PortManager(slowOpener(), 2);
+		ports.motor(Device.SHOOTER);
+		ports.motor(Device.SHOOTER);
+
+		assertTrue(ports.isOpen(Device.SHOOTER));
+		assertFalse(ports.isOpen(Device.GYRO));
+		assertEquals(1, opened.size());
+		ports.close();
+	}
+	@Test
+	public void testFailedPortThrows(){
+		PortManager ports = new PortManager(slowOpener(), 2);
+		try{
+			ports.get(Device.TOUCH);
+			fail("Opening the touch sensor should fail");
+		} catch(RemoteException e){
+			assertEquals("No sensor on port", e.getMessage());
+		}
+		assertFalse(ports.isOpen(Device.TOUCH));
+		assertTrue(ports.describe().contains("Touch Sensor: failed in"));
+		ports.close();
+	}
+}
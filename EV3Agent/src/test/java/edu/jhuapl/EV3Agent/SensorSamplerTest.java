@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.rmi.RemoteException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+
+public class SensorSamplerTest {
+
+	@Test
+	public void testRingBufferWraps(){
+		SampleRingBuffer buffer = new SampleRingBuffer(4);
+		for(int i = 1; i <= 10; i++){
+			buffer.publish(i, i);
+		}
+		float[] values = new float[8];
+		long[] timestamps = new long[8];
+		int count = buffer.copyRecent(values, timestamps);
+
+		assertEquals(10, buffer.getSequence());
+		assertEquals(10f, buffer.latestValue(), 0);
+		assertEquals(3, count);
+		assertEquals(8f, values[0], 0);
+		assertEquals(10L, timestamps[2]);
+	}
+	@Test
+	public void testEmptyBuffer(){
+		SampleRingBuffer buffer = new SampleRingBuffer(4);
+
+		assertTrue(Float.isNaN(buffer.latestValue()));
+		assertEquals(0L, buffer.latestTimestamp());
+	}
+	@Test
+	public void testSamplerPublishesInBackground() throws RemoteException, InterruptedException {
+		SensorSampler sampler = new SensorSampler(200, 100);
+		sampler.addSensor(Sensor.GYRO, new SampleSource(){
+			private float heading = 0;
+			public float fetch(){
+				return heading++;
+			}
+		});
+		sampler.start();
+		SampleSource reader = sampler.reader(Sensor.GYRO);
+		float first = reader.fetch();
+		float second = reader.fetch();
+		Thread.sleep(1100);
+		sampler.stop();
+
+		assertTrue(second > first);
+		assertTrue(sampler.getSampleRate(Sensor.GYRO) > 100);
+		assertTrue(sampler.getStalenessMillis(Sensor.GYRO) >= 0);
+	}
+	@Test
+	public void testSamplerSurvivesRuntimeException() throws RemoteException {
+		final AtomicBoolean thrown = new AtomicBoolean();
+		SensorSampler sampler = new SensorSampler(200, 100);
+		sampler.addSensor(Sensor.GYRO, new SampleSource(){
+			public float fetch(){
+				if(thrown.compareAndSet(false, true)){
+					throw new IllegalStateException("Port failed");
+				}
+				return 45f;
+			}
+		});
+		sampler.start();
+		float sample = sampler.reader(Sensor.GYRO).fetch();
+		sampler.stop();
+
+		assertTrue(thrown.get());
+		assertEquals(45f, sample, 0);
+		assertEquals(1, sampler.getErrorCount(Sensor.GYRO));
+	}
+	@Test
+	public void testStalledSamplerFails() throws RemoteException {
+		final AtomicBoolean stalled = new AtomicBoolean();
+		SensorSampler sampler = new SensorSampler(200, 100);
+		sampler.addSensor(Sensor.ULTRASONIC, new SampleSource(){
+			public float fetch() throws RemoteException {
+				if(stalled.get()){
+					throw new RemoteException("No response");
+				}
+				return 0.5f;
+			}
+		});
+		sampler.start();
+		SampleSource reader = sampler.reader(Sensor.ULTRASONIC);
+		reader.fetch();
+		stalled.set(true);
+		long start = System.nanoTime();
+		try{
+			reader.fetch();
+			fail("A stale sample should not be returned");
+		} catch(RemoteException e){
+			assertTrue(e.getMessage(), e.getMessage().contains("ms old"));
+		}
+		long elapsedMillis = (System.nanoTime() - start) / 1000000;
+		sampler.stop();
+
+		assertTrue(elapsedMillis >= 90);
+		assertTrue(elapsedMillis < 1000);
+	}
+	@Test
+	public void testLostConnectionFailsFast() throws RemoteException {
+		SensorSampler sampler = new SensorSampler(200, 3000);
+		sampler.addSensor(Sensor.GYRO, new SampleSource(){
+			public float fetch() throws RemoteException {
+				throw new ConnectionLostException("The connection to the EV3 is down, reconnecting");
+			}
+		});
+		sampler.start();
+		long start = System.nanoTime();
+		try{
+			sampler.reader(Sensor.GYRO).fetch();
+			fail("No sample should be returned while the connection is down");
+		} catch(ConnectionLostException e){
+			assertTrue(e.getMessage(), e.getMessage().contains("No samples received"));
+		}
+		long elapsedMillis = (System.nanoTime() - start) / 1000000;
+		sampler.stop();
+
+		assertTrue(elapsedMillis < 1000);
+	}
+}
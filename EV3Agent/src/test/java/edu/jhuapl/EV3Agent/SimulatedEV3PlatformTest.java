@@ -0,0 +1,210 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.rmi.RemoteException;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import edu.jhuapl.dorset.agents.AgentRequest;
+import lejos.remote.ev3.RMISampleProvider;
+
+
+public class SimulatedEV3PlatformTest {
+	
+	private static Properties properties(String turnMode, String moveMode){
+		Properties prop = new Properties();
+		prop.setProperty("supervisor", "false");
+		prop.setProperty("turnMode", turnMode);
+		prop.setProperty("moveMode", moveMode);
+		return prop;
+	}
+	private static SimulatedEV3Platform setUp(SimulatedEV3Platform platform){
+		platform.setUpEV3();
+		platform.setUpPorts();
+		return platform;
+	}
+	private SimulatedEV3Platform platform(String turnMode, String moveMode){
+		return setUp(new SimulatedEV3Platform(new PortInfo(properties(turnMode, moveMode))));
+	}
+	private static boolean guardThreadAlive(){
+		for(Thread thread : Thread.getAllStackTraces().keySet()){
+			if(thread.getName().equals("ev3-obstacle-guard") && thread.isAlive()){
+				return true;
+			}
+		}
+		return false;
+	}
+	@Test
+	public void testSpinTurnReachesHeading() throws RemoteException {
+		SimulatedEV3Platform platform = platform("spin", "ultrasonic");
+		platform.turn(90, CancellationToken.none());
+		SimulatedRobot robot = platform.getRobot();
+		platform.closePorts();
+
+		assertEquals(90, robot.getHeading(), 4);
+		assertTrue(robot.getClock().nanoTime() > 0);
+		assertEquals(90, platform.getLastTurnResult().getAngle());
+	}
+	@Test
+	public void testMoveByRotation() throws RemoteException {
+		SimulatedEV3Platform platform = platform("pivot", "tacho");
+		boolean moved = platform.move(30, 0, CancellationToken.none());
+		moved &= platform.move(-10, 0, CancellationToken.none());
+		SimulatedRobot robot = platform.getRobot();
+		platform.closePorts();
+
+		assertTrue(moved);
+		assertEquals(20, robot.getX(), 1);
+		assertEquals(0, robot.getHeading(), 1);
+	}
+	@Test
+	public void testGuardStopsBeforeObstacle() throws Exception {
+		Properties prop = properties("pivot", "tacho");
+		prop.setProperty("simArenaSize", "80");
+		//paced so the guard thread keeps up with the move
+		prop.setProperty("simSpeedup", "10");
+		SimulatedEV3Platform platform = setUp(new SimulatedEV3Platform(new PortInfo(prop)));
+		boolean moved = platform.move(100, 0, CancellationToken.none());
+		SimulatedRobot robot = platform.getRobot();
+		platform.closePorts();
+		for(int i = 0; i < 100 && guardThreadAlive(); i++){
+			Thread.sleep(10);
+		}
+
+		assertFalse(moved);
+		//the wall is 40 cm ahead, the guard stops 15 cm from it
+		assertEquals(25, robot.getX(), 3);
+		assertFalse(guardThreadAlive());
+	}
+	@Test
+	public void testGuardStopsWhenSensorFails(){
+		Properties prop = properties("pivot", "tacho");
+		prop.setProperty("simSpeedup", "10");
+		SimulatedEV3Platform platform = setUp(new SimulatedEV3Platform(new PortInfo(prop)){
+			@Override
+			protected Object openPort(Device device){
+				Object port = super.openPort(device);
+				if(device != Device.ULTRASONIC){
+					return port;
+				}
+				return Proxy.newProxyInstance(RMISampleProvider.class.getClassLoader(), 
+						new Class<?>[] {RMISampleProvider.class}, new InvocationHandler(){
+					public Object invoke(Object proxy, Method method, Object[] args) throws RemoteException {
+						throw new RemoteException("No response");
+					}
+				});
+			}
+		});
+		try{
+			platform.move(100, 0, CancellationToken.none());
+			fail("A move should fail when the Ultrasonic Sensor cannot be read");
+		} catch(RemoteException e){
+			assertTrue(e.getMessage(), e.getMessage().contains("Ultrasonic Sensor could not be read"));
+		}
+		SimulatedRobot robot = platform.getRobot();
+		platform.closePorts();
+
+		assertTrue(robot.getX() < 10);
+	}
+	@Test
+	public void testBlockedMoveAnswered(){
+		Properties prop = new Properties();
+		prop.setProperty("simulatedEV3", "true");
+		prop.setProperty("moveMode", "tacho");
+		prop.setProperty("simArenaSize", "80");
+		prop.setProperty("simSpeedup", "10");
+		EV3Agent agent = new EV3Agent(prop);
+		String response = agent.process(new AgentRequest("move 100")).getText();
+		agent.process(new AgentRequest("quit"));
+
+		assertEquals("Stopped moving because of an object in front of the robot", response);
+	}
+	@Test
+	public void testUltrasonicMove() throws RemoteException {
+		SimulatedEV3Platform platform = platform("pivot", "ultrasonic");
+		platform.move(50, 0, CancellationToken.none());
+		SimulatedRobot robot = platform.getRobot();
+		platform.closePorts();
+
+		assertEquals(50, robot.getX(), 5);
+	}
+	@Test
+	public void testPidTimeoutAnswered(){
+		Properties prop = new Properties();
+		prop.setProperty("simulatedEV3", "true");
+		prop.setProperty("simSpeedup", "0");
+		prop.setProperty("turnMode", "pid");
+		prop.setProperty("pidTimeoutMillis", "200");
+		EV3Agent agent = new EV3Agent(prop);
+		String response = agent.process(new AgentRequest("turn 180")).getText();
+		agent.process(new AgentRequest("quit"));
+
+		assertTrue(response, response.startsWith("Turn timed out after"));
+	}
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroLatencyRejected(){
+		Properties prop = properties("pid", "ultrasonic");
+		//no simulated time would pass while the turn loop polls the gyro
+		prop.setProperty("simLatencyMillis", "0");
+		new PortInfo(prop);
+	}
+	@Test
+	public void testSameSeedRepeats() throws RemoteException {
+		double[] headings = new double[2];
+		long[] times = new long[2];
+		Properties prop = properties("pid", "ultrasonic");
+		//ports opened in the background would advance the clock while the turn runs
+		prop.setProperty("lazyPorts", "true");
+		for(int i = 0; i < 2; i++){
+			SimulatedEV3Platform platform = setUp(new SimulatedEV3Platform(new PortInfo(prop)));
+			platform.turn(-45, CancellationToken.none());
+			headings[i] = platform.getRobot().getHeading();
+			times[i] = platform.getLastTurnResult().getElapsedMillis();
+			platform.closePorts();
+		}
+
+		assertEquals(headings[0], headings[1], 0);
+		assertEquals(times[0], times[1]);
+	}
+	@Test
+	public void testShootWaitsForTouchSensor() throws RemoteException {
+		SimulatedEV3Platform platform = platform("pivot", "ultrasonic");
+		platform.setUpShooter();
+		SimulatedRobot robot = platform.getRobot();
+		long start = robot.getClock().nanoTime();
+		platform.touchSensor(CancellationToken.none());
+		long elapsedMillis = (robot.getClock().nanoTime() - start) / 1000000;
+		int shooter = robot.getTachoCount(Device.SHOOTER);
+		platform.closePorts();
+
+		PortInfo portInfo = new PortInfo();
+		int fired = portInfo.getShooterSetUp() + portInfo.getShooterWindUp() + portInfo.getShooterThrow() 
+				+ Math.abs(portInfo.getShooterThrow()) - Math.abs(portInfo.getShooterWindUp());
+		assertTrue(elapsedMillis >= 1000);
+		assertEquals(fired, shooter);
+	}
+}
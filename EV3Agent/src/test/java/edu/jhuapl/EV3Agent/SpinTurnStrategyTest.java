@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.rmi.RemoteException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+
+public class SpinTurnStrategyTest {
+	
+	private static final long LATENCY_MILLIS = 20;
+	private static final long COAST_MILLIS = 500;
+	
+	private static TurnResult turn(PortInfo portInfo, KinematicRobot robot, int angle, 
+			CancellationToken token) throws RemoteException {
+		DifferentialDrive drive = new DifferentialDrive(robot.leftWheel(), robot.rightWheel(), 
+				DifferentialDrive.SAME_THREAD);
+		return new SpinTurnStrategy(robot, portInfo).turn(drive, robot.gyro(), angle, token);
+	}
+	@Test
+	public void testReachesHeadingBothWays() throws RemoteException {
+		PortInfo portInfo = new PortInfo(new Properties());
+		for(int angle : new int[] {90, -90, 360}){
+			KinematicRobot robot = new KinematicRobot(LATENCY_MILLIS, portInfo.getWheelDiameter(), 
+					portInfo.getTrackWidth());
+			TurnResult result = turn(portInfo, robot, angle, CancellationToken.none());
+			robot.advance(TimeUnit.MILLISECONDS.toNanos(COAST_MILLIS));
+
+			assertFalse(result.isCancelled());
+			assertEquals(result.toString(), angle, robot.getHeading(), 4);
+		}
+	}
+	@Test
+	public void testCancelledTurnStops() throws RemoteException {
+		PortInfo portInfo = new PortInfo(new Properties());
+		KinematicRobot robot = new KinematicRobot(LATENCY_MILLIS, portInfo.getWheelDiameter(), 
+				portInfo.getTrackWidth());
+		CancellationToken token = new CancellationToken();
+		token.cancel();
+		TurnResult result = turn(portInfo, robot, 180, token);
+		robot.advance(TimeUnit.MILLISECONDS.toNanos(COAST_MILLIS));
+		double heading = robot.getHeading();
+		robot.advance(TimeUnit.MILLISECONDS.toNanos(COAST_MILLIS));
+
+		assertTrue(result.isCancelled());
+		assertEquals(TurnResult.Outcome.CANCELLED, result.getOutcome());
+		assertEquals(heading, robot.getHeading(), 0);
+		assertTrue(Math.abs(heading) < 30);
+	}
+}
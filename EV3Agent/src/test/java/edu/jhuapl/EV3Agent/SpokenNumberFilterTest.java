@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import edu.jhuapl.dorset.Request;
+
+
+public class SpokenNumberFilterTest {
+
+	private final SpokenNumberFilter filter = new SpokenNumberFilter();
+
+	@Test
+	public void testCardinals(){
+		assertEquals("turn 180", filter.normalize("turn one hundred eighty"));
+		assertEquals("angle 25", filter.normalize("angle Twenty Five"));
+		assertEquals("move 105", filter.normalize("move one hundred and five"));
+		assertEquals("move 42", filter.normalize("move forty-two"));
+		assertEquals("turn 1500", filter.normalize("turn fifteen hundred"));
+		assertEquals("move 0", filter.normalize("move zero"));
+	}
+	@Test
+	public void testNegatives(){
+		assertEquals("turn -180", filter.normalize("turn negative one hundred and eighty"));
+		assertEquals("angle -5", filter.normalize("angle minus 5"));
+		assertEquals("turn negative", filter.normalize("turn negative"));
+	}
+	@Test
+	public void testNumbersEnd(){
+		assertEquals("move 10 5", filter.normalize("move ten five"));
+		assertEquals("move 25", filter.normalize("move twenty 5"));
+		assertEquals("turn 100 and", filter.normalize("turn one hundred and"));
+		assertEquals("help 1 and 2", filter.normalize("help one and two"));
+		assertEquals("hundred twentyfive tone", filter.normalize("hundred twentyfive tone"));
+	}
+	@Test
+	public void testUnchanged(){
+		String text = "turn -90 and move 10";
+
+		assertSame(text, filter.normalize(text));
+	}
+	@Test
+	public void testAfterAliases() throws IOException {
+		Request request = new Request("ternate negative one hundred");
+
+		filter.filter(AliasFilter.loadDefault().filter(request));
+		assertEquals("turn 8 -100", request.getText());
+	}
+}
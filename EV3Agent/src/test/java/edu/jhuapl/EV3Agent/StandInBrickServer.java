@@ -0,0 +1,331 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.rmi.NoSuchObjectException;
+import java.rmi.NotBoundException;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.LoggerFactory;
+
+import lejos.remote.ev3.RMIEV3;
+import lejos.remote.ev3.RMIRegulatedMotor;
+import lejos.remote.ev3.RMISampleProvider;
+
+/**
+ * Stands in for an EV3 brick on this machine. Starts an RMI registry and 
+ * binds a RemoteEV3 whose motors and sample providers are exported RMI 
+ * objects backed by a SimulatedRobot running in real time, so the 
+ * RemoteEV3Platform can connect to ipAddress 127.0.0.1:port and go through 
+ * the real RMI stubs and serialization. dropConnections unexports every 
+ * object as a lost link would, and restore binds the brick again.
+ */
+public class StandInBrickServer {
+	
+	private static final org.slf4j.Logger logger = LoggerFactory.getLogger(StandInBrickServer.class);
+	public static final String NAME = "RemoteEV3";
+	private static final long DRIVER_PERIOD_MILLIS = 1;
+	private final PortInfo portInfo;
+	private final int port;
+	private final SimulatedRobot robot;
+	private final List<Remote> exported = new ArrayList<Remote>();
+	private final AtomicLong calls = new AtomicLong();
+	private Registry registry;
+	private ScheduledExecutorService driver;
+	
+	/**
+	 * Constructor
+	 * @param portInfo Motor and sensor ports and sim settings of the simulated robot
+	 * @param port Port of the RMI registry
+	 */
+	public StandInBrickServer(PortInfo portInfo, int port){
+		this.portInfo = portInfo;
+		this.port = port;
+		//the RMI link supplies the latency and the robot keeps pace with the wall clock
+		portInfo.setSimLatencyMillis(0);
+		portInfo.setSimSpeedup(1);
+		this.robot = new SimulatedRobot(portInfo);
+	}
+	/**
+	 * Starts the registry, binds the brick and starts the simulation
+	 * @throws RemoteException
+	 */
+	public synchronized void start() throws RemoteException {
+		registry = LocateRegistry.createRegistry(port);
+		bind();
+		final long startNanos = System.nanoTime();
+		final VirtualClock clock = robot.getClock();
+		driver = Executors.newSingleThreadScheduledExecutor(new ThreadFactory(){
+			public Thread newThread(Runnable r){
+				Thread thread = new Thread(r, "stand-in-brick-clock");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		driver.scheduleAtFixedRate(new Runnable(){
+			public void run(){
+				clock.advanceTo(System.nanoTime() - startNanos);
+			}
+		}, DRIVER_PERIOD_MILLIS, DRIVER_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+		logger.info("Stand-in EV3 listening at " + getAddress());
+	}
+	/**
+	 * @return ipAddress setting that connects to this server
+	 */
+	public String getAddress(){
+		return "127.0.0.1:" + port;
+	}
+	public SimulatedRobot getRobot(){
+		return robot;
+	}
+	/**
+	 * @return number of RMI calls the server has handled
+	 */
+	public long getCallCount(){
+		return calls.get();
+	}
+	private void bind() throws RemoteException {
+		RMIEV3 brick = (RMIEV3)export(RMIEV3.class, new InvocationHandler(){
+			public Object invoke(Object proxy, Method method, Object[] args) throws RemoteException {
+				calls.incrementAndGet();
+				switch(method.getName()){
+					case "createRegulatedMotor":
+						return openMotor((String)args[0]);
+					case "createSampleProvider":
+						return openSensor((String)args[1]);
+					case "getName":
+						return "Stand-in EV3";
+					default:
+						return stub(method.getReturnType());
+				}
+			}
+		});
+		registry.rebind(NAME, brick);
+	}
+	/**
+	 * Exports a remote object that accepts every call and does nothing, for 
+	 * the keys, LCD, audio, LEDs and other parts of the brick that RemoteEV3 
+	 * looks up but the simulation has no use for
+	 * @param type Return type of the RMIEV3 method
+	 * @return Remote stub of type, or the type's default value when it is not remote
+	 * @throws RemoteException
+	 */
+	private Object stub(Class<?> type) throws RemoteException {
+		if(!Remote.class.isAssignableFrom(type)){
+			return defaultValue(type);
+		}
+		return export(type.asSubclass(Remote.class), new InvocationHandler(){
+			public Object invoke(Object proxy, Method method, Object[] args) throws RemoteException {
+				calls.incrementAndGet();
+				if(method.getName().equals("close")){
+					unexport((Remote)proxy);
+					return null;
+				}
+				return stub(method.getReturnType());
+			}
+		});
+	}
+	/**
+	 * @param type
+	 * @return zero, false or null as the type requires
+	 */
+	private static Object defaultValue(Class<?> type){
+		if(!type.isPrimitive() || type == void.class){
+			return null;
+		}
+		if(type == boolean.class){
+			return false;
+		}
+		if(type == char.class){
+			return '\0';
+		}
+		return Array.get(Array.newInstance(type, 1), 0);
+	}
+	private RMIRegulatedMotor openMotor(String motorPort) throws RemoteException {
+		Device device;
+		if(motorPort.equals(portInfo.getRightWheelPort())){
+			device = Device.RIGHT_WHEEL;
+		}
+		else if(motorPort.equals(portInfo.getLeftWheelPort())){
+			device = Device.LEFT_WHEEL;
+		}
+		else if(motorPort.equals(portInfo.getShooterPort())){
+			device = Device.SHOOTER;
+		}
+		else if(motorPort.equals(portInfo.getShooterAnglePort())){
+			device = Device.SHOOTER_ANGLE;
+		}
+		else{
+			throw new IllegalArgumentException("No motor on port " + motorPort);
+		}
+		return (RMIRegulatedMotor)export(RMIRegulatedMotor.class, delegate(robot.open(device)));
+	}
+	private RMISampleProvider openSensor(String sensorName) throws RemoteException {
+		Device device;
+		if(sensorName.endsWith("EV3GyroSensor")){
+			device = Device.GYRO;
+		}
+		else if(sensorName.endsWith("EV3UltrasonicSensor")){
+			device = Device.ULTRASONIC;
+		}
+		else if(sensorName.endsWith("EV3TouchSensor")){
+			device = Device.TOUCH;
+		}
+		else{
+			throw new IllegalArgumentException("No simulated sensor " + sensorName);
+		}
+		return (RMISampleProvider)export(RMISampleProvider.class, delegate(robot.open(device)));
+	}
+	/**
+	 * @param target Simulated port
+	 * @return InvocationHandler forwarding remote calls to the simulated port
+	 */
+	private InvocationHandler delegate(final Object target){
+		return new InvocationHandler(){
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				calls.incrementAndGet();
+				if(method.getName().equals("close")){
+					unexport((Remote)proxy);
+					return null;
+				}
+				try{
+					return method.invoke(target, args);
+				} catch(InvocationTargetException e){
+					throw e.getCause();
+				}
+			}
+		};
+	}
+	/**
+	 * Exports a dynamic proxy of a remote interface on an anonymous port
+	 * @param type
+	 * @param handler
+	 * @return Remote exported object
+	 * @throws RemoteException
+	 */
+	private Remote export(Class<? extends Remote> type, final InvocationHandler handler) throws RemoteException {
+		Remote remote = (Remote)Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, 
+				new InvocationHandler(){
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if(method.getDeclaringClass() == Object.class){
+					if(method.getName().equals("equals")){
+						return proxy == args[0];
+					}
+					if(method.getName().equals("hashCode")){
+						return System.identityHashCode(proxy);
+					}
+					return "Stand-in " + method.getDeclaringClass().getSimpleName();
+				}
+				return handler.invoke(proxy, method, args);
+			}
+		});
+		UnicastRemoteObject.exportObject(remote, 0);
+		synchronized(exported){
+			exported.add(remote);
+		}
+		return remote;
+	}
+	private void unexport(Remote remote){
+		try{
+			UnicastRemoteObject.unexportObject(remote, true);
+		} catch(NoSuchObjectException e){
+			logger.debug("Already unexported " + e.getMessage());
+		}
+		synchronized(exported){
+			exported.remove(remote);
+		}
+	}
+	/**
+	 * Unbinds the brick and unexports every motor and sensor, so calls on 
+	 * existing stubs fail and lookups find nothing, as when the link drops
+	 */
+	public synchronized void dropConnections(){
+		try{
+			registry.unbind(NAME);
+		} catch(RemoteException | NotBoundException e){
+			logger.debug("Brick was not bound " + e.getMessage());
+		}
+		List<Remote> remotes;
+		synchronized(exported){
+			remotes = new ArrayList<Remote>(exported);
+		}
+		for(Remote remote : remotes){
+			unexport(remote);
+		}
+		logger.info("Stand-in EV3 dropped its connections");
+	}
+	/**
+	 * Binds the brick again after dropConnections
+	 * @throws RemoteException
+	 */
+	public synchronized void restore() throws RemoteException {
+		bind();
+		logger.info("Stand-in EV3 is back");
+	}
+	/**
+	 * Unexports everything and stops the registry
+	 */
+	public synchronized void stop(){
+		dropConnections();
+		driver.shutdownNow();
+		try{
+			UnicastRemoteObject.unexportObject(registry, true);
+		} catch(NoSuchObjectException e){
+			logger.debug("Registry already stopped " + e.getMessage());
+		}
+	}
+	/**
+	 * Runs a stand-in brick until the process is killed
+	 * @param args Registry port, default 1099, and an optional properties file with the robot's ports
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : Registry.REGISTRY_PORT;
+		Properties prop = new Properties();
+		if(args.length > 1){
+			InputStream input = new FileInputStream(args[1]);
+			try{
+				prop.load(input);
+			} finally{
+				input.close();
+			}
+		}
+		StandInBrickServer server = new StandInBrickServer(new PortInfo(prop), port);
+		server.start();
+		System.out.println("Set ipAddress=" + server.getAddress() + " to connect the agent to the stand-in EV3");
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.rmi.RemoteException;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class StandInBrickServerTest {
+	
+	private StandInBrickServer server;
+	private RemoteEV3Platform platform;
+	
+	@Before
+	public void setUp() throws Exception {
+		int port;
+		ServerSocket socket = new ServerSocket(0);
+		try{
+			port = socket.getLocalPort();
+		} finally{
+			socket.close();
+		}
+		server = new StandInBrickServer(new PortInfo(new Properties()), port);
+		server.start();
+		Properties prop = new Properties();
+		prop.setProperty("ipAddress", server.getAddress());
+		prop.setProperty("turnMode", "spin");
+		prop.setProperty("moveMode", "tacho");
+		prop.setProperty("heartbeatMillis", "50");
+		prop.setProperty("rmiTimeoutMillis", "500");
+		prop.setProperty("reconnectMinMillis", "50");
+		platform = new RemoteEV3Platform(new PortInfo(prop));
+		platform.setUpEV3();
+		platform.setUpPorts();
+	}
+	@After
+	public void tearDown() throws IOException {
+		platform.closePorts();
+		server.stop();
+	}
+	@Test
+	public void testTurnAndMoveOverRMI() throws RemoteException {
+		platform.turn(90, CancellationToken.none());
+		double heading = server.getRobot().getHeading();
+		platform.turn(-90, CancellationToken.none());
+		platform.move(20, 0, CancellationToken.none());
+
+		assertEquals(90, heading, 6);
+		assertEquals(20, server.getRobot().getX(), 3);
+		assertTrue(server.getCallCount() > 20);
+	}
+	@Test
+	public void testReconnectsAfterDrop() throws Exception {
+		platform.turn(45, CancellationToken.none());
+		server.dropConnections();
+		try{
+			platform.turn(45, CancellationToken.none());
+			platform.turn(45, CancellationToken.none());
+			fail("Turning should fail while the brick is unreachable");
+		} catch(RemoteException e){
+			assertTrue(e.getMessage() != null);
+		}
+		server.restore();
+		ConnectionSupervisor supervisor = platform.getConnectionSupervisor();
+		for(int i = 0; i < 200 && supervisor.getReconnectCount() == 0; i++){
+			Thread.sleep(10);
+		}
+		platform.turn(-45, CancellationToken.none());
+
+		assertEquals(1, supervisor.getReconnectCount());
+		assertTrue(supervisor.getReopenedPortCount() > 0);
+		assertEquals(0, server.getRobot().getHeading(), 8);
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.net.ServerSocket;
+import java.rmi.RemoteException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import lejos.remote.ev3.RMIRegulatedMotor;
+import lejos.remote.ev3.RemoteEV3;
+
+/**
+ * Soak test of the RemoteEV3Platform against a StandInBrickServer over 
+ * real RMI. Measures the round trip of a single motor call, then turns and 
+ * moves back and forth for the given number of seconds while the brick 
+ * drops its connections every few seconds, and reports how many operations 
+ * succeeded, how long they took and how the supervisor recovered. Run with
+ * mvn test-compile exec:java -Dexec.mainClass=edu.jhuapl.EV3Agent.StandInSoakBenchmark -Dexec.classpathScope=test -Dexec.args="60 10"
+ */
+public class StandInSoakBenchmark {
+	
+	private static final int ROUND_TRIPS = 2000;
+	
+	/**
+	 * @param args Seconds to run, default 30, and seconds between drops, default 10, 0 for none
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		long seconds = args.length > 0 ? Long.parseLong(args[0]) : 30;
+		long dropSeconds = args.length > 1 ? Long.parseLong(args[1]) : 10;
+		ServerSocket socket = new ServerSocket(0);
+		int port = socket.getLocalPort();
+		socket.close();
+		StandInBrickServer server = new StandInBrickServer(new PortInfo(new Properties()), port);
+		server.start();
+		measureRoundTrip(server.getAddress());
+		
+		Properties prop = new Properties();
+		prop.setProperty("ipAddress", server.getAddress());
+		prop.setProperty("turnMode", "spin");
+		prop.setProperty("moveMode", "tacho");
+		prop.setProperty("heartbeatMillis", "200");
+		prop.setProperty("rmiTimeoutMillis", "1000");
+		RemoteEV3Platform platform = new RemoteEV3Platform(new PortInfo(prop));
+		platform.setUpEV3();
+		platform.setUpPorts();
+		int succeeded = 0;
+		int failed = 0;
+		long totalNanos = 0;
+		long maxNanos = 0;
+		long start = System.nanoTime();
+		long nextDrop = dropSeconds > 0 ? start + TimeUnit.SECONDS.toNanos(dropSeconds) : Long.MAX_VALUE;
+		for(int i = 0; System.nanoTime() - start < TimeUnit.SECONDS.toNanos(seconds); i++){
+			if(System.nanoTime() >= nextDrop){
+				server.dropConnections();
+				Thread.sleep(500);
+				server.restore();
+				nextDrop += TimeUnit.SECONDS.toNanos(dropSeconds);
+			}
+			long opStart = System.nanoTime();
+			try{
+				if(i % 2 == 0){
+					platform.turn(i % 4 == 0 ? 90 : -90, CancellationToken.none());
+				}
+				else{
+					platform.move(i % 4 == 1 ? 20 : -20, 0, CancellationToken.none());
+				}
+				long took = System.nanoTime() - opStart;
+				totalNanos += took;
+				maxNanos = Math.max(maxNanos, took);
+				succeeded++;
+			} catch(RemoteException e){
+				failed++;
+				Thread.sleep(100);
+			}
+		}
+		ConnectionSupervisor supervisor = platform.getConnectionSupervisor();
+		System.out.println(String.format("operations: %d succeeded, %d failed", succeeded, failed));
+		System.out.println(String.format("operation time: mean %d ms, max %d ms", 
+				TimeUnit.NANOSECONDS.toMillis(totalNanos / Math.max(1, succeeded)), TimeUnit.NANOSECONDS.toMillis(maxNanos)));
+		System.out.println(String.format("brick handled %d RMI calls", server.getCallCount()));
+		System.out.println(supervisor.describe());
+		platform.closePorts();
+		server.stop();
+	}
+	/**
+	 * Times getTachoCount over RMI, which is the stub, serialization and 
+	 * loopback cost every motor call pays on top of the radio link
+	 * @param address
+	 * @throws Exception
+	 */
+	private static void measureRoundTrip(String address) throws Exception {
+		RemoteEV3 ev3 = new RemoteEV3(address);
+		RMIRegulatedMotor motor = ev3.createRegulatedMotor("A", 'L');
+		for(int i = 0; i < ROUND_TRIPS / 10; i++){
+			motor.getTachoCount();
+		}
+		long start = System.nanoTime();
+		for(int i = 0; i < ROUND_TRIPS; i++){
+			motor.getTachoCount();
+		}
+		long took = System.nanoTime() - start;
+		motor.close();
+		System.out.println(String.format("RMI round trip: %.1f us", took / 1000.0 / ROUND_TRIPS));
+	}
+}
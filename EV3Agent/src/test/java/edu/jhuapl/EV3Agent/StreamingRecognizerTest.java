@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Properties;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.jhuapl.dorset.agents.AgentRequest;
+import edu.jhuapl.dorset.agents.AgentResponse;
+
+
+public class StreamingRecognizerTest {
+
+	private static EV3Agent agent;
+
+	@BeforeClass
+	public static void runBeforeTests(){
+		Properties prop = new Properties();
+		prop.setProperty("mockEV3", "true");
+		prop.setProperty("mockMotionMillis", "0");
+		agent = new EV3Agent(prop);
+	}
+	@AfterClass
+	public static void runAfterTests(){
+		agent.process(new AgentRequest("quit"));
+	}
+	@Test
+	public void testCommitsEarly() throws Exception {
+		StreamingRecognizer recognizer = new StreamingRecognizer(agent);
+
+		assertEquals(StreamingRecognizer.Event.COMMITTED, recognizer.accept("fire"));
+		Future<AgentResponse> committed = recognizer.getCommitted();
+		assertEquals("Firing", committed.get(1, TimeUnit.SECONDS).getText());
+		assertEquals(StreamingRecognizer.Event.NONE, recognizer.accept("Fire"));
+		assertSame(committed, recognizer.finish("fire"));
+		recognizer.close();
+	}
+	@Test
+	public void testWaitsForNumbers() throws Exception {
+		StreamingRecognizer recognizer = new StreamingRecognizer(agent);
+
+		assertEquals(StreamingRecognizer.Event.NONE, recognizer.append("turn"));
+		assertEquals(StreamingRecognizer.Event.NONE, recognizer.append("9"));
+		assertNull(recognizer.getCommitted());
+		assertEquals("Turning", recognizer.finish("turn 90").get(1, TimeUnit.SECONDS).getText());
+		recognizer.close();
+	}
+	@Test
+	public void testAmendsContradictedCommand() throws Exception {
+		StreamingRecognizer recognizer = new StreamingRecognizer(agent);
+
+		assertEquals(StreamingRecognizer.Event.COMMITTED, recognizer.accept("forward"));
+		assertEquals(StreamingRecognizer.Event.AMENDED, recognizer.accept("backward"));
+		assertEquals("Moving backward", recognizer.finish("backward").get(1, TimeUnit.SECONDS).getText());
+		assertEquals(StreamingRecognizer.Event.COMMITTED, recognizer.accept("stop"));
+		assertEquals(StreamingRecognizer.Event.NONE, recognizer.accept("stop the"));
+		assertEquals("Invalid command", recognizer.finish("stop the robot").get(1, TimeUnit.SECONDS).getText());
+		recognizer.close();
+	}
+	@Test
+	public void testRetractsBeforeStart() throws Exception {
+		Properties prop = new Properties();
+		prop.setProperty("mockEV3", "true");
+		prop.setProperty("mockMotionMillis", "300");
+		EV3Agent slowAgent = new EV3Agent(prop);
+		StreamingRecognizer recognizer = new StreamingRecognizer(slowAgent);
+
+		Future<AgentResponse> turn = recognizer.finish("turn 90");
+		assertEquals(StreamingRecognizer.Event.COMMITTED, recognizer.accept("forward"));
+		Future<AgentResponse> forward = recognizer.getCommitted();
+		assertEquals(StreamingRecognizer.Event.RETRACTED, recognizer.accept("four"));
+		turn.get(2, TimeUnit.SECONDS);
+		recognizer.finish("four").get(1, TimeUnit.SECONDS);
+		recognizer.close();
+		slowAgent.process(new AgentRequest("quit"));
+
+		assertTrue(forward.isCancelled());
+		assertNull(slowAgent.getMetrics().snapshot().getPlatformMethods().get("moveForward"));
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.jhuapl.dorset.agents.AgentRequest;
+
+
+public class TelemetryHubTest {
+
+	private static EV3Agent agent;
+
+	@BeforeClass
+	public static void runBeforeTests(){
+		Properties prop = new Properties();
+		prop.setProperty("mockEV3", "true");
+		prop.setProperty("mockMotionMillis", "0");
+		prop.setProperty("telemetryRate", "100");
+		prop.setProperty("telemetryBatteryMillis", "100");
+		agent = new EV3Agent(prop);
+		agent.process(new AgentRequest("angle 5"));
+	}
+	@AfterClass
+	public static void runAfterTests(){
+		agent.process(new AgentRequest("quit"));
+	}
+	private static long batteryReads(){
+		LatencyHistogram.Snapshot reads = agent.getMetrics().snapshot().getPlatformMethods().get("getBattery");
+		return reads == null ? 0 : reads.getCount();
+	}
+	@Test
+	public void testSamplesOnceForEveryViewer() throws InterruptedException {
+		long readsBefore = batteryReads();
+		List<TelemetryHub.Subscription> viewers = new ArrayList<TelemetryHub.Subscription>();
+		for(int i = 0; i < 8; i++){
+			viewers.add(agent.getTelemetry().subscribe());
+		}
+		for(TelemetryHub.Subscription viewer : viewers){
+			TelemetryFrame frame = viewer.take(1, TimeUnit.SECONDS);
+			assertNotNull(frame);
+			assertEquals(5, frame.getShooterAngle());
+		}
+		Thread.sleep(300);
+		for(TelemetryHub.Subscription viewer : viewers){
+			viewer.close();
+		}
+
+		assertEquals(0, agent.getTelemetry().getSubscriberCount());
+		assertTrue(agent.getTelemetry().getPublished() >= 10);
+		assertTrue(batteryReads() - readsBefore <= 5);
+	}
+	@Test
+	public void testSlowViewerSkipsToNewestFrame() throws InterruptedException {
+		TelemetryHub.Subscription viewer = agent.getTelemetry().subscribe();
+		Thread.sleep(100);
+		TelemetryFrame frame = viewer.take(1, TimeUnit.SECONDS);
+		long dropped = viewer.getDropped();
+		viewer.close();
+
+		assertTrue(dropped > 0);
+		assertTrue(agent.getTelemetry().getLatest().getSequence() - frame.getSequence() <= 1);
+	}
+	@Test
+	public void testFrameJson(){
+		TelemetryFrame frame = new TelemetryFrame(7, 1000, 90.123, Double.NaN, null, 7.8, 5, "turn 90", 1);
+
+		assertEquals("{\"seq\":7,\"time\":1000,\"heading\":90.12,\"distance\":null,\"touch\":null,"
+				+ "\"battery\":7.8,\"shooterAngle\":5,\"command\":\"turn 90\",\"queued\":1}", frame.toJson());
+	}
+}
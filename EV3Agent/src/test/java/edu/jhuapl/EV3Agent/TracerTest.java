@@ -0,0 +1,125 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import edu.jhuapl.dorset.Application;
+import edu.jhuapl.dorset.Request;
+import edu.jhuapl.dorset.agents.AgentRequest;
+import edu.jhuapl.dorset.routing.SingleAgentRouter;
+
+
+public class TracerTest {
+
+	private static EV3Agent agent(String platform, String traceSampleRate) throws IOException {
+		Properties prop = new Properties();
+		if(platform.equals("mock")){
+			prop.setProperty("mockEV3", "true");
+			prop.setProperty("mockMotionMillis", "0");
+		}
+		else{
+			prop.setProperty("simulatedEV3", "true");
+			prop.setProperty("simLatencyMillis", "1");
+			prop.setProperty("simSpeedup", "0");
+		}
+		File file = File.createTempFile("ev3-trace", ".json");
+		file.deleteOnExit();
+		prop.setProperty("traceSampleRate", traceSampleRate);
+		prop.setProperty("traceFile", file.getPath());
+		return new EV3Agent(prop);
+	}
+	@Test
+	public void testTracesRequestDownToRmiCalls() throws IOException {
+		EV3Agent agent = agent("simulated", "1");
+		Application app = new TracingApplication(new SingleAgentRouter(agent), agent.getTracer());
+		app.addRequestFilter(new SpokenNumberFilter());
+		app.process(new Request("turn ninety"));
+		List<Span> spans = agent.getTracer().drain();
+		agent.process(new AgentRequest("quit"));
+
+		Map<Long, Span> byId = new HashMap<Long, Span>();
+		Map<String, Span> byName = new HashMap<String, Span>();
+		for(Span span : spans){
+			byId.put(span.getSpanId(), span);
+			byName.put(span.getName(), span);
+		}
+		Span root = byName.get("Application.process");
+		assertEquals(0, root.getParentId());
+		assertEquals(root.getSpanId(), byName.get("SpokenNumberFilter.filter").getParentId());
+		assertEquals(root.getSpanId(), byName.get("EV3Agent.process").getParentId());
+		assertEquals("OK", byName.get("parse").getAttributes().get("status"));
+		Span fetch = byName.get("RMISampleProvider.fetchSample");
+		assertEquals("Gyro Sensor", fetch.getAttributes().get("device"));
+		String path = "";
+		for(Span span = fetch; span != null; span = byId.get(span.getParentId())){
+			assertEquals(root.getTraceId(), span.getTraceId());
+			path = span.getName() + " " + path;
+		}
+		assertEquals("Application.process EV3Agent.process turn EV3AgentPlatform.turn "
+				+ "RMISampleProvider.fetchSample ", path);
+	}
+	@Test
+	public void testUnsampledRequestsRecordNothing() throws IOException {
+		EV3Agent agent = agent("mock", "0");
+		agent.process(new AgentRequest("battery"));
+
+		assertTrue(agent.getTracer().drain().isEmpty());
+		assertNull(Tracer.current());
+	}
+	@Test
+	public void testExportsTraceEvents() throws IOException {
+		Tracer tracer = new Tracer(1, 16);
+		Span request = tracer.start("request").setAttribute("text", "say \"hi\"");
+		Tracer.child("call").end();
+		request.end();
+		File file = File.createTempFile("ev3-trace", ".json");
+		file.delete();
+		TraceExporter exporter = new TraceExporter(tracer, file, 1000);
+		int written = exporter.flush();
+		String json = new String(Files.readAllBytes(file.toPath()), Charset.forName("UTF-8"));
+		file.delete();
+
+		assertEquals(2, written);
+		assertTrue(json.startsWith("[\n{\"name\":\"thread_name\",\"ph\":\"M\""));
+		assertTrue(json.contains("{\"name\":\"call\",\"cat\":\"ev3\",\"ph\":\"X\""));
+		assertTrue(json.contains("\"text\":\"say \\\"hi\\\"\"}},\n"));
+	}
+	@Test
+	public void testDropsSpansWhenBufferIsFull(){
+		Tracer tracer = new Tracer(1, 1);
+		Span request = tracer.start("request");
+		Tracer.child("call").end();
+		request.end();
+
+		assertEquals(1, tracer.drain().size());
+		assertEquals(1, tracer.getDropped());
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.EV3Agent;
+
+import java.rmi.RemoteException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares time-to-target, settle time, overshoot and final heading error 
+ * of the pivot, spin and pid turn strategies on a KinematicRobot. Run with
+ * mvn test-compile exec:java -Dexec.mainClass=edu.jhuapl.EV3Agent.TurnBenchmark -Dexec.classpathScope=test
+ */
+public class TurnBenchmark {
+	
+	private static final int[] ANGLES = {15, 45, 90, 180, 360, -90};
+	private static final long[] LATENCIES = {10, 30};
+	private static final long COAST_MILLIS = 500;
+	private static final String[] MODES = {"pivot", "spin", "pid"};
+	
+	public static void main(String[] args) throws RemoteException {
+		PortInfo portInfo = new PortInfo(new Properties());
+		System.out.println("strategy  latency  angle   time(ms)  settle(ms)  iterations  overshoot  "
+				+ "error at stop  error after coast");
+		for(long latency : LATENCIES){
+			for(int angle : ANGLES){
+				for(String mode : MODES){
+					run(mode, latency, angle, portInfo);
+				}
+			}
+		}
+	}
+	private static void run(String mode, long latency, int angle, PortInfo portInfo) 
+			throws RemoteException {
+		KinematicRobot robot = new KinematicRobot(latency, portInfo.getWheelDiameter(), 
+				portInfo.getTrackWidth());
+		TurnStrategy strategy;
+		if(mode.equals("spin")){
+			strategy = new SpinTurnStrategy(robot, portInfo);
+		}
+		else if(mode.equals("pid")){
+			strategy = new PidTurnStrategy(robot, portInfo);
+		}
+		else{
+			strategy = new PivotTurnStrategy(robot);
+		}
+		DifferentialDrive drive = new DifferentialDrive(robot.leftWheel(), robot.rightWheel(), 
+				DifferentialDrive.SAME_THREAD);
+		TurnResult result = strategy.turn(drive, robot.gyro(), angle, CancellationToken.none());
+		robot.advance(TimeUnit.MILLISECONDS.toNanos(COAST_MILLIS));
+		double settledError = robot.getHeading() - (result.getStartHeading() + angle);
+		System.out.println(String.format("%-8s  %4d ms  %5d  %9d  %10d  %10d  %9.1f  %13.1f  %17.1f", mode, 
+				latency, angle, result.getElapsedMillis(), result.getSettleMillis(), result.getIterations(), 
+				result.getOvershoot(), result.getError(), settledError));
+	}
+}
@@ -0,0 +1,29 @@
+#!/bin/bash
+# Posts concurrent commands to a running demo and checks that the server still
+# answers while they move the robot. Start the demo with a small worker pool,
+# for example java -DmaxThreads=12 -jar target/web-1.0.0.war, so a blocking
+# endpoint would run out of workers.
+#
+# usage: ./loadtest.sh [url] [requests] [command] [endpoint]
+
+URL=${1:-http://localhost:8888}
+REQUESTS=${2:-40}
+COMMAND=${3:-turn 360}
+ENDPOINT=${4:-command}
+
+echo "Posting $REQUESTS x \"$COMMAND\" to $URL/api/$ENDPOINT"
+START=$(date +%s%N)
+for i in $(seq 1 $REQUESTS); do
+    curl -s -o /dev/null -w "%{http_code} %{time_total}s\n" -X POST \
+        -H "Content-Type: application/json" -H "Accept: application/json" \
+        -d "{\"text\": \"$COMMAND\"}" "$URL/api/$ENDPOINT" > /tmp/loadtest.$i &
+done
+
+sleep 1
+echo "Fetching $URL/api/metrics while the commands run"
+curl -s -o /dev/null -w "metrics answered %{http_code} in %{time_total}s\n" --max-time 30 "$URL/api/metrics"
+
+wait
+echo "All commands answered in $(( ($(date +%s%N) - START) / 1000000 )) ms"
+cat /tmp/loadtest.* | awk '{ codes[$1]++ } END { for (c in codes) print "  HTTP " c ": " codes[c] }'
+rm -f /tmp/loadtest.*
@@ -16,18 +16,20 @@
  */
 package edu.jhuapl.dorset.demos;
 
-import java.util.HashMap; //new
-import java.util.Map; //new
+import java.io.File;
+import java.io.IOException;
 import java.util.Properties;
 
 import org.glassfish.hk2.utilities.binding.AbstractBinder;
 import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.server.ServerProperties;
 
+import edu.jhuapl.EV3Agent.AliasFilter;
 import edu.jhuapl.EV3Agent.EV3Agent;
+import edu.jhuapl.EV3Agent.SpokenNumberFilter;
+import edu.jhuapl.EV3Agent.TracingApplication;
 import edu.jhuapl.dorset.Application;
-import edu.jhuapl.dorset.agents.Agent;
-import edu.jhuapl.dorset.filters.AliasRequestFilter; //new
-import edu.jhuapl.dorset.filters.RequestFilter; //new
+import edu.jhuapl.dorset.filters.RequestFilter;
 import edu.jhuapl.dorset.routing.Router;
 import edu.jhuapl.dorset.routing.SingleAgentRouter;
 
@@ -37,63 +39,62 @@ import edu.jhuapl.dorset.routing.SingleAgentRouter;
  * This uses Jersey's default dependency injection framework.
  */
 public class AppInitializer extends ResourceConfig {
-    private final Application app;
+    private static final long ALIAS_WATCH_MILLIS = 2000;
+    private final TracingApplication app;
+    private final EV3Agent agent;
+    private final CommandDispatcher dispatcher;
 
     /**
      * Create the app and bind it for injection
      */
     public AppInitializer() {
 
-        app = new Application(initializeRouter());
+        agent = new EV3Agent(new Properties());
+        app = new TracingApplication(initializeRouter(), agent.getTracer());
         
-        Map<String, String> aliasMap = new HashMap<String, String>();
-        
-        aliasMap.put("one", "1");
-        aliasMap.put("two", "2");
-        aliasMap.put("to", "2");
-		aliasMap.put("too", "2"); 
-        aliasMap.put("three", "3");
-        aliasMap.put("four", "4");
-		aliasMap.put("for", "4");
-		aliasMap.put("five", "5");
-		aliasMap.put("six", "6");
-		aliasMap.put("seven", "7");
-		aliasMap.put("eight", "8");
-		aliasMap.put("ate", "8");
-		aliasMap.put("ternate", "turn 8");
-		aliasMap.put("nine", "9");
-		aliasMap.put("ten", "10");
-		aliasMap.put("ingle", "angle");
-		aliasMap.put("mingle", "angle");
-		aliasMap.put("single", "angle");
-		aliasMap.put("negative ", "-");
-		aliasMap.put("minus ", "-");
-		aliasMap.put("for word", "forward");
-		aliasMap.put("four word", "forward");
-		aliasMap.put("4 word", "forward");
-		aliasMap.put("for words", "forward");
-		aliasMap.put("four words", "forward");
-		aliasMap.put("4 words", "forward");
-		aliasMap.put("forwards", "forward");
-		aliasMap.put("back word", "backward");
-		aliasMap.put("back words", "backward");
-		aliasMap.put("backwards", "backward");
-		
-		RequestFilter aliasRequestFilter = new AliasRequestFilter(aliasMap);
-		app.addRequestFilter(aliasRequestFilter);
+        app.addRequestFilter(initializeAliasFilter());
+        app.addRequestFilter(new SpokenNumberFilter());
+        dispatcher = new CommandDispatcher(app, agent, Integer.getInteger("commandThreads", 8),
+                Integer.getInteger("commandQueue", 16), Long.getLong("commandTimeoutMillis", 120000));
 	
         register(new AbstractBinder() {
             @Override
             protected void configure() {
                 bind(app).to(Application.class);
+                bind(agent).to(EV3Agent.class);
+                bind(dispatcher).to(CommandDispatcher.class);
             }
         });
+        register(CommandResource.class);
+        register(MetricsResource.class);
+        register(TelemetryResource.class);
+        // stream telemetry events as they are written instead of buffering the response
+        property(ServerProperties.OUTBOUND_CONTENT_LENGTH_BUFFER, 0);
 
         // uncomment for logging requests and responses at the INFO level
         // registerInstances(new
         // LoggingFilter(Logger.getLogger("org.glassfish.jersey"), true));
     }
 
+    /**
+     * Loads the aliases from the file named by the aliasFile system property
+     * and reloads them whenever the file changes, or uses the aliases bundled
+     * with the agent when the property is not set
+     */
+    private RequestFilter initializeAliasFilter() {
+        String aliasFile = System.getProperty("aliasFile");
+        try {
+            if (aliasFile == null) {
+                return AliasFilter.loadDefault();
+            }
+            AliasFilter aliasFilter = AliasFilter.load(new File(aliasFile));
+            aliasFilter.watch(ALIAS_WATCH_MILLIS);
+            return aliasFilter;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not load aliases " + e.getMessage(), e);
+        }
+    }
+
     private Router initializeRouter() {
         /*Agent timeAgent = new DateTimeAgent();
         MultiValuedMap timeAgentParams = new MultiValuedMap();
@@ -111,8 +112,6 @@ public class AppInitializer extends ResourceConfig {
         return mainRouter;
         */
     	
-    	Properties prop = new Properties();
-    	Agent agent = new EV3Agent(prop);
         Router router = new SingleAgentRouter(agent);
         
         return router;
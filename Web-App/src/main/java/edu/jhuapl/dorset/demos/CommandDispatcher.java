@@ -0,0 +1,221 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.dorset.demos;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.jhuapl.EV3Agent.BatchResult;
+import edu.jhuapl.EV3Agent.EV3Agent;
+import edu.jhuapl.EV3Agent.Hypothesis;
+import edu.jhuapl.EV3Agent.TracingApplication;
+import edu.jhuapl.dorset.Request;
+import edu.jhuapl.dorset.Response;
+import edu.jhuapl.dorset.agents.AgentResponse;
+
+/**
+ * Runs web requests through the Dorset application on its own small pool
+ * so that a suspended HTTP request does not hold a Jetty worker while the
+ * robot moves. The response is resumed when the command finishes, or with
+ * an error when it takes longer than the timeout or the pool is full.
+ * A command still waiting for a thread when its request times out is
+ * dropped, so the robot never runs a command the user was told failed.
+ * "stop" skips the pool and runs on the calling thread, so it is never
+ * queued behind the motions it is meant to end.
+ * A batch takes one thread for all of its commands, and so does an N-best list.
+ */
+public class CommandDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(CommandDispatcher.class);
+    private final TracingApplication app;
+    private final EV3Agent agent;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+
+    /**
+     * Constructor
+     * @param app Application that processes the requests
+     * @param agent Agent that runs batches, the one the application routes to
+     * @param threads Number of requests processed at the same time
+     * @param queueSize Number of requests waiting for a thread before new ones are turned away
+     * @param timeoutMillis Time a request waits for its command before it is answered with an error
+     */
+    public CommandDispatcher(TracingApplication app, EV3Agent agent, int threads, int queueSize,
+            long timeoutMillis) {
+        this.app = app;
+        this.agent = agent;
+        this.timeoutMillis = timeoutMillis;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "web-command-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+
+    /**
+     * Processes the text and resumes the suspended response with the result.
+     * Returns right away; the calling thread is never blocked on the robot.
+     * @param text Text of the request
+     * @param response Suspended response of the HTTP request
+     */
+    public void dispatch(final String text, final AsyncResponse response) {
+        if (isStop(text)) {
+            response.resume(process(text));
+            return;
+        }
+        submit("\"" + text + "\"", response, new Runnable() {
+            @Override
+            public void run() {
+                response.resume(process(text));
+            }
+        });
+    }
+
+    /**
+     * Filters each command like a single request, then runs them in order as one
+     * batch and resumes the response with the batch's JSON. Returns right away.
+     * @param texts Commands in the order they run
+     * @param response Suspended response of the HTTP request
+     */
+    public void dispatchBatch(final List<String> texts, final AsyncResponse response) {
+        submit("the batch", response, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    List<String> filtered = new ArrayList<String>(texts.size());
+                    for (String text : texts) {
+                        filtered.add(app.filter(new Request(text)).getText());
+                    }
+                    BatchResult result = agent.processBatch(filtered);
+                    response.resume(result.toJson());
+                } catch (RuntimeException e) {
+                    logger.error("Could not process batch " + texts, e);
+                    response.resume(CommandResponse.error("Could not process the batch: " + e.getMessage()));
+                }
+            }
+        });
+    }
+
+    /**
+     * Filters each hypothesis like a single request, so the scorer sees the text
+     * the agent would parse, then runs the best one and resumes the response
+     * with its answer. Returns right away.
+     * @param hypotheses N-best list, most likely first
+     * @param response Suspended response of the HTTP request
+     */
+    public void dispatchNBest(final List<Hypothesis> hypotheses, final AsyncResponse response) {
+        submit("the N-best list", response, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    List<Hypothesis> filtered = new ArrayList<Hypothesis>(hypotheses.size());
+                    for (Hypothesis hypothesis : hypotheses) {
+                        String text = app.filter(new Request(hypothesis.getText())).getText();
+                        filtered.add(new Hypothesis(text, hypothesis.getConfidence()));
+                    }
+                    AgentResponse result = agent.process(filtered);
+                    response.resume(CommandResponse.text(result.getText()));
+                } catch (RuntimeException e) {
+                    logger.error("Could not process N-best list " + hypotheses, e);
+                    response.resume(CommandResponse.error("Could not process the N-best list: " + e.getMessage()));
+                }
+            }
+        });
+    }
+
+    /**
+     * @param text Text of the request
+     * @return whether the request is "stop" once the aliases have been applied
+     */
+    private boolean isStop(String text) {
+        Request filtered = app.filter(new Request(text));
+        return filtered.getText() != null && filtered.getText().trim().equalsIgnoreCase("stop");
+    }
+
+    private void submit(final String name, AsyncResponse response, final Runnable task) {
+        //whichever of the task and the timeout claims the request first decides whether the command runs
+        final AtomicBoolean claimed = new AtomicBoolean();
+        response.setTimeoutHandler(new TimeoutHandler() {
+            @Override
+            public void handleTimeout(AsyncResponse timedOut) {
+                if (claimed.compareAndSet(false, true)) {
+                    logger.warn("Dropped " + name + ", it was still waiting for a thread when it timed out");
+                }
+                timedOut.resume(CommandResponse.error("The robot did not finish " + name + " within "
+                        + TimeUnit.MILLISECONDS.toSeconds(timeoutMillis) + " seconds"));
+            }
+        });
+        response.setTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (claimed.compareAndSet(false, true)) {
+                        task.run();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            response.resume(CommandResponse.error("The robot is busy, try again once the queued commands finish"));
+        }
+    }
+
+    private CommandResponse process(String text) {
+        try {
+            Response result = app.process(new Request(text));
+            if (result == null || result.getText() == null) {
+                return CommandResponse.error("Could not process \"" + text + "\"");
+            }
+            return CommandResponse.text(result.getText());
+        } catch (RuntimeException e) {
+            logger.error("Could not process request " + text, e);
+            return CommandResponse.error("Could not process \"" + text + "\": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return number of requests being processed or waiting for a thread
+     */
+    public int getPending() {
+        return executor.getActiveCount() + executor.getQueue().size();
+    }
+
+    /**
+     * Stops taking requests and lets the ones already queued finish
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.dorset.demos;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.MediaType;
+
+import edu.jhuapl.EV3Agent.Hypothesis;
+
+/**
+ * Takes commands at /api/command without tying up a Jetty worker for the
+ * length of the motion. The request is suspended and the worker goes back
+ * to the pool; the CommandDispatcher resumes it with the robot's answer.
+ * /api/command/batch runs a list of commands the same way in one request,
+ * and /api/command/nbest runs the best of a speech recognizer's N-best list.
+ */
+@Path("/command")
+public class CommandResource {
+    private final CommandDispatcher dispatcher;
+
+    @Inject
+    public CommandResource(CommandDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * @param request Text of the command
+     * @param response Resumed with a CommandResponse once the command is done
+     */
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public void process(CommandRequest request, @Suspended AsyncResponse response) {
+        if (request == null || request.getText() == null) {
+            response.resume(CommandResponse.error("The request has no text"));
+            return;
+        }
+        dispatcher.dispatch(request.getText(), response);
+    }
+
+    /**
+     * @param request Commands to run in order
+     * @param response Resumed with the BatchResult's JSON once the last command is done
+     */
+    @POST
+    @Path("/batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public void batch(BatchRequest request, @Suspended AsyncResponse response) {
+        if (request == null || request.getCommands() == null || request.getCommands().isEmpty()
+                || request.getCommands().contains(null)) {
+            response.resume(CommandResponse.error("The batch has no commands"));
+            return;
+        }
+        dispatcher.dispatchBatch(request.getCommands(), response);
+    }
+
+    /**
+     * @param request N-best list of transcripts, most likely first
+     * @param response Resumed with a CommandResponse once the chosen command is done
+     */
+    @POST
+    @Path("/nbest")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public void nbest(NBestRequest request, @Suspended AsyncResponse response) {
+        if (request == null || request.getHypotheses() == null || request.getHypotheses().isEmpty()) {
+            response.resume(CommandResponse.error("The N-best list has no hypotheses"));
+            return;
+        }
+        List<Hypothesis> hypotheses = new ArrayList<Hypothesis>(request.getHypotheses().size());
+        for (NBestRequest.Candidate candidate : request.getHypotheses()) {
+            if (candidate == null || candidate.getText() == null) {
+                response.resume(CommandResponse.error("A hypothesis has no text"));
+                return;
+            }
+            hypotheses.add(new Hypothesis(candidate.getText(), candidate.getConfidence()));
+        }
+        dispatcher.dispatchNBest(hypotheses, response);
+    }
+}
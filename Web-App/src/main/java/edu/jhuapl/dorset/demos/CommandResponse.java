@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.dorset.demos;
+
+/**
+ * Answer to a request posted to /api/command, serialized in the shape of
+ * Dorset's web responses so the page handles both the same way:
+ * {"type": "text", "text": ...} or {"type": "error", "error": {"message": ...}}
+ */
+public class CommandResponse {
+    private final String type;
+    private final String text;
+    private final Error error;
+
+    /**
+     * Reason a request failed
+     */
+    public static class Error {
+        private final String message;
+
+        public Error(String message) {
+            this.message = message;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    private CommandResponse(String type, String text, Error error) {
+        this.type = type;
+        this.text = text;
+        this.error = error;
+    }
+
+    public static CommandResponse text(String text) {
+        return new CommandResponse("text", text, null);
+    }
+
+    public static CommandResponse error(String message) {
+        return new CommandResponse("error", null, new Error(message));
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public Error getError() {
+        return error;
+    }
+}
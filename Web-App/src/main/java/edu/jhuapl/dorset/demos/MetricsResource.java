@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.dorset.demos;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import edu.jhuapl.EV3Agent.EV3Agent;
+import edu.jhuapl.EV3Agent.MetricsFeed;
+
+/**
+ * Serves the agent's command latencies and RMI call counts at /api/metrics
+ * in the Prometheus text exposition format, and what changes in them each 
+ * interval as server-sent events at /api/metrics/feed for the dashboard
+ */
+@Path("/metrics")
+public class MetricsResource {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final long KEEPALIVE_SECONDS = 15;
+    private final EV3Agent agent;
+
+    @Inject
+    public MetricsResource(EV3Agent agent) {
+        this.agent = agent;
+    }
+
+    /**
+     * @return current metrics as Prometheus text
+     */
+    @GET
+    @Produces("text/plain; version=0.0.4")
+    public String metrics() {
+        return agent.getMetrics().snapshot().toPrometheus();
+    }
+
+    /**
+     * @param lastEventId Sequence number of the last delta the browser received
+     * before it reconnected, sent by EventSource on its own
+     * @return event stream of the metrics deltas, resuming after lastEventId
+     */
+    @GET
+    @Path("/feed")
+    @Produces("text/event-stream")
+    public Response feed(@HeaderParam("Last-Event-ID") final String lastEventId) {
+        StreamingOutput events = new StreamingOutput() {
+            @Override
+            public void write(OutputStream out) throws IOException {
+                MetricsFeed feed = agent.getMetricsFeed();
+                long after = parseId(lastEventId);
+                try {
+                    while (true) {
+                        MetricsFeed.Delta delta = feed.poll(after, KEEPALIVE_SECONDS, TimeUnit.SECONDS);
+                        String event = ": keepalive\n\n";
+                        if (delta != null) {
+                            after = delta.getSequence();
+                            event = "id: " + after + "\nevent: metrics\ndata: " + delta.toJson() + "\n\n";
+                        }
+                        out.write(event.getBytes(UTF_8));
+                        out.flush();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        return Response.ok(events).header("Cache-Control", "no-cache").header("X-Accel-Buffering", "no").build();
+    }
+
+    private static long parseId(String id) {
+        try {
+            return id == null ? 0 : Long.parseLong(id.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
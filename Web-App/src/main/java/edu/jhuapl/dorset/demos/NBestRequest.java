@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.dorset.demos;
+
+import java.util.List;
+
+/**
+ * Body of a request posted to /api/command/nbest: a speech recognizer's
+ * N-best list, most likely transcript first
+ */
+public class NBestRequest {
+    private List<Candidate> hypotheses;
+
+    public List<Candidate> getHypotheses() {
+        return hypotheses;
+    }
+
+    public void setHypotheses(List<Candidate> hypotheses) {
+        this.hypotheses = hypotheses;
+    }
+
+    /**
+     * One transcript of the N-best list and the recognizer's confidence in it, 0 to 1
+     */
+    public static class Candidate {
+        private String text;
+        private double confidence;
+
+        public String getText() {
+            return text;
+        }
+
+        public void setText(String text) {
+            this.text = text;
+        }
+
+        public double getConfidence() {
+            return confidence;
+        }
+
+        public void setConfidence(double confidence) {
+            this.confidence = confidence;
+        }
+    }
+}
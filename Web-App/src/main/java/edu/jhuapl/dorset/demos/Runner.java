@@ -20,6 +20,8 @@ import java.net.URL;
 import java.security.ProtectionDomain;
 
 import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.eclipse.jetty.webapp.WebAppContext;
 import org.slf4j.bridge.SLF4JBridgeHandler;
 
@@ -38,7 +40,15 @@ public class Runner {
             System.out.println("Dorset web demo running on http://localhost:" 
                             + String.valueOf(port) + "/");
         }
-        Server server = new Server(port);
+        // commands posted to /api/command are suspended while the robot moves, so the
+        // workers only cover requests being read or written and the open event streams
+        QueuedThreadPool threadPool = new QueuedThreadPool(Integer.getInteger("maxThreads", 50),
+                        Integer.getInteger("minThreads", 8), Integer.getInteger("idleTimeoutMillis", 60000));
+        threadPool.setName("jetty-worker");
+        Server server = new Server(threadPool);
+        ServerConnector connector = new ServerConnector(server);
+        connector.setPort(port);
+        server.addConnector(connector);
 
         WebAppContext context = new WebAppContext();
         context.setServer(server);
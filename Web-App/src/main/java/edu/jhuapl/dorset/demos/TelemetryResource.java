@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.jhuapl.dorset.demos;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import edu.jhuapl.EV3Agent.EV3Agent;
+import edu.jhuapl.EV3Agent.TelemetryFrame;
+import edu.jhuapl.EV3Agent.TelemetryHub;
+
+/**
+ * Streams the robot's telemetry at /api/telemetry as server-sent events,
+ * one "telemetry" event with a JSON frame each time the hub samples.
+ * A viewer that reads slower than the frames arrive gets the newest frame
+ * when it catches up, never a backlog.
+ */
+@Path("/telemetry")
+public class TelemetryResource {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final long KEEPALIVE_SECONDS = 15;
+    private final EV3Agent agent;
+
+    @Inject
+    public TelemetryResource(EV3Agent agent) {
+        this.agent = agent;
+    }
+
+    /**
+     * @return event stream that lasts until the viewer disconnects
+     */
+    @GET
+    @Produces("text/event-stream")
+    public Response stream() {
+        StreamingOutput events = new StreamingOutput() {
+            @Override
+            public void write(OutputStream out) throws IOException {
+                TelemetryHub.Subscription subscription = agent.getTelemetry().subscribe();
+                try {
+                    out.write("retry: 2000\n\n".getBytes(UTF_8));
+                    out.flush();
+                    while (true) {
+                        TelemetryFrame frame = subscription.take(KEEPALIVE_SECONDS, TimeUnit.SECONDS);
+                        String event = frame == null ? ": keepalive\n\n"
+                                : "id: " + frame.getSequence() + "\nevent: telemetry\ndata: " + frame.toJson() + "\n\n";
+                        out.write(event.getBytes(UTF_8));
+                        out.flush();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    subscription.close();
+                }
+            }
+        };
+        return Response.ok(events).header("Cache-Control", "no-cache").header("X-Accel-Buffering", "no").build();
+    }
+}
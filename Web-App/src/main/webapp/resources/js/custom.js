@@ -52,7 +52,7 @@ function sendPost(question) {
             'Content-Type': 'application/json'
         },
         type: "POST",
-        url: "api/request",
+        url: "api/command",
         data: JSON.stringify({
             "text": question
         }),
@@ -0,0 +1,201 @@
+/**
+ * Copyright 2017 The Johns Hopkins University Applied Physics Laboratory LLC
+ * All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * Plots the metrics feed at api/metrics/feed. Each event holds only what
+ * changed in one interval, so the page appends one point per chart and
+ * never downloads the full metrics again. EventSource reconnects on its own
+ * and sends the id of the last event, so the feed resumes where it stopped.
+ */
+var WINDOW = 120;
+
+var colors = ["rgba(0,225,204,1)", //teal
+    "rgba(255,136,77,1)", //orange
+    "rgba(153,194,255,1)", //light blue
+    "rgba(255,51,204,1)", //pink
+    "rgba(128,255,170,1)", //light green
+    "rgba(255,0,0,1)", //red
+    "rgba(153,51,255,1)", //purple
+    "rgba(51,133,255,1)" //royal blue
+];
+
+var labels = [];
+var latencies = {};
+var charts = {};
+var lastSequence = 0;
+
+$(document).ready(function() {
+
+    charts.latency = lineChart("latency-chart-id", "ms");
+    charts.rmi = lineChart("rmi-chart-id", "calls");
+    charts.loop = lineChart("loop-chart-id", "iterations/s");
+    charts.connection = newChart("connection-chart-id", "bar", "events");
+    charts.battery = lineChart("battery-chart-id", "V");
+    dataset(charts.connection, "reconnects");
+    dataset(charts.connection, "timeouts");
+    dataset(charts.battery, "battery");
+
+    $("#latency-command-id").change(showLatency);
+
+    var feed = new EventSource("api/metrics/feed");
+    feed.addEventListener("metrics", function(e) {
+        addDelta(JSON.parse(e.data));
+    });
+    feed.onerror = function() {
+        status("alert-danger", "Lost the metrics feed, reconnecting...");
+    };
+});
+
+function newChart(id, type, unit) {
+    var ctx = document.getElementById(id).getContext("2d");
+    return new Chart(ctx, {
+        type: type,
+        data: {
+            labels: labels,
+            datasets: []
+        },
+        options: {
+            responsive: true,
+            animation: {
+                duration: 0
+            },
+            scales: {
+                yAxes: [{
+                    ticks: {
+                        beginAtZero: true
+                    },
+                    scaleLabel: {
+                        display: true,
+                        labelString: unit
+                    }
+                }]
+            }
+        }
+    });
+}
+
+function lineChart(id, unit) {
+    return newChart(id, "line", unit);
+}
+
+// finds the series with the given label, adding it with earlier points empty
+function dataset(chart, label) {
+    var datasets = chart.data.datasets;
+    for (var i = 0; i < datasets.length; i++) {
+        if (datasets[i].label == label) {
+            return datasets[i];
+        }
+    }
+    var color = colors[datasets.length % colors.length];
+    var data = [];
+    for (var j = 0; j < labels.length - 1; j++) {
+        data.push(null);
+    }
+    var series = {
+        label: label,
+        data: data,
+        fill: false,
+        borderColor: color,
+        backgroundColor: color,
+        pointRadius: 1
+    };
+    datasets.push(series);
+    return series;
+}
+
+// appends one point to every series of the chart, 0 for the ones missing from values
+function appendPoints(chart, values, missing) {
+    for (var key in values) {
+        if (values.hasOwnProperty(key)) {
+            dataset(chart, key);
+        }
+    }
+    var datasets = chart.data.datasets;
+    for (var i = 0; i < datasets.length; i++) {
+        var value = values[datasets[i].label];
+        datasets[i].data.push(value == null ? missing : value);
+        if (datasets[i].data.length > WINDOW) {
+            datasets[i].data.shift();
+        }
+    }
+}
+
+function addDelta(delta) {
+    var missed = lastSequence > 0 ? delta.seq - lastSequence - 1 : 0;
+    lastSequence = delta.seq;
+    if (missed > 0) {
+        status("alert-warning", "Skipped " + missed + " intervals while catching up");
+    } else {
+        status(delta.connected ? "alert-success" : "alert-warning",
+            delta.connected ? "Connected to the EV3" : "EV3 not connected");
+    }
+
+    labels.push(new Date(delta.time).toLocaleTimeString());
+    if (labels.length > WINDOW) {
+        labels.shift();
+    }
+
+    for (var command in delta.commands) {
+        if (delta.commands.hasOwnProperty(command) && !latencies.hasOwnProperty(command)) {
+            latencies[command] = [];
+            $("#latency-command-id").append($("<option>").val(command).text(command));
+        }
+    }
+    for (var name in latencies) {
+        if (latencies.hasOwnProperty(name)) {
+            latencies[name].push(delta.commands[name] || null);
+            if (latencies[name].length > WINDOW) {
+                latencies[name].shift();
+            }
+        }
+    }
+
+    appendPoints(charts.rmi, delta.rmiCalls, 0);
+    appendPoints(charts.loop, delta.loopRates, 0);
+    appendPoints(charts.connection, {
+        reconnects: delta.reconnects,
+        timeouts: delta.timeouts
+    }, 0);
+    appendPoints(charts.battery, {
+        battery: delta.battery
+    }, null);
+
+    showLatency();
+    charts.rmi.update();
+    charts.loop.update();
+    charts.connection.update();
+    charts.battery.update();
+}
+
+// plots the percentiles of the command picked, null where it did not run
+function showLatency() {
+    var history = latencies[$("#latency-command-id").val()] || [];
+    var fields = ["p50", "p90", "p99", "max"];
+    var offset = labels.length - history.length;
+    for (var i = 0; i < fields.length; i++) {
+        var series = dataset(charts.latency, fields[i]);
+        series.data = [];
+        for (var j = 0; j < labels.length; j++) {
+            var interval = j < offset ? null : history[j - offset];
+            series.data.push(interval == null ? null : interval[fields[i]]);
+        }
+    }
+    charts.latency.update();
+}
+
+function status(type, text) {
+    $("#feed-status-id").attr("class", "alert " + type).text(text);
+}